@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+
+import org.w3c.dom.ls.DOMImplementationLS;
+import org.w3c.dom.ls.LSInput;
+import org.w3c.dom.ls.LSResourceResolver;
+
+/**
+ * Reads schemas from the class path rather than from the web, so validation runs offline. A schema with location <code>http(s)://host/path</code> is
+ * bundled as the resource <code>schemas/host/path</code>, for example <code>schemas/easy.dans.knaw.nl/schemas/md/2019/10/ddm.xsd</code>. Imports and
+ * includes are resolved against the original location, so the relative locations within a bundled schema need no changes. Schemas that are not bundled
+ * are read from their location.
+ */
+public class BundledSchemaResolver implements LSResourceResolver {
+    static final String ROOT = "schemas/";
+
+    private final ClassLoader classLoader;
+    private final DOMImplementationLS ls;
+
+    /** Creates a resolver for the class path of this library. */
+    public BundledSchemaResolver() {
+        this(BundledSchemaResolver.class.getClassLoader());
+    }
+
+    /**
+     * Creates a resolver for another class path.
+     * 
+     * @param classLoader
+     *        finds the bundled schemas
+     */
+    public BundledSchemaResolver(final ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        try {
+            this.ls = (DOMImplementationLS) DocumentBuilderFactory.newInstance().newDocumentBuilder().getDOMImplementation();
+        }
+        catch (final ParserConfigurationException e) {
+            throw new IllegalStateException("every java platform should have a DOM implementation", e);
+        }
+    }
+
+    /**
+     * @param location
+     *        of a schema
+     * @return the bundled schema with the location as system id, otherwise a source that reads the location
+     */
+    public Source toSource(final String location) {
+        final InputStream bundled = open(location);
+        if (bundled == null)
+            return new StreamSource(location);
+        return new StreamSource(bundled, location);
+    }
+
+    /**
+     * @param location
+     *        of a schema
+     * @return true if the schema is read from the class path
+     */
+    public boolean isBundled(final String location) {
+        final String resource = toResource(location);
+        return resource != null && classLoader.getResource(resource) != null;
+    }
+
+    /**
+     * @param location
+     *        of a schema
+     * @return the class path URL of the bundled schema, otherwise the location; for readers that take a system id, like the vocabularies read by
+     *         {@link nl.knaw.dans.pf.language.xml.vocabulary.MapFromXSD}
+     */
+    public String toBundledLocation(final String location) {
+        final String resource = toResource(location);
+        final URL url = resource == null ? null : classLoader.getResource(resource);
+        return url == null ? location : url.toString();
+    }
+
+    @Override
+    public LSInput resolveResource(final String type, final String namespaceURI, final String publicId, final String systemId, final String baseURI) {
+        if (systemId == null)
+            return null;
+        final String location;
+        try {
+            location = baseURI == null ? systemId : new URI(baseURI).resolve(systemId).toString();
+        }
+        catch (final URISyntaxException e) {
+            // the parser reports what it can not read
+            return null;
+        }
+        catch (final IllegalArgumentException e) {
+            return null;
+        }
+        final InputStream bundled = open(location);
+        if (bundled == null)
+            return null;
+        final LSInput input = ls.createLSInput();
+        input.setByteStream(bundled);
+        input.setSystemId(location);
+        input.setPublicId(publicId);
+        input.setBaseURI(baseURI);
+        return input;
+    }
+
+    private InputStream open(final String location) {
+        final String resource = toResource(location);
+        return resource == null ? null : classLoader.getResourceAsStream(resource);
+    }
+
+    /** @return null for other than web locations */
+    static String toResource(final String location) {
+        final URI uri;
+        try {
+            uri = new URI(location);
+        }
+        catch (final URISyntaxException e) {
+            return null;
+        }
+        if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme()) || uri.getHost() == null)
+            return null;
+        final String path = uri.getPath() == null ? "" : uri.getPath();
+        return ROOT + uri.getHost() + (path.startsWith("/") ? path : "/" + path);
+    }
+}
@@ -22,8 +22,19 @@ import nl.knaw.dans.pf.language.xml.validation.AbstractValidator2;
  * Utility class for validating Dans Dataset Metadata.
  */
 public class DDMValidator extends AbstractValidator2 {
+    // default schemas for DDM (online)
+    private static final String[] SCHEMAS = {DDM.xsd, DCX_GML.xsd, NARCIS_TYPE.xsd, IDENTIFIER_TYPE.xsd, ABR.xsd};
+
     public DDMValidator() {
-        // default schemas for DDM (online)
-        super(DDM.xsd, DCX_GML.xsd, NARCIS_TYPE.xsd, IDENTIFIER_TYPE.xsd, ABR.xsd);
+        super(SCHEMAS);
+    }
+
+    /**
+     * Gets a validator for the default schemas that can be shared by crosswalks on different threads.
+     * 
+     * @return a pool with one validator per available processor
+     */
+    public static ValidatorPool getPool() {
+        return ValidatorPool.getInstance(Runtime.getRuntime().availableProcessors(), SCHEMAS);
     }
 }
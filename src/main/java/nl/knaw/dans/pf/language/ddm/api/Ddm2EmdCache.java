@@ -0,0 +1,324 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace;
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+import nl.knaw.dans.pf.language.emd.EasyMetadataImpl;
+import nl.knaw.dans.pf.language.emd.binding.EmdUnmarshaller;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkException;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandlerMap;
+import nl.knaw.dans.pf.language.xml.exc.XMLDeserializationException;
+import nl.knaw.dans.pf.language.xml.validation.AbstractValidator2;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the results of a {@link Ddm2EmdCrosswalk} by content: a SHA-1 hash of the version of this library, the DDM schema, the schemas the crosswalk
+ * validates against (if any), the handlers or projection, the text limits and the error policy of the crosswalk and the bytes of the DDM document. A string
+ * is hashed as UTF-8, so it shares an entry with a UTF-8 file of the same content, a byte order mark is not content. Identical documents are crosswalked
+ * (and validated) only once. A size-bounded in-memory tier keeps the Easy Meta Data XML of the most recently used results, an optional directory keeps the
+ * Easy Meta Data XML of all results that ever passed. The results of a crosswalk with its own {@link CrosswalkHandlerMap} are not shared with other JVMs.
+ * <p>
+ * Only successful crosswalks are cached. Notifications of the {@link XMLErrorHandler} of the crosswalk are not repeated for cached documents. Every hit
+ * unmarshals a new instance from the cached XML, so callers may modify the result. That is not free: a hit skips parsing the DDM, validation, the handlers
+ * and the marshalling that verifies the result, but still unmarshals the Easy Meta Data XML. Like the crosswalk an instance is not thread safe.
+ * </p>
+ */
+public class Ddm2EmdCache {
+    private static final Logger logger = LoggerFactory.getLogger(Ddm2EmdCache.class);
+    private static final String ENCODING = "UTF-8";
+    private static final byte[] BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    /** distinguishes handler maps of this JVM from those of others in the on-disk tier */
+    private static final String JVM = UUID.randomUUID().toString();
+
+    private final Ddm2EmdCrosswalk crosswalk;
+    private final File directory;
+    private final byte[] version;
+    private final Map<String, String> memory;
+
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates an in-memory cache.
+     *
+     * @param crosswalk
+     *        creates the results of cache misses
+     * @param maxEntries
+     *        the maximum number of results kept in memory
+     */
+    public Ddm2EmdCache(final Ddm2EmdCrosswalk crosswalk, final int maxEntries) {
+        this(crosswalk, maxEntries, null, defaultVersion());
+    }
+
+    /**
+     * Creates a cache with an on-disk tier.
+     *
+     * @param crosswalk
+     *        creates the results of cache misses
+     * @param maxEntries
+     *        the maximum number of results kept in memory, zero disables the in-memory tier
+     * @param directory
+     *        optional, stores the Easy Meta Data XML of the results, created if it does not exist
+     * @param version
+     *        distinguishes results of different crosswalk implementations or schemas, see {@link #defaultVersion()}
+     */
+    public Ddm2EmdCache(final Ddm2EmdCrosswalk crosswalk, final int maxEntries, final File directory, final String version) {
+        if (crosswalk == null)
+            throw new IllegalArgumentException("crosswalk can not be null");
+        if (maxEntries < 0)
+            throw new IllegalArgumentException("maxEntries can not be negative: " + maxEntries);
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs())
+            throw new IllegalArgumentException("could not create cache directory " + directory);
+        this.crosswalk = crosswalk;
+        this.directory = directory;
+        this.version = toBytes(version + "\n" + validationMode(crosswalk.getDdmValidator()) + "\n");
+        this.memory = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+                if (size() <= maxEntries)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /** @return the implementation version of this library (if packaged) and the location of the DDM schema */
+    public static String defaultVersion() {
+        final String implementation = Ddm2EmdCrosswalk.class.getPackage().getImplementationVersion();
+        return (implementation == null ? "unpackaged" : implementation) + " " + NameSpace.DDM.xsd;
+    }
+
+    /** @return whether and against which schemas a crosswalk validates, a validated result is not a result for an unvalidated crosswalk or vice versa */
+    static String validationMode(final AbstractValidator2 validator) {
+        if (validator == null)
+            return "unvalidated";
+        if (validator instanceof ValidatorPool)
+            return "validated " + ((ValidatorPool) validator).getSchemaSet();
+        if (validator instanceof ValidationVerdictCache)
+            return "validated " + ((ValidationVerdictCache) validator).getSchemaSet();
+        return "validated " + validator.getClass().getName();
+    }
+
+    /** @return what besides the document determines a result, read for every document as the crosswalk may be reconfigured */
+    static String configuration(final Ddm2EmdCrosswalk crosswalk) {
+        return handlers(crosswalk.handlerMap) + "\n" + crosswalk.getTextLimits() + "\n" + crosswalk.getErrorPolicy() + "\n";
+    }
+
+    private static String handlers(final CrosswalkHandlerMap<EasyMetadata> handlerMap) {
+        if (handlerMap instanceof Ddm2EmdHandlerMap)
+            return "all fields";
+        if (handlerMap instanceof ProjectedHandlerMap)
+            return "projection " + ((ProjectedHandlerMap) handlerMap).getProjection().toKey();
+        // unknown configuration, only the instance itself gives the same results
+        return handlerMap.getClass().getName() + "@" + System.identityHashCode(handlerMap) + " in " + JVM;
+    }
+
+    /**
+     * Creates an object after validation against an XSD, unless the content was crosswalked before.
+     *
+     * @param file
+     *        with XML content
+     * @return null if errors are reported by the {@link XMLErrorHandler} of the crosswalk
+     * @throws CrosswalkException
+     */
+    public EasyMetadata createFrom(final File file) throws CrosswalkException {
+        final byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        }
+        catch (final IOException e) {
+            throw new CrosswalkException("could not read " + file + ": " + e.getMessage(), e);
+        }
+        final int offset = startsWithByteOrderMark(bytes) ? BYTE_ORDER_MARK.length : 0;
+        final String key = toKey(bytes, offset);
+        final EasyMetadata cached = lookup(key);
+        if (cached != null)
+            return cached;
+        final StringBuilder emdXml = new StringBuilder();
+        return store(key, crosswalk.createFrom(bytes, emdXml), emdXml);
+    }
+
+    /**
+     * Creates an object after validation against an XSD, unless the content was crosswalked before.
+     *
+     * @param xml
+     *        the XML content
+     * @return null if errors are reported by the {@link XMLErrorHandler} of the crosswalk
+     * @throws CrosswalkException
+     */
+    public EasyMetadata createFrom(final String xml) throws CrosswalkException {
+        final String key = toKey(xml);
+        final EasyMetadata cached = lookup(key);
+        if (cached != null)
+            return cached;
+        final StringBuilder emdXml = new StringBuilder();
+        return store(key, crosswalk.createFrom(xml, emdXml), emdXml);
+    }
+
+    /** @return the number of results found in memory */
+    public long getHits() {
+        return hits;
+    }
+
+    /** @return the number of results found on disk but not in memory */
+    public long getDiskHits() {
+        return diskHits;
+    }
+
+    /** @return the number of crosswalks executed */
+    public long getMisses() {
+        return misses;
+    }
+
+    /** @return the number of results dropped from memory to respect the maximum number of entries */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /** @return the number of results in memory */
+    public int size() {
+        return memory.size();
+    }
+
+    /** Drops the in-memory tier, the on-disk tier is kept. */
+    public void clear() {
+        memory.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits + " diskHits=" + diskHits + " misses=" + misses + " evictions=" + evictions + " size=" + memory.size();
+    }
+
+    private EasyMetadata lookup(final String key) throws CrosswalkException {
+        final String emdXml = memory.get(key);
+        if (emdXml != null) {
+            hits++;
+            return unmarshal(emdXml, key);
+        }
+        final EasyMetadata emd = readFromDisk(key);
+        if (emd != null) {
+            diskHits++;
+            return emd;
+        }
+        misses++;
+        return null;
+    }
+
+    private EasyMetadata store(final String key, final EasyMetadata emd, final StringBuilder emdXml) throws CrosswalkException {
+        if (emd == null)
+            return null;
+        memory.put(key, emdXml.toString());
+        writeToDisk(key, emdXml.toString());
+        return emd;
+    }
+
+    private EasyMetadata readFromDisk(final String key) throws CrosswalkException {
+        if (directory == null)
+            return null;
+        final File file = new File(directory, key + ".xml");
+        if (!file.isFile())
+            return null;
+        final String emdXml;
+        try {
+            emdXml = new String(Files.readAllBytes(file.toPath()), ENCODING);
+        }
+        catch (final IOException e) {
+            throw new CrosswalkException("could not read cached " + file + ": " + e.getMessage(), e);
+        }
+        try {
+            final EasyMetadata emd = new EmdUnmarshaller<EasyMetadata>(EasyMetadataImpl.class).unmarshal(emdXml);
+            memory.put(key, emdXml);
+            return emd;
+        }
+        catch (final XMLDeserializationException e) {
+            // a damaged entry is replaced by the next crosswalk
+            logger.warn("could not read cached {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static EasyMetadata unmarshal(final String emdXml, final String key) throws CrosswalkException {
+        try {
+            return new EmdUnmarshaller<EasyMetadata>(EasyMetadataImpl.class).unmarshal(emdXml);
+        }
+        catch (final XMLDeserializationException e) {
+            // was marshalled by the crosswalk itself
+            throw new CrosswalkException("could not unmarshal cached result " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void writeToDisk(final String key, final String emdXml) throws CrosswalkException {
+        if (directory == null)
+            return;
+        final File file = new File(directory, key + ".xml");
+        try {
+            // readers never see a partially written entry
+            final File tmp = File.createTempFile(key, ".tmp", directory);
+            Files.write(tmp.toPath(), toBytes(emdXml));
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (final IOException e) {
+            throw new CrosswalkException("could not cache " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean startsWithByteOrderMark(final byte[] bytes) {
+        if (bytes.length < BYTE_ORDER_MARK.length)
+            return false;
+        for (int i = 0; i < BYTE_ORDER_MARK.length; i++)
+            if (bytes[i] != BYTE_ORDER_MARK[i])
+                return false;
+        return true;
+    }
+
+    private String toKey(final String xml) {
+        // a byte order mark is not content
+        final String content = xml.startsWith("\uFEFF") ? xml.substring(1) : xml;
+        return toKey(toBytes(content), 0);
+    }
+
+    private String toKey(final byte[] content, final int offset) {
+        return new Sha1().update(version).update(toBytes(configuration(crosswalk))).update(content, offset, content.length - offset).toHex();
+    }
+
+    private static byte[] toBytes(final String s) {
+        try {
+            return s.getBytes(ENCODING);
+        }
+        catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException("every java platform should support " + ENCODING, e);
+        }
+    }
+}
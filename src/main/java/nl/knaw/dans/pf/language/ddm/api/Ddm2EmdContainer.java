@@ -0,0 +1,255 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+import nl.knaw.dans.pf.language.emd.EmdCoverage;
+import nl.knaw.dans.pf.language.emd.EmdDate;
+import nl.knaw.dans.pf.language.emd.EmdRelation;
+import nl.knaw.dans.pf.language.emd.EmdRights;
+
+/**
+ * The containers of Easy Meta Data as filled by the handlers of the {@link Ddm2EmdHandlerMap}, with the DDM elements that feed them. A container receives
+ * values of several elements in document order, so it is the unit of an incremental update.
+ */
+public enum Ddm2EmdContainer {
+    TITLE("dc:title", "dcterms:title", "dcterms:alternative") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            replace(to.getEmdTitle().getDcTitle(), from.getEmdTitle().getDcTitle());
+            replace(to.getEmdTitle().getTermsAlternative(), from.getEmdTitle().getTermsAlternative());
+        }
+    },
+    CREATOR("dc:creator", "dcterms:creator", "dcx-dai:creator", "dcx-dai:creatorDetails") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            replace(to.getEmdCreator().getDcCreator(), from.getEmdCreator().getDcCreator());
+            replace(to.getEmdCreator().getEasCreator(), from.getEmdCreator().getEasCreator());
+        }
+    },
+    CONTRIBUTOR("dc:contributor", "dcterms:contributor", "dcx-dai:contributor", "dcx-dai:contributorDetails") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            replace(to.getEmdContributor().getDcContributor(), from.getEmdContributor().getDcContributor());
+            replace(to.getEmdContributor().getEasContributor(), from.getEmdContributor().getEasContributor());
+        }
+    },
+    RIGHTS("ddm:accessRights", "dcterms:accessRights", "dc:rights", "dcterms:rights", "dcterms:license", "dcterms:rightsHolder") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            final EmdRights source = from.getEmdRights();
+            final EmdRights target = to.getEmdRights();
+            replace(target.getTermsAccessRights(), source.getTermsAccessRights());
+            replace(target.getTermsLicense(), source.getTermsLicense());
+            replace(target.getTermsRightsHolder(), source.getTermsRightsHolder());
+        }
+    },
+    PUBLISHER("dc:publisher", "dcterms:publisher") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            replace(to.getEmdPublisher().getDcPublisher(), from.getEmdPublisher().getDcPublisher());
+        }
+    },
+    DESCRIPTION("dc:description", "dcterms:description", "ddm:description") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            replace(to.getEmdDescription().getDcDescription(), from.getEmdDescription().getDcDescription());
+        }
+    },
+    FORMAT("dc:format", "dcterms:format") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            replace(to.getEmdFormat().getDcFormat(), from.getEmdFormat().getDcFormat());
+        }
+    },
+    IDENTIFIER("dc:identifier", "dcterms:identifier") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            replace(to.getEmdIdentifier().getDcIdentifier(), from.getEmdIdentifier().getDcIdentifier());
+        }
+    },
+    LANGUAGE("dc:language", "dcterms:language") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            replace(to.getEmdLanguage().getDcLanguage(), from.getEmdLanguage().getDcLanguage());
+        }
+    },
+    SOURCE("dc:source", "dcterms:source") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            replace(to.getEmdSource().getDcSource(), from.getEmdSource().getDcSource());
+        }
+    },
+    TYPE("dc:type", "dcterms:type") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            replace(to.getEmdType().getDcType(), from.getEmdType().getDcType());
+        }
+    },
+    COVERAGE("dc:coverage", "dcterms:coverage", "dcterms:spatial", "dcx-gml:spatial", "dcterms:temporal", "ddm:temporal") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            final EmdCoverage source = from.getEmdCoverage();
+            final EmdCoverage target = to.getEmdCoverage();
+            replace(target.getDcCoverage(), source.getDcCoverage());
+            replace(target.getTermsSpatial(), source.getTermsSpatial());
+            replace(target.getEasSpatial(), source.getEasSpatial());
+            replace(target.getTermsTemporal(), source.getTermsTemporal());
+        }
+    },
+    SUBJECT("dc:subject", "dcterms:subject", "ddm:subject") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            replace(to.getEmdSubject().getDcSubject(), from.getEmdSubject().getDcSubject());
+        }
+    },
+    AUDIENCE("ddm:audience", "dcterms:audience", "dcterms:educationLevel") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            replace(to.getEmdAudience().getTermsAudience(), from.getEmdAudience().getTermsAudience());
+            // the AudienceHandler derives the metadata format from the first audience
+            to.getEmdOther().getEasApplicationSpecific().setMetadataFormat(from.getEmdOther().getEasApplicationSpecific().getMetadataFormat());
+        }
+    },
+    DATE("ddm:created", "dcterms:created", "ddm:available", "dcterms:available", "dcterms:valid", "dcterms:issued", "dcterms:modified",
+            "dcterms:dateAccepted", "dcterms:dateCopyrighted", "dcterms:dateSubmitted", "dc:date", "dcterms:date") {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            final EmdDate source = from.getEmdDate();
+            final EmdDate target = to.getEmdDate();
+            replace(target.getDcDate(), source.getDcDate());
+            replace(target.getEasDate(), source.getEasDate());
+            replace(target.getTermsCreated(), source.getTermsCreated());
+            replace(target.getEasCreated(), source.getEasCreated());
+            replace(target.getTermsAvailable(), source.getTermsAvailable());
+            replace(target.getEasAvailable(), source.getEasAvailable());
+            replace(target.getTermsValid(), source.getTermsValid());
+            replace(target.getEasValid(), source.getEasValid());
+            replace(target.getTermsIssued(), source.getTermsIssued());
+            replace(target.getEasIssued(), source.getEasIssued());
+            replace(target.getTermsModified(), source.getTermsModified());
+            replace(target.getEasModified(), source.getEasModified());
+            replace(target.getTermsDateAccepted(), source.getTermsDateAccepted());
+            replace(target.getEasDateAccepted(), source.getEasDateAccepted());
+            replace(target.getTermsDateCopyrighted(), source.getTermsDateCopyrighted());
+            replace(target.getEasDateCopyrighted(), source.getEasDateCopyrighted());
+            replace(target.getTermsDateSubmitted(), source.getTermsDateSubmitted());
+            replace(target.getEasDateSubmitted(), source.getEasDateSubmitted());
+        }
+    },
+    RELATION(relationElements()) {
+        @Override
+        void copy(final EasyMetadata from, final EasyMetadata to) {
+            final EmdRelation source = from.getEmdRelation();
+            final EmdRelation target = to.getEmdRelation();
+            replace(target.getDcRelation(), source.getDcRelation());
+            replace(target.getEasRelation(), source.getEasRelation());
+            replace(target.getTermsConformsTo(), source.getTermsConformsTo());
+            replace(target.getEasConformsTo(), source.getEasConformsTo());
+            replace(target.getTermsIsVersionOf(), source.getTermsIsVersionOf());
+            replace(target.getEasIsVersionOf(), source.getEasIsVersionOf());
+            replace(target.getTermsHasVersion(), source.getTermsHasVersion());
+            replace(target.getEasHasVersion(), source.getEasHasVersion());
+            replace(target.getTermsIsReplacedBy(), source.getTermsIsReplacedBy());
+            replace(target.getEasIsReplacedBy(), source.getEasIsReplacedBy());
+            replace(target.getTermsReplaces(), source.getTermsReplaces());
+            replace(target.getEasReplaces(), source.getEasReplaces());
+            replace(target.getTermsIsRequiredBy(), source.getTermsIsRequiredBy());
+            replace(target.getEasIsRequiredBy(), source.getEasIsRequiredBy());
+            replace(target.getTermsRequires(), source.getTermsRequires());
+            replace(target.getEasRequires(), source.getEasRequires());
+            replace(target.getTermsIsPartOf(), source.getTermsIsPartOf());
+            replace(target.getEasIsPartOf(), source.getEasIsPartOf());
+            replace(target.getTermsHasPart(), source.getTermsHasPart());
+            replace(target.getEasHasPart(), source.getEasHasPart());
+            replace(target.getTermsIsReferencedBy(), source.getTermsIsReferencedBy());
+            replace(target.getEasIsReferencedBy(), source.getEasIsReferencedBy());
+            replace(target.getTermsReferences(), source.getTermsReferences());
+            replace(target.getEasReferences(), source.getEasReferences());
+            replace(target.getTermsIsFormatOf(), source.getTermsIsFormatOf());
+            replace(target.getEasIsFormatOf(), source.getEasIsFormatOf());
+            replace(target.getTermsHasFormat(), source.getTermsHasFormat());
+            replace(target.getEasHasFormat(), source.getEasHasFormat());
+        }
+    };
+
+    private static final Map<String, Ddm2EmdContainer> BY_ELEMENT = new HashMap<String, Ddm2EmdContainer>();
+    /** elements with a handler of their own, usually nested in dcx-gml:spatial but also allowed as children of ddm:dcmiMetadata */
+    private static final Map<String, Ddm2EmdContainer> BY_SECTION_CHILD = new HashMap<String, Ddm2EmdContainer>();
+    static {
+        for (final Ddm2EmdContainer container : values())
+            for (final String element : container.elements)
+                BY_ELEMENT.put(element, container);
+        BY_SECTION_CHILD.putAll(BY_ELEMENT);
+        for (final String element : new String[] {"gml:Point", "gml:boundedBy", "gml:Polygon", "gml:MultiSurface"})
+            BY_SECTION_CHILD.put(element, COVERAGE);
+    }
+
+    private final String[] elements;
+
+    private Ddm2EmdContainer(final String... elements) {
+        this.elements = elements;
+    }
+
+    /**
+     * @param handlerKey
+     *        as created by {@link Ddm2EmdHandlerMap#toHandlerKey(String, String, org.xml.sax.Attributes)}
+     * @return null if the element does not feed a container by itself, like the elements nested in a gml:Point
+     */
+    public static Ddm2EmdContainer forHandlerKey(final String handlerKey) {
+        return BY_ELEMENT.get(handlerKey.substring(handlerKey.indexOf('/') + 1));
+    }
+
+    /**
+     * @param handlerKey
+     *        of a child of a section like ddm:dcmiMetadata, as created by {@link Ddm2EmdHandlerMap#toHandlerKey(String, String, org.xml.sax.Attributes)}
+     * @return as {@link #forHandlerKey(String)}, but also a container for GML elements that are not nested in dcx-gml:spatial
+     */
+    public static Ddm2EmdContainer forSectionChild(final String handlerKey) {
+        return BY_SECTION_CHILD.get(handlerKey.substring(handlerKey.indexOf('/') + 1));
+    }
+
+    /** @return the DDM elements (prefix:localName) feeding this container */
+    public List<String> getElements() {
+        return Collections.unmodifiableList(Arrays.asList(elements));
+    }
+
+    /** Replaces the values of this container in one instance with those in another. */
+    abstract void copy(EasyMetadata from, EasyMetadata to);
+
+    private static <E> void replace(final List<E> target, final List<E> source) {
+        target.clear();
+        target.addAll(source);
+    }
+
+    private static String[] relationElements() {
+        final String[] terms = {"relation", "conformsTo", "isVersionOf", "hasVersion", "isReplacedBy", "replaces", "isRequiredBy", "requires", "isPartOf",
+                "hasPart", "isReferencedBy", "references", "isFormatOf", "hasFormat"};
+        final String[] elements = new String[terms.length * 2 + 1];
+        for (int i = 0; i < terms.length; i++) {
+            elements[i * 2] = "dcterms:" + terms[i];
+            elements[i * 2 + 1] = "ddm:" + terms[i];
+        }
+        elements[terms.length * 2] = "dc:relation";
+        return elements;
+    }
+}
@@ -16,12 +16,17 @@
 package nl.knaw.dans.pf.language.ddm.api;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import nl.knaw.dans.pf.language.emd.EasyMetadata;
 import nl.knaw.dans.pf.language.emd.binding.EasyMetadataFactory;
 import nl.knaw.dans.pf.language.emd.binding.EmdMarshaller;
 import nl.knaw.dans.pf.language.emd.types.ApplicationSpecific.MetadataFormat;
 import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkException;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandlerMap;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkPhase;
 import nl.knaw.dans.pf.language.xml.crosswalk.Crosswalker;
 import nl.knaw.dans.pf.language.xml.exc.XMLSerializationException;
 import nl.knaw.dans.pf.language.xml.validation.AbstractValidator2;
@@ -44,7 +49,8 @@ public class Ddm2EmdCrosswalk extends Crosswalker<EasyMetadata> {
     }
 
     /**
-     * Creates an instance with a non-default validator.
+     * Creates an instance with a non-default validator, for example a {@link ValidatorPool} to share between threads or a {@link ValidationVerdictCache}
+     * to skip validation of documents submitted again unchanged.
      * 
      * @param ddmValidator
      *        The validator to use
@@ -54,6 +60,32 @@ public class Ddm2EmdCrosswalk extends Crosswalker<EasyMetadata> {
         this.ddmValidator = ddmValidator;
     }
 
+    /**
+     * Creates an instance with its own handlers, to run crosswalks on several threads. The validator should be thread safe, like a {@link ValidatorPool}.
+     * 
+     * @param ddmValidator
+     *        The validator to use
+     * @param handlerMap
+     *        for example {@link Ddm2EmdHandlerMap#newInstance()}
+     */
+    public Ddm2EmdCrosswalk(AbstractValidator2 ddmValidator, CrosswalkHandlerMap<EasyMetadata> handlerMap) {
+        super(handlerMap);
+        this.ddmValidator = ddmValidator;
+    }
+
+    /**
+     * Creates an instance that crosswalks a part of the fields.
+     * 
+     * @param ddmValidator
+     *        The validator to use
+     * @param projection
+     *        The fields of interest
+     */
+    public Ddm2EmdCrosswalk(AbstractValidator2 ddmValidator, Ddm2EmdProjection projection) {
+        super(new ProjectedHandlerMap(projection));
+        this.ddmValidator = ddmValidator;
+    }
+
     /**
      * Creates an object after validation against an XSD.
      * 
@@ -102,20 +134,164 @@ public class Ddm2EmdCrosswalk extends Crosswalker<EasyMetadata> {
         return validateEMD(walk(null, xml, newTarget()));
     }
 
+    /**
+     * Creates an object after validation against an XSD.
+     * 
+     * @param xml
+     *        the XML content, the encoding is detected by the parser
+     * @return null if errors are reported by the {@link XMLErrorHandler}
+     * @throws CrosswalkException
+     */
+    public EasyMetadata createFrom(final byte[] xml) throws CrosswalkException {
+        return validateEMD(walk(ddmValidator, xml, newTarget()));
+    }
+
+    /**
+     * Creates an object assuming validation against an XSD has been done. Together with {@link #setTextLimits(nl.knaw.dans.pf.language.xml.crosswalk.TextLimits)}
+     * the memory needed is independent of the size of the document.
+     * 
+     * @param xml
+     *        the XML content, read once and not closed
+     * @return null if errors are reported by the {@link XMLErrorHandler}
+     * @throws CrosswalkException
+     */
+    public EasyMetadata createFromValidated(final InputStream xml) throws CrosswalkException {
+        return validateEMD(walk(xml, newTarget()));
+    }
+
+    /**
+     * Writes Easy Meta Data XML after validation against an XSD. Cheaper than {@link #createFrom(File)} followed by an {@link EmdMarshaller}: the XML
+     * produced to verify the result is written rather than thrown away, so the document is marshalled once instead of twice. It is not a streaming
+     * conversion, the complete {@link EasyMetadata} is built before anything is written. The bytes are those of the {@link EmdMarshaller}.
+     * 
+     * @param file
+     *        with XML content
+     * @param out
+     *        receives the Easy Meta Data XML, it is not closed
+     * @return false if errors are reported by the {@link XMLErrorHandler}, in that case nothing is written
+     * @throws CrosswalkException
+     */
+    public boolean transcode(final File file, final OutputStream out) throws CrosswalkException {
+        return write(marshal(walk(ddmValidator, file, newTarget())), out);
+    }
+
+    /**
+     * Writes Easy Meta Data XML assuming validation against an XSD has been done. See also {@link #transcode(File, OutputStream)}.
+     * 
+     * @param file
+     *        with XML content
+     * @param out
+     *        receives the Easy Meta Data XML, it is not closed
+     * @return false if errors are reported by the {@link XMLErrorHandler}, in that case nothing is written
+     * @throws CrosswalkException
+     */
+    public boolean transcodeValidated(final File file, final OutputStream out) throws CrosswalkException {
+        return write(marshal(walk(null, file, newTarget())), out);
+    }
+
+    /**
+     * Writes Easy Meta Data XML after validation against an XSD. See also {@link #transcode(File, OutputStream)}.
+     * 
+     * @param xml
+     *        the XML content
+     * @param out
+     *        receives the Easy Meta Data XML, it is not closed
+     * @return false if errors are reported by the {@link XMLErrorHandler}, in that case nothing is written
+     * @throws CrosswalkException
+     */
+    public boolean transcode(final String xml, final OutputStream out) throws CrosswalkException {
+        return write(marshal(walk(ddmValidator, xml, newTarget())), out);
+    }
+
+    /**
+     * Writes Easy Meta Data XML assuming validation against an XSD has been done. See also {@link #transcode(File, OutputStream)}.
+     * 
+     * @param xml
+     *        the XML content
+     * @param out
+     *        receives the Easy Meta Data XML, it is not closed
+     * @return false if errors are reported by the {@link XMLErrorHandler}, in that case nothing is written
+     * @throws CrosswalkException
+     */
+    public boolean transcodeValidated(final String xml, final OutputStream out) throws CrosswalkException {
+        return write(marshal(walk(null, xml, newTarget())), out);
+    }
+
+    /**
+     * Writes Easy Meta Data XML assuming validation against an XSD has been done. See also {@link #transcode(File, OutputStream)}.
+     * 
+     * @param xml
+     *        the XML content, read once and not closed
+     * @param out
+     *        receives the Easy Meta Data XML, it is not closed
+     * @return false if errors are reported by the {@link XMLErrorHandler}, in that case nothing is written
+     * @throws CrosswalkException
+     */
+    public boolean transcodeValidated(final InputStream xml, final OutputStream out) throws CrosswalkException {
+        return write(marshal(walk(xml, newTarget())), out);
+    }
+
+    /**
+     * As {@link #createFrom(byte[])}, also appends the Easy Meta Data XML, that is produced anyway to verify the result.
+     */
+    EasyMetadata createFrom(final byte[] xml, final StringBuilder emdXml) throws CrosswalkException {
+        return keep(walk(ddmValidator, xml, newTarget()), emdXml);
+    }
+
+    /**
+     * As {@link #createFrom(String)}, also appends the Easy Meta Data XML, that is produced anyway to verify the result.
+     */
+    EasyMetadata createFrom(final String xml, final StringBuilder emdXml) throws CrosswalkException {
+        return keep(walk(ddmValidator, xml, newTarget()), emdXml);
+    }
+
+    /** @return null if the crosswalk does not validate */
+    AbstractValidator2 getDdmValidator() {
+        return ddmValidator;
+    }
+
+    private EasyMetadata keep(final EasyMetadata emd, final StringBuilder emdXml) throws CrosswalkException {
+        final String marshalled = marshal(emd);
+        if (marshalled == null)
+            return null;
+        emdXml.append(marshalled);
+        return emd;
+    }
+
+    private boolean write(final String emdXml, final OutputStream out) throws CrosswalkException {
+        if (emdXml == null)
+            return false;
+        try {
+            out.write(emdXml.getBytes("UTF-8"));
+            return true;
+        }
+        catch (final IOException e) {
+            throw new CrosswalkException("could not write Easy Meta Data: " + e.getMessage(), e);
+        }
+    }
+
     private EasyMetadata newTarget() {
         return EasyMetadataFactory.newEasyMetadata(MetadataFormat.DEFAULT);
     }
 
     private EasyMetadata validateEMD(final EasyMetadata emd) throws CrosswalkException {
+        return marshal(emd) == null ? null : emd;
+    }
+
+    /** @return the marshalled emd, null if the crosswalk reported errors */
+    private String marshal(final EasyMetadata emd) throws CrosswalkException {
         if (getXmlErrorHandler().getErrors().size() > 0 || getXmlErrorHandler().getFatalErrors().size() > 0)
             return null;
+        final CrosswalkPhase phase = CrosswalkPhase.begin(CrosswalkPhase.EMD_VERIFY, -1);
         try {
             // incomplete fields may cause trouble
             final String validatedXML = new EmdMarshaller(emd).getXmlString();
             logger.debug(validatedXML);
-            return emd;
+            phase.end(0);
+            return validatedXML;
         }
         catch (final XMLSerializationException e) {
+            phase.end(1);
             String msg = "resulting Easy Meta Data is invalid: ";
             logger.error(msg, e);
             try {
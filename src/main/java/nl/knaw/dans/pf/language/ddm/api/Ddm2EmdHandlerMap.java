@@ -15,25 +15,12 @@
  */
 package nl.knaw.dans.pf.language.ddm.api;
 
-import nl.knaw.dans.pf.language.ddm.datehandlers.DcDateHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.EasAvailableHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.EasCreatedHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.EasDateAccepteddHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.EasDateCopyrightedHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.EasDateHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.EasDateSubmittedHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.EasIssuedHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.EasModiefiedHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.EasValidHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.TermsAvailableHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.TermsCreatedHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.TermsDateAccepteddHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.TermsDateCopyrightedHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.TermsDateSubmittedHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.TermsIssuedHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.TermsModiefiedHandler;
-import nl.knaw.dans.pf.language.ddm.datehandlers.TermsValidHandler;
+import nl.knaw.dans.pf.language.ddm.datehandlers.BasicDateField;
+import nl.knaw.dans.pf.language.ddm.datehandlers.BasicDateFieldHandler;
+import nl.knaw.dans.pf.language.ddm.datehandlers.IsoDateField;
+import nl.knaw.dans.pf.language.ddm.datehandlers.IsoDateFieldHandler;
 import nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace;
+import nl.knaw.dans.pf.language.ddm.handlermaps.VocabularyRegistry;
 import nl.knaw.dans.pf.language.ddm.handlers.AccessRightsHandler;
 import nl.knaw.dans.pf.language.ddm.handlers.AlternativeTitleHandler;
 import nl.knaw.dans.pf.language.ddm.handlers.AudienceHandler;
@@ -71,37 +58,12 @@ import nl.knaw.dans.pf.language.ddm.handlertypes.BasicIdentifierHandler;
 import nl.knaw.dans.pf.language.ddm.handlertypes.BasicStringHandler;
 import nl.knaw.dans.pf.language.ddm.handlertypes.IsoDateHandler;
 import nl.knaw.dans.pf.language.ddm.relationhandlers.DcRelationHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmConformsToHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmHasFormatHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmHasPartHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmHasVersionHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmIsFormatOfHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmIsPartOfHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmIsReferencedByHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmIsReplacedByHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmIsRequiredByHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmIsVersionOfHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmReferencesHandler;
 import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmRelationHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmReplacesHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.DdmRequiresHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsIsVersionOfHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsConformsToHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsHasFormatHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsHasPartHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsHasVersionHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsIsFormatOfHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsIsPartOfHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsIsReferencedByHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsIsReplacedByHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsIsRequiredByHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsReferencesHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsReplacesHandler;
-import nl.knaw.dans.pf.language.ddm.relationhandlers.TermsRequiresHandler;
+import nl.knaw.dans.pf.language.ddm.relationhandlers.RelationField;
+import nl.knaw.dans.pf.language.ddm.relationhandlers.RelationFieldHandler;
 import nl.knaw.dans.pf.language.emd.EasyMetadata;
 import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandler;
 import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandlerMap;
-import nl.knaw.dans.pf.language.xml.vocabulary.MapFromXSD;
 import org.dom4j.DocumentException;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -111,16 +73,27 @@ import java.util.Map;
 import java.util.Set;
 
 public class Ddm2EmdHandlerMap implements CrosswalkHandlerMap<EasyMetadata> {
-    private static final SkippedFieldHandler SKIPPED_FIELD_HANDLER = new SkippedFieldHandler(null);
-    private static final CrosswalkHandler<EasyMetadata> NOT_YET_IMPLEMENTED = new SkippedFieldHandler("not yet configured/implemented");
     private static final Ddm2EmdHandlerMap INSTANCE = new Ddm2EmdHandlerMap();
     private static Map<String, String> uri2prefix = initNameSpaceMap();
-    private static Map<String, CrosswalkHandler<EasyMetadata>> map;
+
+    private final SkippedFieldHandler skippedFieldHandler = new SkippedFieldHandler(null);
+    private final CrosswalkHandler<EasyMetadata> notYetImplemented = new SkippedFieldHandler("not yet configured/implemented");
+    private Map<String, CrosswalkHandler<EasyMetadata>> map;
 
     public static Ddm2EmdHandlerMap getInstance() {
         return INSTANCE;
     }
 
+    /**
+     * Creates a map with its own handlers. A handler keeps state while it has control, so crosswalks running on different threads each need their own map.
+     * The vocabularies are loaded once and shared.
+     * 
+     * @return a new map
+     */
+    public static Ddm2EmdHandlerMap newInstance() {
+        return new Ddm2EmdHandlerMap();
+    }
+
     private static Map<String, String> initNameSpaceMap() {
         final Map<String, String> map = new HashMap<String, String>();
         for (final NameSpace ns : NameSpace.values())
@@ -128,7 +101,7 @@ public class Ddm2EmdHandlerMap implements CrosswalkHandlerMap<EasyMetadata> {
         return map;
     }
 
-    /** no instantiation for a singleton */
+    /** see {@link #getInstance()} and {@link #newInstance()} */
     private Ddm2EmdHandlerMap() {}
 
     /** TODO let test achieve this with mocking and make the class not public */
@@ -179,7 +152,8 @@ public class Ddm2EmdHandlerMap implements CrosswalkHandlerMap<EasyMetadata> {
      * @throws SAXException
      *         if lazy initialization of the map fails
      */
-    private String toHandlerKey(final String uri, final String localName, final Attributes attributes) throws SAXException {
+    @Override
+    public String toHandlerKey(final String uri, final String localName, final Attributes attributes) throws SAXException {
         final String element = uri2prefix.get(uri) + ":" + localName;
 
         // fix name space prefix when the local names become ambiguous
@@ -188,17 +162,17 @@ public class Ddm2EmdHandlerMap implements CrosswalkHandlerMap<EasyMetadata> {
         return type + "/" + element;
     }
 
-    private Map<String, String> loadVocabulary(final String xsd) throws SAXException {
+    private Map<String, String> loadNarcisVocabulary() throws SAXException {
         try {
-            return new MapFromXSD(xsd).getEnum2appInfo();
+            return VocabularyRegistry.getNarcisDisciplines();
         }
         catch (final DocumentException e) {
-            throw new SAXException("could not load map [" + xsd + "] " + e.getMessage(), e);
+            throw new SAXException("could not load map [" + NameSpace.NARCIS_TYPE.xsd + "] " + e.getMessage(), e);
         }
     }
 
     private void putAudienceHandlers() throws SAXException {
-        final BasicStringHandler narcisHandler = new AudienceHandler(loadVocabulary(NameSpace.NARCIS_TYPE.xsd));
+        final BasicStringHandler narcisHandler = new AudienceHandler(loadNarcisVocabulary());
         map.put("/ddm:audience", narcisHandler);
         map.put("DisciplineType/dcterms:audience", narcisHandler);
         final BasicStringHandler audienceHandler = new AudienceHandler();
@@ -224,132 +198,69 @@ public class Ddm2EmdHandlerMap implements CrosswalkHandlerMap<EasyMetadata> {
         final BasicStringHandler dcRelationHandler = new DcRelationHandler();
 
         map.put("/dc:relation", dcRelationHandler);
-
         map.put("/dcterms:relation", dcRelationHandler);
-        map.put("/dcterms:conformsTo", new TermsConformsToHandler());
-        map.put("/dcterms:isVersionOf", new TermsIsVersionOfHandler());
-        map.put("/dcterms:hasVersion", new TermsHasVersionHandler());
-        map.put("/dcterms:isReplacedBy", new TermsIsReplacedByHandler());
-        map.put("/dcterms:replaces", new TermsReplacesHandler());
-        map.put("/dcterms:isRequiredBy", new TermsIsRequiredByHandler());
-        map.put("/dcterms:requires", new TermsRequiresHandler());
-        map.put("/dcterms:isPartOf", new TermsIsPartOfHandler());
-        map.put("/dcterms:hasPart", new TermsHasPartHandler());
-        map.put("/dcterms:isReferencedBy", new TermsIsReferencedByHandler());
-        map.put("/dcterms:references", new TermsReferencesHandler());
-        map.put("/dcterms:isFormatOf", new TermsIsFormatOfHandler());
-        map.put("/dcterms:hasFormat", new TermsHasFormatHandler());
-
-        map.put("ISBN/dcterms:relation", new DcRelationHandler("ISBN"));
-        map.put("ISBN/dcterms:conformsTo", new TermsConformsToHandler("ISBN"));
-        map.put("ISBN/dcterms:isVersionOf", new TermsIsVersionOfHandler("ISBN"));
-        map.put("ISBN/dcterms:hasVersion", new TermsHasVersionHandler("ISBN"));
-        map.put("ISBN/dcterms:isReplacedBy", new TermsIsReplacedByHandler("ISBN"));
-        map.put("ISBN/dcterms:replaces", new TermsReplacesHandler("ISBN"));
-        map.put("ISBN/dcterms:isRequiredBy", new TermsIsRequiredByHandler("ISBN"));
-        map.put("ISBN/dcterms:requires", new TermsRequiresHandler("ISBN"));
-        map.put("ISBN/dcterms:isPartOf", new TermsIsPartOfHandler("ISBN"));
-        map.put("ISBN/dcterms:hasPart", new TermsHasPartHandler("ISBN"));
-        map.put("ISBN/dcterms:isReferencedBy", new TermsIsReferencedByHandler("ISBN"));
-        map.put("ISBN/dcterms:references", new TermsReferencesHandler("ISBN"));
-        map.put("ISBN/dcterms:isFormatOf", new TermsIsFormatOfHandler("ISBN"));
-        map.put("ISBN/dcterms:hasFormat", new TermsHasFormatHandler("ISBN"));
-
-        map.put("ISSN/dcterms:relation", new DcRelationHandler("ISSN"));
-        map.put("ISSN/dcterms:conformsTo", new TermsConformsToHandler("ISSN"));
-        map.put("ISSN/dcterms:isVersionOf", new TermsIsVersionOfHandler("ISSN"));
-        map.put("ISSN/dcterms:hasVersion", new TermsHasVersionHandler("ISSN"));
-        map.put("ISSN/dcterms:isReplacedBy", new TermsIsReplacedByHandler("ISSN"));
-        map.put("ISSN/dcterms:replaces", new TermsReplacesHandler("ISSN"));
-        map.put("ISSN/dcterms:isRequiredBy", new TermsIsRequiredByHandler("ISSN"));
-        map.put("ISSN/dcterms:requires", new TermsRequiresHandler("ISSN"));
-        map.put("ISSN/dcterms:isPartOf", new TermsIsPartOfHandler("ISSN"));
-        map.put("ISSN/dcterms:hasPart", new TermsHasPartHandler("ISSN"));
-        map.put("ISSN/dcterms:isReferencedBy", new TermsIsReferencedByHandler("ISSN"));
-        map.put("ISSN/dcterms:references", new TermsReferencesHandler("ISSN"));
-        map.put("ISSN/dcterms:isFormatOf", new TermsIsFormatOfHandler("ISSN"));
-        map.put("ISSN/dcterms:hasFormat", new TermsHasFormatHandler("ISSN"));
-
-        map.put("NWO-PROJECTNR/dcterms:relation", new DcRelationHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:conformsTo", new TermsConformsToHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:isVersionOf", new TermsIsVersionOfHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:hasVersion", new TermsHasVersionHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:isReplacedBy", new TermsIsReplacedByHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:replaces", new TermsReplacesHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:isRequiredBy", new TermsIsRequiredByHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:requires", new TermsRequiresHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:isPartOf", new TermsIsPartOfHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:hasPart", new TermsHasPartHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:isReferencedBy", new TermsIsReferencedByHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:references", new TermsReferencesHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:isFormatOf", new TermsIsFormatOfHandler("NWO-PROJECTNR"));
-        map.put("NWO-PROJECTNR/dcterms:hasFormat", new TermsHasFormatHandler("NWO-PROJECTNR"));
-
         map.put("/ddm:relation", new DdmRelationHandler());
-        map.put("/ddm:conformsTo", new DdmConformsToHandler());
-        map.put("/ddm:isVersionOf", new DdmIsVersionOfHandler());
-        map.put("/ddm:hasVersion", new DdmHasVersionHandler());
-        map.put("/ddm:isReplacedBy", new DdmIsReplacedByHandler());
-        map.put("/ddm:replaces", new DdmReplacesHandler());
-        map.put("/ddm:isRequiredBy", new DdmIsRequiredByHandler());
-        map.put("/ddm:requires", new DdmRequiresHandler());
-        map.put("/ddm:isPartOf", new DdmIsPartOfHandler());
-        map.put("/ddm:hasPart", new DdmHasPartHandler());
-        map.put("/ddm:isReferencedBy", new DdmIsReferencedByHandler());
-        map.put("/ddm:references", new DdmReferencesHandler());
-        map.put("/ddm:isFormatOf", new DdmIsFormatOfHandler());
-        map.put("/ddm:hasFormat", new DdmHasFormatHandler());
+        for (final String scheme : new String[] {"ISBN", "ISSN", "NWO-PROJECTNR"})
+            map.put(scheme + "/dcterms:relation", new DcRelationHandler(scheme));
+
+        for (final RelationField field : RelationField.values()) {
+            final String name = field.getLocalName();
+            map.put("/dcterms:" + name, new RelationFieldHandler(field, null));
+            map.put("/ddm:" + name, new RelationFieldHandler(field, null, true));
+            for (final String scheme : new String[] {"ISBN", "ISSN", "NWO-PROJECTNR"})
+                map.put(scheme + "/dcterms:" + name, new RelationFieldHandler(field, scheme));
+        }
     }
 
     private void putNotImplementedHandlers() {
-        map.put("/dcterms:instructionalMethod", SKIPPED_FIELD_HANDLER);
-        map.put("/dcterms:accrualMethod", SKIPPED_FIELD_HANDLER);
-        map.put("/dcterms:accrualPolicy", SKIPPED_FIELD_HANDLER);
-        map.put("/dcterms:accrualPeriodicity", SKIPPED_FIELD_HANDLER);
-
-        map.put("/dcterms:mediator", SKIPPED_FIELD_HANDLER);
-        map.put("/dcterms:provenance", SKIPPED_FIELD_HANDLER);
-        map.put("/dcterms:bibliographicCitation", SKIPPED_FIELD_HANDLER);
-        map.put("/dcterms:medium", SKIPPED_FIELD_HANDLER);
-        map.put("/dcterms:extent", SKIPPED_FIELD_HANDLER);
-        map.put("/dcterms:abstract", SKIPPED_FIELD_HANDLER);
-        map.put("/dcterms:tableOfContents", SKIPPED_FIELD_HANDLER);
+        map.put("/dcterms:instructionalMethod", skippedFieldHandler);
+        map.put("/dcterms:accrualMethod", skippedFieldHandler);
+        map.put("/dcterms:accrualPolicy", skippedFieldHandler);
+        map.put("/dcterms:accrualPeriodicity", skippedFieldHandler);
+
+        map.put("/dcterms:mediator", skippedFieldHandler);
+        map.put("/dcterms:provenance", skippedFieldHandler);
+        map.put("/dcterms:bibliographicCitation", skippedFieldHandler);
+        map.put("/dcterms:medium", skippedFieldHandler);
+        map.put("/dcterms:extent", skippedFieldHandler);
+        map.put("/dcterms:abstract", skippedFieldHandler);
+        map.put("/dcterms:tableOfContents", skippedFieldHandler);
     }
 
     private void putDateHandlers() {
         // EasyMetadataImpl: EmdDate emdDate;
-        final IsoDateHandler easCreatedHandler = new EasCreatedHandler();
+        final IsoDateHandler easCreatedHandler = new IsoDateFieldHandler(IsoDateField.EAS_CREATED);
         map.put("/ddm:created", easCreatedHandler);
         map.put("W3CDTF/dcterms:created", easCreatedHandler);
-        map.put("/dcterms:created", new TermsCreatedHandler());
+        map.put("/dcterms:created", new BasicDateFieldHandler(BasicDateField.TERMS_CREATED));
 
-        final IsoDateHandler easAvailableHandler = new EasAvailableHandler();
+        final IsoDateHandler easAvailableHandler = new IsoDateFieldHandler(IsoDateField.EAS_AVAILABLE);
         map.put("/ddm:available", easAvailableHandler);
         map.put("W3CDTF/dcterms:available", easAvailableHandler);
-        map.put("/dcterms:available", new TermsAvailableHandler());
+        map.put("/dcterms:available", new BasicDateFieldHandler(BasicDateField.TERMS_AVAILABLE));
 
-        map.put("W3CDTF/dcterms:valid", new EasValidHandler());
-        map.put("/dcterms:valid", new TermsValidHandler());
+        map.put("W3CDTF/dcterms:valid", new IsoDateFieldHandler(IsoDateField.EAS_VALID));
+        map.put("/dcterms:valid", new BasicDateFieldHandler(BasicDateField.TERMS_VALID));
 
-        map.put("W3CDTF/dcterms:issued", new EasIssuedHandler());
-        map.put("/dcterms:issued", new TermsIssuedHandler());
+        map.put("W3CDTF/dcterms:issued", new IsoDateFieldHandler(IsoDateField.EAS_ISSUED));
+        map.put("/dcterms:issued", new BasicDateFieldHandler(BasicDateField.TERMS_ISSUED));
 
-        map.put("W3CDTF/dcterms:modified", new EasModiefiedHandler());
-        map.put("/dcterms:modified", new TermsModiefiedHandler());
+        map.put("W3CDTF/dcterms:modified", new IsoDateFieldHandler(IsoDateField.EAS_MODIFIED));
+        map.put("/dcterms:modified", new BasicDateFieldHandler(BasicDateField.TERMS_MODIFIED));
 
-        map.put("W3CDTF/dcterms:dateAccepted", new EasDateAccepteddHandler());
-        map.put("/dcterms:dateAccepted", new TermsDateAccepteddHandler());
+        map.put("W3CDTF/dcterms:dateAccepted", new IsoDateFieldHandler(IsoDateField.EAS_DATE_ACCEPTED));
+        map.put("/dcterms:dateAccepted", new BasicDateFieldHandler(BasicDateField.TERMS_DATE_ACCEPTED));
 
-        map.put("W3CDTF/dcterms:dateCopyrighted", new EasDateCopyrightedHandler());
-        map.put("/dcterms:dateCopyrighted", new TermsDateCopyrightedHandler());
+        map.put("W3CDTF/dcterms:dateCopyrighted", new IsoDateFieldHandler(IsoDateField.EAS_DATE_COPYRIGHTED));
+        map.put("/dcterms:dateCopyrighted", new BasicDateFieldHandler(BasicDateField.TERMS_DATE_COPYRIGHTED));
 
-        map.put("W3CDTF/dcterms:dateSubmitted", new EasDateSubmittedHandler());
-        map.put("/dcterms:dateSubmitted", new TermsDateSubmittedHandler());
+        map.put("W3CDTF/dcterms:dateSubmitted", new IsoDateFieldHandler(IsoDateField.EAS_DATE_SUBMITTED));
+        map.put("/dcterms:dateSubmitted", new BasicDateFieldHandler(BasicDateField.TERMS_DATE_SUBMITTED));
 
-        final BasicDateHandler dcDateHandler = new DcDateHandler();
+        final BasicDateHandler dcDateHandler = new BasicDateFieldHandler(BasicDateField.DC_DATE);
         map.put("/dc:date", dcDateHandler);
         map.put("/dcterms:date", dcDateHandler);
-        final EasDateHandler easDateHandler = new EasDateHandler();
+        final IsoDateHandler easDateHandler = new IsoDateFieldHandler(IsoDateField.EAS_DATE);
         map.put("W3CDTF/dc:date", easDateHandler);
         map.put("W3CDTF/dcterms:date", easDateHandler);
     }
@@ -369,9 +280,9 @@ public class Ddm2EmdHandlerMap implements CrosswalkHandlerMap<EasyMetadata> {
 
         map.put("/ddm:accessRights", new AccessRightsHandler());
         // TODO additional access rights not yet implemented
-        map.put("/dcterms:accessRights", NOT_YET_IMPLEMENTED);
-        map.put("/dc:rights", NOT_YET_IMPLEMENTED);
-        map.put("/dcterms:rights", NOT_YET_IMPLEMENTED);
+        map.put("/dcterms:accessRights", notYetImplemented);
+        map.put("/dc:rights", notYetImplemented);
+        map.put("/dcterms:rights", notYetImplemented);
         map.put("URI/dcterms:license", new TermsLicenseHandler());
         // <ref-panelId>dc.rights</ref-panelId>
         // <ref-panelId>dcterms.accessrights</ref-panelId>
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import java.util.Set;
+
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+import nl.knaw.dans.pf.language.emd.binding.EasyMetadataFactory;
+import nl.knaw.dans.pf.language.emd.binding.EmdMarshaller;
+import nl.knaw.dans.pf.language.emd.types.ApplicationSpecific.MetadataFormat;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkException;
+import nl.knaw.dans.pf.language.xml.crosswalk.Crosswalker;
+import nl.knaw.dans.pf.language.xml.exc.XMLSerializationException;
+import nl.knaw.dans.pf.language.xml.validation.AbstractValidator2;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Updates Easy Meta Data after an edit of the DDM it was crosswalked from. Only the handlers of the elements feeding a changed {@link Ddm2EmdContainer} are
+ * executed, all other elements are skipped without collecting their text. The values of the changed containers replace those of the previous Easy Meta Data.
+ */
+public class Ddm2EmdPatcher extends Crosswalker<EasyMetadata> {
+    private static final Logger logger = LoggerFactory.getLogger(Ddm2EmdPatcher.class);
+
+    private final AbstractValidator2 ddmValidator;
+    private final ProjectedHandlerMap projectedMap;
+    private final DdmDiff diff = new DdmDiff();
+    private Ddm2EmdCrosswalk fullCrosswalk;
+    private boolean consistencyCheck;
+    private long inconsistencies;
+
+    /** Creates an instance without validation. */
+    public Ddm2EmdPatcher() {
+        this(null);
+    }
+
+    /**
+     * Creates an instance.
+     * 
+     * @param ddmValidator
+     *        optional, validates the complete new DDM
+     */
+    public Ddm2EmdPatcher(final AbstractValidator2 ddmValidator) {
+        super(new ProjectedHandlerMap(Ddm2EmdProjection.of(Ddm2EmdContainer.values())));
+        this.projectedMap = (ProjectedHandlerMap) handlerMap;
+        this.ddmValidator = ddmValidator;
+    }
+
+    /**
+     * @param consistencyCheck
+     *        true: each patch is compared with a full crosswalk of the new DDM, if they differ the full crosswalk is returned
+     */
+    public void setConsistencyCheck(final boolean consistencyCheck) {
+        this.consistencyCheck = consistencyCheck;
+    }
+
+    /** @return the number of patches that differed from a full crosswalk, see {@link #setConsistencyCheck(boolean)} */
+    public long getInconsistencies() {
+        return inconsistencies;
+    }
+
+    /**
+     * Patches the previous Easy Meta Data.
+     * 
+     * @param previousDdm
+     *        the DDM that was crosswalked into previousEmd
+     * @param newDdm
+     *        the edited DDM
+     * @param previousEmd
+     *        receives the values of changed containers
+     * @return previousEmd, null if errors are reported by the {@link XMLErrorHandler}
+     * @throws CrosswalkException
+     */
+    public EasyMetadata patch(final String previousDdm, final String newDdm, final EasyMetadata previousEmd) throws CrosswalkException {
+        final Set<Ddm2EmdContainer> changed = diff.changedContainers(previousDdm, newDdm);
+        logger.debug("changed containers: {}", changed);
+        if (!changed.isEmpty() || ddmValidator != null) {
+            // elements in ddm:additional-xml may feed containers as well, see DdmDiff
+            projectedMap.setProjection(Ddm2EmdProjection.of(changed).with("ddm:additional-xml"));
+            final EasyMetadata changes = walk(ddmValidator, newDdm, EasyMetadataFactory.newEasyMetadata(MetadataFormat.DEFAULT));
+            if (changes == null)
+                return null;
+            for (final Ddm2EmdContainer container : changed)
+                container.copy(changes, previousEmd);
+        }
+        if (!consistencyCheck)
+            return previousEmd;
+        if (fullCrosswalk == null)
+            // handlers of its own, those of the shared map may be in use by a crosswalk on another thread
+            fullCrosswalk = new Ddm2EmdCrosswalk(null, Ddm2EmdHandlerMap.newInstance());
+        fullCrosswalk.getXmlErrorHandler().reset();
+        final EasyMetadata expected = fullCrosswalk.createFromValidated(newDdm);
+        if (expected == null || marshal(expected).equals(marshal(previousEmd)))
+            return previousEmd;
+        inconsistencies++;
+        logger.warn("patch of {} differs from a full crosswalk", changed);
+        return expected;
+    }
+
+    private static String marshal(final EasyMetadata emd) throws CrosswalkException {
+        try {
+            return new EmdMarshaller(emd).getXmlString();
+        }
+        catch (final XMLSerializationException e) {
+            throw new CrosswalkException(e.getMessage(), e);
+        }
+    }
+}
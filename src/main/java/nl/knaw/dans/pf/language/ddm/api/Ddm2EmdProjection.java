@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The fields of interest for a partial crosswalk, see {@link Ddm2EmdCrosswalk#Ddm2EmdCrosswalk(nl.knaw.dans.pf.language.xml.validation.AbstractValidator2,
+ * Ddm2EmdProjection)}. Elements feeding other {@link Ddm2EmdContainer}s and the content of ddm:additional-xml are skipped without collecting their text. When
+ * all fields of interest can only appear in ddm:profile, the crosswalk ends at the end of ddm:profile.
+ */
+public class Ddm2EmdProjection {
+    /** the elements the DDM schema allows in ddm:profile but not in ddm:dcmiMetadata */
+    private static final Set<String> PROFILE_ONLY = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("ddm:created", "ddm:available",
+            "ddm:audience", "ddm:accessRights")));
+
+    private final Set<String> included;
+    private final boolean stopAfterProfile;
+
+    private Ddm2EmdProjection(final Collection<String> included) {
+        this.included = Collections.unmodifiableSet(new HashSet<String>(included));
+        this.stopAfterProfile = profileOnly(this.included);
+    }
+
+    private static boolean profileOnly(final Set<String> elementsOrKeys) {
+        for (final String elementOrKey : elementsOrKeys)
+            if (!PROFILE_ONLY.contains(elementOrKey.substring(elementOrKey.indexOf('/') + 1)))
+                return false;
+        return true;
+    }
+
+    /**
+     * @param containers
+     *        the Easy Meta Data containers of interest
+     * @return a projection including all elements feeding the containers
+     */
+    public static Ddm2EmdProjection of(final Collection<Ddm2EmdContainer> containers) {
+        final Set<String> elements = new HashSet<String>();
+        for (final Ddm2EmdContainer container : containers)
+            elements.addAll(container.getElements());
+        return new Ddm2EmdProjection(elements);
+    }
+
+    /**
+     * @param containers
+     *        the Easy Meta Data containers of interest
+     * @return a projection including all elements feeding the containers
+     */
+    public static Ddm2EmdProjection of(final Ddm2EmdContainer... containers) {
+        return of(Arrays.asList(containers));
+    }
+
+    /**
+     * @param elementsOrKeys
+     *        elements like "ddm:available" or, to be more specific, handler keys like "ISBN/dcterms:identifier"
+     * @return a projection including the elements or keys
+     */
+    public static Ddm2EmdProjection ofElements(final String... elementsOrKeys) {
+        return new Ddm2EmdProjection(Arrays.asList(elementsOrKeys));
+    }
+
+    /**
+     * @param elementsOrKeys
+     *        more elements or handler keys of interest, like "ddm:additional-xml"
+     * @return a projection including the elements or keys of both
+     */
+    public Ddm2EmdProjection with(final String... elementsOrKeys) {
+        final Set<String> elements = new HashSet<String>(included);
+        elements.addAll(Arrays.asList(elementsOrKeys));
+        return new Ddm2EmdProjection(elements);
+    }
+
+    /**
+     * @return true if the crosswalk ends at the end of ddm:profile: all fields of interest are profile fields like ddm:available and ddm:accessRights. Elements
+     *         like dc:title may appear in ddm:dcmiMetadata as well.
+     */
+    public boolean isStopAfterProfile() {
+        return stopAfterProfile;
+    }
+
+    /**
+     * @param handlerKey
+     *        as created by {@link Ddm2EmdHandlerMap#toHandlerKey(String, String, org.xml.sax.Attributes)}
+     * @return true if the key or its element is of interest
+     */
+    public boolean includes(final String handlerKey) {
+        return included.contains(handlerKey) || included.contains(handlerKey.substring(handlerKey.indexOf('/') + 1));
+    }
+
+    /** @return the same for equal projections, also in another JVM */
+    String toKey() {
+        return new TreeSet<String>(included) + (stopAfterProfile ? " until end of ddm:profile" : "");
+    }
+
+    @Override
+    public String toString() {
+        return included + (stopAfterProfile ? " until end of ddm:profile" : "");
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import nl.knaw.dans.pf.language.ddm.flat.FlatJsonWriter;
+import nl.knaw.dans.pf.language.ddm.flat.FlatRecord;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkException;
+import nl.knaw.dans.pf.language.xml.crosswalk.Crosswalker;
+import nl.knaw.dans.pf.language.xml.validation.AbstractValidator2;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+
+/**
+ * Crosswalks DDM into a {@link FlatRecord} rather than Easy Meta Data. Meant for indexing: no EMD object graph is created and no EMD is marshalled. The
+ * writeJson methods walk the DDM once into a record and then serialize the record, the JSON is not streamed while walking: the values of a field are spread
+ * over the document, while the JSON member of a field needs all of them, and nothing should be written when errors are reported.
+ */
+public class Ddm2FlatCrosswalk extends Crosswalker<FlatRecord.Builder> {
+    private AbstractValidator2 ddmValidator;
+
+    /** Creates an instance. */
+    public Ddm2FlatCrosswalk() {
+        super(Ddm2FlatHandlerMap.newInstance());
+        this.ddmValidator = new DDMValidator();
+    }
+
+    /**
+     * Creates an instance with a non-default validator.
+     *
+     * @param ddmValidator
+     *        The validator to use
+     */
+    public Ddm2FlatCrosswalk(AbstractValidator2 ddmValidator) {
+        super(Ddm2FlatHandlerMap.newInstance());
+        this.ddmValidator = ddmValidator;
+    }
+
+    /**
+     * Creates a record after validation against an XSD.
+     *
+     * @param file
+     *        with XML content
+     * @return null if errors are reported by the {@link XMLErrorHandler}
+     * @throws CrosswalkException
+     */
+    public FlatRecord createFrom(final File file) throws CrosswalkException {
+        return build(walk(ddmValidator, file, new FlatRecord.Builder()));
+    }
+
+    /**
+     * Creates a record assuming validation against an XSD has been done.
+     *
+     * @param file
+     *        with XML content
+     * @return null if errors are reported by the {@link XMLErrorHandler}
+     * @throws CrosswalkException
+     */
+    public FlatRecord createFromValidated(final File file) throws CrosswalkException {
+        return build(walk(null, file, new FlatRecord.Builder()));
+    }
+
+    /**
+     * Creates a record after validation against an XSD.
+     *
+     * @param xml
+     *        the XML content
+     * @return null if errors are reported by the {@link XMLErrorHandler}
+     * @throws CrosswalkException
+     */
+    public FlatRecord createFrom(final String xml) throws CrosswalkException {
+        return build(walk(ddmValidator, xml, new FlatRecord.Builder()));
+    }
+
+    /**
+     * Creates a record assuming validation against an XSD has been done.
+     *
+     * @param xml
+     *        the XML content
+     * @return null if errors are reported by the {@link XMLErrorHandler}
+     * @throws CrosswalkException
+     */
+    public FlatRecord createFromValidated(final String xml) throws CrosswalkException {
+        return build(walk(null, xml, new FlatRecord.Builder()));
+    }
+
+    /**
+     * Writes a JSON search document after validation against an XSD, see {@link FlatJsonWriter} for the format.
+     *
+     * @param file
+     *        with XML content
+     * @param out
+     *        receives the JSON, it is not closed
+     * @return false if errors are reported by the {@link XMLErrorHandler}, in that case nothing is written
+     * @throws CrosswalkException
+     */
+    public boolean writeJson(final File file, final OutputStream out) throws CrosswalkException {
+        return writeJson(createFrom(file), out);
+    }
+
+    /**
+     * Writes a JSON search document after validation against an XSD, see {@link FlatJsonWriter} for the format.
+     *
+     * @param xml
+     *        the XML content
+     * @param out
+     *        receives the JSON, it is not closed
+     * @return false if errors are reported by the {@link XMLErrorHandler}, in that case nothing is written
+     * @throws CrosswalkException
+     */
+    public boolean writeJson(final String xml, final OutputStream out) throws CrosswalkException {
+        return writeJson(createFrom(xml), out);
+    }
+
+    /**
+     * Writes a JSON search document assuming validation against an XSD has been done, see {@link FlatJsonWriter} for the format.
+     *
+     * @param xml
+     *        the XML content
+     * @param out
+     *        receives the JSON, it is not closed
+     * @return false if errors are reported by the {@link XMLErrorHandler}, in that case nothing is written
+     * @throws CrosswalkException
+     */
+    public boolean writeJsonValidated(final String xml, final OutputStream out) throws CrosswalkException {
+        return writeJson(createFromValidated(xml), out);
+    }
+
+    private boolean writeJson(final FlatRecord record, final OutputStream out) throws CrosswalkException {
+        if (record == null)
+            return false;
+        try {
+            new FlatJsonWriter().write(record, out);
+            return true;
+        }
+        catch (final IOException e) {
+            throw new CrosswalkException("could not write JSON: " + e.getMessage(), e);
+        }
+    }
+
+    private FlatRecord build(final FlatRecord.Builder builder) {
+        if (builder == null)
+            return null;
+        return builder.build();
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import nl.knaw.dans.pf.language.ddm.flat.FlatAuthorHandler;
+import nl.knaw.dans.pf.language.ddm.flat.FlatDateHandler;
+import nl.knaw.dans.pf.language.ddm.flat.FlatRecord;
+import nl.knaw.dans.pf.language.ddm.flat.FlatSpatialHandler;
+import nl.knaw.dans.pf.language.ddm.flat.FlatValueHandler;
+import nl.knaw.dans.pf.language.ddm.handlers.SkippedFieldHandler;
+import nl.knaw.dans.pf.language.ddm.handlers.spatial.AbstractSpatialHandler;
+import nl.knaw.dans.pf.language.ddm.handlertypes.BasicDateHandler;
+import nl.knaw.dans.pf.language.ddm.handlertypes.DaiAuthorHandler;
+import nl.knaw.dans.pf.language.ddm.handlertypes.IsoDateHandler;
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandler;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandlerMap;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * Handlers for a {@link FlatRecord}. The keys and the kind of values (string, date, author, spatial) are taken from the {@link Ddm2EmdHandlerMap}, so both
+ * targets accept exactly the same elements. The field name is the local name of the element, qualified with the xsi:type when that changes the meaning of
+ * the value, for example: subject.ABRcomplex or identifier.ISBN.
+ * <p>
+ * A handler keeps state while it has control and the map creates handlers on first use, so every crosswalk needs a map of its own, see
+ * {@link #newInstance()}.
+ * </p>
+ */
+public class Ddm2FlatHandlerMap implements CrosswalkHandlerMap<FlatRecord.Builder> {
+    private static final CrosswalkHandler<FlatRecord.Builder> HANDLED_BY_CHILDS = new CrosswalkHandler<FlatRecord.Builder>();
+
+    /** types that are a format or vocabulary of the plain value rather than a different kind of value */
+    private static final Set<String> UNQUALIFIED_TYPES = new HashSet<String>(Arrays.asList("", "W3CDTF", "SimpleGMLType", "DisciplineType", "URI"));
+
+    private final Ddm2EmdHandlerMap emdHandlerMap = Ddm2EmdHandlerMap.newInstance();
+    private final Map<String, CrosswalkHandler<FlatRecord.Builder>> map = new HashMap<String, CrosswalkHandler<FlatRecord.Builder>>();
+
+    /**
+     * Creates a map with its own handlers, crosswalks running on different threads each need their own map. The vocabularies are loaded once and shared.
+     * 
+     * @return a new map
+     */
+    public static Ddm2FlatHandlerMap newInstance() {
+        return new Ddm2FlatHandlerMap();
+    }
+
+    /** see {@link #newInstance()} */
+    private Ddm2FlatHandlerMap() {}
+
+    @Override
+    public CrosswalkHandler<FlatRecord.Builder> getHandler(final String uri, final String localName, final Attributes attributes) throws SAXException {
+        final String key = emdHandlerMap.toHandlerKey(uri, localName, attributes);
+        CrosswalkHandler<FlatRecord.Builder> handler = map.get(key);
+        if (handler == null && !map.containsKey(key)) {
+            // one instance per key: nested elements (like gml:Point in dcx-gml:spatial) need their own handler
+            handler = createHandler(key, localName, emdHandlerMap.getHandler(uri, localName, attributes));
+            map.put(key, handler);
+        }
+        return handler == HANDLED_BY_CHILDS ? null : handler;
+    }
+
+    @Override
+    public boolean reportMissingHandler(final String uri, final String localName, final Attributes attributes) throws SAXException {
+        return emdHandlerMap.reportMissingHandler(uri, localName, attributes);
+    }
+
+    @Override
+    public String toHandlerKey(final String uri, final String localName, final Attributes attributes) throws SAXException {
+        return emdHandlerMap.toHandlerKey(uri, localName, attributes);
+    }
+
+    private CrosswalkHandler<FlatRecord.Builder> createHandler(final String key, final String localName, final CrosswalkHandler<EasyMetadata> emdHandler) {
+        if (emdHandler == null)
+            // not configured or handled by children, in both cases the current handler keeps control
+            return HANDLED_BY_CHILDS;
+        if (emdHandler instanceof SkippedFieldHandler)
+            return new CrosswalkHandler<FlatRecord.Builder>();
+        if (emdHandler instanceof IsoDateHandler || emdHandler instanceof BasicDateHandler)
+            return new FlatDateHandler(localName);
+        if (emdHandler instanceof AbstractSpatialHandler)
+            return new FlatSpatialHandler("spatial");
+        if (emdHandler instanceof DaiAuthorHandler)
+            return new FlatAuthorHandler(localName.startsWith("contributor") ? "contributor" : "creator");
+        return new FlatValueHandler(toFieldName(key, localName));
+    }
+
+    private static String toFieldName(final String key, final String localName) {
+        final String type = key.substring(0, key.indexOf('/'));
+        if (UNQUALIFIED_TYPES.contains(type))
+            return localName;
+        return localName + "." + type;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkException;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Compares two DDM documents per {@link Ddm2EmdContainer}: the children of the sections (like ddm:profile and ddm:dcmiMetadata) feeding a container are
+ * compared in document order, including attributes, nested elements and text.
+ */
+class DdmDiff {
+    private static final int SECTION_CHILD_LEVEL = 3;
+    private static final char SEPARATOR = '\u0000';
+
+    /** only used for its keys, handlers of a shared map may be in use by a crosswalk on another thread */
+    private final Ddm2EmdHandlerMap handlerMap = Ddm2EmdHandlerMap.newInstance();
+
+    /**
+     * @return the containers that may get other values from the new document than from the old one
+     * @throws CrosswalkException
+     *         if one of the documents is not well formed
+     */
+    Set<Ddm2EmdContainer> changedContainers(final String oldDdm, final String newDdm) throws CrosswalkException {
+        final Map<Ddm2EmdContainer, String> oldSignatures = signatures(oldDdm);
+        final Map<Ddm2EmdContainer, String> newSignatures = signatures(newDdm);
+        final Set<Ddm2EmdContainer> changed = EnumSet.noneOf(Ddm2EmdContainer.class);
+        for (final Ddm2EmdContainer container : Ddm2EmdContainer.values()) {
+            final String oldSignature = oldSignatures.get(container);
+            final String newSignature = newSignatures.get(container);
+            if (oldSignature == null ? newSignature != null : !oldSignature.equals(newSignature))
+                changed.add(container);
+        }
+        return changed;
+    }
+
+    private Map<Ddm2EmdContainer, String> signatures(final String ddm) throws CrosswalkException {
+        final SignatureHandler handler = new SignatureHandler(handlerMap);
+        final String msg = "could not parse: ";
+        try {
+            final SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            final XMLReader reader = factory.newSAXParser().getXMLReader();
+            reader.setContentHandler(handler);
+            reader.parse(new InputSource(new StringReader(ddm)));
+        }
+        catch (final ParserConfigurationException e) {
+            throw new CrosswalkException("could not create parser" + e.getMessage(), e);
+        }
+        catch (final SAXException e) {
+            throw new CrosswalkException(msg + e.getMessage(), e);
+        }
+        catch (final IOException e) {
+            throw new CrosswalkException(msg + e.getMessage(), e);
+        }
+        final Map<Ddm2EmdContainer, String> signatures = new EnumMap<Ddm2EmdContainer, String>(Ddm2EmdContainer.class);
+        for (final Map.Entry<Ddm2EmdContainer, StringBuilder> entry : handler.builders.entrySet())
+            signatures.put(entry.getKey(), entry.getValue().toString());
+        return signatures;
+    }
+
+    private static class SignatureHandler extends DefaultHandler {
+        private final Map<Ddm2EmdContainer, StringBuilder> builders = new EnumMap<Ddm2EmdContainer, StringBuilder>(Ddm2EmdContainer.class);
+        private final Ddm2EmdHandlerMap handlerMap;
+        private StringBuilder current;
+        private int level;
+
+        SignatureHandler(final Ddm2EmdHandlerMap handlerMap) {
+            this.handlerMap = handlerMap;
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) throws SAXException {
+            if (++level == SECTION_CHILD_LEVEL) {
+                final Ddm2EmdContainer container = Ddm2EmdContainer.forSectionChild(handlerMap.toHandlerKey(uri, localName, attributes));
+                current = container == null ? null : builder(container);
+            }
+            if (current == null || level < SECTION_CHILD_LEVEL)
+                return;
+            // markup is separated with a character that XML text can not contain
+            current.append(SEPARATOR).append(uri).append(SEPARATOR).append(localName);
+            // the order of attributes is not significant
+            final String[] sorted = new String[attributes.getLength()];
+            for (int i = 0; i < sorted.length; i++)
+                sorted[i] = attributes.getURI(i) + SEPARATOR + attributes.getLocalName(i) + SEPARATOR + attributes.getValue(i);
+            Arrays.sort(sorted);
+            for (final String attribute : sorted)
+                current.append(SEPARATOR).append(attribute);
+            current.append(SEPARATOR);
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName, final String qName) throws SAXException {
+            if (current != null && level >= SECTION_CHILD_LEVEL)
+                current.append(SEPARATOR).append('/');
+            if (level-- == SECTION_CHILD_LEVEL)
+                current = null;
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start, final int length) throws SAXException {
+            if (current != null)
+                current.append(ch, start, length);
+        }
+
+        private StringBuilder builder(final Ddm2EmdContainer container) {
+            StringBuilder builder = builders.get(container);
+            if (builder == null) {
+                builder = new StringBuilder();
+                builders.put(container, builder);
+            }
+            return builder;
+        }
+    }
+}
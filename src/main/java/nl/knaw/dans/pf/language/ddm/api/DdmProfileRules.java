@@ -0,0 +1,315 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DC;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DC_TERMS;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DCX_DAI;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DDM;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.XSI;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import nl.knaw.dans.pf.language.ddm.handlermaps.VocabularyRegistry;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkRules;
+
+import org.dom4j.DocumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * The constraints of the DDM schema on <code>ddm:profile</code> that are violated most: the required title, creator, created, available, audience and
+ * accessRights, malformed W3CDTF dates and unknown narcis discipline codes. Set with {@link Ddm2EmdCrosswalk#setRules(CrosswalkRules)} to reject such
+ * documents in the SAX pass of the crosswalk before the XSD is read. The checks are a subset of those of the XSD, the XSD stays the authority.
+ */
+public class DdmProfileRules implements CrosswalkRules {
+    private static final Logger logger = LoggerFactory.getLogger(DdmProfileRules.class);
+    /** time between two attempts to read the narcis disciplines */
+    private static final long REGISTRY_RETRY_MILLIS = 60000;
+
+    private static final Set<String> ACCESS_RIGHTS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("OPEN_ACCESS",
+            "OPEN_ACCESS_FOR_REGISTERED_USERS", "GROUP_ACCESS", "REQUEST_PERMISSION", "NO_ACCESS")));
+
+    private enum Required {
+        TITLE("dc:title"), CREATOR("dc:creator or dcx-dai:creatorDetails"), CREATED("ddm:created"), AVAILABLE("ddm:available"), AUDIENCE("ddm:audience"),
+        ACCESS_RIGHTS("ddm:accessRights");
+
+        private final String elements;
+
+        private Required(final String elements) {
+            this.elements = elements;
+        }
+    }
+
+    private enum Value {
+        DATE, AUDIENCE, ACCESS_RIGHTS
+    }
+
+    private final Set<String> disciplines;
+    private volatile Set<String> registeredDisciplines;
+    private volatile long nextRegistryAttempt;
+
+    /** Creates an instance that checks the audience against the narcis disciplines of the {@link VocabularyRegistry}. */
+    public DdmProfileRules() {
+        this.disciplines = null;
+    }
+
+    /**
+     * Creates an instance with a fixed set of narcis disciplines.
+     * 
+     * @param disciplines
+     *        the codes accepted for ddm:audience, like D41500
+     */
+    public DdmProfileRules(final Collection<String> disciplines) {
+        this.disciplines = Collections.unmodifiableSet(new HashSet<String>(disciplines));
+    }
+
+    @Override
+    public ContentHandler newChecker(final ErrorHandler errorHandler) {
+        return new Checker(errorHandler, getDisciplines());
+    }
+
+    /** @return null if the audience can not be checked */
+    private Set<String> getDisciplines() {
+        if (disciplines != null)
+            return disciplines;
+        if (registeredDisciplines == null && System.currentTimeMillis() >= nextRegistryAttempt) {
+            try {
+                registeredDisciplines = VocabularyRegistry.getNarcisDisciplines().keySet();
+            }
+            catch (final DocumentException e) {
+                // the XSD validation reports unknown codes, documents do not wait for a registry that is down
+                nextRegistryAttempt = System.currentTimeMillis() + REGISTRY_RETRY_MILLIS;
+                logger.warn("audience is not checked for {} ms, narcis disciplines not available: {}", REGISTRY_RETRY_MILLIS, e.getMessage());
+            }
+        }
+        return registeredDisciplines;
+    }
+
+    /**
+     * @param value
+     *        without leading or trailing white space
+     * @return true for the forms of dcterms:W3CDTF: a year, a year and month, a date or a date and time, with an optional time zone
+     */
+    static boolean isW3cdtf(final String value) {
+        final int n = value.length();
+        int i = value.startsWith("-") ? 1 : 0;
+        final int yearStart = i;
+        while (i < n && isDigit(value.charAt(i)))
+            i++;
+        if (i - yearStart < 4)
+            return false;
+        if (i == n || isTimeZone(value, i))
+            return true;
+        if (!isNumber(value, i, '-', 1, 12))
+            return false;
+        i += 3;
+        if (i == n || isTimeZone(value, i))
+            return true;
+        if (!isNumber(value, i, '-', 1, 31))
+            return false;
+        i += 3;
+        if (i == n || isTimeZone(value, i))
+            return true;
+        if (!isNumber(value, i, 'T', 0, 24) || !isNumber(value, i + 3, ':', 0, 59) || !isNumber(value, i + 6, ':', 0, 60))
+            return false;
+        i += 9;
+        if (i < n && value.charAt(i) == '.') {
+            final int fractionStart = ++i;
+            while (i < n && isDigit(value.charAt(i)))
+                i++;
+            if (i == fractionStart)
+                return false;
+        }
+        return i == n || isTimeZone(value, i);
+    }
+
+    private static boolean isTimeZone(final String value, final int i) {
+        if (value.length() == i + 1)
+            return value.charAt(i) == 'Z';
+        final char sign = value.charAt(i);
+        return value.length() == i + 6 && (sign == '+' || sign == '-') && isNumber(value, i, sign, 0, 14) && isNumber(value, i + 3, ':', 0, 59);
+    }
+
+    /** @return true if the separator at i is followed by two digits between min and max */
+    private static boolean isNumber(final String value, final int i, final char separator, final int min, final int max) {
+        if (value.length() < i + 3 || value.charAt(i) != separator || !isDigit(value.charAt(i + 1)) || !isDigit(value.charAt(i + 2)))
+            return false;
+        final int number = (value.charAt(i + 1) - '0') * 10 + value.charAt(i + 2) - '0';
+        return number >= min && number <= max;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /** Checks a single document, text is only collected for the values that are checked. */
+    private static class Checker extends DefaultHandler {
+        private static final int PROFILE_DEPTH = 2;
+
+        private final ErrorHandler errorHandler;
+        private final Set<String> disciplines;
+        private final boolean[] found = new boolean[Required.values().length];
+        private final StringBuilder text = new StringBuilder();
+        private final NamespaceSupport namespaces = new NamespaceSupport();
+        private boolean contextPushed;
+        private Locator locator;
+        private int depth;
+        private boolean inProfile;
+        private boolean profileFound;
+        private Value collecting;
+        private String collectingFor;
+        private int collectingDepth;
+
+        Checker(final ErrorHandler errorHandler, final Set<String> disciplines) {
+            this.errorHandler = errorHandler;
+            this.disciplines = disciplines;
+        }
+
+        @Override
+        public void setDocumentLocator(final Locator locator) {
+            this.locator = locator;
+        }
+
+        @Override
+        public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
+            // the mappings of an element are reported before the element
+            if (!contextPushed) {
+                namespaces.pushContext();
+                contextPushed = true;
+            }
+            namespaces.declarePrefix(prefix, uri);
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) throws SAXException {
+            if (!contextPushed)
+                namespaces.pushContext();
+            contextPushed = false;
+            depth++;
+            if (collecting != null)
+                return;
+            if (depth == PROFILE_DEPTH && DDM.uri.equals(uri) && "profile".equals(localName)) {
+                inProfile = true;
+                profileFound = true;
+            } else if (inProfile && depth == PROFILE_DEPTH + 1)
+                startProfileElement(uri, localName, qName);
+            if (collecting == null && isW3cdtfType(attributes.getValue(XSI.uri, "type")))
+                collect(Value.DATE, qName);
+        }
+
+        private void startProfileElement(final String uri, final String localName, final String qName) {
+            if (DC.uri.equals(uri) && "title".equals(localName))
+                found[Required.TITLE.ordinal()] = true;
+            else if (DC.uri.equals(uri) && "creator".equals(localName) || DCX_DAI.uri.equals(uri) && "creatorDetails".equals(localName))
+                found[Required.CREATOR.ordinal()] = true;
+            else if (!DDM.uri.equals(uri))
+                return;
+            else if ("created".equals(localName)) {
+                found[Required.CREATED.ordinal()] = true;
+                collect(Value.DATE, qName);
+            } else if ("available".equals(localName)) {
+                found[Required.AVAILABLE.ordinal()] = true;
+                collect(Value.DATE, qName);
+            } else if ("audience".equals(localName)) {
+                found[Required.AUDIENCE.ordinal()] = true;
+                if (disciplines != null)
+                    collect(Value.AUDIENCE, qName);
+            } else if ("accessRights".equals(localName)) {
+                found[Required.ACCESS_RIGHTS.ordinal()] = true;
+                collect(Value.ACCESS_RIGHTS, qName);
+            }
+        }
+
+        private void collect(final Value value, final String qName) {
+            collecting = value;
+            collectingFor = qName;
+            collectingDepth = depth;
+            text.setLength(0);
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start, final int length) throws SAXException {
+            if (collecting != null && depth == collectingDepth)
+                text.append(ch, start, length);
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName, final String qName) throws SAXException {
+            if (collecting != null && depth == collectingDepth) {
+                checkValue(collecting, text.toString().trim());
+                collecting = null;
+            }
+            if (inProfile && depth == PROFILE_DEPTH) {
+                inProfile = false;
+                for (final Required required : Required.values())
+                    if (!found[required.ordinal()])
+                        error("ddm:profile lacks " + required.elements);
+            }
+            depth--;
+            namespaces.popContext();
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            if (!profileFound)
+                error("no ddm:profile as first level element of ddm:DDM");
+        }
+
+        private void checkValue(final Value value, final String text) throws SAXException {
+            switch (value) {
+            case DATE:
+                if (!isW3cdtf(text))
+                    error(collectingFor + " is not a W3CDTF date: " + text);
+                break;
+            case AUDIENCE:
+                if (!disciplines.contains(text))
+                    error(collectingFor + " is not a narcis discipline: " + text);
+                break;
+            case ACCESS_RIGHTS:
+                if (!ACCESS_RIGHTS.contains(text))
+                    error(collectingFor + " is not one of " + ACCESS_RIGHTS + ": " + text);
+                break;
+            }
+        }
+
+        /** @return true if the QName resolves to dcterms:W3CDTF with the namespaces in scope */
+        private boolean isW3cdtfType(final String type) {
+            if (type == null || !type.endsWith("W3CDTF"))
+                return false;
+            final int colon = type.indexOf(':');
+            final String prefix = colon < 0 ? "" : type.substring(0, colon);
+            final String localName = colon < 0 ? type : type.substring(colon + 1);
+            return "W3CDTF".equals(localName) && DC_TERMS.uri.equals(namespaces.getURI(prefix));
+        }
+
+        private void error(final String message) throws SAXException {
+            errorHandler.error(new SAXParseException(message, locator));
+        }
+    }
+}
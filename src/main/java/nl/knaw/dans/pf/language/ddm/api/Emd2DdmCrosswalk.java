@@ -0,0 +1,653 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.ABR;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DC;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DCX_DAI;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DCX_GML;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DC_TERMS;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DDM;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.GML;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.IDENTIFIER_TYPE;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.NARCIS_TYPE;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.XSI;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import nl.knaw.dans.pf.language.ddm.datehandlers.BasicDateField;
+import nl.knaw.dans.pf.language.ddm.datehandlers.IsoDateField;
+import nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace;
+import nl.knaw.dans.pf.language.ddm.handlermaps.VocabularyRegistry;
+import nl.knaw.dans.pf.language.ddm.handlers.spatial.AbstractSpatialHandler;
+import nl.knaw.dans.pf.language.ddm.relationhandlers.RelationField;
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+import nl.knaw.dans.pf.language.emd.EasyMetadataImpl;
+import nl.knaw.dans.pf.language.emd.binding.EmdUnmarshaller;
+import nl.knaw.dans.pf.language.emd.types.Author;
+import nl.knaw.dans.pf.language.emd.types.BasicDate;
+import nl.knaw.dans.pf.language.emd.types.BasicIdentifier;
+import nl.knaw.dans.pf.language.emd.types.BasicString;
+import nl.knaw.dans.pf.language.emd.types.EmdConstants;
+import nl.knaw.dans.pf.language.emd.types.IsoDate;
+import nl.knaw.dans.pf.language.emd.types.Polygon;
+import nl.knaw.dans.pf.language.emd.types.PolygonPart;
+import nl.knaw.dans.pf.language.emd.types.PolygonPoint;
+import nl.knaw.dans.pf.language.emd.types.Relation;
+import nl.knaw.dans.pf.language.emd.types.Spatial;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkException;
+import nl.knaw.dans.pf.language.xml.exc.XMLDeserializationException;
+
+import org.dom4j.DocumentException;
+
+/**
+ * Crosswalks Easy Meta Data back into DDM, the reverse of the {@link Ddm2EmdCrosswalk}. Meant for bulk migration: the DDM is written element by element to
+ * an {@link XMLStreamWriter}, so apart from the record itself no memory is needed. The values are written such that the {@link Ddm2EmdCrosswalk} produces
+ * the same Easy Meta Data again, the vocabularies (narcis disciplines, ABR, identifier types, language codes) are applied in reverse.
+ * <p>
+ * An instance is not thread-safe, use one instance per thread to convert records in parallel. The vocabularies are loaded once and shared.
+ * </p>
+ */
+public class Emd2DdmCrosswalk {
+    private static final Set<String> RELATION_SCHEMES = new HashSet<String>(Arrays.asList("ISBN", "ISSN", "NWO-PROJECTNR"));
+
+    /** identifier schemes of Easy Meta Data mapped to the identifier types of DDM */
+    private static final Map<String, String> IDENTIFIER_TYPES = new HashMap<String, String>();
+    static {
+        IDENTIFIER_TYPES.put("ISBN", "ISBN");
+        IDENTIFIER_TYPES.put("ISSN", "ISSN");
+        IDENTIFIER_TYPES.put("NWO-projectnummer", "NWO-PROJECTNR");
+        IDENTIFIER_TYPES.put("eDNA-project", "eDNA-project");
+        IDENTIFIER_TYPES.put("Archis_onderzoek_m_nr", "ARCHIS-ZAAK-IDENTIFICATIE");
+    }
+
+    private static final String EMD_RECORD = "easymetadata";
+
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private final XMLOutputFactory recordFactory = XMLOutputFactory.newInstance();
+    private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+    public Emd2DdmCrosswalk() {
+        // declares the namespaces a record inherits from a wrapper
+        recordFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, true);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    /**
+     * Writes DDM.
+     * 
+     * @param emd
+     *        the Easy Meta Data
+     * @param out
+     *        receives the DDM as UTF-8, it is not closed
+     * @throws CrosswalkException
+     */
+    public void write(final EasyMetadata emd, final OutputStream out) throws CrosswalkException {
+        try {
+            final XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            write(emd, writer);
+            writer.writeEndDocument();
+            writer.close();
+        }
+        catch (final XMLStreamException e) {
+            throw new CrosswalkException("could not write DDM: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the DDM element, without start or end of the document. Allows to write many records to a single stream.
+     * 
+     * @param emd
+     *        the Easy Meta Data
+     * @param writer
+     *        receives the DDM element, it is neither flushed nor closed
+     * @throws CrosswalkException
+     */
+    public void write(final EasyMetadata emd, final XMLStreamWriter writer) throws CrosswalkException {
+        try {
+            new RecordWriter(writer).writeDdm(emd);
+        }
+        catch (final XMLStreamException e) {
+            throw new CrosswalkException("could not write DDM: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates DDM.
+     * 
+     * @param emd
+     *        the Easy Meta Data
+     * @return the DDM document
+     * @throws CrosswalkException
+     */
+    public String toXml(final EasyMetadata emd) throws CrosswalkException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(emd, out);
+        try {
+            return out.toString("UTF-8");
+        }
+        catch (final UnsupportedEncodingException e) {
+            throw new CrosswalkException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes DDM for a stream of Easy Meta Data records. The stream is either a single record or records wrapped in another root element, for example
+     * <code>&lt;records&gt;&lt;emd:easymetadata&gt;...&lt;/emd:easymetadata&gt;&lt;emd:easymetadata&gt;...</code>. The output mirrors the input: a DDM
+     * document for a single record, a root element with the name of the wrapper around the DDM records otherwise. See
+     * {@link #transcode(XMLStreamReader, XMLStreamWriter)} for the memory needed.
+     * 
+     * @param emdXml
+     *        the Easy Meta Data XML, it is not closed
+     * @param out
+     *        receives the DDM as UTF-8, it is not closed
+     * @return the number of records
+     * @throws CrosswalkException
+     */
+    public int transcode(final InputStream emdXml, final OutputStream out) throws CrosswalkException {
+        try {
+            final XMLStreamReader reader = inputFactory.createXMLStreamReader(emdXml);
+            final XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            reader.nextTag();
+            final boolean wrapped = !isRecord(reader);
+            if (wrapped) {
+                writer.writeStartElement(reader.getPrefix() == null ? "" : reader.getPrefix(), reader.getLocalName(), nullToEmpty(reader.getNamespaceURI()));
+                if (reader.getNamespaceURI() != null && !reader.getNamespaceURI().isEmpty())
+                    writer.writeNamespace(reader.getPrefix() == null ? "" : reader.getPrefix(), reader.getNamespaceURI());
+            }
+            final int records = transcode(reader, writer);
+            if (wrapped)
+                writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+            reader.close();
+            out.flush();
+            return records;
+        }
+        catch (final XMLStreamException e) {
+            throw new CrosswalkException("could not transcode Easy Meta Data: " + e.getMessage(), e);
+        }
+        catch (final IOException e) {
+            throw new CrosswalkException("could not write DDM: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes a DDM element for each Easy Meta Data record the reader meets, from its current position to its end, without start or end of the document.
+     * Each record is copied and unmarshalled on its own, so a bulk migration needs memory for one record per thread, however many records the stream has.
+     * 
+     * @param reader
+     *        Easy Meta Data records, emd:easymetadata elements at any depth, it is not closed
+     * @param writer
+     *        receives the DDM elements, it is neither flushed nor closed
+     * @return the number of records
+     * @throws CrosswalkException
+     */
+    public int transcode(final XMLStreamReader reader, final XMLStreamWriter writer) throws CrosswalkException {
+        int records = 0;
+        try {
+            while (true) {
+                if (reader.isStartElement() && isRecord(reader)) {
+                    write(readRecord(reader), writer);
+                    records++;
+                }
+                if (!reader.hasNext())
+                    return records;
+                reader.next();
+            }
+        }
+        catch (final XMLStreamException e) {
+            throw new CrosswalkException("could not read Easy Meta Data record " + (records + 1) + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isRecord(final XMLStreamReader reader) {
+        // the local name suffices, the namespace of Easy Meta Data is not available as a constant
+        return EMD_RECORD.equals(reader.getLocalName());
+    }
+
+    /** Copies the record at the position of the reader and leaves the reader at its end element. */
+    private EasyMetadata readRecord(final XMLStreamReader reader) throws XMLStreamException, CrosswalkException {
+        final StringWriter xml = new StringWriter();
+        final XMLStreamWriter copy = recordFactory.createXMLStreamWriter(xml);
+        int depth = 0;
+        while (true) {
+            switch (reader.getEventType()) {
+            case XMLStreamConstants.START_ELEMENT:
+                depth++;
+                copy.writeStartElement(reader.getPrefix() == null ? "" : reader.getPrefix(), reader.getLocalName(), nullToEmpty(reader.getNamespaceURI()));
+                for (int i = 0; i < reader.getNamespaceCount(); i++)
+                    copy.writeNamespace(reader.getNamespacePrefix(i) == null ? "" : reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
+                for (int i = 0; i < reader.getAttributeCount(); i++)
+                    copy.writeAttribute(reader.getAttributePrefix(i) == null ? "" : reader.getAttributePrefix(i),
+                            nullToEmpty(reader.getAttributeNamespace(i)), reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                depth--;
+                copy.writeEndElement();
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                copy.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                break;
+            default:
+                // comments and processing instructions do not affect the record
+            }
+            if (depth == 0)
+                break;
+            reader.next();
+        }
+        copy.close();
+        try {
+            return new EmdUnmarshaller<EasyMetadata>(EasyMetadataImpl.class).unmarshal(xml.toString());
+        }
+        catch (final XMLDeserializationException e) {
+            throw new CrosswalkException("could not read Easy Meta Data: " + e.getMessage(), e);
+        }
+    }
+
+    private static String nullToEmpty(final String s) {
+        return s == null ? "" : s;
+    }
+
+    /** @return the narcis discipline codes by the values stored in Easy Meta Data */
+    private static Map<String, String> getDisciplineCodes() throws CrosswalkException {
+        try {
+            return VocabularyRegistry.getNarcisCodes();
+        }
+        catch (final DocumentException e) {
+            throw new CrosswalkException("could not load map [" + NARCIS_TYPE.xsd + "] " + e.getMessage(), e);
+        }
+    }
+
+    /** Writes the elements of one record, the order within the profile follows the DDM schema. */
+    private static class RecordWriter {
+        private final XMLStreamWriter writer;
+
+        RecordWriter(final XMLStreamWriter writer) {
+            this.writer = writer;
+        }
+
+        void writeDdm(final EasyMetadata emd) throws XMLStreamException, CrosswalkException {
+            writer.writeStartElement(DDM.prefix, "DDM", DDM.uri);
+            for (final NameSpace ns : NameSpace.values())
+                writer.writeNamespace(ns.prefix, ns.uri);
+            writer.writeAttribute(XSI.prefix, XSI.uri, "schemaLocation", DDM.uri + " " + DDM.xsd);
+
+            writer.writeStartElement(DDM.prefix, "profile", DDM.uri);
+            writeProfile(emd);
+            writer.writeEndElement();
+
+            writer.writeStartElement(DDM.prefix, "dcmiMetadata", DDM.uri);
+            writeDcmiMetadata(emd);
+            writer.writeEndElement();
+
+            writer.writeEndElement();
+        }
+
+        private void writeProfile(final EasyMetadata emd) throws XMLStreamException, CrosswalkException {
+            writeFirst(DC, "title", emd.getEmdTitle().getDcTitle());
+            writeFirst(DDM, "description", emd.getEmdDescription().getDcDescription());
+            for (final Author author : emd.getEmdCreator().getEasCreator())
+                writeAuthor("creatorDetails", author);
+            for (final BasicString creator : emd.getEmdCreator().getDcCreator())
+                writeString(DC, "creator", creator, null);
+            final List<IsoDate> created = IsoDateField.EAS_CREATED.getList(emd.getEmdDate());
+            if (!created.isEmpty())
+                writeDate(DDM, "created", created.get(0), false);
+            final List<IsoDate> available = IsoDateField.EAS_AVAILABLE.getList(emd.getEmdDate());
+            if (!available.isEmpty())
+                writeDate(DDM, "available", available.get(0), false);
+            for (final BasicString audience : emd.getEmdAudience().getTermsAudience()) {
+                final String code = toDisciplineCode(audience);
+                if (code != null)
+                    writeText(DDM, "audience", code, null);
+            }
+            writeFirst(DDM, "accessRights", emd.getEmdRights().getTermsAccessRights());
+        }
+
+        private void writeDcmiMetadata(final EasyMetadata emd) throws XMLStreamException, CrosswalkException {
+            writeAllButFirst(DC_TERMS, "title", emd.getEmdTitle().getDcTitle());
+            writeAll(DC_TERMS, "alternative", emd.getEmdTitle().getTermsAlternative());
+            writeAllButFirst(DC_TERMS, "description", emd.getEmdDescription().getDcDescription());
+            for (final Author author : emd.getEmdContributor().getEasContributor())
+                writeAuthor("contributorDetails", author);
+            writeAll(DC, "contributor", emd.getEmdContributor().getDcContributor());
+            writeAll(DC_TERMS, "rightsHolder", emd.getEmdRights().getTermsRightsHolder());
+            for (final BasicString license : emd.getEmdRights().getTermsLicense())
+                writeString(DC_TERMS, "license", license, "dcterms:URI");
+            writeAll(DC_TERMS, "publisher", emd.getEmdPublisher().getDcPublisher());
+            writeAll(DC_TERMS, "source", emd.getEmdSource().getDcSource());
+            for (final BasicString audience : emd.getEmdAudience().getTermsAudience()) {
+                if (toDisciplineCode(audience) == null)
+                    writeString(DC_TERMS, "audience", audience, null);
+            }
+            for (final BasicString format : emd.getEmdFormat().getDcFormat())
+                writeString(DC_TERMS, "format", format, "IMT".equals(format.getScheme()) ? "dcterms:IMT" : null);
+            for (final BasicIdentifier identifier : emd.getEmdIdentifier().getDcIdentifier())
+                writeString(DC_TERMS, "identifier", identifier, toIdType(IDENTIFIER_TYPES.get(identifier.getScheme())));
+            for (final BasicString language : emd.getEmdLanguage().getDcLanguage()) {
+                final String code = VocabularyRegistry.getDdmLanguageCode(language.getValue());
+                if (code == null)
+                    writeString(DC_TERMS, "language", language, null);
+                else
+                    writeText(DC_TERMS, "language", code, "dcterms:ISO639-3");
+            }
+            for (final BasicString type : emd.getEmdType().getDcType())
+                writeString(DC_TERMS, "type", type, "DCMI".equals(type.getScheme()) ? "dcterms:DCMIType" : null);
+            writeAll(DC_TERMS, "coverage", emd.getEmdCoverage().getDcCoverage());
+            writeAll(DC_TERMS, "spatial", emd.getEmdCoverage().getTermsSpatial());
+            for (final Spatial spatial : emd.getEmdCoverage().getEasSpatial())
+                writeSpatial(spatial);
+            for (final BasicString temporal : emd.getEmdCoverage().getTermsTemporal())
+                writeString(DC_TERMS, "temporal", temporal, isAbr(temporal) ? ABR.prefix + ":ABRperiode" : null);
+            for (final BasicString subject : emd.getEmdSubject().getDcSubject())
+                writeString(DC_TERMS, "subject", subject, isAbr(subject) ? ABR.prefix + ":ABRcomplex" : null);
+            writeDates(emd);
+            writeRelations(emd);
+        }
+
+        private void writeDates(final EasyMetadata emd) throws XMLStreamException {
+            for (final BasicDateField field : BasicDateField.values()) {
+                final String localName = field.getLocalName();
+                for (final BasicDate date : field.getList(emd.getEmdDate()))
+                    writeString(DC_TERMS, localName, date, null);
+            }
+            for (final IsoDateField field : IsoDateField.values()) {
+                final String localName = field.getLocalName();
+                final List<IsoDate> dates = field.getList(emd.getEmdDate());
+                // the first created and available dates are in the profile
+                final boolean inProfile = field == IsoDateField.EAS_CREATED || field == IsoDateField.EAS_AVAILABLE;
+                for (int i = inProfile ? 1 : 0; i < dates.size(); i++)
+                    writeDate(DC_TERMS, localName, dates.get(i), true);
+            }
+        }
+
+        private void writeRelations(final EasyMetadata emd) throws XMLStreamException {
+            for (final BasicString relation : emd.getEmdRelation().getDcRelation()) {
+                final String scheme = relation.getScheme();
+                if (scheme == null || RELATION_SCHEMES.contains(scheme))
+                    writeString(DC_TERMS, "relation", relation, toIdType(scheme));
+                else {
+                    // ddm:relation keeps other schemes as an attribute
+                    writer.writeStartElement(DDM.prefix, "relation", DDM.uri);
+                    writer.writeAttribute("scheme", scheme);
+                    writeLanguage(relation);
+                    writer.writeCharacters(relation.getValue());
+                    writer.writeEndElement();
+                }
+            }
+            for (final Relation relation : emd.getEmdRelation().getEasRelation())
+                writeRelation("relation", relation);
+            for (final RelationField field : RelationField.values()) {
+                for (final BasicIdentifier relation : field.getTermsList(emd.getEmdRelation()))
+                    writeString(DC_TERMS, field.getLocalName(), relation, toIdType(relation.getScheme()));
+                for (final Relation relation : field.getEasList(emd.getEmdRelation()))
+                    writeRelation(field.getLocalName(), relation);
+            }
+        }
+
+        private void writeRelation(final String localName, final Relation relation) throws XMLStreamException {
+            final URI link = relation.getSubjectLink();
+            final BasicString title = relation.getSubjectTitle();
+            if (link == null && (title == null || isBlank(title.getValue())))
+                return;
+            writer.writeStartElement(DDM.prefix, localName, DDM.uri);
+            if (link != null)
+                writer.writeAttribute("href", link.toString());
+            if (title != null && !isBlank(title.getValue())) {
+                writeLanguage(title);
+                writer.writeCharacters(title.getValue());
+            }
+            writer.writeEndElement();
+        }
+
+        private void writeAuthor(final String details, final Author author) throws XMLStreamException {
+            writer.writeStartElement(DCX_DAI.prefix, details, DCX_DAI.uri);
+            if (isBlank(author.getSurname()) && !isBlank(author.getOrganization())) {
+                writeOrganization(author, true);
+            } else {
+                writer.writeStartElement(DCX_DAI.prefix, "author", DCX_DAI.uri);
+                writeText(DCX_DAI, "titles", author.getTitle(), null);
+                writeText(DCX_DAI, "initials", author.getInitials(), null);
+                writeText(DCX_DAI, "insertions", author.getPrefix(), null);
+                writeText(DCX_DAI, "surname", author.getSurname(), null);
+                writeIdentifiers(author);
+                writeRole(author);
+                if (!isBlank(author.getOrganization()))
+                    writeOrganization(author, false);
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+        }
+
+        private void writeOrganization(final Author author, final boolean withDetails) throws XMLStreamException {
+            writer.writeStartElement(DCX_DAI.prefix, "organization", DCX_DAI.uri);
+            writeText(DCX_DAI, "name", author.getOrganization(), null);
+            if (withDetails) {
+                writeRole(author);
+                writeIdentifiers(author);
+            }
+            writer.writeEndElement();
+        }
+
+        private void writeIdentifiers(final Author author) throws XMLStreamException {
+            if (EmdConstants.SCHEME_DAI.equals(author.getScheme()) && !isBlank(author.getEntityId())) {
+                final URI system = author.getIdentificationSystem();
+                // the DDM crosswalk only splits off identification systems starting with info
+                if (system != null && system.toString().startsWith("info"))
+                    writeText(DCX_DAI, "DAI", system.toString() + author.getEntityId(), null);
+                else
+                    writeText(DCX_DAI, "DAI", author.getEntityId(), null);
+            }
+            writeText(DCX_DAI, "ISNI", author.getIsni(), null);
+            writeText(DCX_DAI, "ORCID", author.getOrcid(), null);
+        }
+
+        private void writeRole(final Author author) throws XMLStreamException {
+            if (author.getRole() != null)
+                writeText(DCX_DAI, "role", author.getRole().getRole(), null);
+        }
+
+        private void writeSpatial(final Spatial spatial) throws XMLStreamException {
+            final String place = spatial.getPlace() == null ? null : spatial.getPlace().getValue();
+            if (spatial.getPoint() != null) {
+                final Spatial.Point point = spatial.getPoint();
+                writer.writeStartElement(DCX_GML.prefix, "spatial", DCX_GML.uri);
+                writer.writeStartElement(GML.prefix, "Point", GML.uri);
+                writeSrsName(point.getScheme());
+                writeText(GML, "description", place, null);
+                if (isRD(point.getScheme()))
+                    writeText(GML, "pos", point.getX() + " " + point.getY(), null);
+                else
+                    writeText(GML, "pos", point.getY() + " " + point.getX(), null);
+                writer.writeEndElement();
+                writer.writeEndElement();
+            } else if (spatial.getBox() != null) {
+                // gml:Envelope has no description, the place is lost
+                final Spatial.Box box = spatial.getBox();
+                writer.writeStartElement(DCX_GML.prefix, "spatial", DCX_GML.uri);
+                writer.writeStartElement(GML.prefix, "boundedBy", GML.uri);
+                writer.writeStartElement(GML.prefix, "Envelope", GML.uri);
+                writeSrsName(box.getScheme());
+                if (isRD(box.getScheme())) {
+                    writeText(GML, "lowerCorner", box.getWest() + " " + box.getSouth(), null);
+                    writeText(GML, "upperCorner", box.getEast() + " " + box.getNorth(), null);
+                } else {
+                    writeText(GML, "lowerCorner", box.getSouth() + " " + box.getWest(), null);
+                    writeText(GML, "upperCorner", box.getNorth() + " " + box.getEast(), null);
+                }
+                writer.writeEndElement();
+                writer.writeEndElement();
+                writer.writeEndElement();
+            } else if (spatial.getPolygons() != null) {
+                final List<Polygon> polygons = spatial.getPolygons();
+                writer.writeStartElement(DCX_GML.prefix, "spatial", DCX_GML.uri);
+                if (place == null && polygons.size() == 1)
+                    writePolygon(polygons.get(0));
+                else {
+                    writer.writeStartElement(GML.prefix, "MultiSurface", GML.uri);
+                    writeText(GML, "name", place, null);
+                    for (final Polygon polygon : polygons) {
+                        writer.writeStartElement(GML.prefix, "surfaceMember", GML.uri);
+                        writePolygon(polygon);
+                        writer.writeEndElement();
+                    }
+                    writer.writeEndElement();
+                }
+                writer.writeEndElement();
+            }
+        }
+
+        private void writePolygon(final Polygon polygon) throws XMLStreamException {
+            final boolean rd = isRD(polygon.getScheme());
+            writer.writeStartElement(GML.prefix, "Polygon", GML.uri);
+            writeSrsName(polygon.getScheme());
+            writeText(GML, "description", polygon.getPlace(), null);
+            if (polygon.getExterior() != null)
+                writePolygonPart("exterior", polygon.getExterior(), rd);
+            if (polygon.getInterior() != null) {
+                for (final PolygonPart interior : polygon.getInterior())
+                    writePolygonPart("interior", interior, rd);
+            }
+            writer.writeEndElement();
+        }
+
+        private void writePolygonPart(final String localName, final PolygonPart part, final boolean rd) throws XMLStreamException {
+            writer.writeStartElement(GML.prefix, localName, GML.uri);
+            writer.writeStartElement(GML.prefix, "LinearRing", GML.uri);
+            writeText(GML, "description", part.getPlace(), null);
+            if (part.getPoints() != null) {
+                final StringBuilder posList = new StringBuilder();
+                for (final PolygonPoint point : part.getPoints()) {
+                    if (posList.length() > 0)
+                        posList.append(' ');
+                    // the DDM crosswalk swaps RD pairs
+                    if (rd)
+                        posList.append(point.getY()).append(' ').append(point.getX());
+                    else
+                        posList.append(point.getX()).append(' ').append(point.getY());
+                }
+                writeText(GML, "posList", posList.toString(), null);
+            }
+            writer.writeEndElement();
+            writer.writeEndElement();
+        }
+
+        private void writeSrsName(final String scheme) throws XMLStreamException {
+            if (AbstractSpatialHandler.EAS_SPATIAL_SCHEME_RD.equals(scheme))
+                writer.writeAttribute("srsName", AbstractSpatialHandler.EPSG_URL_RD);
+            else if (AbstractSpatialHandler.EAS_SPATIAL_SCHEME_WGS84.equals(scheme))
+                writer.writeAttribute("srsName", AbstractSpatialHandler.EPSG_URL_WGS84);
+            else if (scheme != null)
+                // any other value is read back as local
+                writer.writeAttribute("srsName", scheme);
+        }
+
+        private void writeFirst(final NameSpace ns, final String localName, final List<? extends BasicString> values) throws XMLStreamException {
+            if (!values.isEmpty())
+                writeString(ns, localName, values.get(0), null);
+        }
+
+        private void writeAllButFirst(final NameSpace ns, final String localName, final List<? extends BasicString> values) throws XMLStreamException {
+            for (int i = 1; i < values.size(); i++)
+                writeString(ns, localName, values.get(i), null);
+        }
+
+        private void writeAll(final NameSpace ns, final String localName, final List<? extends BasicString> values) throws XMLStreamException {
+            for (final BasicString value : values)
+                writeString(ns, localName, value, null);
+        }
+
+        private void writeDate(final NameSpace ns, final String localName, final IsoDate date, final boolean typed) throws XMLStreamException {
+            if (date.getValue() != null)
+                writeText(ns, localName, date.toString(), typed ? "dcterms:W3CDTF" : null);
+        }
+
+        private void writeString(final NameSpace ns, final String localName, final BasicString value, final String type) throws XMLStreamException {
+            if (value == null || isBlank(value.getValue()))
+                return;
+            writer.writeStartElement(ns.prefix, localName, ns.uri);
+            if (type != null)
+                writer.writeAttribute(XSI.prefix, XSI.uri, "type", type);
+            writeLanguage(value);
+            writer.writeCharacters(value.getValue());
+            writer.writeEndElement();
+        }
+
+        private void writeText(final NameSpace ns, final String localName, final String value, final String type) throws XMLStreamException {
+            if (isBlank(value))
+                return;
+            writer.writeStartElement(ns.prefix, localName, ns.uri);
+            if (type != null)
+                writer.writeAttribute(XSI.prefix, XSI.uri, "type", type);
+            writer.writeCharacters(value);
+            writer.writeEndElement();
+        }
+
+        private void writeLanguage(final BasicString value) throws XMLStreamException {
+            if (value.getLanguage() != null)
+                writer.writeAttribute(XMLConstants.XML_NS_PREFIX, XMLConstants.XML_NS_URI, "lang", value.getLanguage());
+        }
+    }
+
+    private static String toDisciplineCode(final BasicString audience) throws CrosswalkException {
+        if (!EmdConstants.SCHEME_ID_DISCIPLINES.equals(audience.getSchemeId()))
+            return null;
+        return getDisciplineCodes().get(audience.getValue());
+    }
+
+    private static boolean isAbr(final BasicString value) {
+        return ABR.prefix.toUpperCase().equals(value.getScheme());
+    }
+
+    private static boolean isRD(final String scheme) {
+        return AbstractSpatialHandler.EAS_SPATIAL_SCHEME_RD.equals(scheme);
+    }
+
+    private static String toIdType(final String idType) {
+        if (idType == null || !(RELATION_SCHEMES.contains(idType) || IDENTIFIER_TYPES.containsValue(idType)))
+            return null;
+        return IDENTIFIER_TYPE.prefix + ":" + idType;
+    }
+
+    private static boolean isBlank(final String value) {
+        return value == null || value.trim().length() == 0;
+    }
+}
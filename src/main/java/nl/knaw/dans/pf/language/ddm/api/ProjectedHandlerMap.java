@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace;
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandler;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandlerMap;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/** Restricts a {@link Ddm2EmdHandlerMap} to a {@link Ddm2EmdProjection}. Like the map it wraps, an instance serves one walk at a time. */
+class ProjectedHandlerMap implements CrosswalkHandlerMap<EasyMetadata> {
+    private static final String ADDITIONAL_XML = "/ddm:additional-xml";
+    private static final String PROFILE = "/ddm:profile";
+
+    private final CrosswalkHandler<EasyMetadata> skippedSubtree = new CrosswalkHandler<EasyMetadata>() {
+        @Override
+        protected boolean skipsContent() {
+            return true;
+        }
+
+        @Override
+        protected boolean skipsMappedDescendants() {
+            return true;
+        }
+    };
+
+    /** handles the children of ddm:profile as usual, stops the walk at its end */
+    private final CrosswalkHandler<EasyMetadata> profileStopper = new CrosswalkHandler<EasyMetadata>() {
+        @Override
+        protected void finishElement(final String uri, final String localName) throws SAXException {
+            if ("profile".equals(localName) && NameSpace.DDM.uri.equals(uri))
+                stopWalking();
+        }
+    };
+
+    private final Ddm2EmdHandlerMap delegate = Ddm2EmdHandlerMap.newInstance();
+    private Ddm2EmdProjection projection;
+
+    ProjectedHandlerMap(final Ddm2EmdProjection projection) {
+        this.projection = projection;
+    }
+
+    void setProjection(final Ddm2EmdProjection projection) {
+        this.projection = projection;
+    }
+
+    Ddm2EmdProjection getProjection() {
+        return projection;
+    }
+
+    @Override
+    public CrosswalkHandler<EasyMetadata> getHandler(final String uri, final String localName, final Attributes attributes) throws SAXException {
+        final String key = delegate.toHandlerKey(uri, localName, attributes);
+        if (Ddm2EmdContainer.forHandlerKey(key) != null && !projection.includes(key))
+            return skippedSubtree;
+        if (ADDITIONAL_XML.equals(key) && !projection.includes(key))
+            return skippedSubtree;
+        if (PROFILE.equals(key) && projection.isStopAfterProfile())
+            return profileStopper;
+        return delegate.getHandler(uri, localName, attributes);
+    }
+
+    @Override
+    public boolean reportMissingHandler(final String uri, final String localName, final Attributes attributes) throws SAXException {
+        return delegate.reportMissingHandler(uri, localName, attributes);
+    }
+
+    @Override
+    public String toHandlerKey(final String uri, final String localName, final Attributes attributes) throws SAXException {
+        return delegate.toHandlerKey(uri, localName, attributes);
+    }
+}
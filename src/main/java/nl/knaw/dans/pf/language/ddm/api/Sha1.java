@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A SHA-1 hash as lowercase hexadecimal string: the keys of {@link ValidationVerdictCache} and {@link Ddm2EmdCache} and the content hashes of the bulk
+ * journal. An instance hashes a single key.
+ */
+public final class Sha1 {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final MessageDigest digest;
+
+    public Sha1() {
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        }
+        catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("every java platform should support SHA-1", e);
+        }
+    }
+
+    /**
+     * @param bytes
+     *        added to the hash
+     * @return this
+     */
+    public Sha1 update(final byte[] bytes) {
+        digest.update(bytes);
+        return this;
+    }
+
+    /**
+     * @param bytes
+     *        contains the bytes added to the hash
+     * @param offset
+     *        of the first byte added
+     * @param length
+     *        number of bytes added
+     * @return this
+     */
+    public Sha1 update(final byte[] bytes, final int offset, final int length) {
+        digest.update(bytes, offset, length);
+        return this;
+    }
+
+    /**
+     * @param in
+     *        added to the hash up to its end, it is not closed
+     * @return this
+     * @throws IOException
+     */
+    public Sha1 update(final InputStream in) throws IOException {
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1)
+            digest.update(buffer, 0, n);
+        return this;
+    }
+
+    /** @return the hash of everything added, 40 hexadecimal digits */
+    public String toHex() {
+        final byte[] hash = digest.digest();
+        final char[] chars = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            chars[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.transform.Source;
+
+import nl.knaw.dans.pf.language.xml.exc.XMLException;
+import nl.knaw.dans.pf.language.xml.validation.AbstractValidator2;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler.Reporter;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Remembers the verdicts of another validator by content: a SHA-1 hash of the identity of the schemas and the XML bytes. A document submitted again
+ * unchanged is not validated again, the notifications (with line and column) of the first validation are repeated to the handler. Pass an instance to a
+ * crosswalk like any other validator, for example:
+ * 
+ * <pre>
+ * new Ddm2EmdCrosswalk(new ValidationVerdictCache(DDMValidator.getPool(), 1000))
+ * </pre>
+ * 
+ * The key needs all bytes, so a document is read completely before the lookup. A miss validates those bytes with the handler of the caller: a handler that
+ * stops the validation by throwing, like that of a crosswalk with an {@link nl.knaw.dans.pf.language.xml.crosswalk.ErrorPolicy}, stops it early. The
+ * notifications are recorded as they pass, only the verdict of a completed validation is kept. An instance is thread safe if the validator it wraps is thread safe. Documents passed as a {@link Source} are not cached.
+ */
+public class ValidationVerdictCache extends AbstractValidator2 {
+    private static final String ENCODING = "UTF-8";
+
+    private final AbstractValidator2 validator;
+    private final String schemaSetName;
+    private final byte[] schemaSet;
+    private final Map<String, Verdict> verdicts;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Caches the verdicts of a pool.
+     * 
+     * @param pool
+     *        validates cache misses, its schemas identify the verdicts
+     * @param maxEntries
+     *        the maximum number of verdicts kept
+     */
+    public ValidationVerdictCache(final ValidatorPool pool, final int maxEntries) {
+        this(pool, pool.getSchemaSet(), maxEntries);
+    }
+
+    /**
+     * Caches the verdicts of any validator.
+     * 
+     * @param validator
+     *        validates cache misses
+     * @param schemaSet
+     *        identifies the schemas of the validator, should change when the schemas change
+     * @param maxEntries
+     *        the maximum number of verdicts kept
+     */
+    public ValidationVerdictCache(final AbstractValidator2 validator, final String schemaSet, final int maxEntries) {
+        if (validator == null)
+            throw new IllegalArgumentException("validator can not be null");
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("maxEntries should be at least 1: " + maxEntries);
+        this.validator = validator;
+        this.schemaSetName = schemaSet;
+        this.schemaSet = toBytes(schemaSet + "\n");
+        this.verdicts = new LinkedHashMap<String, Verdict>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Verdict> eldest) {
+                if (size() <= maxEntries)
+                    return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public XMLErrorHandler validate(final XMLErrorHandler handler, final InputStream xmlStream) throws XMLException {
+        try {
+            return validate(handler, read(xmlStream));
+        }
+        catch (final IOException e) {
+            throw new XMLException(e);
+        }
+    }
+
+    @Override
+    public XMLErrorHandler validate(final File xmlFile) throws XMLException {
+        try {
+            return validate(new XMLErrorHandler(), Files.readAllBytes(xmlFile.toPath()));
+        }
+        catch (final IOException e) {
+            throw new XMLException(e);
+        }
+    }
+
+    @Override
+    public XMLErrorHandler validate(final Source xmlSource) throws XMLException {
+        misses.incrementAndGet();
+        return validator.validate(xmlSource);
+    }
+
+    private XMLErrorHandler validate(final XMLErrorHandler handler, final byte[] xml) throws XMLException {
+        final String key = toKey(xml);
+        Verdict verdict;
+        synchronized (verdicts) {
+            verdict = verdicts.get(key);
+        }
+        if (verdict != null)
+            hits.incrementAndGet();
+        else {
+            misses.incrementAndGet();
+            final RecordingHandler recorder = new RecordingHandler(handler);
+            validator.validate(recorder, new ByteArrayInputStream(xml));
+            if (recorder.isStopped())
+                return handler;
+            // concurrent submissions of the same document may both validate, the verdict is the same
+            synchronized (verdicts) {
+                verdicts.put(key, new Verdict(recorder));
+            }
+            return handler;
+        }
+        verdict.replay(handler);
+        return handler;
+    }
+
+    /** @return identifies the schemas of the wrapped validator */
+    public String getSchemaSet() {
+        return schemaSetName;
+    }
+
+    /** @return the number of validations skipped */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** @return the number of validations executed */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** @return the number of verdicts dropped to respect the maximum number of entries */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /** @return the number of verdicts kept */
+    public int size() {
+        synchronized (verdicts) {
+            return verdicts.size();
+        }
+    }
+
+    /** Drops all verdicts, for example after an update of the schemas. */
+    public void clear() {
+        synchronized (verdicts) {
+            verdicts.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits + " misses=" + misses + " evictions=" + evictions + " size=" + size();
+    }
+
+    private String toKey(final byte[] content) {
+        return new Sha1().update(schemaSet).update(content).toHex();
+    }
+
+    private static byte[] read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1)
+            out.write(buffer, 0, n);
+        return out.toByteArray();
+    }
+
+    private static byte[] toBytes(final String s) {
+        try {
+            return s.getBytes(ENCODING);
+        }
+        catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException("every java platform should support " + ENCODING, e);
+        }
+    }
+
+    /** Collects the notifications of a validation while passing them on. */
+    private static class RecordingHandler extends XMLErrorHandler {
+        private final XMLErrorHandler target;
+        /** set while the target handles a notification, remains set if the target throws to end the validation early */
+        private boolean stopped;
+
+        RecordingHandler(final XMLErrorHandler target) {
+            super(Reporter.off);
+            this.target = target;
+        }
+
+        @Override
+        public void warning(final SAXParseException e) throws SAXException {
+            super.warning(e);
+            stopped = true;
+            target.warning(e);
+            stopped = false;
+        }
+
+        @Override
+        public void error(final SAXParseException e) throws SAXException {
+            super.error(e);
+            stopped = true;
+            target.error(e);
+            stopped = false;
+        }
+
+        @Override
+        public void fatalError(final SAXParseException e) throws SAXException {
+            super.fatalError(e);
+            stopped = true;
+            target.fatalError(e);
+            stopped = false;
+        }
+
+        /** @return true if the target stopped the validation */
+        boolean isStopped() {
+            return stopped;
+        }
+    }
+
+    /** The notifications of a validation, empty if the document is valid. */
+    private static class Verdict {
+        private final List<SAXParseException> warnings;
+        private final List<SAXParseException> errors;
+        private final List<SAXParseException> fatalErrors;
+
+        Verdict(final XMLErrorHandler handler) {
+            warnings = copy(handler.getWarnings());
+            errors = copy(handler.getErrors());
+            fatalErrors = copy(handler.getFatalErrors());
+        }
+
+        private static List<SAXParseException> copy(final List<SAXParseException> exceptions) {
+            if (exceptions.isEmpty())
+                return Collections.emptyList();
+            return Collections.unmodifiableList(new ArrayList<SAXParseException>(exceptions));
+        }
+
+        void replay(final XMLErrorHandler handler) throws XMLException {
+            try {
+                for (final SAXParseException e : warnings)
+                    handler.warning(e);
+                for (final SAXParseException e : errors)
+                    handler.error(e);
+                for (final SAXParseException e : fatalErrors)
+                    handler.fatalError(e);
+            }
+            catch (final SAXException e) {
+                throw new XMLException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import nl.knaw.dans.pf.language.xml.exc.XMLException;
+import nl.knaw.dans.pf.language.xml.validation.AbstractValidator2;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Validates on any number of threads with a single compiled {@link Schema}. A {@link Validator} is not thread-safe, so each validation borrows one from a
+ * bounded pool and returns it after a reset. Threads only wait when all validators are borrowed. There is one pool per set of schemas, use it wherever an
+ * {@link AbstractValidator2} is expected, for example {@link Ddm2EmdCrosswalk#Ddm2EmdCrosswalk(AbstractValidator2)}. Schemas bundled on the class path
+ * are not read from the web, see {@link BundledSchemaResolver}.
+ */
+public class ValidatorPool extends AbstractValidator2 {
+    private static final ConcurrentMap<List<String>, ValidatorPool> POOLS = new ConcurrentHashMap<List<String>, ValidatorPool>();
+
+    private final String[] schemaUrls;
+    private final int maxSize;
+    private final Semaphore permits;
+    private final Queue<Validator> idle = new ConcurrentLinkedQueue<Validator>();
+    private volatile Schema schema;
+
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    private ValidatorPool(final int maxSize, final String... schemaUrls) {
+        super(schemaUrls);
+        this.schemaUrls = schemaUrls;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize);
+    }
+
+    /**
+     * Gets the pool for a set of schemas, creates it on first use.
+     * 
+     * @param maxSize
+     *        the number of validators in use at the same time, must be the same for every call with the same schemas
+     * @param schemaUrls
+     *        the schemas to validate against
+     * @return the pool
+     * @throws IllegalArgumentException
+     *         if the pool for the schemas already exists with another maximum size
+     */
+    public static ValidatorPool getInstance(final int maxSize, final String... schemaUrls) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("maxSize should be at least 1: " + maxSize);
+        final List<String> key = Arrays.asList(schemaUrls.clone());
+        ValidatorPool pool = POOLS.get(key);
+        if (pool == null) {
+            final ValidatorPool created = new ValidatorPool(maxSize, schemaUrls.clone());
+            pool = POOLS.putIfAbsent(key, created);
+            if (pool == null)
+                pool = created;
+        }
+        if (pool.maxSize != maxSize)
+            throw new IllegalArgumentException("the pool for " + key + " already exists with maxSize " + pool.maxSize + ", not " + maxSize);
+        return pool;
+    }
+
+    /**
+     * Validates with a borrowed validator.
+     * 
+     * @param handler
+     *        receives the notifications
+     * @param xmlStream
+     *        the XML content, not closed
+     * @return the handler
+     * @throws XMLException
+     *         if the schemas or the XML can not be read
+     */
+    @Override
+    public XMLErrorHandler validate(final XMLErrorHandler handler, final InputStream xmlStream) throws XMLException {
+        return validate(handler, new StreamSource(xmlStream));
+    }
+
+    /**
+     * Validates with a borrowed validator.
+     * 
+     * @param xmlSource
+     *        the XML content
+     * @return a handler with the notifications
+     * @throws XMLException
+     *         if the schemas or the XML can not be read
+     */
+    @Override
+    public XMLErrorHandler validate(final Source xmlSource) throws XMLException {
+        return validate(new XMLErrorHandler(), xmlSource);
+    }
+
+    /**
+     * Validates with a borrowed validator.
+     * 
+     * @param xmlFile
+     *        the XML content
+     * @return a handler with the notifications
+     * @throws XMLException
+     *         if the schemas or the XML can not be read
+     */
+    @Override
+    public XMLErrorHandler validate(final File xmlFile) throws XMLException {
+        return validate(new StreamSource(xmlFile));
+    }
+
+    private XMLErrorHandler validate(final XMLErrorHandler handler, final Source xmlSource) throws XMLException {
+        final Validator validator = borrow();
+        try {
+            validator.setErrorHandler(handler);
+            validator.validate(xmlSource);
+        }
+        catch (final SAXParseException e) {
+            // a fatal error, already reported to the handler
+        }
+        catch (final SAXException e) {
+            throw new XMLException(e);
+        }
+        catch (final IOException e) {
+            throw new XMLException(e);
+        }
+        finally {
+            giveBack(validator);
+        }
+        return handler;
+    }
+
+    private Validator borrow() throws XMLException {
+        if (!permits.tryAcquire()) {
+            waits.incrementAndGet();
+            final long start = System.nanoTime();
+            permits.acquireUninterruptibly();
+            waitNanos.addAndGet(System.nanoTime() - start);
+        }
+        Validator validator = null;
+        try {
+            borrowed.incrementAndGet();
+            validator = idle.poll();
+            if (validator == null) {
+                validator = getSchema().newValidator();
+                created.incrementAndGet();
+            }
+            return validator;
+        }
+        finally {
+            // also for unchecked exceptions, like an OutOfMemoryError while compiling the schema
+            if (validator == null)
+                permits.release();
+        }
+    }
+
+    private void giveBack(final Validator validator) {
+        try {
+            validator.reset();
+            idle.offer(validator);
+        }
+        finally {
+            permits.release();
+        }
+    }
+
+    private Schema getSchema() throws XMLException {
+        Schema result = schema;
+        if (result == null) {
+            synchronized (this) {
+                result = schema;
+                if (result == null)
+                    schema = result = compileSchema();
+            }
+        }
+        return result;
+    }
+
+    private Schema compileSchema() throws XMLException {
+        final BundledSchemaResolver resolver = new BundledSchemaResolver();
+        final Source[] sources = new Source[schemaUrls.length];
+        for (int i = 0; i < schemaUrls.length; i++)
+            sources[i] = resolver.toSource(schemaUrls[i]);
+        try {
+            final SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            factory.setResourceResolver(resolver);
+            return factory.newSchema(sources);
+        }
+        catch (final SAXException e) {
+            throw new XMLException(e);
+        }
+    }
+
+    /** @return identifies the schemas of this pool */
+    public String getSchemaSet() {
+        return Arrays.toString(schemaUrls);
+    }
+
+    /** @return the maximum number of validators in use at the same time */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** @return the number of validations started */
+    public long getBorrowCount() {
+        return borrowed.get();
+    }
+
+    /** @return the number of validators created, at most {@link #getMaxSize()} */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /** @return the number of validations that had to wait for a validator */
+    public long getWaitCount() {
+        return waits.get();
+    }
+
+    /** @return the total time validations waited for a validator */
+    public long getWaitMillis() {
+        return waitNanos.get() / 1000000;
+    }
+
+    /** @return the number of validators ready for use */
+    public int getIdleCount() {
+        return idle.size();
+    }
+}
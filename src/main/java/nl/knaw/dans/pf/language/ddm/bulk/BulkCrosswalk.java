@@ -0,0 +1,487 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.bulk;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nl.knaw.dans.pf.language.ddm.api.DDMValidator;
+import nl.knaw.dans.pf.language.ddm.api.Ddm2EmdCrosswalk;
+import nl.knaw.dans.pf.language.ddm.api.Ddm2EmdHandlerMap;
+import nl.knaw.dans.pf.language.ddm.api.ValidatorPool;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkException;
+import nl.knaw.dans.pf.language.xml.validation.AbstractValidator2;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler.Reporter;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Crosswalks many DDM files into Easy Meta Data files on several threads. JVM start-up and the initialization of the handlers are paid once per run rather
+ * than once per document: each thread has its own {@link Ddm2EmdCrosswalk} with its own handlers, the validator is shared.
+ * <p>
+ * Usage: <code>java -jar ddm-cli.jar [-threads N] [-novalidate] [-schema location]... [-journal file] [-shard i/n] -out directory
+ * (directory | file | &#64;file-list)...</code>
+ * </p>
+ * <ul>
+ * <li>a directory is searched recursively for *.xml files, the output mirrors the tree below the directory</li>
+ * <li>a file list has one path per line, the output mirrors the absolute path of the input, for example /data/deposit-1/dataset.xml is written to
+ * data/deposit-1/dataset.xml below the output directory; the same applies to a file argument</li>
+ * <li>-schema replaces the default schemas, for example by local copies; schemas bundled on the class path are never read from the web, see
+ * {@link nl.knaw.dans.pf.language.ddm.api.BundledSchemaResolver}, neither are the narcis and ABR vocabularies of the handlers</li>
+ * <li>-journal resumes a run, inputs completed according to the {@link BulkJournal} are skipped</li>
+ * <li>-shard i/n crosswalks the inputs of shard i (0 &lt;= i &lt; n), so n processes or machines can share the inputs</li>
+ * </ul>
+ * <p>
+ * The summary reports throughput, latency percentiles, peak heap and errors per handler key. An error is attributed to the key of the handler that had
+ * control last, errors of the XSD validation or of malformed XML are reported as {@value KeyTrackingHandlerMap#DOCUMENT_KEY}.
+ * </p>
+ */
+public class BulkCrosswalk {
+    private static final String EXCEPTION_KEY = "(exception)";
+    private static final String OUTPUT_KEY = "(output)";
+    private static final String INPUT_KEY = "(input)";
+
+    private final int threads;
+    private final AbstractValidator2 validator;
+    private final File outputDirectory;
+    private final List<File> inputs = new ArrayList<File>();
+    private final List<String> outputPaths = new ArrayList<String>();
+    private BulkJournal journal;
+    private int shardIndex = 0;
+    private int shardCount = 1;
+
+    /**
+     * Creates an instance.
+     * 
+     * @param threads
+     *        the number of documents crosswalked at the same time
+     * @param validator
+     *        null to skip validation, otherwise a validator that can be shared between threads like a {@link ValidatorPool}
+     * @param outputDirectory
+     *        receives the Easy Meta Data files
+     */
+    public BulkCrosswalk(final int threads, final AbstractValidator2 validator, final File outputDirectory) {
+        if (threads < 1)
+            throw new IllegalArgumentException("expected at least one thread, got " + threads);
+        this.threads = threads;
+        this.validator = validator;
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * Adds the *.xml files in a directory tree.
+     * 
+     * @param directory
+     *        the root of the tree, the output mirrors the tree below it
+     */
+    public void addDirectory(final File directory) {
+        final URI base = directory.toURI();
+        for (final File file : listXmlFiles(directory)) {
+            inputs.add(file);
+            outputPaths.add(base.relativize(file.toURI()).getPath());
+        }
+    }
+
+    /**
+     * Adds a file, the output mirrors its absolute path, so files with the same name in different directories, like the dataset.xml of many deposits,
+     * get different outputs.
+     * 
+     * @param file
+     *        with DDM
+     */
+    public void addFile(final File file) {
+        inputs.add(file);
+        outputPaths.add(toMirroredPath(file));
+    }
+
+    private static String toMirroredPath(final File file) {
+        // without the root and the colon of a windows drive: /C:/data/dataset.xml becomes C/data/dataset.xml
+        return file.getAbsoluteFile().toURI().normalize().getPath().replaceFirst("^/+", "").replaceFirst("^([A-Za-z]):/", "$1/");
+    }
+
+    private void checkOutputPaths() {
+        final Map<String, File> inputPerOutput = new HashMap<String, File>();
+        for (int i = 0; i < inputs.size(); i++) {
+            final File other = inputPerOutput.put(outputPaths.get(i), inputs.get(i));
+            if (other != null)
+                throw new IllegalStateException("inputs " + other + " and " + inputs.get(i) + " have the same output " + outputPaths.get(i));
+        }
+    }
+
+    /**
+     * Adds the files in a list.
+     * 
+     * @param fileList
+     *        one path per line, empty lines and lines starting with # are ignored
+     * @throws IOException
+     */
+    public void addFileList(final File fileList) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileList), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String path = line.trim();
+                if (path.length() > 0 && !path.startsWith("#"))
+                    addFile(new File(path));
+            }
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @param journal
+     *        null (the default) to crosswalk all inputs, otherwise receives the outcome per input and inputs it has completed are skipped. The journal
+     *        identifies an input by the path of its output relative to the output directory.
+     */
+    public void setJournal(final BulkJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Restricts the run to a part of the inputs. The shard of an input depends only on the path of its output relative to the output directory, so
+     * processes on different machines agree on the shards as long as they add the same inputs.
+     * 
+     * @param index
+     *        the shard to crosswalk, 0 &lt;= index &lt; count
+     * @param count
+     *        the number of shards, 1 (the default) for all inputs
+     */
+    public void setShard(final int index, final int count) {
+        if (count < 1 || index < 0 || index >= count)
+            throw new IllegalArgumentException("invalid shard " + index + "/" + count);
+        this.shardIndex = index;
+        this.shardCount = count;
+    }
+
+    /**
+     * @param path
+     *        the path of an output relative to the output directory
+     * @param count
+     *        the number of shards
+     * @return the shard of the input
+     */
+    public static int shardOf(final String path, final int count) {
+        // String.hashCode is specified, so the same on every machine
+        return (path.hashCode() & Integer.MAX_VALUE) % count;
+    }
+
+    /**
+     * Crosswalks the files added so far.
+     * 
+     * @return the summary
+     * @throws InterruptedException
+     * @throws IOException
+     *         if the journal can not be written
+     * @throws IllegalStateException
+     *         before anything is crosswalked if two inputs have the same output, for example a file added both on its own and in a directory
+     */
+    public BulkSummary run() throws InterruptedException, IOException {
+        checkOutputPaths();
+        final List<Integer> selected = new ArrayList<Integer>();
+        for (int i = 0; i < inputs.size(); i++) {
+            if (shardCount == 1 || shardOf(outputPaths.get(i), shardCount) == shardIndex)
+                selected.add(i);
+        }
+        final List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        final AtomicInteger next = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final long start = System.nanoTime();
+        final List<Future<Statistics>> futures = new ArrayList<Future<Statistics>>();
+        try {
+            for (int i = 0; i < threads; i++)
+                futures.add(executor.submit(new Worker(selected, next)));
+            final Statistics total = new Statistics();
+            for (final Future<Statistics> future : futures)
+                total.add(future.get());
+            if (journal != null)
+                journal.sync();
+            final long elapsed = System.nanoTime() - start;
+            long peakHeap = 0;
+            for (final MemoryPoolMXBean pool : heapPools)
+                peakHeap += pool.getPeakUsage().getUsed();
+            final long[] latencies = Arrays.copyOf(total.latencies, total.documents);
+            Arrays.sort(latencies);
+            return new BulkSummary(total.documents, total.failed, total.skipped, elapsed, latencies, new TreeMap<String, Integer>(total.errorsPerKey),
+                    peakHeap);
+        }
+        catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            // the workers catch per document, so this is a bug
+            throw new IllegalStateException(e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<File> listXmlFiles(final File directory) {
+        final List<File> result = new ArrayList<File>();
+        final File[] files = directory.listFiles();
+        if (files == null)
+            return result;
+        Arrays.sort(files);
+        for (final File file : files) {
+            if (file.isDirectory())
+                result.addAll(listXmlFiles(file));
+            else if (file.getName().endsWith(".xml"))
+                result.add(file);
+        }
+        return result;
+    }
+
+    /** Crosswalks documents until none are left, with its own crosswalk and handlers. */
+    private class Worker implements Callable<Statistics> {
+        private final List<Integer> selected;
+        private final AtomicInteger next;
+        private final Statistics statistics = new Statistics();
+        private final KeyTrackingHandlerMap handlerMap = new KeyTrackingHandlerMap(Ddm2EmdHandlerMap.newInstance());
+        private final Ddm2EmdCrosswalk crosswalk = new Ddm2EmdCrosswalk(validator, handlerMap);
+
+        Worker(final List<Integer> selected, final AtomicInteger next) {
+            this.selected = selected;
+            this.next = next;
+            crosswalk.setXmlErrorHandler(new XMLErrorHandler(Reporter.off) {
+                @Override
+                public void error(final SAXParseException exception) throws SAXException {
+                    super.error(exception);
+                    statistics.countError(handlerMap.getCurrentKey());
+                }
+
+                @Override
+                public void fatalError(final SAXParseException exception) throws SAXException {
+                    super.fatalError(exception);
+                    statistics.countError(handlerMap.getCurrentKey());
+                }
+            });
+        }
+
+        @Override
+        public Statistics call() throws IOException {
+            int n;
+            while ((n = next.getAndIncrement()) < selected.size() && !Thread.currentThread().isInterrupted()) {
+                final int i = selected.get(n);
+                final long start = System.nanoTime();
+                String hash = null;
+                if (journal != null) {
+                    try {
+                        hash = BulkJournal.hash(inputs.get(i));
+                    }
+                    catch (final IOException e) {
+                        statistics.countError(INPUT_KEY);
+                        statistics.addDocument(System.nanoTime() - start, false);
+                        continue;
+                    }
+                    if (journal.isCompleted(outputPaths.get(i), hash)) {
+                        statistics.skipped++;
+                        continue;
+                    }
+                }
+                final boolean written = crosswalk(inputs.get(i), new File(outputDirectory, outputPaths.get(i)));
+                statistics.addDocument(System.nanoTime() - start, written);
+                if (journal != null)
+                    journal.record(outputPaths.get(i), hash, written);
+            }
+            return statistics;
+        }
+
+        private boolean crosswalk(final File input, final File output) {
+            crosswalk.getXmlErrorHandler().reset();
+            handlerMap.reset();
+            boolean written = false;
+            try {
+                output.getParentFile().mkdirs();
+                final FileOutputStream file = new FileOutputStream(output);
+                final OutputStream out = new BufferedOutputStream(file);
+                try {
+                    if (validator == null)
+                        written = crosswalk.transcodeValidated(input, out);
+                    else
+                        written = crosswalk.transcode(input, out);
+                    if (written && journal != null) {
+                        // the journal must not survive a crash that the output does not
+                        out.flush();
+                        file.getChannel().force(true);
+                    }
+                }
+                finally {
+                    out.close();
+                }
+            }
+            catch (final CrosswalkException e) {
+                // errors of the parser are already counted by the error handler
+            }
+            catch (final IOException e) {
+                statistics.countError(OUTPUT_KEY);
+            }
+            catch (final RuntimeException e) {
+                // a bug in a handler should not stop the other documents
+                statistics.countError(EXCEPTION_KEY + " " + handlerMap.getCurrentKey());
+            }
+            if (!written)
+                output.delete();
+            return written;
+        }
+    }
+
+    /** Collected by a single worker, added up after the run. */
+    private static class Statistics {
+        private int documents;
+        private int failed;
+        private int skipped;
+        private long[] latencies = new long[1024];
+        private final Map<String, Integer> errorsPerKey = new HashMap<String, Integer>();
+
+        void addDocument(final long latencyNanos, final boolean written) {
+            if (documents == latencies.length)
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            latencies[documents++] = latencyNanos;
+            if (!written)
+                failed++;
+        }
+
+        void countError(final String key) {
+            final Integer count = errorsPerKey.get(key);
+            errorsPerKey.put(key, count == null ? 1 : count + 1);
+        }
+
+        void add(final Statistics other) {
+            if (documents + other.documents > latencies.length)
+                latencies = Arrays.copyOf(latencies, documents + other.documents);
+            System.arraycopy(other.latencies, 0, latencies, documents, other.documents);
+            documents += other.documents;
+            failed += other.failed;
+            skipped += other.skipped;
+            for (final Map.Entry<String, Integer> entry : other.errorsPerKey.entrySet()) {
+                final Integer count = errorsPerKey.get(entry.getKey());
+                errorsPerKey.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Runs from the command line, see the class comment for the arguments.
+     * 
+     * @param args
+     * @throws Exception
+     */
+    public static void main(final String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean validate = true;
+        File outputDirectory = null;
+        File journalFile = null;
+        int shardIndex = 0;
+        int shardCount = 1;
+        final List<String> schemas = new ArrayList<String>();
+        final List<String> inputs = new ArrayList<String>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-threads".equals(args[i]))
+                    threads = Integer.parseInt(args[++i]);
+                else if ("-novalidate".equals(args[i]))
+                    validate = false;
+                else if ("-schema".equals(args[i]))
+                    schemas.add(toSchemaLocation(args[++i]));
+                else if ("-out".equals(args[i]))
+                    outputDirectory = new File(args[++i]);
+                else if ("-journal".equals(args[i]))
+                    journalFile = new File(args[++i]);
+                else if ("-shard".equals(args[i])) {
+                    final String[] shard = args[++i].split("/");
+                    shardIndex = Integer.parseInt(shard[0]);
+                    shardCount = Integer.parseInt(shard[1]);
+                } else
+                    inputs.add(args[i]);
+            }
+        }
+        catch (final RuntimeException e) {
+            // a missing or non-numeric value
+            outputDirectory = null;
+        }
+        if (outputDirectory == null || inputs.isEmpty() || shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            System.err.println("usage: " + BulkCrosswalk.class.getName()
+                    + " [-threads N] [-novalidate] [-schema location]... [-journal file] [-shard i/n] -out directory (directory | file | @file-list)...");
+            System.exit(2);
+        }
+
+        AbstractValidator2 validator = null;
+        if (validate && schemas.isEmpty())
+            validator = DDMValidator.getPool();
+        else if (validate)
+            validator = ValidatorPool.getInstance(threads, schemas.toArray(new String[schemas.size()]));
+
+        final BulkCrosswalk bulkCrosswalk = new BulkCrosswalk(threads, validator, outputDirectory);
+        for (final String input : inputs) {
+            final File file = new File(input.startsWith("@") ? input.substring(1) : input);
+            if (input.startsWith("@"))
+                bulkCrosswalk.addFileList(file);
+            else if (file.isDirectory())
+                bulkCrosswalk.addDirectory(file);
+            else
+                bulkCrosswalk.addFile(file);
+        }
+        bulkCrosswalk.setShard(shardIndex, shardCount);
+        final BulkJournal journal = journalFile == null ? null : new BulkJournal(journalFile);
+        bulkCrosswalk.setJournal(journal);
+        final BulkSummary summary;
+        try {
+            summary = bulkCrosswalk.run();
+        }
+        finally {
+            if (journal != null)
+                journal.close();
+        }
+        System.out.print(summary);
+        System.exit(summary.getFailed() == 0 ? 0 : 1);
+    }
+
+    private static String toSchemaLocation(final String schema) {
+        final File file = new File(schema);
+        return file.exists() ? file.toURI().toString() : schema;
+    }
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.bulk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+import nl.knaw.dans.pf.language.ddm.api.Sha1;
+
+/**
+ * An append-only journal of the inputs completed by a {@link BulkCrosswalk}, to resume a run after a crash. Each line has the outcome, the SHA-1 of the
+ * content and the path of the input, separated by tabs. A backslash, tab, carriage return or newline in a path is written as {@code \\}, {@code \t},
+ * {@code \r} or {@code \n}. Lines are written in batches, each batch is forced to disk before the next one starts. Callers force an output to disk before
+ * they record it as completed.
+ * <p>
+ * An input is completed if the journal has a successful outcome for its path with the same hash. Inputs that failed or have changed since are crosswalked
+ * again. A line torn by a crash is removed when the journal is opened. A journal can be shared by the threads of one process, processes need a journal of
+ * their own.
+ * </p>
+ */
+public class BulkJournal implements Closeable {
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    private static final String OK = "ok";
+    private static final String FAILED = "failed";
+    private static final String ENCODING = "UTF-8";
+    private static final int HASH_LENGTH = 40;
+
+    private final Map<String, String> completed = new HashMap<String, String>();
+    private final int batchSize;
+    private final FileOutputStream stream;
+    private final Writer writer;
+    private int unsynced;
+
+    /**
+     * Opens a journal with the default batch size.
+     * 
+     * @param file
+     *        created if it does not exist
+     * @throws IOException
+     */
+    public BulkJournal(final File file) throws IOException {
+        this(file, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Opens a journal.
+     * 
+     * @param file
+     *        created if it does not exist
+     * @param batchSize
+     *        the number of lines written between two syncs to disk, after a crash at most this number of inputs is crosswalked again
+     * @throws IOException
+     */
+    public BulkJournal(final File file, final int batchSize) throws IOException {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("expected a batch size of at least one, got " + batchSize);
+        this.batchSize = batchSize;
+        if (file.exists()) {
+            truncateTornLine(file);
+            read(file);
+        }
+        stream = new FileOutputStream(file, true);
+        writer = new BufferedWriter(new OutputStreamWriter(stream, ENCODING));
+    }
+
+    private void read(final File file) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split("\t", 3);
+                if (fields.length < 3 || fields[1].length() != HASH_LENGTH)
+                    continue;
+                final String path = unescape(fields[2]);
+                if (OK.equals(fields[0]))
+                    completed.put(path, fields[1]);
+                else if (FAILED.equals(fields[0]))
+                    completed.remove(path);
+            }
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /** Removes the end of a line written partially before a crash, it may have a truncated path. */
+    private static void truncateTornLine(final File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            long length = raf.length();
+            while (length > 0) {
+                raf.seek(length - 1);
+                if (raf.read() == '\n')
+                    break;
+                length--;
+            }
+            raf.setLength(length);
+        }
+        finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @param path
+     *        identifies the input
+     * @param hash
+     *        see {@link #hash(File)}
+     * @return true if the input was crosswalked successfully with the same content
+     */
+    public synchronized boolean isCompleted(final String path, final String hash) {
+        return hash.equals(completed.get(path));
+    }
+
+    /** @return the number of inputs completed successfully, according to the journal */
+    public synchronized int getCompletedCount() {
+        return completed.size();
+    }
+
+    /**
+     * Appends an outcome, synced to disk when the batch is full.
+     * 
+     * @param path
+     *        identifies the input
+     * @param hash
+     *        see {@link #hash(File)}
+     * @param ok
+     *        true if the input was crosswalked successfully
+     * @throws IOException
+     */
+    public synchronized void record(final String path, final String hash, final boolean ok) throws IOException {
+        writer.write((ok ? OK : FAILED) + "\t" + hash + "\t" + escape(path) + "\n");
+        if (ok)
+            completed.put(path, hash);
+        else
+            completed.remove(path);
+        if (++unsynced >= batchSize)
+            sync();
+    }
+
+    /** Keeps a path on a single field of a single line. */
+    static String escape(final String path) {
+        final StringBuilder sb = new StringBuilder(path.length());
+        for (int i = 0; i < path.length(); i++) {
+            final char c = path.charAt(i);
+            switch (c) {
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Reverses {@link #escape(String)}, an unknown escape is kept as it is. */
+    static String unescape(final String field) {
+        if (field.indexOf('\\') < 0)
+            return field;
+        final StringBuilder sb = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            final char c = field.charAt(i);
+            if (c != '\\' || i + 1 == field.length()) {
+                sb.append(c);
+                continue;
+            }
+            final char next = field.charAt(++i);
+            if (next == '\\')
+                sb.append('\\');
+            else if (next == 't')
+                sb.append('\t');
+            else if (next == 'r')
+                sb.append('\r');
+            else if (next == 'n')
+                sb.append('\n');
+            else
+                sb.append(c).append(next);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Forces the lines written so far to disk.
+     * 
+     * @throws IOException
+     */
+    public synchronized void sync() throws IOException {
+        writer.flush();
+        stream.getChannel().force(false);
+        unsynced = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * @param file
+     *        an input
+     * @return the SHA-1 of the content as hexadecimal string
+     * @throws IOException
+     */
+    public static String hash(final File file) throws IOException {
+        final InputStream in = new FileInputStream(file);
+        try {
+            return new Sha1().update(in).toHex();
+        }
+        finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.bulk;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * The outcome of a {@link BulkCrosswalk} run.
+ */
+public class BulkSummary {
+    private final int documents;
+    private final int failed;
+    private final int skipped;
+    private final long elapsedNanos;
+    private final long[] sortedLatencyNanos;
+    private final SortedMap<String, Integer> errorsPerKey;
+    private final long peakHeapBytes;
+
+    BulkSummary(final int documents, final int failed, final int skipped, final long elapsedNanos, final long[] sortedLatencyNanos,
+            final SortedMap<String, Integer> errorsPerKey, final long peakHeapBytes) {
+        this.documents = documents;
+        this.failed = failed;
+        this.skipped = skipped;
+        this.elapsedNanos = elapsedNanos;
+        this.sortedLatencyNanos = sortedLatencyNanos;
+        this.errorsPerKey = Collections.unmodifiableSortedMap(errorsPerKey);
+        this.peakHeapBytes = peakHeapBytes;
+    }
+
+    /** @return the number of documents read */
+    public int getDocuments() {
+        return documents;
+    }
+
+    /** @return the number of documents without Easy Meta Data written */
+    public int getFailed() {
+        return failed;
+    }
+
+    /** @return the number of documents completed by a previous run according to the {@link BulkJournal}, not included in the other numbers */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public double getDocumentsPerSecond() {
+        if (elapsedNanos == 0)
+            return 0;
+        return documents * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @param percentile
+     *        for example 50 or 99
+     * @return the latency in milliseconds of a single document, zero without documents
+     */
+    public double getLatencyMillis(final double percentile) {
+        if (sortedLatencyNanos.length == 0)
+            return 0;
+        final int index = (int) Math.ceil(percentile / 100 * sortedLatencyNanos.length) - 1;
+        return sortedLatencyNanos[Math.max(0, Math.min(index, sortedLatencyNanos.length - 1))] / 1e6;
+    }
+
+    /** @return errors and fatal errors by the handler key they were reported under, see {@link BulkCrosswalk} */
+    public SortedMap<String, Integer> getErrorsPerKey() {
+        return errorsPerKey;
+    }
+
+    /** @return the sum of the peak usage of the heap memory pools during the run */
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("documents: %d, failed: %d, skipped: %d, elapsed: %.1f s%n", documents, failed, skipped, elapsedNanos / 1e9));
+        sb.append(String.format("throughput: %.1f documents/s%n", getDocumentsPerSecond()));
+        sb.append(String.format("latency: p50 %.2f ms, p99 %.2f ms%n", getLatencyMillis(50), getLatencyMillis(99)));
+        sb.append(String.format("peak heap: %d MB%n", peakHeapBytes / (1024 * 1024)));
+        for (final Map.Entry<String, Integer> entry : errorsPerKey.entrySet())
+            sb.append(String.format("errors %s: %d%n", entry.getKey(), entry.getValue()));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.bulk;
+
+import nl.knaw.dans.pf.language.ddm.api.Ddm2EmdHandlerMap;
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandler;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandlerMap;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * Remembers the key of the last handler that received control. Handlers report errors at the end of their element and the elements a handler collects have
+ * no handlers of their own, so a notification can be attributed to the key of the last handler.
+ */
+class KeyTrackingHandlerMap implements CrosswalkHandlerMap<EasyMetadata> {
+    /** the key of notifications before the first handler, like a failing XSD validation or a malformed document */
+    static final String DOCUMENT_KEY = "(document)";
+
+    private final Ddm2EmdHandlerMap delegate;
+    private String currentKey = DOCUMENT_KEY;
+
+    KeyTrackingHandlerMap(final Ddm2EmdHandlerMap delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public CrosswalkHandler<EasyMetadata> getHandler(final String uri, final String localName, final Attributes attributes) throws SAXException {
+        final CrosswalkHandler<EasyMetadata> handler = delegate.getHandler(uri, localName, attributes);
+        if (handler != null)
+            currentKey = delegate.toHandlerKey(uri, localName, attributes);
+        return handler;
+    }
+
+    @Override
+    public boolean reportMissingHandler(final String uri, final String localName, final Attributes attributes) throws SAXException {
+        return delegate.reportMissingHandler(uri, localName, attributes);
+    }
+
+    @Override
+    public String toHandlerKey(final String uri, final String localName, final Attributes attributes) throws SAXException {
+        return delegate.toHandlerKey(uri, localName, attributes);
+    }
+
+    /** @return the key of the last handler that received control since {@link #reset()} */
+    String getCurrentKey() {
+        return currentKey;
+    }
+
+    /** To call before each document. */
+    void reset() {
+        currentKey = DOCUMENT_KEY;
+    }
+}
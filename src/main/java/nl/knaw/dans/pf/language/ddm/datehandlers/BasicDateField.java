@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.datehandlers;
+
+import java.util.List;
+
+import nl.knaw.dans.pf.language.emd.EmdDate;
+import nl.knaw.dans.pf.language.emd.types.BasicDate;
+
+/** The lists of {@link EmdDate} with free text dates, selected by a switch like those of {@link IsoDateField}. */
+public enum BasicDateField {
+    DC_DATE("date"),
+    TERMS_CREATED("created"),
+    TERMS_AVAILABLE("available"),
+    TERMS_VALID("valid"),
+    TERMS_ISSUED("issued"),
+    TERMS_MODIFIED("modified"),
+    TERMS_DATE_ACCEPTED("dateAccepted"),
+    TERMS_DATE_COPYRIGHTED("dateCopyrighted"),
+    TERMS_DATE_SUBMITTED("dateSubmitted");
+
+    private final String localName;
+
+    private BasicDateField(final String localName) {
+        this.localName = localName;
+    }
+
+    /** @return the local name of the dc or dcterms element, for example dateAccepted */
+    public String getLocalName() {
+        return localName;
+    }
+
+    /**
+     * @param emdDate
+     *        the dates of the target
+     * @return the list that receives the value
+     */
+    public List<BasicDate> getList(final EmdDate emdDate) {
+        switch (this) {
+        case DC_DATE:
+            return emdDate.getDcDate();
+        case TERMS_CREATED:
+            return emdDate.getTermsCreated();
+        case TERMS_AVAILABLE:
+            return emdDate.getTermsAvailable();
+        case TERMS_VALID:
+            return emdDate.getTermsValid();
+        case TERMS_ISSUED:
+            return emdDate.getTermsIssued();
+        case TERMS_MODIFIED:
+            return emdDate.getTermsModified();
+        case TERMS_DATE_ACCEPTED:
+            return emdDate.getTermsDateAccepted();
+        case TERMS_DATE_COPYRIGHTED:
+            return emdDate.getTermsDateCopyrighted();
+        case TERMS_DATE_SUBMITTED:
+            return emdDate.getTermsDateSubmitted();
+        default:
+            throw new IllegalStateException("no list for " + this);
+        }
+    }
+}
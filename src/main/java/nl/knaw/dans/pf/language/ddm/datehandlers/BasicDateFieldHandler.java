@@ -20,11 +20,22 @@ import nl.knaw.dans.pf.language.emd.types.BasicDate;
 
 import org.xml.sax.SAXException;
 
-public class DcDateHandler extends BasicDateHandler {
+/** Handles all free text dates, the {@link BasicDateField} selects the list that receives the value. */
+public class BasicDateFieldHandler extends BasicDateHandler {
+    private final BasicDateField field;
+
+    public BasicDateFieldHandler(final BasicDateField field) {
+        this.field = field;
+    }
+
     @Override
     public void finishElement(final String uri, final String localName) throws SAXException {
         final BasicDate date = createDate(uri, localName);
         if (date != null)
-            getTarget().getEmdDate().getDcDate().add(date);
+            field.getList(getTarget().getEmdDate()).add(date);
+    }
+
+    public BasicDateField getField() {
+        return field;
     }
 }
@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.datehandlers;
+
+import java.util.List;
+
+import nl.knaw.dans.pf.language.emd.EmdDate;
+import nl.knaw.dans.pf.language.emd.types.IsoDate;
+
+/** The lists of {@link EmdDate} with W3CDTF dates. {@link #getList(EmdDate)} switches on the constant, there is no method body per constant. */
+public enum IsoDateField {
+    EAS_DATE("date"),
+    EAS_CREATED("created"),
+    EAS_AVAILABLE("available"),
+    EAS_VALID("valid"),
+    EAS_ISSUED("issued"),
+    EAS_MODIFIED("modified"),
+    EAS_DATE_ACCEPTED("dateAccepted"),
+    EAS_DATE_COPYRIGHTED("dateCopyrighted"),
+    EAS_DATE_SUBMITTED("dateSubmitted");
+
+    private final String localName;
+
+    private IsoDateField(final String localName) {
+        this.localName = localName;
+    }
+
+    /** @return the local name of the dc or dcterms element, for example dateAccepted */
+    public String getLocalName() {
+        return localName;
+    }
+
+    /**
+     * @param emdDate
+     *        the dates of the target
+     * @return the list that receives the value
+     */
+    public List<IsoDate> getList(final EmdDate emdDate) {
+        switch (this) {
+        case EAS_DATE:
+            return emdDate.getEasDate();
+        case EAS_CREATED:
+            return emdDate.getEasCreated();
+        case EAS_AVAILABLE:
+            return emdDate.getEasAvailable();
+        case EAS_VALID:
+            return emdDate.getEasValid();
+        case EAS_ISSUED:
+            return emdDate.getEasIssued();
+        case EAS_MODIFIED:
+            return emdDate.getEasModified();
+        case EAS_DATE_ACCEPTED:
+            return emdDate.getEasDateAccepted();
+        case EAS_DATE_COPYRIGHTED:
+            return emdDate.getEasDateCopyrighted();
+        case EAS_DATE_SUBMITTED:
+            return emdDate.getEasDateSubmitted();
+        default:
+            throw new IllegalStateException("no list for " + this);
+        }
+    }
+}
@@ -20,11 +20,22 @@ import nl.knaw.dans.pf.language.emd.types.IsoDate;
 
 import org.xml.sax.SAXException;
 
-public class EasModiefiedHandler extends IsoDateHandler {
+/** Handles all W3CDTF dates, the {@link IsoDateField} selects the list that receives the value. */
+public class IsoDateFieldHandler extends IsoDateHandler {
+    private final IsoDateField field;
+
+    public IsoDateFieldHandler(final IsoDateField field) {
+        this.field = field;
+    }
+
     @Override
     public void finishElement(final String uri, final String localName) throws SAXException {
         final IsoDate date = createDate(uri, localName);
         if (date != null)
-            getTarget().getEmdDate().getEasModified().add(date);
+            field.getList(getTarget().getEmdDate()).add(date);
+    }
+
+    public IsoDateField getField() {
+        return field;
     }
 }
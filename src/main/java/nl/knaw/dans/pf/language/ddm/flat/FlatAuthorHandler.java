@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.flat;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * Collects dcx-dai:creatorDetails, dcx-dai:contributorDetails and the simple dcx-dai:creator/contributor as a display name in the field, the identifiers go
+ * into the fields [field].DAI, [field].ISNI and [field].ORCID.
+ */
+public class FlatAuthorHandler extends FlatValueHandler {
+    private String initials;
+    private String insertions;
+    private String surname;
+    private String organization;
+
+    public FlatAuthorHandler(final String field) {
+        super(field);
+    }
+
+    @Override
+    protected void initFirstElement(final String uri, final String localName, final Attributes attributes) throws SAXException {
+        super.initFirstElement(uri, localName, attributes);
+        initials = insertions = surname = organization = null;
+    }
+
+    @Override
+    protected void finishElement(final String uri, final String localName) throws SAXException {
+        if (isFirstElement(localName)) {
+            final String dai = getAttribute("", "DAI");
+            if (dai != null) {
+                // the simple variant: the name as content, the identifier as attribute
+                surname = getCharsSinceStart().trim();
+                addIdentifier("DAI", dai.trim());
+            }
+            final String name = displayName();
+            if (name.length() != 0)
+                getTarget().add(getField(), name);
+            return;
+        }
+        final String value = getCharsSinceStart().trim();
+        if (value.length() == 0)
+            return;
+        if ("initials".equals(localName))
+            initials = value;
+        else if ("insertions".equals(localName))
+            insertions = value;
+        else if ("surname".equals(localName))
+            surname = value;
+        else if ("name".equals(localName)/* part of organization */)
+            organization = value;
+        else if ("DAI".equals(localName) || "ISNI".equals(localName) || "ORCID".equals(localName))
+            addIdentifier(localName, value);
+    }
+
+    private void addIdentifier(final String scheme, final String value) {
+        if (value.length() != 0)
+            getTarget().add(getField() + "." + scheme, value);
+    }
+
+    private String displayName() {
+        final StringBuilder sb = new StringBuilder();
+        for (final String part : new String[] {initials, insertions, surname}) {
+            if (part == null || part.length() == 0)
+                continue;
+            if (sb.length() > 0)
+                sb.append(' ');
+            sb.append(part);
+        }
+        if (organization != null) {
+            if (sb.length() > 0)
+                sb.append(" (").append(organization).append(')');
+            else
+                sb.append(organization);
+        }
+        return sb.toString();
+    }
+}
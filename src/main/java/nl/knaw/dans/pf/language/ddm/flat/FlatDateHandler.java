@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.flat;
+
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.xml.sax.SAXException;
+
+/**
+ * Collects the text of a date element as value and, if it is a W3CDTF date, as days since 1970-01-01. Free text dates (like dcterms:date without type) are
+ * only kept as value.
+ */
+public class FlatDateHandler extends FlatValueHandler {
+    private static final LocalDate EPOCH = new LocalDate(1970, 1, 1);
+    /** keeps the offset of the value, so the day is the one written in the DDM rather than the day in UTC */
+    private static final DateTimeFormatter PARSER = ISODateTimeFormat.dateTimeParser().withOffsetParsed();
+
+    public FlatDateHandler(final String field) {
+        super(field);
+    }
+
+    @Override
+    protected void finishElement(final String uri, final String localName) throws SAXException {
+        if (!isFirstElement(localName))
+            return;
+        final String value = getCharsSinceStart().trim();
+        if (value.length() == 0)
+            return;
+        getTarget().add(getField(), value);
+        final Integer epochDay = toEpochDay(value);
+        if (epochDay != null)
+            getTarget().addDate(getField(), epochDay);
+    }
+
+    static Integer toEpochDay(final String value) {
+        try {
+            final LocalDate date = PARSER.parseDateTime(value).toLocalDate();
+            return Days.daysBetween(EPOCH, date).getDays();
+        }
+        catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.flat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Writes a {@link FlatRecord} as a JSON search document. The members an index mapping has to cover:
+ * <ul>
+ * <li>[field]: an array of strings, for example title, creator, creator.DAI or relation.href</li>
+ * <li>[field].date: an array of ISO dates (yyyy-MM-dd), the parsable values of a date field like created or available</li>
+ * <li>spatial.point, spatial.box and spatial.polygon: an array of arrays of numbers, see {@link FlatRecord#getCoordinates(String)}</li>
+ * </ul>
+ * The names are flat: a dot is part of the name, the document has no nested objects. A field holds either strings or coordinates, so the coordinates of a
+ * field are written under its own name. For example:
+ * 
+ * <pre>
+ * {"title":["fabeltjeskrant"],"created":["2013"],"created.date":["2013-01-01"],"spatial.point":[[52.0811,4.34521]]}
+ * </pre>
+ */
+public class FlatJsonWriter {
+    private static final LocalDate EPOCH = new LocalDate(1970, 1, 1);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * @param record
+     *        the record to write
+     * @param out
+     *        receives UTF-8, it is flushed but not closed
+     * @throws IOException
+     */
+    public void write(final FlatRecord record, final OutputStream out) throws IOException {
+        final Writer writer = new OutputStreamWriter(out, "UTF-8");
+        write(record, writer);
+        writer.flush();
+    }
+
+    /**
+     * @param record
+     *        the record to write
+     * @param writer
+     *        receives the JSON, it is neither flushed nor closed
+     * @throws IOException
+     */
+    public void write(final FlatRecord record, final Writer writer) throws IOException {
+        writer.write('{');
+        boolean first = true;
+        for (final String field : record.getFields()) {
+            final List<String> values = record.getValues(field);
+            if (!values.isEmpty()) {
+                first = writeName(writer, field, first);
+                writeStrings(writer, values);
+            }
+            final int[] days = record.getDates(field);
+            if (days.length > 0) {
+                first = writeName(writer, field + ".date", first);
+                writeDates(writer, days);
+            }
+            final List<double[]> coordinates = record.getCoordinates(field);
+            if (!coordinates.isEmpty()) {
+                first = writeName(writer, field, first);
+                writeCoordinates(writer, coordinates);
+            }
+        }
+        writer.write('}');
+    }
+
+    private static boolean writeName(final Writer writer, final String name, final boolean first) throws IOException {
+        if (!first)
+            writer.write(',');
+        writeString(writer, name);
+        writer.write(':');
+        return false;
+    }
+
+    private static void writeStrings(final Writer writer, final List<String> values) throws IOException {
+        writer.write('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0)
+                writer.write(',');
+            writeString(writer, values.get(i));
+        }
+        writer.write(']');
+    }
+
+    private static void writeDates(final Writer writer, final int[] days) throws IOException {
+        writer.write('[');
+        for (int i = 0; i < days.length; i++) {
+            if (i > 0)
+                writer.write(',');
+            writeString(writer, EPOCH.plusDays(days[i]).toString());
+        }
+        writer.write(']');
+    }
+
+    private static void writeCoordinates(final Writer writer, final List<double[]> coordinates) throws IOException {
+        writer.write('[');
+        for (int i = 0; i < coordinates.size(); i++) {
+            if (i > 0)
+                writer.write(',');
+            writer.write('[');
+            final double[] numbers = coordinates.get(i);
+            for (int j = 0; j < numbers.length; j++) {
+                if (j > 0)
+                    writer.write(',');
+                // JSON has no NaN nor Infinity
+                if (Double.isNaN(numbers[j]) || Double.isInfinite(numbers[j]))
+                    writer.write("null");
+                else
+                    writer.write(Double.toString(numbers[j]));
+            }
+            writer.write(']');
+        }
+        writer.write(']');
+    }
+
+    /**
+     * Writes a JSON string, also used for other JSON documents of this library.
+     * 
+     * @param writer
+     *        receives the quoted and escaped value
+     * @param value
+     *        not null
+     * @throws IOException
+     */
+    public static void writeString(final Writer writer, final String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                writer.write("\\\"");
+                break;
+            case '\\':
+                writer.write("\\\\");
+                break;
+            case '\n':
+                writer.write("\\n");
+                break;
+            case '\r':
+                writer.write("\\r");
+                break;
+            case '\t':
+                writer.write("\\t");
+                break;
+            default:
+                if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                    // control characters and the line separators that javascript does not allow in strings
+                    writer.write("\\u");
+                    writer.write(HEX[(c >> 12) & 0xF]);
+                    writer.write(HEX[(c >> 8) & 0xF]);
+                    writer.write(HEX[(c >> 4) & 0xF]);
+                    writer.write(HEX[c & 0xF]);
+                }
+                else
+                    writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+}
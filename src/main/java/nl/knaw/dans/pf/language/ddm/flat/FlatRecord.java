@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.flat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable flat alternative for Easy Meta Data: field names mapped to values. Intended for indexing where only the values matter, so none of the
+ * scheme/schemeId/language wrappers of the EMD types are created. Dates are available as days since 1970-01-01, coordinates as arrays of doubles.
+ */
+public final class FlatRecord {
+    private static final int[] NO_DATES = new int[0];
+
+    private final Map<String, List<String>> values;
+    private final Map<String, int[]> dates;
+    private final Map<String, List<double[]>> coordinates;
+
+    private FlatRecord(final Builder builder) {
+        values = new LinkedHashMap<String, List<String>>();
+        for (final Map.Entry<String, List<String>> entry : builder.values.entrySet()) {
+            final String[] array = entry.getValue().toArray(new String[entry.getValue().size()]);
+            values.put(entry.getKey(), Collections.unmodifiableList(Arrays.asList(array)));
+        }
+        dates = new LinkedHashMap<String, int[]>();
+        for (final Map.Entry<String, List<Integer>> entry : builder.dates.entrySet()) {
+            final int[] days = new int[entry.getValue().size()];
+            for (int i = 0; i < days.length; i++)
+                days[i] = entry.getValue().get(i);
+            dates.put(entry.getKey(), days);
+        }
+        coordinates = new LinkedHashMap<String, List<double[]>>();
+        for (final Map.Entry<String, List<double[]>> entry : builder.coordinates.entrySet())
+            coordinates.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<double[]>(entry.getValue())));
+    }
+
+    /** @return the names of all fields with at least one value, date or coordinate array, in order of appearance */
+    public Set<String> getFields() {
+        final Set<String> fields = new LinkedHashSet<String>(values.keySet());
+        fields.addAll(dates.keySet());
+        fields.addAll(coordinates.keySet());
+        return Collections.unmodifiableSet(fields);
+    }
+
+    /** @return the values of the field in document order, an empty list if the field is absent */
+    public List<String> getValues(final String field) {
+        final List<String> list = values.get(field);
+        if (list == null)
+            return Collections.emptyList();
+        return list;
+    }
+
+    /** @return the first value of the field or null if the field is absent */
+    public String getFirst(final String field) {
+        final List<String> list = values.get(field);
+        return list == null ? null : list.get(0);
+    }
+
+    /** @return the parsable dates of the field as days since 1970-01-01 */
+    public int[] getDates(final String field) {
+        final int[] days = dates.get(field);
+        return days == null ? NO_DATES : days.clone();
+    }
+
+    /**
+     * @return the coordinate arrays of the field in document order. For a point: the two numbers of a pos, for a box: lower and upper corner, for a polygon: the
+     *         numbers of the posList of each ring. The order of the numbers is as in the DDM, so it depends on the srsName.
+     */
+    public List<double[]> getCoordinates(final String field) {
+        final List<double[]> list = coordinates.get(field);
+        if (list == null)
+            return Collections.emptyList();
+        final List<double[]> copy = new ArrayList<double[]>(list.size());
+        for (final double[] array : list)
+            copy.add(array.clone());
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "FlatRecord" + values + " dates=" + dates.keySet() + " coordinates=" + coordinates.keySet();
+    }
+
+    /** The mutable target of a crosswalk, see {@link #build()} for the final result. */
+    public static final class Builder {
+        private final Map<String, List<String>> values = new LinkedHashMap<String, List<String>>();
+        private final Map<String, List<Integer>> dates = new LinkedHashMap<String, List<Integer>>();
+        private final Map<String, List<double[]>> coordinates = new LinkedHashMap<String, List<double[]>>();
+
+        /**
+         * @throws IllegalArgumentException
+         *         if the field has coordinates
+         */
+        public Builder add(final String field, final String value) {
+            if (coordinates.containsKey(field))
+                throw new IllegalArgumentException(field + " has coordinates, it can not have strings as well");
+            List<String> list = values.get(field);
+            if (list == null) {
+                list = new ArrayList<String>(1);
+                values.put(field, list);
+            }
+            list.add(value);
+            return this;
+        }
+
+        public Builder addDate(final String field, final int epochDay) {
+            List<Integer> list = dates.get(field);
+            if (list == null) {
+                list = new ArrayList<Integer>(1);
+                dates.put(field, list);
+            }
+            list.add(epochDay);
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException
+         *         if the field has strings, a JSON document would get the field twice
+         */
+        public Builder addCoordinates(final String field, final double[] numbers) {
+            if (values.containsKey(field))
+                throw new IllegalArgumentException(field + " has strings, it can not have coordinates as well");
+            List<double[]> list = coordinates.get(field);
+            if (list == null) {
+                list = new ArrayList<double[]>(1);
+                coordinates.put(field, list);
+            }
+            list.add(numbers);
+            return this;
+        }
+
+        public FlatRecord build() {
+            return new FlatRecord(this);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.flat;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * Collects the coordinates of GML points, envelopes and polygon rings into the fields [field].point, [field].box and [field].polygon. A box gets the numbers
+ * of the lower corner followed by those of the upper corner.
+ */
+public class FlatSpatialHandler extends FlatValueHandler {
+    private double[] lower;
+    private double[] upper;
+
+    public FlatSpatialHandler(final String field) {
+        super(field);
+    }
+
+    @Override
+    protected void initFirstElement(final String uri, final String localName, final Attributes attributes) throws SAXException {
+        super.initFirstElement(uri, localName, attributes);
+        lower = upper = null;
+    }
+
+    @Override
+    protected void finishElement(final String uri, final String localName) throws SAXException {
+        if ("pos".equals(localName))
+            addCoordinates("point", getCharsSinceStart());
+        else if ("posList".equals(localName))
+            addCoordinates("polygon", getCharsSinceStart());
+        else if ("lowerCorner".equals(localName))
+            lower = toNumbers(getCharsSinceStart());
+        else if ("upperCorner".equals(localName))
+            upper = toNumbers(getCharsSinceStart());
+        else if ("Envelope".equals(localName) && lower != null && upper != null) {
+            final double[] box = new double[lower.length + upper.length];
+            System.arraycopy(lower, 0, box, 0, lower.length);
+            System.arraycopy(upper, 0, box, lower.length, upper.length);
+            getTarget().addCoordinates(getField() + ".box", box);
+        }
+    }
+
+    private void addCoordinates(final String kind, final String text) throws SAXException {
+        final double[] numbers = toNumbers(text);
+        if (numbers != null)
+            getTarget().addCoordinates(getField() + "." + kind, numbers);
+    }
+
+    private double[] toNumbers(final String text) throws SAXException {
+        final String trimmed = text.trim();
+        if (trimmed.length() == 0)
+            return null;
+        final String[] tokens = trimmed.split("\\s+");
+        final double[] numbers = new double[tokens.length];
+        try {
+            for (int i = 0; i < tokens.length; i++)
+                numbers[i] = Double.parseDouble(tokens[i]);
+        }
+        catch (final NumberFormatException e) {
+            error("expected coordinate numbers separated with spaces: " + e.getMessage());
+            return null;
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.flat;
+
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandler;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/** Collects the trimmed text of the element as a value of a single field. */
+public class FlatValueHandler extends CrosswalkHandler<FlatRecord.Builder> {
+    private final String field;
+    private String firstLocalName;
+
+    public FlatValueHandler(final String field) {
+        this.field = field;
+    }
+
+    protected String getField() {
+        return field;
+    }
+
+    @Override
+    protected void initFirstElement(final String uri, final String localName, final Attributes attributes) throws SAXException {
+        firstLocalName = localName;
+    }
+
+    /** @return true at the end of the element that gave this handler control, false for its descendants */
+    protected boolean isFirstElement(final String localName) {
+        return localName.equals(firstLocalName);
+    }
+
+    @Override
+    protected void finishElement(final String uri, final String localName) throws SAXException {
+        if (!isFirstElement(localName))
+            return;
+        final String value = getCharsSinceStart().trim();
+        if (value.length() != 0)
+            getTarget().add(field, value);
+        final String href = getAttribute("", "href");
+        if (href != null)
+            getTarget().add(field + ".href", href);
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.handlermaps;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.Properties;
+
+import nl.knaw.dans.common.lang.ResourceLocator;
+import nl.knaw.dans.pf.language.ddm.api.BundledSchemaResolver;
+import nl.knaw.dans.pf.language.emd.types.ApplicationSpecific.MetadataFormat;
+import nl.knaw.dans.pf.language.xml.vocabulary.CodeTable;
+import nl.knaw.dans.pf.language.xml.vocabulary.MapFromXSD;
+
+import org.dom4j.DocumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The code mappings of the crosswalks, each built once into an immutable {@link CodeTable} and shared by all handlers and threads without locks on the read
+ * path. The language and country tables are built from the ISO tables of the JDK and the metadata formats from format.properties when the class is
+ * loaded. The narcis disciplines and ABR codes are read from their schemas on first use, from the class path when bundled (see
+ * {@link BundledSchemaResolver}) otherwise online; a failed read is tried again on the next use.
+ */
+public final class VocabularyRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(VocabularyRegistry.class);
+
+    /** ISO 639-2 bibliographic codes that differ from the terminology code, the JDK only knows the latter */
+    private static final String[][] BIBLIOGRAPHIC_LANGUAGES = { {"alb", "sqi"}, {"arm", "hye"}, {"baq", "eus"}, {"bur", "mya"}, {"chi", "zho"},
+            {"cze", "ces"}, {"dut", "nld"}, {"fre", "fra"}, {"geo", "kat"}, {"ger", "deu"}, {"gre", "ell"}, {"ice", "isl"}, {"mac", "mkd"}, {"mao", "mri"},
+            {"may", "msa"}, {"per", "fas"}, {"rum", "ron"}, {"slo", "slk"}, {"tib", "bod"}, {"wel", "cym"}};
+
+    /** the languages of the Easy Meta Data vocabulary, by terminology code */
+    private static final String[][] EMD_LANGUAGES = { {"nld", "dut/nld"}, {"deu", "ger/deu"}, {"fra", "fre/fra"}, {"eng", "eng"}};
+
+    private static final CodeTable<String> TERMINOLOGY_CODES = createTerminologyCodes();
+    private static final CodeTable<String> EMD_LANGUAGE_CODES = createEmdLanguageCodes(false);
+    private static final CodeTable<String> DDM_LANGUAGE_CODES = createEmdLanguageCodes(true);
+    private static final CodeTable<String> COUNTRY_NAMES = createCountryNames();
+    private static final CodeTable<MetadataFormat> METADATA_FORMATS = createMetadataFormats();
+
+    private static final BundledSchemaResolver SCHEMAS = new BundledSchemaResolver();
+    private static final Object LOAD_LOCK = new Object();
+    private static volatile CodeTable<String> narcisDisciplines;
+    private static volatile CodeTable<String> narcisCodes;
+    private static volatile CodeTable<String> abrCodes;
+
+    /** no instantiation, all tables are static */
+    private VocabularyRegistry() {}
+
+    /**
+     * @param code
+     *        an ISO 639-2 code, bibliographic (like dut) or terminology (like nld)
+     * @return the terminology code, null for unknown codes
+     */
+    public static String getIso639TerminologyCode(final String code) {
+        return TERMINOLOGY_CODES.get(code);
+    }
+
+    /**
+     * @param code
+     *        an ISO 639-2 code, bibliographic or terminology
+     * @return the code in Easy Meta Data, like dut/nld, null for languages outside its vocabulary
+     */
+    public static String getEmdLanguageCode(final String code) {
+        final String terminologyCode = TERMINOLOGY_CODES.get(code);
+        return terminologyCode == null ? null : EMD_LANGUAGE_CODES.get(terminologyCode);
+    }
+
+    /**
+     * @param emdLanguageCode
+     *        a language code as stored in Easy Meta Data, like dut/nld
+     * @return the ISO 639-2 terminology code, null for values outside the vocabulary of Easy Meta Data
+     */
+    public static String getDdmLanguageCode(final String emdLanguageCode) {
+        return DDM_LANGUAGE_CODES.get(emdLanguageCode);
+    }
+
+    /**
+     * @param code
+     *        an ISO 3166-1 alpha-2 or alpha-3 code, the case is ignored
+     * @return the English name of the country, null for unknown codes
+     */
+    public static String getCountryName(final String code) {
+        return COUNTRY_NAMES.get(code);
+    }
+
+    /**
+     * @param discipline
+     *        the value of a narcis audience in Easy Meta Data
+     * @return the format of Easy Meta Data, {@link MetadataFormat#DEFAULT} for disciplines without a format of their own
+     */
+    public static MetadataFormat getMetadataFormat(final String discipline) {
+        final MetadataFormat format = METADATA_FORMATS.get(discipline);
+        return format == null ? MetadataFormat.DEFAULT : format;
+    }
+
+    /**
+     * @return the narcis discipline codes of DDM, like D41500, with their value in Easy Meta Data
+     * @throws DocumentException
+     *         if the schema with the vocabulary can not be read
+     */
+    public static Map<String, String> getNarcisDisciplines() throws DocumentException {
+        CodeTable<String> table = narcisDisciplines;
+        if (table == null) {
+            synchronized (LOAD_LOCK) {
+                if (narcisDisciplines == null) {
+                    final Map<String, String> disciplines = new MapFromXSD(SCHEMAS.toBundledLocation(NameSpace.NARCIS_TYPE.xsd)).getEnum2appInfo();
+                    final Map<String, String> codes = new HashMap<String, String>();
+                    for (final Map.Entry<String, String> entry : disciplines.entrySet())
+                        codes.put(entry.getValue(), entry.getKey());
+                    narcisCodes = CodeTable.of(codes, false);
+                    narcisDisciplines = CodeTable.of(disciplines, false);
+                }
+                table = narcisDisciplines;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return the reverse of {@link #getNarcisDisciplines()}
+     * @throws DocumentException
+     *         if the schema with the vocabulary can not be read
+     */
+    public static Map<String, String> getNarcisCodes() throws DocumentException {
+        getNarcisDisciplines();
+        return narcisCodes;
+    }
+
+    /**
+     * @return the ABR codes of both complexes and periods, with their description
+     * @throws DocumentException
+     *         if the schema with the vocabulary can not be read
+     */
+    public static Map<String, String> getAbrCodes() throws DocumentException {
+        CodeTable<String> table = abrCodes;
+        if (table == null) {
+            synchronized (LOAD_LOCK) {
+                if (abrCodes == null)
+                    abrCodes = CodeTable.of(new MapFromXSD(SCHEMAS.toBundledLocation(NameSpace.ABR.xsd)).getEnum2doc(), false);
+                table = abrCodes;
+            }
+        }
+        return table;
+    }
+
+    private static CodeTable<String> createTerminologyCodes() {
+        final Map<String, String> codes = new HashMap<String, String>();
+        for (final String language : Locale.getISOLanguages()) {
+            try {
+                final String code = new Locale(language).getISO3Language();
+                if (code.length() == 3)
+                    codes.put(code, code);
+            }
+            catch (final MissingResourceException e) {
+                // no three letter code in this JDK
+            }
+        }
+        for (final String[] pair : BIBLIOGRAPHIC_LANGUAGES) {
+            codes.put(pair[0], pair[1]);
+            codes.put(pair[1], pair[1]);
+        }
+        return CodeTable.of(codes, false);
+    }
+
+    private static CodeTable<String> createEmdLanguageCodes(final boolean reverse) {
+        final Map<String, String> codes = new HashMap<String, String>();
+        for (final String[] pair : EMD_LANGUAGES)
+            codes.put(pair[reverse ? 1 : 0], pair[reverse ? 0 : 1]);
+        return CodeTable.of(codes, false);
+    }
+
+    private static CodeTable<String> createCountryNames() {
+        final Map<String, String> names = new HashMap<String, String>();
+        for (final String country : Locale.getISOCountries()) {
+            final Locale locale = new Locale("", country);
+            final String name = locale.getDisplayCountry(Locale.ENGLISH);
+            names.put(country, name);
+            try {
+                names.put(locale.getISO3Country(), name);
+            }
+            catch (final MissingResourceException e) {
+                // no three letter code in this JDK
+            }
+        }
+        return CodeTable.of(names, true);
+    }
+
+    private static CodeTable<MetadataFormat> createMetadataFormats() {
+        final Map<String, MetadataFormat> formats = new HashMap<String, MetadataFormat>();
+        try {
+            final Properties properties = new Properties();
+            final InputStream in = ResourceLocator.getInputStream("format.properties");
+            try {
+                properties.load(in);
+            }
+            finally {
+                in.close();
+            }
+            for (final String discipline : properties.stringPropertyNames()) {
+                try {
+                    formats.put(discipline, MetadataFormat.valueOf(properties.getProperty(discipline).trim()));
+                }
+                catch (final IllegalArgumentException e) {
+                    logger.error("unknown metadata format for discipline {} in format.properties", discipline);
+                }
+            }
+        }
+        catch (final Exception e) {
+            logger.error("could not read format.properties, all disciplines get the default metadata format", e);
+        }
+        return CodeTable.of(formats, false);
+    }
+}
@@ -17,6 +17,7 @@ package nl.knaw.dans.pf.language.ddm.handlers;
 
 import org.xml.sax.SAXException;
 
+import nl.knaw.dans.pf.language.ddm.handlermaps.VocabularyRegistry;
 import nl.knaw.dans.pf.language.ddm.handlertypes.BasicStringHandler;
 import nl.knaw.dans.pf.language.emd.types.BasicString;
 
@@ -25,7 +26,7 @@ public class DcLanguageHandler extends BasicStringHandler {
     protected void finishElement(final String uri, final String localName) throws SAXException {
         BasicString basicString = createBasicString(uri, localName);
         if (basicString != null) {
-            String emdLanguageCode = getEmdLanguageCode(basicString.getValue());
+            String emdLanguageCode = VocabularyRegistry.getEmdLanguageCode(basicString.getValue());
             if (emdLanguageCode != null) {
                 basicString.setValue(emdLanguageCode);
                 basicString.setScheme("ISO 639");
@@ -35,18 +36,14 @@ public class DcLanguageHandler extends BasicStringHandler {
         }
     }
 
-    private String getEmdLanguageCode(final String language) {
-        String code = null;
-
-        if ("dut".equals(language) || "nld".equals(language))
-            code = "dut/nld";
-        else if ("deu".equals(language) || "ger".equals(language))
-            code = "ger/deu";
-        else if ("fra".equals(language) || "fre".equals(language))
-            code = "fre/fra";
-        else if ("eng".equals(language))
-            code = "eng";
-
-        return code;
+    /**
+     * The reverse of the mapping applied by this handler.
+     * 
+     * @param emdLanguageCode
+     *        a language code as stored in Easy Meta Data, like dut/nld
+     * @return the ISO 639-3 code for DDM, null for values not produced by this handler
+     */
+    public static String getDdmLanguageCode(final String emdLanguageCode) {
+        return VocabularyRegistry.getDdmLanguageCode(emdLanguageCode);
     }
 }
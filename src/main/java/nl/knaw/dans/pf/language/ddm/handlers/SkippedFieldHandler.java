@@ -27,10 +27,15 @@ public class SkippedFieldHandler extends CrosswalkHandler<EasyMetadata> {
         this.warn = string;
     }
 
+    @Override
+    protected boolean skipsContent() {
+        return true;
+    }
+
     @Override
     protected void finishElement(final String uri, final String localName) throws SAXException {
         // in this case we might want qName of the endElement
         if (warn != null)
-            warning("skipped " + uri + " " + localName + " [" + warn + "]");
+            aggregatedWarning("{" + uri + "}" + localName, "skipped " + uri + " " + localName + " [" + warn + "]");
     }
 }
@@ -15,6 +15,7 @@
  */
 package nl.knaw.dans.pf.language.ddm.handlers;
 
+import nl.knaw.dans.pf.language.ddm.handlermaps.VocabularyRegistry;
 import nl.knaw.dans.pf.language.ddm.handlertypes.BasicStringHandler;
 import nl.knaw.dans.pf.language.emd.types.BasicString;
 import org.xml.sax.SAXException;
@@ -39,11 +40,7 @@ public class TermsSpatialIso3166Handler extends BasicStringHandler {
     }
 
     private String convertIsoValue(String value) {
-        String s = value.toUpperCase();
-        if ("NLD".equals(s)) {
-            return "Netherlands";
-        } else {
-            return value;
-        }
+        final String name = VocabularyRegistry.getCountryName(value);
+        return name == null ? value : name;
     }
 }
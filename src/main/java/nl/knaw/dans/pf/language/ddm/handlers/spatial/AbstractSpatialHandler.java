@@ -22,18 +22,20 @@ import nl.knaw.dans.pf.language.emd.types.PolygonPoint;
 import nl.knaw.dans.pf.language.emd.types.Spatial;
 import nl.knaw.dans.pf.language.emd.types.Spatial.Box;
 import nl.knaw.dans.pf.language.emd.types.Spatial.Point;
+import nl.knaw.dans.pf.language.xml.crosswalk.Completion;
 import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandler;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 public abstract class AbstractSpatialHandler extends CrosswalkHandler<EasyMetadata> {
 
-    private static final String EPSG_URL_WGS84 = "http://www.opengis.net/def/crs/EPSG/0/4326";
+    public static final String EPSG_URL_WGS84 = "http://www.opengis.net/def/crs/EPSG/0/4326";
     private static final String EPSG_URN_WGS84 = "urn:ogc:def:crs:EPSG::4326";
-    private static final String EPSG_URL_RD = "http://www.opengis.net/def/crs/EPSG/0/28992";
+    public static final String EPSG_URL_RD = "http://www.opengis.net/def/crs/EPSG/0/28992";
     private static final String EPSG_URN_RD = "urn:ogc:def:crs:EPSG::28992";
     public static final String EAS_SPATIAL_SCHEME_WGS84 = "degrees";// WGS84, but in EASY we call it 'degrees'
     public static final String EAS_SPATIAL_SCHEME_RD = "RD";
@@ -93,26 +95,41 @@ public abstract class AbstractSpatialHandler extends CrosswalkHandler<EasyMetada
         checkSRS(attributes);
     }
 
-    void createAndAddSpatial(String description, Point pos) {
+    void createAndAddSpatial(String description, Point pos) throws SAXException {
         addSpatial(new Spatial(description, pos));
     }
 
-    void createAndAddSpatial(String description, Point upper, Point lower) {
+    void createAndAddSpatial(String description, Point upper, Point lower) throws SAXException {
         addSpatial(new Spatial(description, createBox(upper, lower)));
     }
 
-    void createAndAddSpatial(Polygon polygon) {
+    /** Called by a completion of the {@link SpatialPolygonHandler}, when the handler has no target anymore. */
+    static void addPolygon(EasyMetadata target, Polygon polygon) {
         if (!(polygon.getPlace() == null && polygon.getExterior() == null && polygon.getInterior().isEmpty()))
-            addSpatial(new Spatial(null, polygon));
+            target.getEmdCoverage().getEasSpatial().add(new Spatial(null, polygon));
     }
 
-    void createAndAddSpatial(String description, List<Polygon> polygons) {
-        if (!(description == null && polygons.isEmpty()))
-            addSpatial(new Spatial(description, polygons));
+    void createAndAddSpatial(final String description, final List<Polygon> polygons) throws SAXException {
+        final EasyMetadata target = getTarget();
+        // the polygons are added by completions of the SpatialPolygonHandler
+        completeInOrder(polygons, new Completion<List<Polygon>>() {
+            @Override
+            public void complete(List<Polygon> value) {
+                if (!(description == null && value.isEmpty()))
+                    target.getEmdCoverage().getEasSpatial().add(new Spatial(description, value));
+            }
+        });
     }
 
-    private void addSpatial(Spatial spatial) {
-        getTarget().getEmdCoverage().getEasSpatial().add(spatial);
+    private void addSpatial(Spatial spatial) throws SAXException {
+        final EasyMetadata target = getTarget();
+        // keep the document order with polygons completed later
+        completeInOrder(spatial, new Completion<Spatial>() {
+            @Override
+            public void complete(Spatial value) {
+                target.getEmdCoverage().getEasSpatial().add(value);
+            }
+        });
     }
 
     Point createPoint() throws SAXException {
@@ -152,22 +169,32 @@ public abstract class AbstractSpatialHandler extends CrosswalkHandler<EasyMetada
         return new Box(easScheme, n, e, s, w);
     }
 
-    List<PolygonPoint> createPolygonPoints() throws SAXException {
-        String[] coordinates = getCharsSinceStart().trim().split("\\s+");
+    /**
+     * @return the conversion of the collected coordinates into points, it can run on another thread, see
+     *         {@link #defer(Callable, Completion)}
+     */
+    Callable<List<PolygonPoint>> createPolygonPoints() {
+        final String posList = getCharsSinceStart();
+        final String easScheme = srsName2EasScheme(getFoundSRS());
+        final boolean isRD = easScheme != null && easScheme.contentEquals("RD");
+        return new Callable<List<PolygonPoint>>() {
+            @Override
+            public List<PolygonPoint> call() throws SAXException {
+                return toPolygonPoints(posList, isRD);
+            }
+        };
+    }
+
+    private static List<PolygonPoint> toPolygonPoints(String posList, boolean isRD) throws SAXException {
+        String[] coordinates = posList.trim().split("\\s+");
         int length = coordinates.length;
-        if (length < 8) {
-            error("expected at least 4 coordinate pairs to construct at least a triangle");
-            return null;
-        } else if (length % 2 == 1) {
-            error("expected an even number of coordinates since they're taken in pairs of two");
-            return null;
-        } else if (!coordinates[0].equals(coordinates[length - 2]) && !coordinates[1].equals(coordinates[length - 1])) {
-            error("first pair of coordinates should equal the last pair of coordinates");
-            return null;
-        }
+        if (length < 8)
+            throw new SAXException("expected at least 4 coordinate pairs to construct at least a triangle");
+        else if (length % 2 == 1)
+            throw new SAXException("expected an even number of coordinates since they're taken in pairs of two");
+        else if (!coordinates[0].equals(coordinates[length - 2]) && !coordinates[1].equals(coordinates[length - 1]))
+            throw new SAXException("first pair of coordinates should equal the last pair of coordinates");
 
-        String easScheme = srsName2EasScheme(getFoundSRS());
-        boolean isRD = easScheme != null && easScheme.contentEquals("RD");
         List<PolygonPoint> result = new ArrayList<PolygonPoint>(length / 2);
         for (int i = 0; i < length; i += 2) {
             String x = coordinates[i];
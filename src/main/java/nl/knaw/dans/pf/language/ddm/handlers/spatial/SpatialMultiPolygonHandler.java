@@ -49,11 +49,13 @@ public class SpatialMultiPolygonHandler extends AbstractSpatialHandler {
         if ("Polygon".equals(localName)) {
             // start of a multi-polygon
             // ask SpatialPolygonHandler to add the Polygon it found to the list using a callback
+            // the callback may be called after the next multi-polygon started, so it keeps the list of this one
+            final List<Polygon> polygons = this.polygons;
             this.polygonHandler.setMultiPolygonHandler(new Consumer<Polygon>() {
 
                 @Override
                 public void accept(Polygon polygon) {
-                    SpatialMultiPolygonHandler.this.polygons.add(polygon);
+                    polygons.add(polygon);
                 }
             });
         }
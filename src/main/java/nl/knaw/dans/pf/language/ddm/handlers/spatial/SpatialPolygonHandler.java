@@ -15,9 +15,11 @@
  */
 package nl.knaw.dans.pf.language.ddm.handlers.spatial;
 
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
 import nl.knaw.dans.pf.language.emd.types.PolygonPart;
 import nl.knaw.dans.pf.language.emd.types.PolygonPoint;
 import nl.knaw.dans.pf.language.emd.types.Polygon;
+import nl.knaw.dans.pf.language.xml.crosswalk.Completion;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
@@ -40,11 +42,11 @@ public class SpatialPolygonHandler extends AbstractSpatialHandler {
     private PolygonParsingState state = null;
     private String polygonDescription = null;
     private String exteriorDescription = null;
-    private List<PolygonPoint> exteriorPoints = null;
-    private PolygonPart exteriorPart = null;
+    private PolygonRing exteriorPoints = null;
+    private PolygonRing exteriorPart = null;
     private String interiorDescription = null;
-    private List<PolygonPoint> interiorPoints = null;
-    private List<PolygonPart> interiorParts = null;
+    private PolygonRing interiorPoints = null;
+    private List<PolygonRing> interiorParts = null;
 
     private Consumer<Polygon> multiPolygonCallback = null;
 
@@ -61,7 +63,7 @@ public class SpatialPolygonHandler extends AbstractSpatialHandler {
         exteriorPoints = null;
         exteriorPart = null;
         interiorPoints = null;
-        interiorParts = new ArrayList<PolygonPart>();
+        interiorParts = new ArrayList<PolygonRing>();
 
         multiPolygonCallback = null;
     }
@@ -100,24 +102,19 @@ public class SpatialPolygonHandler extends AbstractSpatialHandler {
         else if ("description".equals(localName) && state == I_DESCR)
             interiorDescription = getCharsSinceStart().trim();
         else if ("posList".equals(localName) && state == E_POSLIST) {
-            exteriorPoints = createPolygonPoints();
+            exteriorPoints = deferPoints();
             state = state.getNextState();
         } else if ("posList".equals(localName) && state == I_POSLIST) {
-            interiorPoints = createPolygonPoints();
+            interiorPoints = deferPoints();
             state = state.getNextState();
         } else if ("exterior".equals(localName) && state == END_EXTERIOR) {
-            exteriorPart = new PolygonPart(exteriorDescription, exteriorPoints);
+            exteriorPart = exteriorPoints.describe(exteriorDescription);
             state = state.getNextState();
         } else if ("interior".equals(localName) && state == END_INTERIOR) {
-            interiorParts.add(new PolygonPart(interiorDescription, interiorPoints));
+            interiorParts.add(interiorPoints.describe(interiorDescription));
             state = state.getNextState();
         } else if ("Polygon".equals(localName)) {
-            Polygon polygon = new Polygon(srsName2EasScheme(getFoundSRS()), polygonDescription, exteriorPart, interiorParts);
-
-            if (multiPolygonCallback == null)
-                createAndAddSpatial(polygon);
-            else
-                multiPolygonCallback.accept(polygon);
+            completePolygon();
 
             // state transition
             if (state == END_POLYGON)
@@ -128,6 +125,57 @@ public class SpatialPolygonHandler extends AbstractSpatialHandler {
         }
         // other types than point/box/polygon(s) not supported by EMD: don't warn
     }
+
+    /** The points of a large posList may be converted on another thread while the parser continues. */
+    private PolygonRing deferPoints() throws SAXException {
+        final PolygonRing ring = new PolygonRing();
+        defer(createPolygonPoints(), new Completion<List<PolygonPoint>>() {
+            @Override
+            public void complete(List<PolygonPoint> points) {
+                ring.points = points;
+            }
+        });
+        return ring;
+    }
+
+    /** Builds the polygon after the points of its rings, the completion keeps what it needs from the handler. */
+    private void completePolygon() throws SAXException {
+        final EasyMetadata target = getTarget();
+        final String scheme = srsName2EasScheme(getFoundSRS());
+        final String description = polygonDescription;
+        final PolygonRing exterior = exteriorPart;
+        final List<PolygonRing> interior = interiorParts;
+        final Consumer<Polygon> callback = multiPolygonCallback;
+        completeInOrder(null, new Completion<Object>() {
+            @Override
+            public void complete(Object value) {
+                List<PolygonPart> interiorParts = new ArrayList<PolygonPart>(interior.size());
+                for (PolygonRing ring : interior)
+                    interiorParts.add(ring.toPart());
+                Polygon polygon = new Polygon(scheme, description, exterior == null ? null : exterior.toPart(), interiorParts);
+
+                if (callback == null)
+                    addPolygon(target, polygon);
+                else
+                    callback.accept(polygon);
+            }
+        });
+    }
+}
+
+/** The description and points of an exterior or interior, the points are set by a completion. */
+class PolygonRing {
+    String description;
+    List<PolygonPoint> points;
+
+    PolygonRing describe(String description) {
+        this.description = description;
+        return this;
+    }
+
+    PolygonPart toPart() {
+        return new PolygonPart(description, points);
+    }
 }
 
 /**
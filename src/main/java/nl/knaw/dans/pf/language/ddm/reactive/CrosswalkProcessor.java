@@ -0,0 +1,288 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.reactive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nl.knaw.dans.pf.language.ddm.api.Ddm2EmdCrosswalk;
+import nl.knaw.dans.pf.language.ddm.api.Ddm2EmdHandlerMap;
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkException;
+import nl.knaw.dans.pf.language.xml.validation.AbstractValidator2;
+
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.xml.sax.SAXParseException;
+
+/**
+ * A reactive streams processor that crosswalks DDM documents into Easy Meta Data. Documents are requested from upstream only as far as the downstream
+ * subscriber demands results, and never more than the maximum in flight: a slow subscriber slows down the upstream publisher instead of piling up work.
+ * Crosswalks run on the given executor, each on its own {@link Ddm2EmdCrosswalk} with its own handlers. A failed document is published as a
+ * {@link CrosswalkResult} without Easy Meta Data, only an error of the upstream publisher ends the stream with an error.
+ * <p>
+ * With Java 9 or later, <code>org.reactivestreams.FlowAdapters.toFlowProcessor</code> turns this processor into a
+ * <code>java.util.concurrent.Flow.Processor</code>.
+ * </p>
+ * A processor accepts a single upstream publisher and a single downstream subscriber.
+ */
+public class CrosswalkProcessor implements Processor<DdmSource, CrosswalkResult> {
+    private final Executor executor;
+    private final int maxInFlight;
+    private final boolean ordered;
+    private final AbstractValidator2 validator;
+    private final BlockingQueue<Ddm2EmdCrosswalk> crosswalks;
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private final AtomicBoolean upstreamSubscribed = new AtomicBoolean();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final Queue<CrosswalkResult> completed = new ConcurrentLinkedQueue<CrosswalkResult>();
+    private final Map<Long, CrosswalkResult> completedBySequence = new ConcurrentHashMap<Long, CrosswalkResult>();
+    private volatile Subscription upstream;
+    private volatile Subscriber<? super CrosswalkResult> downstream;
+    private volatile boolean upstreamCompleted;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+
+    // only touched by the thread that drains
+    private long requested;
+    private long emitted;
+    private boolean terminated;
+
+    /**
+     * Creates a processor.
+     * 
+     * @param executor
+     *        runs the crosswalks
+     * @param maxInFlight
+     *        the maximum number of documents requested from upstream but not yet published downstream, so also the maximum number of crosswalks running
+     * @param ordered
+     *        true to publish results in the order of the documents, false to publish them as soon as they are ready
+     * @param validator
+     *        null to skip validation, otherwise a validator that can be shared between threads like a
+     *        {@link nl.knaw.dans.pf.language.ddm.api.ValidatorPool}
+     */
+    public CrosswalkProcessor(final Executor executor, final int maxInFlight, final boolean ordered, final AbstractValidator2 validator) {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("expected at least one document in flight, got " + maxInFlight);
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.ordered = ordered;
+        this.validator = validator;
+        this.crosswalks = new ArrayBlockingQueue<Ddm2EmdCrosswalk>(maxInFlight);
+        for (int i = 0; i < maxInFlight; i++)
+            crosswalks.add(new Ddm2EmdCrosswalk(validator, Ddm2EmdHandlerMap.newInstance()));
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super CrosswalkResult> subscriber) {
+        if (subscriber == null)
+            throw new NullPointerException("subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(final long n) {}
+
+                @Override
+                public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException("a " + getClass().getSimpleName() + " publishes to a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(final long n) {
+                if (n <= 0) {
+                    error = new IllegalArgumentException("expected a positive request, got " + n);
+                    cancelUpstream();
+                } else {
+                    long current;
+                    while (!demand.compareAndSet(current = demand.get(), current + n < 0 ? Long.MAX_VALUE : current + n)) {
+                        // a concurrent request or publish, try again
+                    }
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                cancelUpstream();
+                drain();
+            }
+        });
+        // demand requested by onSubscribe is published by this drain
+        downstream = subscriber;
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(final Subscription subscription) {
+        if (subscription == null)
+            throw new NullPointerException("subscription");
+        if (!upstreamSubscribed.compareAndSet(false, true)) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        if (cancelled)
+            subscription.cancel();
+        else
+            drain();
+    }
+
+    @Override
+    public void onNext(final DdmSource source) {
+        final long sequence = received.getAndIncrement();
+        final Ddm2EmdCrosswalk crosswalk = crosswalks.poll();
+        if (crosswalk == null) {
+            // the publisher sent more than requested
+            onError(new IllegalStateException("more than " + maxInFlight + " documents received without request"));
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final CrosswalkResult result = crosswalk(crosswalk, source);
+                    // released before the result is published, so the crosswalk is free for a document requested because of that result
+                    crosswalks.add(crosswalk);
+                    complete(sequence, result);
+                }
+            });
+        }
+        catch (final RejectedExecutionException e) {
+            crosswalks.add(crosswalk);
+            complete(sequence, new CrosswalkResult(source, null, new ArrayList<SAXParseException>(), e));
+        }
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        error = throwable;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamCompleted = true;
+        drain();
+    }
+
+    private CrosswalkResult crosswalk(final Ddm2EmdCrosswalk crosswalk, final DdmSource source) {
+        crosswalk.getXmlErrorHandler().reset();
+        EasyMetadata emd = null;
+        Exception exception = null;
+        try {
+            emd = source.crosswalk(crosswalk, validator != null);
+        }
+        catch (final CrosswalkException e) {
+            exception = e;
+        }
+        catch (final RuntimeException e) {
+            // a bug in a handler should not stop the other documents
+            exception = e;
+        }
+        final List<SAXParseException> errors = new ArrayList<SAXParseException>(crosswalk.getXmlErrorHandler().getErrors());
+        errors.addAll(crosswalk.getXmlErrorHandler().getFatalErrors());
+        return new CrosswalkResult(source, emd, errors, exception);
+    }
+
+    private void complete(final long sequence, final CrosswalkResult result) {
+        if (ordered)
+            completedBySequence.put(sequence, result);
+        else
+            completed.add(result);
+        drain();
+    }
+
+    private void cancelUpstream() {
+        final Subscription subscription = upstream;
+        if (subscription != null)
+            subscription.cancel();
+    }
+
+    /**
+     * Publishes results as far as demanded and requests documents from upstream, on one thread at a time. Other threads that ask for a drain meanwhile
+     * make that thread loop once more.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0)
+            return;
+        int missed = 1;
+        do {
+            final Subscriber<? super CrosswalkResult> subscriber = downstream;
+            if (subscriber != null && !terminated) {
+                if (cancelled) {
+                    terminated = true;
+                    completed.clear();
+                    completedBySequence.clear();
+                } else if (error != null) {
+                    // of upstream or a protocol violation, results in flight are dropped
+                    terminated = true;
+                    cancelUpstream();
+                    subscriber.onError(error);
+                } else {
+                    publish(subscriber);
+                    if (upstreamCompleted && emitted == received.get()) {
+                        terminated = true;
+                        subscriber.onComplete();
+                    } else
+                        requestUpstream();
+                }
+            }
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void publish(final Subscriber<? super CrosswalkResult> subscriber) {
+        while (demand.get() > 0 && !cancelled) {
+            final CrosswalkResult result = ordered ? completedBySequence.remove(emitted) : completed.poll();
+            if (result == null)
+                return;
+            emitted++;
+            if (demand.get() != Long.MAX_VALUE)
+                demand.decrementAndGet();
+            subscriber.onNext(result);
+        }
+    }
+
+    private void requestUpstream() {
+        final Subscription subscription = upstream;
+        if (subscription == null || upstreamCompleted)
+            return;
+        // documents requested but not yet published never exceed the demand of downstream nor the maximum in flight
+        final long wanted = Math.min(maxInFlight, demand.get()) - (requested - emitted);
+        if (wanted > 0) {
+            requested += wanted;
+            subscription.request(wanted);
+        }
+    }
+}
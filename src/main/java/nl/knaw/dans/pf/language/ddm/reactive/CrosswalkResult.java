@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.reactive;
+
+import java.util.Collections;
+import java.util.List;
+
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+
+import org.xml.sax.SAXParseException;
+
+/**
+ * The outcome of crosswalking a {@link DdmSource} by a {@link CrosswalkProcessor}.
+ */
+public class CrosswalkResult {
+    private final DdmSource source;
+    private final EasyMetadata easyMetadata;
+    private final List<SAXParseException> errors;
+    private final Exception exception;
+
+    CrosswalkResult(final DdmSource source, final EasyMetadata easyMetadata, final List<SAXParseException> errors, final Exception exception) {
+        this.source = source;
+        this.easyMetadata = easyMetadata;
+        this.errors = Collections.unmodifiableList(errors);
+        this.exception = exception;
+    }
+
+    public DdmSource getSource() {
+        return source;
+    }
+
+    /** @return null if the crosswalk failed */
+    public EasyMetadata getEasyMetadata() {
+        return easyMetadata;
+    }
+
+    /** @return errors and fatal errors reported by the crosswalk */
+    public List<SAXParseException> getErrors() {
+        return errors;
+    }
+
+    /** @return the exception that stopped the crosswalk, null if none */
+    public Exception getException() {
+        return exception;
+    }
+
+    public boolean isSuccess() {
+        return easyMetadata != null;
+    }
+
+    @Override
+    public String toString() {
+        return source + (isSuccess() ? " converted" : " failed with " + (exception == null ? errors.size() + " errors" : exception.toString()));
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.reactive;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import nl.knaw.dans.pf.language.ddm.api.Ddm2EmdCrosswalk;
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkException;
+
+/**
+ * A DDM document for a {@link CrosswalkProcessor}, either a file or bytes. Files are read when their turn comes, not when the source is created.
+ */
+public final class DdmSource {
+    private final String id;
+    private final File file;
+    private final byte[] bytes;
+
+    private DdmSource(final String id, final File file, final byte[] bytes) {
+        this.id = id;
+        this.file = file;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param file
+     *        with DDM, its path is the id
+     * @return the source
+     */
+    public static DdmSource of(final File file) {
+        return new DdmSource(file.getPath(), file, null);
+    }
+
+    /**
+     * @param id
+     *        identifies the document in the {@link CrosswalkResult}
+     * @param bytes
+     *        the DDM, not copied
+     * @return the source
+     */
+    public static DdmSource of(final String id, final byte[] bytes) {
+        return new DdmSource(id, null, bytes);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    EasyMetadata crosswalk(final Ddm2EmdCrosswalk crosswalk, final boolean validate) throws CrosswalkException {
+        if (file != null)
+            return validate ? crosswalk.createFrom(file) : crosswalk.createFromValidated(file);
+        return validate ? crosswalk.createFrom(bytes) : crosswalk.createFromValidated(new ByteArrayInputStream(bytes));
+    }
+
+    @Override
+    public String toString() {
+        return id;
+    }
+}
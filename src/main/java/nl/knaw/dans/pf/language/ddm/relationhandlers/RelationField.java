@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.relationhandlers;
+
+import java.util.List;
+
+import nl.knaw.dans.pf.language.emd.EmdRelation;
+import nl.knaw.dans.pf.language.emd.types.BasicIdentifier;
+import nl.knaw.dans.pf.language.emd.types.Relation;
+
+/**
+ * The pairs of lists of {@link EmdRelation} that receive a qualified relation: without and with a link. The accessors switch on the constant rather than
+ * being overridden per constant, so the calls of {@link RelationFieldHandler} always reach the same method.
+ */
+public enum RelationField {
+    CONFORMS_TO("conformsTo"),
+    IS_VERSION_OF("isVersionOf"),
+    HAS_VERSION("hasVersion"),
+    IS_REPLACED_BY("isReplacedBy"),
+    REPLACES("replaces"),
+    IS_REQUIRED_BY("isRequiredBy"),
+    REQUIRES("requires"),
+    IS_PART_OF("isPartOf"),
+    HAS_PART("hasPart"),
+    IS_REFERENCED_BY("isReferencedBy"),
+    REFERENCES("references"),
+    IS_FORMAT_OF("isFormatOf"),
+    HAS_FORMAT("hasFormat");
+
+    private final String localName;
+
+    private RelationField(final String localName) {
+        this.localName = localName;
+    }
+
+    /** @return the local name of the dcterms and ddm elements, for example isPartOf */
+    public String getLocalName() {
+        return localName;
+    }
+
+    /**
+     * @param emdRelation
+     *        the relations of the target
+     * @return the list for a relation without a link
+     */
+    public List<BasicIdentifier> getTermsList(final EmdRelation emdRelation) {
+        switch (this) {
+        case CONFORMS_TO:
+            return emdRelation.getTermsConformsTo();
+        case IS_VERSION_OF:
+            return emdRelation.getTermsIsVersionOf();
+        case HAS_VERSION:
+            return emdRelation.getTermsHasVersion();
+        case IS_REPLACED_BY:
+            return emdRelation.getTermsIsReplacedBy();
+        case REPLACES:
+            return emdRelation.getTermsReplaces();
+        case IS_REQUIRED_BY:
+            return emdRelation.getTermsIsRequiredBy();
+        case REQUIRES:
+            return emdRelation.getTermsRequires();
+        case IS_PART_OF:
+            return emdRelation.getTermsIsPartOf();
+        case HAS_PART:
+            return emdRelation.getTermsHasPart();
+        case IS_REFERENCED_BY:
+            return emdRelation.getTermsIsReferencedBy();
+        case REFERENCES:
+            return emdRelation.getTermsReferences();
+        case IS_FORMAT_OF:
+            return emdRelation.getTermsIsFormatOf();
+        case HAS_FORMAT:
+            return emdRelation.getTermsHasFormat();
+        default:
+            throw new IllegalStateException("no list for " + this);
+        }
+    }
+
+    /**
+     * @param emdRelation
+     *        the relations of the target
+     * @return the list for a relation with a link
+     */
+    public List<Relation> getEasList(final EmdRelation emdRelation) {
+        switch (this) {
+        case CONFORMS_TO:
+            return emdRelation.getEasConformsTo();
+        case IS_VERSION_OF:
+            return emdRelation.getEasIsVersionOf();
+        case HAS_VERSION:
+            return emdRelation.getEasHasVersion();
+        case IS_REPLACED_BY:
+            return emdRelation.getEasIsReplacedBy();
+        case REPLACES:
+            return emdRelation.getEasReplaces();
+        case IS_REQUIRED_BY:
+            return emdRelation.getEasIsRequiredBy();
+        case REQUIRES:
+            return emdRelation.getEasRequires();
+        case IS_PART_OF:
+            return emdRelation.getEasIsPartOf();
+        case HAS_PART:
+            return emdRelation.getEasHasPart();
+        case IS_REFERENCED_BY:
+            return emdRelation.getEasIsReferencedBy();
+        case REFERENCES:
+            return emdRelation.getEasReferences();
+        case IS_FORMAT_OF:
+            return emdRelation.getEasIsFormatOf();
+        case HAS_FORMAT:
+            return emdRelation.getEasHasFormat();
+        default:
+            throw new IllegalStateException("no list for " + this);
+        }
+    }
+}
@@ -15,32 +15,73 @@
  */
 package nl.knaw.dans.pf.language.ddm.relationhandlers;
 
+import java.net.URI;
+import java.net.URISyntaxException;
+
 import nl.knaw.dans.pf.language.ddm.handlertypes.BasicIdentifierHandler;
+import nl.knaw.dans.pf.language.emd.EmdRelation;
 import nl.knaw.dans.pf.language.emd.types.BasicIdentifier;
 import nl.knaw.dans.pf.language.emd.types.Relation;
+
 import org.xml.sax.SAXException;
 
-import java.net.URI;
-import java.net.URISyntaxException;
+/**
+ * Handles all qualified relations, such as dcterms:isPartOf or ddm:hasVersion. The {@link RelationField} selects the lists of {@link EmdRelation} that
+ * receive the value.
+ */
+public class RelationFieldHandler extends BasicIdentifierHandler {
+    private final RelationField field;
+    private final boolean linked;
+
+    /**
+     * Creates a handler for a dcterms element.
+     * 
+     * @param field
+     *        the lists that receive the value
+     * @param scheme
+     *        optional, the scheme of the value
+     */
+    public RelationFieldHandler(final RelationField field, final String scheme) {
+        this(field, scheme, false);
+    }
+
+    /**
+     * Creates a handler.
+     * 
+     * @param field
+     *        the lists that receive the value
+     * @param scheme
+     *        optional, the scheme of the value
+     * @param linked
+     *        true for a ddm element: with an href attribute the value is added as a {@link Relation} with a link
+     */
+    public RelationFieldHandler(final RelationField field, final String scheme, final boolean linked) {
+        super(scheme);
+        this.field = field;
+        this.linked = linked;
+    }
 
-public class DdmHasFormatHandler extends BasicIdentifierHandler {
     @Override
     public void finishElement(final String uri, final String localName) throws SAXException {
         final BasicIdentifier relation = createIdentifier(uri, localName);
-        final String href = getAttribute("", "href");
+        final String href = linked ? getAttribute("", "href") : null;
 
         if (href == null) {
             if (relation != null)
-                getTarget().getEmdRelation().getTermsHasFormat().add(relation);
+                field.getTermsList(getTarget().getEmdRelation()).add(relation);
         } else {
             try {
                 final Relation rel = new Relation(relation);
                 rel.setSubjectLink(new URI(href));
-                getTarget().getEmdRelation().getEasHasFormat().add(rel);
+                field.getEasList(getTarget().getEmdRelation()).add(rel);
             }
             catch (URISyntaxException e) {
                 throw new SAXException(e);
             }
         }
     }
+
+    public RelationField getField() {
+        return field;
+    }
 }
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.server;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latencies of a {@link CrosswalkServer}, updated without locks. Latencies are counted in buckets of powers of two microseconds, so a
+ * percentile is an upper bound that is at most twice the real value.
+ */
+public class CrosswalkMetrics {
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong converted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void addConverted(final long nanos) {
+        converted.incrementAndGet();
+        addLatency(nanos);
+    }
+
+    void addFailed(final long nanos) {
+        failed.incrementAndGet();
+        addLatency(nanos);
+    }
+
+    void addRejected() {
+        rejected.incrementAndGet();
+    }
+
+    private void addLatency(final long nanos) {
+        final long micros = Math.max(1, nanos / 1000);
+        latencyBuckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros - 1)));
+        long max;
+        while ((max = maxNanos.get()) < nanos && !maxNanos.compareAndSet(max, nanos)) {
+            // another request raised the maximum, try again
+        }
+    }
+
+    /** @return the number of requests answered with Easy Meta Data */
+    public long getConverted() {
+        return converted.get();
+    }
+
+    /** @return the number of requests answered with diagnostics, because of invalid DDM or an exception */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /** @return the number of requests refused because all crosswalks stayed busy */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * @param percentile
+     *        for example 50 or 99
+     * @return an upper bound of the latency in milliseconds of converted and failed requests, zero without requests
+     */
+    public double getLatencyMillis(final double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            total += latencyBuckets.get(i);
+        if (total == 0)
+            return 0;
+        final long rank = (long) Math.ceil(percentile / 100 * total);
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += latencyBuckets.get(i);
+            if (count >= rank)
+                return Math.min((1L << i) / 1e3, getMaxLatencyMillis());
+        }
+        return getMaxLatencyMillis();
+    }
+
+    /**
+     * Writes the metrics as a JSON object.
+     * 
+     * @param writer
+     *        receives the JSON, it is not closed
+     * @throws IOException
+     */
+    public void writeJson(final Writer writer) throws IOException {
+        writer.write(String.format(Locale.ENGLISH, "{\"converted\":%d,\"failed\":%d,\"rejected\":%d,", getConverted(), getFailed(), getRejected()));
+        writer.write(String.format(Locale.ENGLISH, "\"p50Millis\":%.3f,\"p99Millis\":%.3f,\"maxMillis\":%.3f}", getLatencyMillis(50), getLatencyMillis(99),
+                getMaxLatencyMillis()));
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH, "converted=%d failed=%d rejected=%d p50=%.1fms p99=%.1fms max=%.1fms", getConverted(), getFailed(), getRejected(),
+                getLatencyMillis(50), getLatencyMillis(99), getMaxLatencyMillis());
+    }
+}
@@ -0,0 +1,360 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import nl.knaw.dans.pf.language.ddm.api.DDMValidator;
+import nl.knaw.dans.pf.language.ddm.api.Ddm2EmdCrosswalk;
+import nl.knaw.dans.pf.language.ddm.api.Ddm2EmdHandlerMap;
+import nl.knaw.dans.pf.language.ddm.api.ValidatorPool;
+import nl.knaw.dans.pf.language.ddm.flat.FlatJsonWriter;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkException;
+import nl.knaw.dans.pf.language.xml.validation.AbstractValidator2;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXParseException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the DDM to Easy Meta Data crosswalk over HTTP, built on the HTTP server of the JDK. Handlers keep state while they walk a document, so the server
+ * keeps a pool of crosswalks, each with its own handlers: the size of the pool bounds the number of documents crosswalked at the same time. A request that
+ * does not get a crosswalk in time is refused with 503. The body of a request is spooled to a temporary file before a crosswalk is taken, so slow uploads do not
+ * keep crosswalks from other requests. Requests run on virtual threads when the JVM has them (Java 21 and later), otherwise on a cached
+ * thread pool.
+ * <ul>
+ * <li><code>POST /ddm2emd</code> with DDM as body: 200 with Easy Meta Data XML, or 422 with diagnostics JSON. Add <code>?validate=false</code> to skip the
+ * validation against the XSD.</li>
+ * <li><code>GET /metrics</code>: {@link CrosswalkMetrics} as JSON.</li>
+ * </ul>
+ * Each response has a header X-Crosswalk-Millis with the time spent on the request.
+ * <p>
+ * Usage: <code>java -cp ddm-cli.jar nl.knaw.dans.pf.language.ddm.server.CrosswalkServer [-port N] [-crosswalks N] [-schema location]...</code>
+ * </p>
+ */
+public class CrosswalkServer {
+    private static final Logger logger = LoggerFactory.getLogger(CrosswalkServer.class);
+    private static final String XML_TYPE = "application/xml; charset=utf-8";
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+
+    private final InetSocketAddress address;
+    private final AbstractValidator2 validator;
+    private final int poolSize;
+    private final BlockingQueue<Ddm2EmdCrosswalk> crosswalks;
+    private final CrosswalkMetrics metrics = new CrosswalkMetrics();
+    private long waitMillis = 1000;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Creates a server, call {@link #start()} to accept requests.
+     * 
+     * @param address
+     *        port 0 for any free port, see {@link #getPort()}
+     * @param crosswalks
+     *        the maximum number of documents crosswalked at the same time
+     * @param validator
+     *        applied unless a request says otherwise, a validator that can be shared between threads like a {@link ValidatorPool}
+     */
+    public CrosswalkServer(final InetSocketAddress address, final int crosswalks, final AbstractValidator2 validator) {
+        if (crosswalks < 1)
+            throw new IllegalArgumentException("expected at least one crosswalk, got " + crosswalks);
+        this.address = address;
+        this.validator = validator;
+        this.poolSize = crosswalks;
+        this.crosswalks = new ArrayBlockingQueue<Ddm2EmdCrosswalk>(crosswalks);
+        for (int i = 0; i < crosswalks; i++)
+            this.crosswalks.add(new Ddm2EmdCrosswalk(validator, Ddm2EmdHandlerMap.newInstance()));
+    }
+
+    /**
+     * @param waitMillis
+     *        how long a request may wait for a crosswalk before it is refused, one second by default
+     */
+    public void setWaitMillis(final long waitMillis) {
+        this.waitMillis = waitMillis;
+    }
+
+    public CrosswalkMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** @return the port the server listens on, after {@link #start()} */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Starts to accept requests.
+     * 
+     * @throws IOException
+     *         if the address can not be bound
+     */
+    public synchronized void start() throws IOException {
+        if (server != null)
+            throw new IllegalStateException("already started");
+        server = HttpServer.create(address, 0);
+        server.createContext("/ddm2emd", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                handleCrosswalk(exchange);
+            }
+        });
+        server.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final ByteArrayOutputStream json = new ByteArrayOutputStream();
+                final Writer writer = new OutputStreamWriter(json, "UTF-8");
+                metrics.writeJson(writer);
+                writer.close();
+                respond(exchange, 200, JSON_TYPE, json, System.nanoTime());
+            }
+        });
+        executor = newExecutor();
+        server.setExecutor(executor);
+        server.start();
+        logger.info("crosswalk server listening on port {}", getPort());
+    }
+
+    /**
+     * Stops accepting requests and waits for the requests in progress.
+     * 
+     * @param delaySeconds
+     *        the maximum time to wait for requests in progress
+     */
+    public synchronized void stop(final int delaySeconds) {
+        if (server == null)
+            return;
+        server.stop(delaySeconds);
+        executor.shutdown();
+        server = null;
+    }
+
+    private void handleCrosswalk(final HttpExchange exchange) throws IOException {
+        final long start = System.nanoTime();
+        File body = null;
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, JSON_TYPE, diagnostics("expected POST", null), start);
+                return;
+            }
+            final boolean validate;
+            try {
+                validate = validator != null && !"false".equalsIgnoreCase(getQueryParameter(exchange.getRequestURI().getRawQuery(), "validate"));
+            }
+            catch (final IllegalArgumentException e) {
+                respond(exchange, 400, JSON_TYPE, diagnostics("malformed query: " + e.getMessage(), null), start);
+                return;
+            }
+            body = spool(exchange.getRequestBody());
+            final Ddm2EmdCrosswalk crosswalk = crosswalks.poll(waitMillis, TimeUnit.MILLISECONDS);
+            if (crosswalk == null) {
+                metrics.addRejected();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, JSON_TYPE, diagnostics("all " + poolSize + " crosswalks are busy", null), start);
+                return;
+            }
+            try {
+                crosswalk(exchange, crosswalk, body, validate, start);
+            }
+            finally {
+                crosswalks.add(crosswalk);
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, JSON_TYPE, diagnostics("server is stopping", null), start);
+        }
+        finally {
+            if (body != null && !body.delete())
+                body.deleteOnExit();
+            exchange.close();
+        }
+    }
+
+    private void crosswalk(final HttpExchange exchange, final Ddm2EmdCrosswalk crosswalk, final File body, final boolean validate, final long start)
+            throws IOException {
+        crosswalk.getXmlErrorHandler().reset();
+        final ByteArrayOutputStream emd = new ByteArrayOutputStream();
+        boolean written = false;
+        try {
+            written = validate ? crosswalk.transcode(body, emd) : crosswalk.transcodeValidated(body, emd);
+        }
+        catch (final CrosswalkException e) {
+            // also reported to the error handler in most cases, the message is added to be sure
+            respondFailed(exchange, diagnostics(e.getMessage(), errorsOf(crosswalk)), start, 422);
+            return;
+        }
+        catch (final RuntimeException e) {
+            logger.error("crosswalk failed", e);
+            respondFailed(exchange, diagnostics("unexpected " + e, null), start, 500);
+            return;
+        }
+        if (written) {
+            metrics.addConverted(System.nanoTime() - start);
+            respond(exchange, 200, XML_TYPE, emd, start);
+        } else
+            respondFailed(exchange, diagnostics(null, errorsOf(crosswalk)), start, 422);
+    }
+
+    private static List<SAXParseException> errorsOf(final Ddm2EmdCrosswalk crosswalk) {
+        final List<SAXParseException> errors = new ArrayList<SAXParseException>(crosswalk.getXmlErrorHandler().getErrors());
+        errors.addAll(crosswalk.getXmlErrorHandler().getFatalErrors());
+        return errors;
+    }
+
+    /** Validation reads the document twice and a crosswalk should not wait for the client, so the body is spooled to a file. */
+    private static File spool(final InputStream body) throws IOException {
+        final File file = File.createTempFile("ddm", ".xml");
+        try {
+            Files.copy(body, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        }
+        catch (final IOException e) {
+            if (!file.delete())
+                file.deleteOnExit();
+            throw e;
+        }
+    }
+
+    /**
+     * @param rawQuery
+     *        the query of a request URI, not decoded
+     * @param name
+     *        of the parameter
+     * @return the decoded value of the first occurrence of the parameter, an empty string for a parameter without value, null if absent
+     * @throws IllegalArgumentException
+     *         if the query has an invalid escape
+     */
+    static String getQueryParameter(final String rawQuery, final String name) throws IllegalArgumentException, UnsupportedEncodingException {
+        if (rawQuery == null)
+            return null;
+        for (final String pair : rawQuery.split("&")) {
+            final int separator = pair.indexOf('=');
+            final String key = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), "UTF-8");
+            if (name.equals(key))
+                return separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), "UTF-8");
+        }
+        return null;
+    }
+
+    private void respondFailed(final HttpExchange exchange, final ByteArrayOutputStream json, final long start, final int status) throws IOException {
+        metrics.addFailed(System.nanoTime() - start);
+        respond(exchange, status, JSON_TYPE, json, start);
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String type, final ByteArrayOutputStream body, final long start)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.getResponseHeaders().set("X-Crosswalk-Millis", String.valueOf((System.nanoTime() - start) / 1000000));
+        exchange.sendResponseHeaders(status, body.size() == 0 ? -1 : body.size());
+        if (body.size() > 0)
+            body.writeTo(exchange.getResponseBody());
+    }
+
+    /** @return <code>{"message":...,"errors":[{"line":..,"column":..,"message":..}]}</code> */
+    private static ByteArrayOutputStream diagnostics(final String message, final List<SAXParseException> errors) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Writer writer = new OutputStreamWriter(out, "UTF-8");
+        writer.write("{\"message\":");
+        FlatJsonWriter.writeString(writer, message == null ? "invalid DDM" : message);
+        writer.write(",\"errors\":[");
+        if (errors != null) {
+            for (int i = 0; i < errors.size(); i++) {
+                final SAXParseException error = errors.get(i);
+                writer.write(i == 0 ? "{\"line\":" : ",{\"line\":");
+                writer.write(error.getLineNumber() + ",\"column\":" + error.getColumnNumber() + ",\"message\":");
+                FlatJsonWriter.writeString(writer, String.valueOf(error.getMessage()));
+                writer.write('}');
+            }
+        }
+        writer.write("]}");
+        writer.close();
+        return out;
+    }
+
+    /** Virtual threads need Java 21, this library is built for older versions, hence the reflection. */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (final ReflectiveOperationException e) {
+            logger.info("no virtual threads, requests run on a thread pool");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Runs from the command line, see the class comment for the arguments.
+     * 
+     * @param args
+     * @throws Exception
+     */
+    public static void main(final String[] args) throws Exception {
+        int port = 8080;
+        int crosswalks = Runtime.getRuntime().availableProcessors();
+        boolean validate = true;
+        final List<String> schemas = new ArrayList<String>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-port".equals(args[i]))
+                    port = Integer.parseInt(args[++i]);
+                else if ("-crosswalks".equals(args[i]))
+                    crosswalks = Integer.parseInt(args[++i]);
+                else if ("-novalidate".equals(args[i]))
+                    validate = false;
+                else if ("-schema".equals(args[i])) {
+                    final File file = new File(args[++i]);
+                    schemas.add(file.exists() ? file.toURI().toString() : args[i]);
+                } else
+                    throw new IllegalArgumentException(args[i]);
+            }
+        }
+        catch (final RuntimeException e) {
+            // a missing, unknown or non-numeric value
+            System.err.println("usage: " + CrosswalkServer.class.getName() + " [-port N] [-crosswalks N] [-novalidate] [-schema location]...");
+            System.exit(2);
+        }
+        AbstractValidator2 validator = null;
+        if (validate && schemas.isEmpty())
+            validator = DDMValidator.getPool();
+        else if (validate)
+            validator = ValidatorPool.getInstance(crosswalks, schemas.toArray(new String[schemas.size()]));
+        new CrosswalkServer(new InetSocketAddress(port), crosswalks, validator).start();
+    }
+}
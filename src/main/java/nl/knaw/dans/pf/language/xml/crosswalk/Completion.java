@@ -13,19 +13,24 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package nl.knaw.dans.pf.language.ddm.datehandlers;
+package nl.knaw.dans.pf.language.xml.crosswalk;
 
-import nl.knaw.dans.pf.language.ddm.handlertypes.IsoDateHandler;
-import nl.knaw.dans.pf.language.emd.types.IsoDate;
+import java.util.concurrent.Callable;
 
 import org.xml.sax.SAXException;
 
-public class EasAvailableHandler extends IsoDateHandler {
-    @Override
-    public void finishElement(final String uri, final String localName) throws SAXException {
-        final IsoDate isoDate = createDate(uri, localName);
-        if (isoDate == null)
-            return;
-        getTarget().getEmdDate().getEasAvailable().add(createDate(uri, localName));
-    }
+/**
+ * Receives the result of work a handler deferred, see {@link CrosswalkHandler#defer(Callable, Completion)}. Called on the thread of the walk, in the order
+ * in which the work was submitted.
+ * 
+ * @param <V>
+ *        the type of the result
+ */
+public interface Completion<V> {
+    /**
+     * @param value
+     *        the result of the work, null if the work reported an error
+     * @throws SAXException
+     */
+    void complete(V value) throws SAXException;
 }
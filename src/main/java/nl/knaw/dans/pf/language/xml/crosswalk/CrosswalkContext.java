@@ -0,0 +1,278 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.xml.crosswalk;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import nl.knaw.dans.pf.language.xml.crosswalk.WalkLimits.Limit;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/** The state of a single walk, shared by the root handler with all handlers that take control during the walk. */
+class CrosswalkContext {
+    /** elements between two looks at the clock */
+    private static final int DEADLINE_INTERVAL = 64;
+
+    private final TextLimits textLimits;
+    private final WalkLimits walkLimits;
+    private final Executor handlerExecutor;
+    private final ErrorLimitingHandler errorHandler;
+    private final List<Deferred<?>> deferred = new ArrayList<Deferred<?>>();
+    private boolean completing;
+    private final long startNanos = System.nanoTime();
+    private final long maxNanos;
+    private int depth;
+    private long elements;
+    private long attributeChars;
+    private volatile Limit exceededLimit;
+    private volatile String exceededMessage;
+    private long collectedChars;
+    private boolean documentLimitReported;
+    private volatile boolean cancelled;
+    private WalkStatistics statistics;
+
+    CrosswalkContext(final TextLimits textLimits, final WalkLimits walkLimits, final Executor handlerExecutor, final ErrorLimitingHandler errorHandler) {
+        this.textLimits = textLimits;
+        this.walkLimits = walkLimits;
+        this.handlerExecutor = handlerExecutor;
+        this.errorHandler = errorHandler;
+        this.maxNanos = TimeUnit.MILLISECONDS.toNanos(walkLimits.getMaxMillis());
+    }
+
+    TextLimits getTextLimits() {
+        return textLimits;
+    }
+
+    /** @return receives the notifications of the validation and the handlers */
+    ErrorLimitingHandler getErrorHandler() {
+        return errorHandler;
+    }
+
+    /**
+     * @param elementChars
+     *        the number of characters already collected for the element
+     * @param length
+     *        the number of characters offered
+     * @return the number of characters that may be collected
+     */
+    int acceptChars(final int elementChars, final int length) {
+        final long room = Math.min(textLimits.getMaxElementChars() - (long) elementChars, textLimits.getMaxDocumentChars() - collectedChars);
+        final int accepted = (int) Math.max(0, Math.min(length, room));
+        collectedChars += accepted;
+        return accepted;
+    }
+
+    boolean isDocumentLimitReached() {
+        return collectedChars >= textLimits.getMaxDocumentChars();
+    }
+
+    /** @return true the first time only */
+    boolean reportDocumentLimit() {
+        if (documentLimitReported)
+            return false;
+        documentLimitReported = true;
+        return true;
+    }
+
+    /** @return the stream as is when there are no {@link WalkLimits}, otherwise a stream that fails once a limit is exceeded */
+    InputStream limit(final InputStream in) {
+        if (walkLimits == WalkLimits.NONE)
+            return in;
+        return new LimitedInputStream(in, this);
+    }
+
+    /**
+     * Called at the start of every element, including skipped content.
+     * 
+     * @throws SAXException
+     *         if the element exceeds the {@link WalkLimits}
+     */
+    void startElement(final Attributes attributes) throws SAXException {
+        if (++depth > walkLimits.getMaxDepth())
+            exceed(Limit.DEPTH, "elements are nested deeper than " + walkLimits.getMaxDepth());
+        if (++elements > walkLimits.getMaxElements())
+            exceed(Limit.ELEMENTS, "more than " + walkLimits.getMaxElements() + " elements");
+        if (walkLimits.getMaxAttributeChars() != Long.MAX_VALUE) {
+            for (int i = 0; i < attributes.getLength(); i++)
+                attributeChars += attributes.getQName(i).length() + attributes.getValue(i).length();
+            if (attributeChars > walkLimits.getMaxAttributeChars())
+                exceed(Limit.ATTRIBUTES, "attributes exceed " + walkLimits.getMaxAttributeChars() + " characters");
+        }
+        if (elements % DEADLINE_INTERVAL == 0) {
+            checkDeadline();
+            if (exceededLimit != null)
+                throw new SAXException(exceededMessage);
+        }
+    }
+
+    /** Called at the end of every element, including skipped content. */
+    void endElement() {
+        depth--;
+    }
+
+    /** Records the time limit as exceeded when the walk takes too long. May be called by another thread. */
+    void checkDeadline() {
+        if (walkLimits.getMaxMillis() != Long.MAX_VALUE && System.nanoTime() - startNanos > maxNanos)
+            record(Limit.TIME, getTimeLimitMessage());
+    }
+
+    private String getTimeLimitMessage() {
+        return "walk takes more than " + walkLimits.getMaxMillis() + " milliseconds";
+    }
+
+    private void exceed(final Limit limit, final String message) throws SAXException {
+        record(limit, message);
+        throw new SAXException(message);
+    }
+
+    private synchronized void record(final Limit limit, final String message) {
+        if (exceededLimit == null) {
+            exceededMessage = message;
+            exceededLimit = limit;
+        }
+    }
+
+    /** @return null unless the walk exceeded one of its {@link WalkLimits} */
+    Limit getExceededLimit() {
+        return exceededLimit;
+    }
+
+    String getExceededMessage() {
+        return exceededMessage;
+    }
+
+    /** @return true if handlers may hand work to another thread */
+    boolean defersWork() {
+        return handlerExecutor != null;
+    }
+
+    /**
+     * Runs the work on the executor, the completion waits for the end of the walk.
+     * 
+     * @param location
+     *        where an error of the work is reported
+     */
+    <V> void defer(final Callable<V> work, final Completion<V> completion, final Locator location) {
+        final FutureTask<V> future = new FutureTask<V>(work);
+        deferred.add(new Deferred<V>(future, null, completion, location));
+        handlerExecutor.execute(future);
+    }
+
+    /** Completes immediately unless the completion has to wait for deferred work submitted before. */
+    <V> void completeInOrder(final V value, final Completion<V> completion) throws SAXException {
+        if (deferred.isEmpty() || completing)
+            completion.complete(value);
+        else
+            deferred.add(new Deferred<V>(null, value, completion, null));
+    }
+
+    /**
+     * Waits for the deferred work and completes it in the order of submission.
+     * 
+     * @throws SAXException
+     *         if a completion fails, if the work fails otherwise than with a SAXException or if the time limit is exceeded
+     */
+    void completeDeferred() throws SAXException, InterruptedException {
+        completing = true;
+        try {
+            for (int i = 0; i < deferred.size(); i++)
+                deferred.get(i).complete();
+            deferred.clear();
+        }
+        finally {
+            completing = false;
+        }
+    }
+
+    /** Abandons the deferred work of a walk that failed. */
+    void cancelDeferred() {
+        for (final Deferred<?> next : deferred)
+            if (next.future != null)
+                next.future.cancel(false);
+        deferred.clear();
+    }
+
+    /** Stops the handlers at the next element, for example because the document turns out to be invalid. May be called by another thread. */
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    private class Deferred<V> {
+        private final Future<V> future;
+        private final V value;
+        private final Completion<V> completion;
+        private final Locator location;
+
+        Deferred(final Future<V> future, final V value, final Completion<V> completion, final Locator location) {
+            this.future = future;
+            this.value = value;
+            this.completion = completion;
+            this.location = location;
+        }
+
+        void complete() throws SAXException, InterruptedException {
+            completion.complete(future == null ? value : get());
+        }
+
+        private V get() throws SAXException, InterruptedException {
+            try {
+                if (walkLimits.getMaxMillis() == Long.MAX_VALUE)
+                    return future.get();
+                return future.get(maxNanos - (System.nanoTime() - startNanos), TimeUnit.NANOSECONDS);
+            }
+            catch (final TimeoutException e) {
+                exceed(Limit.TIME, getTimeLimitMessage());
+                return null;
+            }
+            catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof SAXException) {
+                    // as if reported by the handler that deferred the work
+                    errorHandler.error(new SAXParseException(cause.getMessage(), location));
+                    return null;
+                }
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new SAXException("deferred work failed: " + cause.getMessage(), (Exception) cause);
+            }
+        }
+    }
+
+    /** @return null unless the walk is recorded as a {@link CrosswalkPhase} */
+    WalkStatistics getStatistics() {
+        return statistics;
+    }
+
+    void setStatistics(final WalkStatistics statistics) {
+        this.statistics = statistics;
+    }
+}
@@ -15,12 +15,18 @@
  */
 package nl.knaw.dans.pf.language.xml.crosswalk;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
 import org.xml.sax.Attributes;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.LocatorImpl;
 
 public class CrosswalkHandler<T> extends DefaultHandler {
     private T target;
@@ -28,11 +34,22 @@ public class CrosswalkHandler<T> extends DefaultHandler {
     private Locator locator;
     private CrosswalkHandlerMap<T> handlerMap;
     private CrosswalkHandler<T> parentHandler;
+    private CrosswalkContext context;
 
     private StringBuffer charsSinceStart = new StringBuffer();
+    private boolean charsTruncated;
+    private static final Attributes NO_ATTRIBUTES = new AttributesImpl();
+
     private Attributes attributes = null;
     private int level;
 
+    /** root only: takes control over the content of elements without handler */
+    private CrosswalkHandler<T> unmappedSkipper;
+
+    /** root only: the first notification per key of {@link #aggregatedWarning(String, String)} */
+    private Map<String, SAXParseException> aggregatedWarnings;
+    private Map<String, Integer> aggregatedCounts;
+
     /**
      * Create a handler. It may receive control by the startElement of another instance and will return control by the endElement at the same level.
      */
@@ -58,15 +75,22 @@ public class CrosswalkHandler<T> extends DefaultHandler {
         this.reader.setContentHandler(this);
         if (parentHandler != null) {
             handlerMap = parentHandler.handlerMap;
+            context = parentHandler.context;
 
             // only the root handler receives a location notification from the SAX parser
             locator = parentHandler.locator;
         }
         // clear what is left by a previous cycle
         charsSinceStart.delete(0, charsSinceStart.length());
+        charsTruncated = false;
         level = 0;
     }
 
+    /** Called for the root handler only, before the walk starts. */
+    void setContext(final CrosswalkContext context) {
+        this.context = context;
+    }
+
     private void returnControl() {
         this.reader.setContentHandler(parentHandler);
         this.target = null;
@@ -77,21 +101,52 @@ public class CrosswalkHandler<T> extends DefaultHandler {
 
     @Override
     public final void startElement(final String uri, final String localName, final String qName, final Attributes attributes) throws SAXException {
+        if (context != null) {
+            context.startElement(attributes);
+            if (context.isCancelled())
+                stopWalking();
+        }
+        final WalkStatistics statistics = context == null ? null : context.getStatistics();
+        if (statistics != null)
+            statistics.countElement();
+        if (skipsContent()) {
+            // fast forward: no text and no notifications for the descendants of the first element, only a handler of their own takes them
+            final CrosswalkHandler<T> handler = skipsMappedDescendants() ? null : handlerMap.getHandler(uri, localName, attributes);
+            level++;
+            if (handler != null)
+                handOver(handler, uri, localName, attributes, statistics);
+            return;
+        }
         charsSinceStart = new StringBuffer();
-        final CrosswalkHandler<T> handler = handlerMap.getHandler(uri, localName, attributes);
+        charsTruncated = false;
+        CrosswalkHandler<T> handler = handlerMap.getHandler(uri, localName, attributes);
         level++;
-        if (handler != null) {
-            handler.takeControl(target, reader, this);
-            handler.initFirstElement(uri, localName, attributes);
-            handler.attributes = attributes;
-        } else {
-            this.attributes = attributes;
-            if (parentHandler == null && handlerMap.reportMissingHandler(uri, localName, attributes))
-                warning("skipped " + qName + " at level:" + level);
+        if (handler == null && parentHandler == null && handlerMap.reportMissingHandler(uri, localName, attributes)) {
+            aggregatedWarning("{" + uri + "}" + localName, "skipped " + qName + " at level:" + level);
+            // the element is of no interest, descendants with a handler of their own are
+            handler = getUnmappedSkipper();
         }
+        if (handler != null)
+            handOver(handler, uri, localName, attributes, statistics);
+        else
+            this.attributes = copy(attributes);
         initElement(uri, localName, attributes);
     }
 
+    private void handOver(final CrosswalkHandler<T> handler, final String uri, final String localName, final Attributes attributes,
+            final WalkStatistics statistics) throws SAXException {
+        if (statistics != null)
+            statistics.handlerStarted(handlerMap.toHandlerKey(uri, localName, attributes));
+        handler.takeControl(target, reader, this);
+        handler.initFirstElement(uri, localName, attributes);
+        handler.attributes = copy(attributes);
+    }
+
+    /** kept for finishElement, the parser may reuse the object and the buffer behind its values for the next elements */
+    private static Attributes copy(final Attributes attributes) {
+        return attributes.getLength() == 0 ? NO_ATTRIBUTES : new AttributesImpl(attributes);
+    }
+
     /**
      * Receive notification of the start of the first element treated by this handler. Especially in the case of a complex element: Be aware of remnants of a
      * previous cycle. See also the final startElement
@@ -105,9 +160,18 @@ public class CrosswalkHandler<T> extends DefaultHandler {
 
     @Override
     public final void endElement(final String uri, final String localName, final String qName) throws SAXException {
+        if (context != null)
+            context.endElement();
+        if (skipsContent() && level > 0) {
+            level--;
+            return;
+        }
         finishElement(uri, localName);
-        if (--level < 0)
+        if (--level < 0) {
+            if (context != null && context.getStatistics() != null)
+                context.getStatistics().handlerEnded();
             returnControl();
+        }
     }
 
     /**
@@ -117,20 +181,130 @@ public class CrosswalkHandler<T> extends DefaultHandler {
 
     @Override
     public final void characters(final char ch[], final int start, final int length) throws SAXException {
-        charsSinceStart.append(ch, start, length);
-        chars(ch, start, length);
+        if (skipsContent())
+            return;
+        int accepted = length;
+        if (context != null) {
+            accepted = context.acceptChars(charsSinceStart.length(), length);
+            if (accepted < length)
+                reportTextLimit();
+        }
+        if (accepted == 0)
+            return;
+        charsSinceStart.append(ch, start, accepted);
+        chars(ch, start, accepted);
+    }
+
+    private void reportTextLimit() throws SAXException {
+        final TextLimits limits = context.getTextLimits();
+        final String message;
+        if (context.isDocumentLimitReached()) {
+            if (!context.reportDocumentLimit())
+                return;
+            message = "text of the document exceeds " + limits.getMaxDocumentChars() + " characters, the rest is ignored";
+        } else {
+            if (charsTruncated)
+                return;
+            charsTruncated = true;
+            message = "text of an element exceeds " + limits.getMaxElementChars() + " characters, the rest is ignored";
+        }
+        if (limits.getPolicy() == TextLimits.Policy.ERROR)
+            error(message);
+        else
+            warning(message);
     }
 
     /** See the final {@link DefaultHandler#characters(char[], int, int)}. */
     public void chars(final char ch[], final int start, final int length) throws SAXException {}
 
+    /**
+     * A handler that skips content keeps control over the elements nested in its first element that have no handler of their own: no text is collected and
+     * {@link #initElement(String, String, Attributes)} nor {@link #chars(char[], int, int)} are called. Only
+     * {@link #initFirstElement(String, String, Attributes)} and {@link #finishElement(String, String)} are notified, both for the first element only. See
+     * also {@link #skipsMappedDescendants()}.
+     * 
+     * @return false by default
+     */
+    protected boolean skipsContent() {
+        return false;
+    }
+
+    /**
+     * A handler that skips content and its mapped descendants keeps control over all elements nested in its first element, no other handler is looked up.
+     * Meant for subtrees that are excluded as a whole.
+     * 
+     * @return false by default, only applies if {@link #skipsContent()} is true
+     */
+    protected boolean skipsMappedDescendants() {
+        return false;
+    }
+
+    /**
+     * Ends the walk without reading the rest of the document, for example when all the values of interest are collected. The walk returns the target as
+     * after the end of the document.
+     * 
+     * @throws SAXException
+     *         always, to be passed on by the caller
+     */
+    protected void stopWalking() throws SAXException {
+        throw new StopWalkingException();
+    }
+
+    /**
+     * Hands work to the executor of the {@link Crosswalker} while the parser continues with the rest of the document. The completion is called on the thread
+     * of the walk after the end of the document, in the order of submission, see also {@link #completeInOrder(Object, Completion)}. Without an executor the
+     * work runs and completes immediately. The completion can not use {@link #getTarget()} nor report notifications, it should keep what it needs from the
+     * handler before.
+     * 
+     * @param work
+     *        may run on another thread, should not touch the handler. A SAXException is reported as an error at the current location and the completion
+     *        receives null.
+     * @param completion
+     *        receives the result of the work
+     */
+    protected <V> void defer(final Callable<V> work, final Completion<V> completion) throws SAXException {
+        if (context != null && context.defersWork()) {
+            context.defer(work, completion, locator == null ? null : new LocatorImpl(locator));
+            return;
+        }
+        V value = null;
+        try {
+            value = work.call();
+        }
+        catch (final SAXException e) {
+            error(e.getMessage());
+        }
+        catch (final RuntimeException e) {
+            throw e;
+        }
+        catch (final Exception e) {
+            throw new SAXException(e);
+        }
+        completion.complete(value);
+    }
+
+    /**
+     * Completes after the work deferred before, so the target receives values in document order. Completes immediately when there is no pending work.
+     * 
+     * @param value
+     *        passed on to the completion
+     * @param completion
+     *        same restrictions as for {@link #defer(Callable, Completion)}
+     */
+    protected <V> void completeInOrder(final V value, final Completion<V> completion) throws SAXException {
+        if (context == null)
+            completion.complete(value);
+        else
+            context.completeInOrder(value, completion);
+    }
+
     /** @return the target object */
     protected T getTarget() {
         return target;
     }
 
     /**
-     * The characters since the last startElement. Beware of mixed content, for example: <br>
+     * The characters since the last startElement, possibly truncated, see {@link TextLimits}. Beware of mixed content, for example: <br>
      * &lt;p> Some &lt;b>bold&lt;/b> text &lt;/p><br>
      * 
      * @return If called by {@link #finishElement(String, String)} for &lt;p>: "bold text". The string " Some " should be accessed otherwise through
@@ -155,6 +329,61 @@ public class CrosswalkHandler<T> extends DefaultHandler {
         this.locator = locator;
     }
 
+    @Override
+    public void endDocument() throws SAXException {
+        reportAggregatedWarnings();
+    }
+
+    /**
+     * Reports a warning once per key at the end of the document, with the location of the first occurrence and the number of occurrences.
+     * 
+     * @param key
+     *        identifies warnings of the same kind, for example the name of a skipped element
+     * @param message
+     *        the message of the first occurrence
+     */
+    protected void aggregatedWarning(final String key, final String message) throws SAXException {
+        CrosswalkHandler<T> root = this;
+        while (root.parentHandler != null)
+            root = root.parentHandler;
+        if (root.aggregatedWarnings == null) {
+            root.aggregatedWarnings = new LinkedHashMap<String, SAXParseException>();
+            root.aggregatedCounts = new LinkedHashMap<String, Integer>();
+        }
+        final Integer count = root.aggregatedCounts.get(key);
+        if (count == null) {
+            root.aggregatedWarnings.put(key, new SAXParseException(message, locator));
+            root.aggregatedCounts.put(key, 1);
+        } else
+            root.aggregatedCounts.put(key, count + 1);
+    }
+
+    /** Passes the aggregated warnings on to the error handler, also if the walk ends prematurely. */
+    void reportAggregatedWarnings() throws SAXException {
+        if (aggregatedWarnings == null || reader == null)
+            return;
+        for (final Map.Entry<String, SAXParseException> entry : aggregatedWarnings.entrySet()) {
+            final SAXParseException first = entry.getValue();
+            final int count = aggregatedCounts.get(entry.getKey());
+            final String message = first.getMessage() + (count == 1 ? "" : " (" + count + " times)");
+            reader.getErrorHandler().warning(new SAXParseException(message, first.getPublicId(), first.getSystemId(), first.getLineNumber(), first.getColumnNumber()));
+        }
+        aggregatedWarnings = null;
+        aggregatedCounts = null;
+    }
+
+    private CrosswalkHandler<T> getUnmappedSkipper() {
+        if (unmappedSkipper == null) {
+            unmappedSkipper = new CrosswalkHandler<T>() {
+                @Override
+                protected boolean skipsContent() {
+                    return true;
+                }
+            };
+        }
+        return unmappedSkipper;
+    }
+
     protected void warning(final String message) throws SAXException {
         reader.getErrorHandler().warning(new SAXParseException(message, locator));
     }
@@ -42,4 +42,16 @@ public interface CrosswalkHandlerMap<T> {
      * @throws SAXException
      */
     boolean reportMissingHandler(final String uri, final String localName, final Attributes attributes) throws SAXException;
+
+    /**
+     * Identifies the handler of an element in statistics like those of a {@link CrosswalkPhase}. For description of the arguments see
+     * {@link CrosswalkHandler#startElement(String, String, String, Attributes)}
+     * 
+     * @param uri
+     * @param localName
+     * @param attributes
+     * @return the key under which the map looks up the handler of the element
+     * @throws SAXException
+     */
+    String toHandlerKey(final String uri, final String localName, final Attributes attributes) throws SAXException;
 }
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.xml.crosswalk;
+
+/**
+ * Reports a phase of a crosswalk as a Java Flight Recorder event, see the README for how to enable the events. When the events are not recorded, or the
+ * runtime has no Flight Recorder, {@link #begin(String, long)} returns an instance that does nothing.
+ */
+public abstract class CrosswalkPhase {
+    /** Validation against the XSD. */
+    public static final String VALIDATE = "validate";
+
+    /** Parsing with the handlers. */
+    public static final String PARSE = "parse";
+
+    /** Marshalling the result to verify it. */
+    public static final String EMD_VERIFY = "emd-verify";
+
+    private static final boolean RECORDER_AVAILABLE = isRecorderAvailable();
+
+    private static final CrosswalkPhase NOT_RECORDED = new CrosswalkPhase() {
+        @Override
+        public boolean isRecorded() {
+            return false;
+        }
+
+        @Override
+        void setStatistics(final WalkStatistics statistics) {}
+
+        @Override
+        public void end(final int errors) {}
+    };
+
+    CrosswalkPhase() {}
+
+    /**
+     * Starts timing a phase.
+     * 
+     * @param phase
+     *        for example {@link #VALIDATE}
+     * @param documentSize
+     *        bytes of the input document, -1 if unknown
+     * @return never null
+     */
+    public static CrosswalkPhase begin(final String phase, final long documentSize) {
+        if (!RECORDER_AVAILABLE)
+            return NOT_RECORDED;
+        final CrosswalkPhaseEvent event = new CrosswalkPhaseEvent();
+        if (!event.isEnabled())
+            return NOT_RECORDED;
+        event.phase = phase;
+        event.documentSize = documentSize;
+        event.begin();
+        return new RecordedPhase(event);
+    }
+
+    /** @return false if {@link #end(int)} will not report anything, so there is no need to collect statistics */
+    public abstract boolean isRecorded();
+
+    abstract void setStatistics(final WalkStatistics statistics);
+
+    /**
+     * Ends the timing and reports the phase.
+     * 
+     * @param errors
+     *        the number of errors and fatal errors reported during the phase
+     */
+    public abstract void end(final int errors);
+
+    private static boolean isRecorderAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, CrosswalkPhase.class.getClassLoader());
+            return true;
+        }
+        catch (final ClassNotFoundException e) {
+            return false;
+        }
+        catch (final LinkageError e) {
+            return false;
+        }
+    }
+
+    private static class RecordedPhase extends CrosswalkPhase {
+        private final CrosswalkPhaseEvent event;
+        private WalkStatistics statistics;
+
+        RecordedPhase(final CrosswalkPhaseEvent event) {
+            this.event = event;
+        }
+
+        @Override
+        public boolean isRecorded() {
+            return true;
+        }
+
+        @Override
+        void setStatistics(final WalkStatistics statistics) {
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void end(final int errors) {
+            event.end();
+            if (!event.shouldCommit())
+                return;
+            event.errors = errors;
+            if (statistics != null) {
+                event.elements = statistics.getElements();
+                event.slowestHandler = statistics.getSlowestHandler();
+                event.slowestHandlerTime = statistics.getSlowestHandlerNanos();
+            }
+            event.commit();
+        }
+    }
+}
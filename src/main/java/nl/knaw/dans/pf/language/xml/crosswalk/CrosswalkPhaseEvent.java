@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.xml.crosswalk;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Flight Recorder event per phase of a crosswalk. Disabled unless a recording enables {@value #NAME}. Only touched through {@link CrosswalkPhase}, so
+ * a runtime without Flight Recorder never loads this class.
+ */
+@Name(CrosswalkPhaseEvent.NAME)
+@Label("Crosswalk Phase")
+@Category({"DANS", "Crosswalk"})
+@Description("Validation against the XSD, parsing by the handlers or verification of the result of a single document")
+@Enabled(false)
+@StackTrace(false)
+class CrosswalkPhaseEvent extends Event {
+    static final String NAME = "nl.knaw.dans.CrosswalkPhase";
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Document Size")
+    @Description("Size of the input document, -1 if unknown")
+    @DataAmount
+    long documentSize;
+
+    @Label("Elements")
+    @Description("Number of elements read by the handlers")
+    int elements;
+
+    @Label("Errors")
+    @Description("Number of errors and fatal errors reported during the phase")
+    int errors;
+
+    @Label("Slowest Handler")
+    @Description("Handler key of the elements that took the most time of their handlers, including nested handlers")
+    String slowestHandler;
+
+    @Label("Slowest Handler Time")
+    @Timespan
+    long slowestHandlerTime;
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.xml.crosswalk;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.ErrorHandler;
+
+/**
+ * Rules checked in the SAX pass of a walk, see {@link Crosswalker#setRules(CrosswalkRules)}. A cheap pre-filter for a validation against an XSD: a subset
+ * of the constraints of the XSD that rejects the most common mistakes, it should never reject a document the XSD accepts. An implementation is shared by
+ * walks on different threads, the checkers are not.
+ */
+public interface CrosswalkRules {
+    /**
+     * @param errorHandler
+     *        receives the violations of the rules, with the location of the locator passed on to the checker
+     * @return receives all events of the parser for a single walk, whatever handler has control
+     */
+    ContentHandler newChecker(ErrorHandler errorHandler);
+}
@@ -21,7 +21,13 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import javax.xml.XMLConstants;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
 
@@ -32,12 +38,22 @@ import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler.Reporter;
 
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
 
 public class Crosswalker<T> {
     private static final String VALIDATE_ERROR_MESSAGE = "could not validate against XSD: ";
     private XMLReader reader;
     private XMLErrorHandler errorHandler = new XMLErrorHandler(Reporter.off);
+    private TextLimits textLimits = TextLimits.NONE;
+    private WalkLimits walkLimits = WalkLimits.NONE;
+    private ExecutorService validationExecutor;
+    private Executor handlerExecutor;
+    private ErrorPolicy errorPolicy = ErrorPolicy.COLLECT_ALL;
+    private boolean stoppedByErrorPolicy;
+    private CrosswalkRules rules;
     public CrosswalkHandlerMap<T> handlerMap;
 
     /**
@@ -67,9 +83,20 @@ public class Crosswalker<T> {
      */
     final protected T walk(final AbstractValidator2 validator, final File file, T target) throws CrosswalkException, IllegalStateException {
         try {
-            if (validator != null)
-                validateAgainstXsd(validator, new FileInputStream(file));
-            return parse(new FileInputStream(file), target);
+            final Callable<InputStream> source = new Callable<InputStream>() {
+                @Override
+                public InputStream call() throws FileNotFoundException {
+                    return new FileInputStream(file);
+                }
+            };
+            if (validator != null && validationExecutor != null)
+                return walkWhileValidating(validator, source, new FileInputStream(file), file.length(), target);
+            if (validator != null && rules != null)
+                return walkBeforeValidating(validator, source, new FileInputStream(file), file.length(), target);
+            final CrosswalkContext context = newContext();
+            if (validator != null && !validateAgainstXsd(validator, context.limit(new FileInputStream(file)), file.length(), context))
+                return null;
+            return parse(context.limit(new FileInputStream(file)), file.length(), target, context);
         }
         catch (final FileNotFoundException e) {
             throw new CrosswalkException(VALIDATE_ERROR_MESSAGE + e.getMessage(), e);
@@ -89,10 +116,132 @@ public class Crosswalker<T> {
      * @throws CrosswalkException
      */
     final protected T walk(final AbstractValidator2 validator, final String xml, T target) throws CrosswalkException, IllegalStateException {
-        final byte[] bytes = xml.getBytes();
-        if (validator != null)
-            validateAgainstXsd(validator, new ByteArrayInputStream(bytes));
-        return parse(new ByteArrayInputStream(bytes), target);
+        return walk(validator, xml.getBytes(), target);
+    }
+
+    /**
+     * Fills the target after an optional validation against an XSD.
+     * 
+     * @param validator
+     *        optional, omit if validation against XSD is already done, or the handlers passed on to the constructor are happy with invalid XML
+     * @param bytes
+     *        the XML content, the encoding is detected by the parser
+     * @param target
+     *        an instance that receives values from the XML
+     * @return the target unless errors are reported by the {@link XMLErrorHandler}
+     * @throws CrosswalkException
+     */
+    final protected T walk(final AbstractValidator2 validator, final byte[] bytes, T target) throws CrosswalkException, IllegalStateException {
+        final Callable<InputStream> source = new Callable<InputStream>() {
+            @Override
+            public InputStream call() {
+                return new ByteArrayInputStream(bytes);
+            }
+        };
+        if (validator != null && validationExecutor != null)
+            return walkWhileValidating(validator, source, new ByteArrayInputStream(bytes), bytes.length, target);
+        if (validator != null && rules != null)
+            return walkBeforeValidating(validator, source, new ByteArrayInputStream(bytes), bytes.length, target);
+        final CrosswalkContext context = newContext();
+        if (validator != null && !validateAgainstXsd(validator, context.limit(new ByteArrayInputStream(bytes)), bytes.length, context))
+            return null;
+        return parse(context.limit(new ByteArrayInputStream(bytes)), bytes.length, target, context);
+    }
+
+    /**
+     * Fills the target from a stream assuming validation against an XSD has been done. The stream is read once and not closed.
+     * 
+     * @param xml
+     *        the XML content
+     * @param target
+     *        an instance that receives values from the XML
+     * @return the target unless errors are reported by the {@link XMLErrorHandler}
+     * @throws CrosswalkException
+     */
+    final protected T walk(final InputStream xml, T target) throws CrosswalkException {
+        final CrosswalkContext context = newContext();
+        return parse(context.limit(xml), -1, target, context);
+    }
+
+    /**
+     * Validate against the XSD on another thread while the handlers fill the target. Reduces the time of a walk to the longest of both instead of their
+     * sum. The handlers are stopped as soon as validation reports an error. Notifications of the validation and of the handlers are passed on to the
+     * {@link XMLErrorHandler} as they occur, so their order varies from walk to walk. The {@link ErrorPolicy} counts both.
+     * 
+     * @param validationExecutor
+     *        null (the default) to validate before the handlers start, on the thread of the caller
+     */
+    public void setValidationExecutor(final ExecutorService validationExecutor) {
+        this.validationExecutor = validationExecutor;
+    }
+
+    /**
+     * Lets handlers hand work to other threads while the parser continues, see {@link CrosswalkHandler#defer(Callable, Completion)}. The work is completed
+     * in document order before a walk returns.
+     * 
+     * @param handlerExecutor
+     *        null (the default) to do all work on the thread of the caller
+     */
+    public void setHandlerExecutor(final Executor handlerExecutor) {
+        this.handlerExecutor = handlerExecutor;
+    }
+
+    /**
+     * Checks rules in the same SAX pass as the handlers. Without a validation executor, the rules are a cheap pre-filter: a walk with a validator parses
+     * first and validates against the XSD only if neither the rules nor the handlers reported errors. The XSD remains the authority, a document that passes
+     * the rules can still be rejected by the XSD.
+     * 
+     * @param rules
+     *        null (the default) for no rules
+     */
+    public void setRules(final CrosswalkRules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Change the number of errors collected before a walk stops, by default all errors are collected. When a walk stops, a warning with the policy is
+     * reported after the last error.
+     * 
+     * @param errorPolicy
+     *        null for the default
+     */
+    public void setErrorPolicy(final ErrorPolicy errorPolicy) {
+        this.errorPolicy = errorPolicy == null ? ErrorPolicy.COLLECT_ALL : errorPolicy;
+    }
+
+    /** @return the number of errors collected before a walk stops */
+    public ErrorPolicy getErrorPolicy() {
+        return errorPolicy;
+    }
+
+    /** @return true if the last walk stopped before the end of the document because of the {@link ErrorPolicy} */
+    public boolean isStoppedByErrorPolicy() {
+        return stoppedByErrorPolicy;
+    }
+
+    /**
+     * Change the limits of the text collected for handlers, by default there are no limits.
+     * 
+     * @param textLimits
+     */
+    public void setTextLimits(final TextLimits textLimits) {
+        this.textLimits = textLimits == null ? TextLimits.NONE : textLimits;
+    }
+
+    /** @return the limits of the text collected for handlers */
+    public TextLimits getTextLimits() {
+        return textLimits;
+    }
+
+    /**
+     * Change the limits of time and structure of a single walk, by default there are no limits. A walk that exceeds a limit throws a
+     * {@link WalkLimitException}.
+     * 
+     * @param walkLimits
+     *        null for the default
+     */
+    public void setWalkLimits(final WalkLimits walkLimits) {
+        this.walkLimits = walkLimits == null ? WalkLimits.NONE : walkLimits;
     }
 
     /**
@@ -105,6 +254,16 @@ public class Crosswalker<T> {
         return errorHandler;
     }
 
+    /**
+     * Replaces the handler of notifications, for example to collect statistics over many documents.
+     * 
+     * @param errorHandler
+     *        receives the notifications of subsequent walks
+     */
+    public void setXmlErrorHandler(final XMLErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
     /**
      * Change the logging level of the error handler.
      * 
@@ -114,42 +273,213 @@ public class Crosswalker<T> {
         errorHandler.setReporter(reporter);
     }
 
-    private void validateAgainstXsd(final AbstractValidator2 validator, final InputStream xml) throws CrosswalkException {
+    /** @return false if the {@link ErrorPolicy} says the document should not be parsed */
+    private boolean validateAgainstXsd(final AbstractValidator2 validator, final InputStream xml, final long documentSize, final CrosswalkContext context)
+            throws CrosswalkException {
+        final ErrorLimitingHandler limitingHandler = context.getErrorHandler();
+        final CrosswalkPhase phase = CrosswalkPhase.begin(CrosswalkPhase.VALIDATE, documentSize);
         try {
-            validator.validate(errorHandler, xml);
+            validator.validate(limitingHandler, xml);
         }
         catch (XMLException e) {
+            checkWalkLimits(context, e);
+            if (!limitingHandler.isLimitReached())
+                throw new CrosswalkException(VALIDATE_ERROR_MESSAGE + e.getMessage(), e);
+        }
+        finally {
+            phase.end(limitingHandler.getErrorCount());
+        }
+        checkWalkLimits(context, null);
+        if (!limitingHandler.isLimitReached())
+            return true;
+        reportErrorPolicy(limitingHandler);
+        return false;
+    }
+
+    private void reportErrorPolicy(final ErrorLimitingHandler limitingHandler) throws CrosswalkException {
+        stoppedByErrorPolicy = true;
+        try {
+            limitingHandler.reportLimitReached();
+        }
+        catch (final SAXException e) {
+            throw new CrosswalkException("could not report error policy: " + e.getMessage(), e);
+        }
+    }
+
+    private T walkWhileValidating(final AbstractValidator2 validator, final Callable<InputStream> validationSource, final InputStream source,
+            final long documentSize, final T target) throws CrosswalkException {
+        final CrosswalkContext context = newContext();
+        final CancellingErrorHandler validationErrorHandler = new CancellingErrorHandler(context);
+        final ErrorLimitingHandler limitingHandler = context.getErrorHandler();
+        final Future<Void> validation = validationExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                final CrosswalkPhase phase = CrosswalkPhase.begin(CrosswalkPhase.VALIDATE, documentSize);
+                try {
+                    validator.validate(validationErrorHandler, context.limit(validationSource.call()));
+                }
+                finally {
+                    phase.end(validationErrorHandler.getErrorCount());
+                }
+                return null;
+            }
+        });
+        T result = null;
+        CrosswalkException crosswalkException = null;
+        try {
+            result = parse(context.limit(source), documentSize, target, context);
+        }
+        catch (final CrosswalkException e) {
+            crosswalkException = e;
+        }
+        try {
+            validation.get();
+        }
+        catch (final InterruptedException e) {
+            validation.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CrosswalkException(VALIDATE_ERROR_MESSAGE + "interrupted", e);
+        }
+        catch (final ExecutionException e) {
+            checkWalkLimits(context, e.getCause());
+            // as if validation was executed first
+            if (!limitingHandler.isLimitReached())
+                throw new CrosswalkException(VALIDATE_ERROR_MESSAGE + e.getCause().getMessage(), e.getCause());
+        }
+        if (crosswalkException != null)
+            throw crosswalkException;
+        checkWalkLimits(context, null);
+        if (limitingHandler.isLimitReached())
+            reportErrorPolicy(limitingHandler);
+        if (!limitingHandler.hasErrors())
+            return result;
+        return null;
+    }
+
+    private T walkBeforeValidating(final AbstractValidator2 validator, final Callable<InputStream> validationSource, final InputStream source,
+            final long documentSize, final T target) throws CrosswalkException {
+        final CrosswalkContext context = newContext();
+        final T result = parse(context.limit(source), documentSize, target, context);
+        if (result == null)
+            return null;
+        final InputStream xml;
+        try {
+            xml = validationSource.call();
+        }
+        catch (final Exception e) {
             throw new CrosswalkException(VALIDATE_ERROR_MESSAGE + e.getMessage(), e);
         }
+        if (!validateAgainstXsd(validator, context.limit(xml), documentSize, context))
+            return null;
+        if (!context.getErrorHandler().hasErrors())
+            return result;
+        return null;
+    }
+
+    private CrosswalkContext newContext() {
+        stoppedByErrorPolicy = false;
+        return new CrosswalkContext(textLimits, walkLimits, handlerExecutor, new ErrorLimitingHandler(errorHandler, errorPolicy));
+    }
+
+    private T parse(final InputStream source, final long documentSize, T target, final CrosswalkContext context) throws CrosswalkException {
+        final CrosswalkPhase phase = CrosswalkPhase.begin(CrosswalkPhase.PARSE, documentSize);
+        final int errorsBefore = context.getErrorHandler().getErrorCount();
+        if (phase.isRecorded()) {
+            final WalkStatistics statistics = new WalkStatistics();
+            context.setStatistics(statistics);
+            phase.setStatistics(statistics);
+        }
+        try {
+            return parse(source, target, context);
+        }
+        finally {
+            phase.end(context.getErrorHandler().getErrorCount() - errorsBefore);
+        }
     }
 
-    private T parse(final InputStream source, T target) throws CrosswalkException {
-        getReader().setErrorHandler(errorHandler);
+    private T parse(final InputStream source, T target, final CrosswalkContext context) throws CrosswalkException {
+        final XMLReader reader = rules == null ? getReader() : new RuleCheckingFilter(getReader(), rules.newChecker(context.getErrorHandler()));
+        reader.setErrorHandler(context.getErrorHandler());
 
         // sets itself as ContentHandler of the reader passed into it
-        new CrosswalkHandler<T>(target, getReader(), handlerMap);
+        final CrosswalkHandler<T> root = new CrosswalkHandler<T>(target, reader, handlerMap);
+        root.setContext(context);
 
         final String msg = "could not parse: ";
         try {
-            getReader().parse(new InputSource(source));
+            reader.parse(new InputSource(source));
         }
         catch (final IOException e) {
+            context.cancelDeferred();
+            checkWalkLimits(context, e);
             throw new CrosswalkException(msg + e.getMessage(), e);
         }
+        catch (final StopWalkingException e) {
+            // a handler has all it needs, the rest of the document is of no interest
+            reportAggregatedWarnings(root);
+            if (context.getErrorHandler().isLimitReached())
+                reportErrorPolicy(context.getErrorHandler());
+        }
         catch (final SAXException e) {
+            context.cancelDeferred();
+            checkWalkLimits(context, e);
+            reportAggregatedWarnings(root);
             throw new CrosswalkException(msg + e.getMessage(), e);
         }
-        if (errorHandler.getErrors().size() == 0 && errorHandler.getFatalErrors().size() == 0)
+        completeDeferred(context);
+        if (!context.getErrorHandler().hasErrors())
             return target;
         return null;
     }
 
+    private void completeDeferred(final CrosswalkContext context) throws CrosswalkException {
+        final String msg = "could not complete deferred work: ";
+        try {
+            context.completeDeferred();
+        }
+        catch (final InterruptedException e) {
+            context.cancelDeferred();
+            Thread.currentThread().interrupt();
+            throw new CrosswalkException(msg + "interrupted", e);
+        }
+        catch (final StopWalkingException e) {
+            // an error of the deferred work reached the error policy
+            context.cancelDeferred();
+            reportErrorPolicy(context.getErrorHandler());
+        }
+        catch (final SAXException e) {
+            context.cancelDeferred();
+            checkWalkLimits(context, e);
+            throw new CrosswalkException(msg + e.getMessage(), e);
+        }
+    }
+
+    private void checkWalkLimits(final CrosswalkContext context, final Throwable cause) throws WalkLimitException {
+        final WalkLimits.Limit limit = context.getExceededLimit();
+        if (limit != null)
+            throw new WalkLimitException("walk aborted: " + context.getExceededMessage(), limit, cause);
+    }
+
+    private void reportAggregatedWarnings(final CrosswalkHandler<T> root) throws CrosswalkException {
+        try {
+            root.reportAggregatedWarnings();
+        }
+        catch (final SAXException e) {
+            throw new CrosswalkException("could not report warnings: " + e.getMessage(), e);
+        }
+    }
+
     private XMLReader getReader() throws CrosswalkException {
         if (reader != null)
             return reader;
         try {
             final SAXParserFactory factory = SAXParserFactory.newInstance();
             factory.setNamespaceAware(true);
+            // bounds entity expansion, a DTD is not needed to crosswalk
+            setFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            setFeature(factory, "http://xml.org/sax/features/external-general-entities", false);
+            setFeature(factory, "http://xml.org/sax/features/external-parameter-entities", false);
+            setFeature(factory, "http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
             reader = factory.newSAXParser().getXMLReader();
             return reader;
         }
@@ -160,4 +490,54 @@ public class Crosswalker<T> {
             throw new CrosswalkException("could not create parser" + e.getMessage(), e);
         }
     }
+
+    private static void setFeature(final SAXParserFactory factory, final String name, final boolean value) throws ParserConfigurationException {
+        try {
+            factory.setFeature(name, value);
+        }
+        catch (final SAXNotRecognizedException e) {
+            // another parser implementation, it has its own defaults
+        }
+        catch (final SAXNotSupportedException e) {
+            // another parser implementation, it has its own defaults
+        }
+    }
+
+    /**
+     * Passes the notifications of a concurrent validation on to the {@link ErrorLimitingHandler} of the walk, so they count for the {@link ErrorPolicy}.
+     * Cancels the handlers at the first error.
+     */
+    private static class CancellingErrorHandler extends XMLErrorHandler {
+        private final CrosswalkContext context;
+        private volatile int errors;
+
+        CancellingErrorHandler(final CrosswalkContext context) {
+            super(Reporter.off);
+            this.context = context;
+        }
+
+        @Override
+        public void warning(final SAXParseException e) throws SAXException {
+            context.getErrorHandler().warning(e);
+        }
+
+        @Override
+        public void error(final SAXParseException e) throws SAXException {
+            errors++;
+            context.cancel();
+            context.getErrorHandler().error(e);
+        }
+
+        @Override
+        public void fatalError(final SAXParseException e) throws SAXException {
+            errors++;
+            context.cancel();
+            context.getErrorHandler().fatalError(e);
+        }
+
+        /** @return the number of errors and fatal errors of the validation */
+        int getErrorCount() {
+            return errors;
+        }
+    }
 }
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.xml.crosswalk;
+
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Passes notifications of a single walk on to the handler of the {@link Crosswalker}, stops the walk when the {@link ErrorPolicy} says so. Thread safe: the
+ * parser and a concurrent validation share an instance, the handler of the crosswalker is only called while holding its lock. Once the policy stops the
+ * walk, further errors are not passed on.
+ */
+class ErrorLimitingHandler extends XMLErrorHandler {
+    private final XMLErrorHandler target;
+    private final ErrorPolicy policy;
+    private int errors;
+    private boolean limitReached;
+    private boolean limitReported;
+
+    ErrorLimitingHandler(final XMLErrorHandler target, final ErrorPolicy policy) {
+        super(Reporter.off);
+        this.target = target;
+        this.policy = policy;
+    }
+
+    @Override
+    public synchronized void warning(final SAXParseException e) throws SAXException {
+        target.warning(e);
+    }
+
+    @Override
+    public synchronized void error(final SAXParseException e) throws SAXException {
+        if (limitReached)
+            throw stop();
+        target.error(e);
+        count();
+    }
+
+    @Override
+    public synchronized void fatalError(final SAXParseException e) throws SAXException {
+        if (limitReached)
+            throw stop();
+        target.fatalError(e);
+        count();
+    }
+
+    private void count() throws SAXException {
+        if (++errors < policy.getMaxErrors())
+            return;
+        limitReached = true;
+        throw stop();
+    }
+
+    private StopWalkingException stop() {
+        // the validator or the parser unwinds without reading the rest of the document
+        return new StopWalkingException("walk stopped by error policy: " + policy);
+    }
+
+    /** @return the number of errors and fatal errors passed on so far */
+    synchronized int getErrorCount() {
+        return errors;
+    }
+
+    synchronized boolean isLimitReached() {
+        return limitReached;
+    }
+
+    /** @return true if the handler of the {@link Crosswalker} has errors or fatal errors, of this walk or of walks since its last reset */
+    synchronized boolean hasErrors() {
+        return target.getErrors().size() > 0 || target.getFatalErrors().size() > 0;
+    }
+
+    /** Tells the handler of the {@link Crosswalker} why the document was not read completely, once, whichever thread stopped the walk first. */
+    synchronized void reportLimitReached() throws SAXException {
+        if (limitReported)
+            return;
+        limitReported = true;
+        target.warning(new SAXParseException("stopped after " + errors + " errors, " + policy, null));
+    }
+}
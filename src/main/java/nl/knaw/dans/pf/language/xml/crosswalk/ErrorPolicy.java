@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.xml.crosswalk;
+
+/**
+ * Decides how many errors a {@link Crosswalker} collects before it gives up on a document. Errors of the validation against the XSD and of the handlers
+ * count together. A walk that reaches the maximum stops without parsing the rest of the document and has no result.
+ */
+public final class ErrorPolicy {
+    /** Collect all errors, the default of a {@link Crosswalker}. */
+    public static final ErrorPolicy COLLECT_ALL = new ErrorPolicy(Integer.MAX_VALUE);
+
+    /** Stop at the first error. */
+    public static final ErrorPolicy FAIL_FAST = new ErrorPolicy(1);
+
+    private final int maxErrors;
+
+    private ErrorPolicy(final int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * @param maxErrors
+     *        the number of errors after which a walk stops
+     * @return a policy that stops after the given number of errors
+     */
+    public static ErrorPolicy maxErrors(final int maxErrors) {
+        if (maxErrors < 1)
+            throw new IllegalArgumentException("maxErrors should be at least 1: " + maxErrors);
+        return new ErrorPolicy(maxErrors);
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    @Override
+    public String toString() {
+        if (maxErrors == Integer.MAX_VALUE)
+            return "collect all errors";
+        if (maxErrors == 1)
+            return "fail fast";
+        return "max " + maxErrors + " errors";
+    }
+}
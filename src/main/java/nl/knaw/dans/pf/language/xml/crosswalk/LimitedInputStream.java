@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.xml.crosswalk;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Lets the parser or validator read a document until the walk exceeds one of its {@link WalkLimits}. */
+class LimitedInputStream extends FilterInputStream {
+    private final CrosswalkContext context;
+
+    LimitedInputStream(final InputStream in, final CrosswalkContext context) {
+        super(in);
+        this.context = context;
+    }
+
+    @Override
+    public int read() throws IOException {
+        check();
+        return super.read();
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        check();
+        return super.read(b, off, len);
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        check();
+        return super.skip(n);
+    }
+
+    private void check() throws IOException {
+        // also stops a validation on another thread when the handlers exceeded a limit
+        if (context.getExceededLimit() == null)
+            context.checkDeadline();
+        if (context.getExceededLimit() != null)
+            throw new IOException(context.getExceededMessage());
+    }
+}
@@ -13,18 +13,19 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package nl.knaw.dans.pf.language.ddm.datehandlers;
-
-import nl.knaw.dans.pf.language.ddm.handlertypes.IsoDateHandler;
-import nl.knaw.dans.pf.language.emd.types.IsoDate;
+package nl.knaw.dans.pf.language.xml.crosswalk;
 
 import org.xml.sax.SAXException;
 
-public class EasDateHandler extends IsoDateHandler {
-    @Override
-    public void finishElement(final String uri, final String localName) throws SAXException {
-        final IsoDate date = createDate(uri, localName);
-        if (date != null)
-            getTarget().getEmdDate().getEasDate().add(date);
+/** Thrown by {@link CrosswalkHandler#stopWalking()} or an {@link ErrorPolicy} to end the parser without an additional error. */
+class StopWalkingException extends SAXException {
+    private static final long serialVersionUID = 1L;
+
+    StopWalkingException() {
+        super("walk stopped by handler");
+    }
+
+    StopWalkingException(final String message) {
+        super(message);
     }
 }
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.xml.crosswalk;
+
+/**
+ * Bounds the text a {@link Crosswalker} collects for handlers, so a document with an excessive text node can not exhaust the memory. Text beyond a limit is
+ * not collected while the parser keeps streaming through the document.
+ * <p>
+ * The limits apply to the handlers only. A walk that validates against an XSD before the handlers start, the default of a {@link Crosswalker} with a
+ * validator, lets the validator buffer the full text of an element with a simple type. Such a walk still needs memory for the largest text node of the
+ * document.
+ */
+public final class TextLimits {
+    /** What happens when a limit is exceeded. */
+    public enum Policy {
+        /** handlers receive the text up to the limit, a warning is reported */
+        TRUNCATE,
+        /** handlers receive the text up to the limit, an error is reported so the crosswalk has no result */
+        ERROR
+    }
+
+    /** No limits at all, the default of a {@link Crosswalker}. */
+    public static final TextLimits NONE = new TextLimits(Integer.MAX_VALUE, Long.MAX_VALUE, Policy.TRUNCATE);
+
+    private final int maxElementChars;
+    private final long maxDocumentChars;
+    private final Policy policy;
+
+    /**
+     * @param maxElementChars
+     *        the maximum number of characters collected for an element
+     * @param maxDocumentChars
+     *        the maximum number of characters collected for all elements of a document together
+     * @param policy
+     *        what happens when a limit is exceeded
+     */
+    public TextLimits(final int maxElementChars, final long maxDocumentChars, final Policy policy) {
+        if (maxElementChars < 0 || maxDocumentChars < 0)
+            throw new IllegalArgumentException("limits can not be negative: " + maxElementChars + " " + maxDocumentChars);
+        if (policy == null)
+            throw new IllegalArgumentException("policy can not be null");
+        this.maxElementChars = maxElementChars;
+        this.maxDocumentChars = maxDocumentChars;
+        this.policy = policy;
+    }
+
+    public int getMaxElementChars() {
+        return maxElementChars;
+    }
+
+    public long getMaxDocumentChars() {
+        return maxDocumentChars;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public String toString() {
+        return "element:" + maxElementChars + " document:" + maxDocumentChars + " " + policy;
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.xml.crosswalk;
+
+import nl.knaw.dans.pf.language.xml.crosswalk.WalkLimits.Limit;
+
+/** Thrown when a walk is aborted by its {@link WalkLimits}. The document has no result and the notifications collected so far may be incomplete. */
+public class WalkLimitException extends CrosswalkException {
+    private static final long serialVersionUID = 1L;
+    private final Limit limit;
+
+    public WalkLimitException(final String message, final Limit limit, final Throwable e) {
+        super(message, e);
+        this.limit = limit;
+    }
+
+    /** @return the limit that aborted the walk */
+    public Limit getLimit() {
+        return limit;
+    }
+}
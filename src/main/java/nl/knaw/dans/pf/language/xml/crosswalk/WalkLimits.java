@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.xml.crosswalk;
+
+/**
+ * Bounds the resources a {@link Crosswalker} spends on a single document, so a pathological document can not pin a thread. A walk that exceeds a limit is
+ * aborted with a {@link WalkLimitException}. The time limit covers the validation against the XSD as well as the handlers, the structural limits are
+ * enforced while the handlers walk the document.
+ */
+public final class WalkLimits {
+    /** The limit that aborted a walk. */
+    public enum Limit {
+        /** wall-clock time of the walk */
+        TIME,
+        /** nesting depth of elements */
+        DEPTH,
+        /** total number of elements */
+        ELEMENTS,
+        /** total number of characters in the names and values of attributes */
+        ATTRIBUTES
+    }
+
+    /** No limits at all, the default of a {@link Crosswalker}. */
+    public static final WalkLimits NONE = new WalkLimits(Long.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long maxMillis;
+    private final int maxDepth;
+    private final long maxElements;
+    private final long maxAttributeChars;
+
+    /**
+     * @param maxMillis
+     *        the maximum wall-clock time of a walk in milliseconds
+     * @param maxDepth
+     *        the maximum nesting depth of elements, the root element is at depth 1
+     * @param maxElements
+     *        the maximum number of elements in a document
+     * @param maxAttributeChars
+     *        the maximum number of characters in the names and values of all attributes of a document together
+     */
+    public WalkLimits(final long maxMillis, final int maxDepth, final long maxElements, final long maxAttributeChars) {
+        if (maxMillis < 1 || maxDepth < 1 || maxElements < 1 || maxAttributeChars < 0)
+            throw new IllegalArgumentException("limits should be positive: " + maxMillis + " " + maxDepth + " " + maxElements + " " + maxAttributeChars);
+        this.maxMillis = maxMillis;
+        this.maxDepth = maxDepth;
+        this.maxElements = maxElements;
+        this.maxAttributeChars = maxAttributeChars;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getMaxElements() {
+        return maxElements;
+    }
+
+    public long getMaxAttributeChars() {
+        return maxAttributeChars;
+    }
+
+    @Override
+    public String toString() {
+        return "millis:" + maxMillis + " depth:" + maxDepth + " elements:" + maxElements + " attributes:" + maxAttributeChars;
+    }
+}
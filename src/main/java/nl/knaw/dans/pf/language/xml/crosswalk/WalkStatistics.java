@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.xml.crosswalk;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Counts the elements of a single walk and the time spent per handler. Only created while a {@link CrosswalkPhase} is recorded. */
+class WalkStatistics {
+    private final Map<String, long[]> nanosPerHandler = new HashMap<String, long[]>();
+    private final List<String> activeKeys = new ArrayList<String>();
+    private final List<Long> activeStarts = new ArrayList<Long>();
+    private int elements;
+
+    void countElement() {
+        elements++;
+    }
+
+    /**
+     * A handler takes control at the start of an element.
+     * 
+     * @param handlerKey
+     *        as created by {@link CrosswalkHandlerMap#toHandlerKey(String, String, org.xml.sax.Attributes)}
+     */
+    void handlerStarted(final String handlerKey) {
+        activeKeys.add(handlerKey);
+        activeStarts.add(System.nanoTime());
+    }
+
+    /** The handler that took control last returns control. */
+    void handlerEnded() {
+        final int last = activeKeys.size() - 1;
+        if (last < 0)
+            return;
+        final long elapsed = System.nanoTime() - activeStarts.remove(last);
+        final String key = activeKeys.remove(last);
+        final long[] nanos = nanosPerHandler.get(key);
+        if (nanos == null)
+            nanosPerHandler.put(key, new long[] {elapsed});
+        else
+            nanos[0] += elapsed;
+    }
+
+    int getElements() {
+        return elements;
+    }
+
+    /** @return the handler key of which the handlers took the most time in total, null if no handler took control */
+    String getSlowestHandler() {
+        final Map.Entry<String, long[]> slowest = getSlowest();
+        return slowest == null ? null : slowest.getKey();
+    }
+
+    long getSlowestHandlerNanos() {
+        final Map.Entry<String, long[]> slowest = getSlowest();
+        return slowest == null ? 0 : slowest.getValue()[0];
+    }
+
+    private Map.Entry<String, long[]> getSlowest() {
+        Map.Entry<String, long[]> slowest = null;
+        for (final Map.Entry<String, long[]> entry : nanosPerHandler.entrySet())
+            if (slowest == null || entry.getValue()[0] > slowest.getValue()[0])
+                slowest = entry;
+        return slowest;
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.xml.vocabulary;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable map of codes with a perfect hash: each key has its own slot, so a lookup computes one index and compares one key. Reads need no locks and
+ * an instance can be shared by any number of threads. Meant for the small, fixed vocabularies of the crosswalks.
+ * <p>
+ * The table is built by hash and displace: a 64-bit hash of a key selects a bucket of a few keys, each bucket gets the first displacement that puts its
+ * keys in free slots. About one slot per key suffices and a table is built in time linear to the number of keys.
+ * </p>
+ * 
+ * @param <V>
+ *        the type of the values
+ */
+public final class CodeTable<V> extends AbstractMap<String, V> {
+    private static final int KEYS_PER_BUCKET = 4;
+    private static final int MAX_DISPLACEMENT = 1 << 16;
+    private static final int MAX_GROWTH = 4;
+
+    private final boolean ignoreCase;
+    private final String[] keys;
+    private final Object[] values;
+    private final int[] displacements;
+    private final Set<Entry<String, V>> entries;
+
+    private CodeTable(final Map<String, ? extends V> map, final boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        this.entries = Collections.unmodifiableMap(new LinkedHashMap<String, V>(map)).entrySet();
+        final String[] mapKeys = map.keySet().toArray(new String[map.size()]);
+        final long[] hashes = hashes(mapKeys);
+        final int[][] buckets = buckets(hashes, powerOfTwo(mapKeys.length / KEYS_PER_BUCKET));
+        this.displacements = new int[buckets.length];
+        int capacity = powerOfTwo(mapKeys.length + mapKeys.length / 4);
+        String[] slots = null;
+        for (int growth = 0; slots == null; growth++) {
+            if (growth > MAX_GROWTH)
+                throw new IllegalStateException("no perfect hash for " + mapKeys.length + " keys");
+            slots = place(mapKeys, hashes, buckets, capacity);
+            capacity <<= 1;
+        }
+        this.keys = slots;
+        this.values = new Object[slots.length];
+        for (final Map.Entry<String, ? extends V> entry : map.entrySet())
+            values[index(hash(entry.getKey()))] = entry.getValue();
+    }
+
+    /**
+     * @param map
+     *        the codes and their values, copied
+     * @param ignoreCase
+     *        true to ignore the case of ASCII letters in the keys
+     * @return the table
+     * @throws IllegalArgumentException
+     *         if keys are null, differ only in case while case is ignored, or have the same 64-bit hash
+     */
+    public static <V> CodeTable<V> of(final Map<String, ? extends V> map, final boolean ignoreCase) {
+        return new CodeTable<V>(map, ignoreCase);
+    }
+
+    /** @return the hash of each key, no two the same */
+    private long[] hashes(final String[] mapKeys) {
+        final long[] hashes = new long[mapKeys.length];
+        final Map<Long, String> seen = new HashMap<Long, String>();
+        for (int i = 0; i < mapKeys.length; i++) {
+            if (mapKeys[i] == null)
+                throw new IllegalArgumentException("null key");
+            hashes[i] = hash(mapKeys[i]);
+            final String other = seen.put(hashes[i], mapKeys[i]);
+            if (other != null && same(other, mapKeys[i]))
+                throw new IllegalArgumentException("duplicate key " + mapKeys[i]);
+            if (other != null)
+                throw new IllegalArgumentException("keys " + other + " and " + mapKeys[i] + " have the same hash");
+        }
+        return hashes;
+    }
+
+    /** @return the indexes of the keys per bucket, the largest buckets first */
+    private static int[][] buckets(final long[] hashes, final int count) {
+        final int[] sizes = new int[count];
+        for (final long hash : hashes)
+            sizes[slot(hash, 0, count - 1)]++;
+        final int[][] buckets = new int[count][];
+        for (int b = 0; b < count; b++)
+            buckets[b] = new int[sizes[b]];
+        for (int i = 0; i < hashes.length; i++) {
+            final int b = slot(hashes[i], 0, count - 1);
+            buckets[b][--sizes[b]] = i;
+        }
+        return buckets;
+    }
+
+    /** @return null if some bucket has no displacement for its keys */
+    private String[] place(final String[] mapKeys, final long[] hashes, final int[][] buckets, final int capacity) {
+        final Integer[] order = new Integer[buckets.length];
+        for (int b = 0; b < order.length; b++)
+            order[b] = b;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                return buckets[b].length - buckets[a].length;
+            }
+        });
+        final String[] slots = new String[capacity];
+        final int[] taken = new int[KEYS_PER_BUCKET * 4];
+        for (final int b : order) {
+            final int[] bucket = buckets[b];
+            if (bucket.length == 0)
+                break;
+            displacements[b] = displace(bucket, hashes, slots, bucket.length <= taken.length ? taken : new int[bucket.length]);
+            if (displacements[b] == 0)
+                return null;
+            for (final int i : bucket)
+                slots[slot(hashes[i], displacements[b], capacity - 1)] = mapKeys[i];
+        }
+        return slots;
+    }
+
+    /** @return the first displacement that puts the keys of the bucket in distinct free slots, 0 if none */
+    private static int displace(final int[] bucket, final long[] hashes, final String[] slots, final int[] taken) {
+        for (int displacement = 1; displacement < MAX_DISPLACEMENT; displacement++) {
+            int placed = 0;
+            for (final int i : bucket) {
+                final int index = slot(hashes[i], displacement, slots.length - 1);
+                if (slots[index] != null || contains(taken, placed, index))
+                    break;
+                taken[placed++] = index;
+            }
+            if (placed == bucket.length)
+                return displacement;
+        }
+        return 0;
+    }
+
+    private static boolean contains(final int[] values, final int length, final int value) {
+        for (int i = 0; i < length; i++)
+            if (values[i] == value)
+                return true;
+        return false;
+    }
+
+    /** FNV-1a over the characters, folded to upper case when case is ignored. */
+    private long hash(final String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (ignoreCase && c >= 'a' && c <= 'z')
+                c -= 'a' - 'A';
+            hash = (hash ^ c) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /** @return the bits of the mixed hash and displacement selected by the mask */
+    private static int slot(final long hash, final int displacement, final int mask) {
+        long h = hash ^ displacement * 0x9E3779B97F4A7C15L;
+        h = (h ^ h >>> 33) * 0xff51afd7ed558ccdL;
+        h = (h ^ h >>> 33) * 0xc4ceb9fe1a85ec53L;
+        return (int) (h ^ h >>> 33) & mask;
+    }
+
+    private static int powerOfTwo(final int atLeast) {
+        int power = 1;
+        while (power < atLeast)
+            power <<= 1;
+        return power;
+    }
+
+    private int index(final long hash) {
+        return slot(hash, displacements[slot(hash, 0, displacements.length - 1)], keys.length - 1);
+    }
+
+    private boolean same(final String a, final String b) {
+        return ignoreCase ? a.equalsIgnoreCase(b) : a.equals(b);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(final Object key) {
+        if (!(key instanceof String))
+            return null;
+        final int index = index(hash((String) key));
+        final String found = keys[index];
+        return found != null && same(found, (String) key) ? (V) values[index] : null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        if (!(key instanceof String))
+            return false;
+        final String found = keys[index(hash((String) key))];
+        return found != null && same(found, (String) key);
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return entries;
+    }
+}
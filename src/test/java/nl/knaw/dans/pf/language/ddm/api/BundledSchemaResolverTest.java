@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler.Reporter;
+
+import org.junit.Test;
+
+/** The host of the bundled test schemas does not exist, so these tests prove that nothing is read from the web. */
+public class BundledSchemaResolverTest {
+    private static final String XSD = "http://schemas.invalid/test/a.xsd";
+
+    @Test
+    public void resourceOfLocation() throws Exception {
+        assertThat(BundledSchemaResolver.toResource("https://easy.dans.knaw.nl/schemas/md/2019/10/ddm.xsd"),
+                is("schemas/easy.dans.knaw.nl/schemas/md/2019/10/ddm.xsd"));
+        assertThat(BundledSchemaResolver.toResource("file:/tmp/ddm.xsd"), nullValue());
+        assertThat(new BundledSchemaResolver().isBundled(XSD), is(true));
+        assertThat(new BundledSchemaResolver().isBundled("http://schemas.invalid/test/c.xsd"), is(false));
+    }
+
+    @Test
+    public void validatesOffline() throws Exception {
+        final ValidatorPool pool = ValidatorPool.getInstance(1, XSD);
+
+        assertThat(validate(pool, "<root xmlns='http://schemas.invalid/a'>bundled</root>"), is(true));
+        // the type is imported from b.xsd
+        assertThat(validate(pool, "<root xmlns='http://schemas.invalid/a'>downloaded</root>"), is(false));
+    }
+
+    private static boolean validate(final ValidatorPool pool, final String xml) throws Exception {
+        final XMLErrorHandler handler = new XMLErrorHandler(Reporter.off);
+        pool.validate(handler, new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        return handler.passed();
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+import nl.knaw.dans.pf.language.emd.binding.EmdMarshaller;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandler;
+import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkHandlerMap;
+import nl.knaw.dans.pf.language.xml.crosswalk.ErrorPolicy;
+import nl.knaw.dans.pf.language.xml.crosswalk.TextLimits;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.Attributes;
+
+/** Without validation, so pure crosswalk tests that execute without web access. */
+public class Ddm2EmdCacheTest {
+    private static final File TITLE = new File("src/test/resources/ddm2emdCrosswalk/alternativeTitle.input.xml");
+    private static final File AUTHOR = new File("src/test/resources/ddm2emdCrosswalk/dcxDaiAuthor.input.xml");
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void memoryHit() throws Exception {
+        Ddm2EmdCache cache = new Ddm2EmdCache(new Ddm2EmdCrosswalk(null), 10);
+
+        EasyMetadata first = cache.createFrom(FileUtils.readFileToString(TITLE));
+        EasyMetadata second = cache.createFrom(TITLE);
+
+        assertThat(first, notNullValue());
+        assertThat(second == first, is(false));
+        assertThat(new EmdMarshaller(second).getXmlString(), is(new EmdMarshaller(first).getXmlString()));
+        assertThat(cache.getMisses(), is(1L));
+        assertThat(cache.getHits(), is(1L));
+    }
+
+    @Test
+    public void byteOrderMarkIsNoContent() throws Exception {
+        Ddm2EmdCache cache = new Ddm2EmdCache(new Ddm2EmdCrosswalk(null), 10);
+
+        cache.createFrom(TITLE);
+        cache.createFrom("\uFEFF" + FileUtils.readFileToString(TITLE));
+
+        assertThat(cache.getMisses(), is(1L));
+        assertThat(cache.getHits(), is(1L));
+    }
+
+    @Test
+    public void byteOrderMarkInFileIsNoContent() throws Exception {
+        Ddm2EmdCache cache = new Ddm2EmdCache(new Ddm2EmdCrosswalk(null), 10);
+        File withMark = temp.newFile("withMark.xml");
+        Files.write(withMark.toPath(), ("\uFEFF" + FileUtils.readFileToString(TITLE)).getBytes("UTF-8"));
+
+        cache.createFrom(TITLE);
+        cache.createFrom(withMark);
+
+        assertThat(cache.getMisses(), is(1L));
+        assertThat(cache.getHits(), is(1L));
+    }
+
+    @Test
+    public void configurationIsPartOfTheKey() throws Exception {
+        Ddm2EmdCrosswalk crosswalk = new Ddm2EmdCrosswalk(null);
+        Ddm2EmdCache cache = new Ddm2EmdCache(crosswalk, 10);
+
+        cache.createFrom(TITLE);
+        crosswalk.setTextLimits(new TextLimits(10, Long.MAX_VALUE, TextLimits.Policy.TRUNCATE));
+        cache.createFrom(TITLE);
+        crosswalk.setErrorPolicy(ErrorPolicy.FAIL_FAST);
+        cache.createFrom(TITLE);
+
+        assertThat(cache.getMisses(), is(3L));
+        assertThat(cache.getHits(), is(0L));
+    }
+
+    @Test
+    public void handlersArePartOfTheKey() throws Exception {
+        String all = Ddm2EmdCache.configuration(new Ddm2EmdCrosswalk(null));
+        String title = Ddm2EmdCache.configuration(new Ddm2EmdCrosswalk(null, Ddm2EmdProjection.ofElements("dc:title", "dcterms:alternative")));
+        CrosswalkHandlerMap<EasyMetadata> ownMap = new CrosswalkHandlerMap<EasyMetadata>() {
+            @Override
+            public CrosswalkHandler<EasyMetadata> getHandler(String uri, String localName, Attributes attributes) {
+                return null;
+            }
+
+            @Override
+            public boolean reportMissingHandler(String uri, String localName, Attributes attributes) {
+                return false;
+            }
+
+            @Override
+            public String toHandlerKey(String uri, String localName, Attributes attributes) {
+                return localName;
+            }
+        };
+
+        assertThat(Ddm2EmdCache.configuration(new Ddm2EmdCrosswalk(null, Ddm2EmdHandlerMap.newInstance())), is(all));
+        assertThat(title, is(Ddm2EmdCache.configuration(new Ddm2EmdCrosswalk(null, Ddm2EmdProjection.ofElements("dcterms:alternative", "dc:title")))));
+        assertThat(title.equals(all), is(false));
+        assertThat(Ddm2EmdCache.configuration(new Ddm2EmdCrosswalk(null, ownMap)), is(Ddm2EmdCache.configuration(new Ddm2EmdCrosswalk(null, ownMap))));
+        assertThat(Ddm2EmdCache.configuration(new Ddm2EmdCrosswalk(null, ownMap)).equals(all), is(false));
+    }
+
+    @Test
+    public void validationModeIsPartOfTheKey() throws Exception {
+        String pool = Ddm2EmdCache.validationMode(ValidatorPool.getInstance(1, "a.xsd"));
+
+        assertThat(Ddm2EmdCache.validationMode(null), is("unvalidated"));
+        assertThat(pool, is("validated " + ValidatorPool.getInstance(1, "a.xsd").getSchemaSet()));
+        assertThat(pool.equals(Ddm2EmdCache.validationMode(ValidatorPool.getInstance(1, "b.xsd"))), is(false));
+    }
+
+    @Test
+    public void eviction() throws Exception {
+        Ddm2EmdCache cache = new Ddm2EmdCache(new Ddm2EmdCrosswalk(null), 1);
+
+        cache.createFrom(TITLE);
+        cache.createFrom(AUTHOR);
+        cache.createFrom(TITLE);
+
+        assertThat(cache.getMisses(), is(3L));
+        assertThat(cache.getEvictions(), is(2L));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void diskHit() throws Exception {
+        File dir = temp.newFolder();
+        EasyMetadata first = new Ddm2EmdCache(new Ddm2EmdCrosswalk(null), 10, dir, "test").createFrom(TITLE);
+
+        Ddm2EmdCache cache = new Ddm2EmdCache(new Ddm2EmdCrosswalk(null), 10, dir, "test");
+        EasyMetadata second = cache.createFrom(TITLE);
+
+        assertThat(cache.getDiskHits(), is(1L));
+        assertThat(cache.getMisses(), is(0L));
+        assertThat(new EmdMarshaller(second).getXmlString(), is(new EmdMarshaller(first).getXmlString()));
+    }
+
+    @Test
+    public void otherVersionMisses() throws Exception {
+        File dir = temp.newFolder();
+        new Ddm2EmdCache(new Ddm2EmdCrosswalk(null), 10, dir, "old").createFrom(TITLE);
+
+        Ddm2EmdCache cache = new Ddm2EmdCache(new Ddm2EmdCrosswalk(null), 10, dir, "new");
+        cache.createFrom(TITLE);
+
+        assertThat(cache.getDiskHits(), is(0L));
+        assertThat(cache.getMisses(), is(1L));
+        assertThat(dir.list().length, is(2));
+    }
+}
@@ -20,17 +20,21 @@ import nl.knaw.dans.pf.language.emd.binding.EmdMarshaller;
 import nl.knaw.dans.pf.language.xml.crosswalk.CrosswalkException;
 import nl.knaw.dans.pf.language.xml.exc.XMLSerializationException;
 import org.apache.commons.io.FileUtils;
+import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
@@ -43,6 +47,7 @@ import static org.junit.Assert.assertTrue;
 public class Ddm2EmdCrosswalkTest {
 
     private static File testFilesDirectory = null;
+    private static ExecutorService geometryExecutor = null;
 
     @BeforeClass
     public static void beforeAll() throws URISyntaxException {
@@ -50,6 +55,12 @@ public class Ddm2EmdCrosswalkTest {
 
         checkTestDataConsistency(testFilesDirectory);
         assertEquals("For these test to run UTF-8 MUST be the default charset. Configure this in your OS (en_US.UTF-8 on the Mac)", Charset.forName("UTF-8"), Charset.defaultCharset());
+        geometryExecutor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterClass
+    public static void afterAll() {
+        geometryExecutor.shutdown();
     }
 
     private static void checkTestDataConsistency(File testFiles) {
@@ -155,6 +166,32 @@ public class Ddm2EmdCrosswalkTest {
         assertThat(String.format("ddm2Emd test failed for file %s", this.testName), expectedEmd, is(actualEmd));
     }
 
+    @Test
+    public void ddm2EmdXml() throws Exception {
+        File ddmFile = new File(testFilesDirectory, String.format("%s.input.xml", this.testName));
+        String ddm = FileUtils.readFileToString(ddmFile);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(new Ddm2EmdCrosswalk(null).transcode(ddm, out));
+
+        // the same bytes as createFrom followed by the marshaller, the fixture is compared by ddm2Emd
+        assertThat(String.format("ddm2EmdXml test failed for file %s", this.testName), out.toByteArray(), is(emdElementFrom(ddm).getBytes("UTF-8")));
+    }
+
+    @Test
+    public void ddm2EmdDeferredGeometry() throws Exception {
+        File ddmFile = new File(testFilesDirectory, String.format("%s.input.xml", this.testName));
+        String ddm = FileUtils.readFileToString(ddmFile);
+
+        Ddm2EmdCrosswalk crosswalk = new Ddm2EmdCrosswalk(null);
+        crosswalk.setHandlerExecutor(geometryExecutor);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(crosswalk.transcode(ddm, out));
+
+        assertThat(String.format("ddm2EmdDeferredGeometry test failed for file %s", this.testName), out.toByteArray(),
+                is(emdElementFrom(ddm).getBytes("UTF-8")));
+    }
+
     private String emdElementFrom(String ddm) throws CrosswalkException, XMLSerializationException {
         EasyMetadata emd = new Ddm2EmdCrosswalk(null).createFrom(ddm);
         return new EmdMarshaller(emd).getXmlString();
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.EnumSet;
+
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+
+import org.junit.Test;
+
+/** Without validation, so pure crosswalk tests that execute without web access. */
+public class Ddm2EmdPatcherTest {
+
+    // @formatter:off
+    private static final String DDM = "<?xml version='1.0' encoding='utf-8'?>" +
+            "<ddm:DDM" +
+            "  xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'" +
+            "  xmlns:ddm='http://easy.dans.knaw.nl/schemas/md/ddm/'" +
+            "  xmlns:dc='http://purl.org/dc/elements/1.1/'" +
+            "  xmlns:dcterms='http://purl.org/dc/terms/'" +
+            "  xmlns:gml='http://www.opengis.net/gml'>" +
+            " <ddm:profile>" +
+            "  <dc:title>%s</dc:title>" +
+            "  <ddm:created>2013</ddm:created>" +
+            " </ddm:profile>" +
+            " <ddm:dcmiMetadata>" +
+            "  <dcterms:isVersionOf>%s</dcterms:isVersionOf>" +
+            "  <dcterms:subject>fabeltjeskrant</dcterms:subject>" +
+            "  <gml:boundedBy><gml:Envelope srsName='http://www.opengis.net/def/crs/EPSG/0/28992'>" +
+            "   <gml:lowerCorner>83575 455271</gml:lowerCorner><gml:upperCorner>%s</gml:upperCorner>" +
+            "  </gml:Envelope></gml:boundedBy>" +
+            " </ddm:dcmiMetadata>" +
+            "</ddm:DDM>";
+    // @formatter:on
+
+    @Test
+    public void changedContainers() throws Exception {
+        DdmDiff diff = new DdmDiff();
+
+        assertThat(diff.changedContainers(ddm("a", "x"), ddm("a", "x")).isEmpty(), is(true));
+        assertThat(diff.changedContainers(ddm("a", "x"), ddm("b", "x")), is(EnumSet.of(Ddm2EmdContainer.TITLE)));
+        assertThat(diff.changedContainers(ddm("a", "x"), ddm("b", "y")), is(EnumSet.of(Ddm2EmdContainer.TITLE, Ddm2EmdContainer.RELATION)));
+        assertThat(diff.changedContainers(ddm("a", "x"), ddm("a", "x", "83600 455300")), is(EnumSet.of(Ddm2EmdContainer.COVERAGE)));
+    }
+
+    @Test
+    public void patch() throws Exception {
+        EasyMetadata previous = new Ddm2EmdCrosswalk(null).createFrom(ddm("a", "x"));
+        Ddm2EmdPatcher patcher = new Ddm2EmdPatcher();
+        patcher.setConsistencyCheck(true);
+
+        EasyMetadata patched = patcher.patch(ddm("a", "x"), ddm("b", "x"), previous);
+
+        assertThat(patched == previous, is(true));
+        assertThat(patched.getEmdTitle().getDcTitle().size(), is(1));
+        assertThat(patched.getEmdTitle().getDcTitle().get(0).getValue(), is("b"));
+        assertThat(patched.getEmdSubject().getDcSubject().get(0).getValue(), is("fabeltjeskrant"));
+        assertThat(patcher.getInconsistencies(), is(0L));
+    }
+
+    @Test
+    public void patchTopLevelGml() throws Exception {
+        EasyMetadata previous = new Ddm2EmdCrosswalk(null).createFrom(ddm("a", "x"));
+        Ddm2EmdPatcher patcher = new Ddm2EmdPatcher();
+        patcher.setConsistencyCheck(true);
+
+        EasyMetadata patched = patcher.patch(ddm("a", "x"), ddm("a", "x", "83600 455300"), previous);
+
+        assertThat(patched == previous, is(true));
+        assertThat(patched.getEmdCoverage().getEasSpatial().size(), is(1));
+        assertThat(patched.getEmdCoverage().getEasSpatial().get(0).getBox().getNorth(), is("455300.0"));
+        assertThat(patcher.getInconsistencies(), is(0L));
+    }
+
+    private static String ddm(String title, String isVersionOf) {
+        return ddm(title, isVersionOf, "83590 455290");
+    }
+
+    private static String ddm(String title, String isVersionOf, String upperCorner) {
+        return String.format(DDM, title, isVersionOf, upperCorner);
+    }
+}
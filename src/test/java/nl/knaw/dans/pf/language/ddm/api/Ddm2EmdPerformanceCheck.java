@@ -0,0 +1,305 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import nl.knaw.dans.pf.language.ddm.flat.FlatJsonWriter;
+import nl.knaw.dans.pf.language.ddm.flat.FlatRecord;
+import nl.knaw.dans.pf.language.ddm.generator.DdmGenerator;
+import nl.knaw.dans.pf.language.ddm.generator.DdmGenerator.Family;
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+import nl.knaw.dans.pf.language.emd.binding.EmdMarshaller;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Regression gate for the time and memory a crosswalk takes, run by the perf profile: <code>mvn test -Pperf</code>. The surefire configuration of the
+ * profile names the baseline and the results file. Allocated bytes are nearly the same on every machine, so their tolerance is small. Time depends on the
+ * machine and its load, so its tolerance is larger and each measurement is preceded by ten seconds of warm-up. A measurement without a baseline value
+ * fails, run with <code>-Dperformance.updateBaseline=true</code> to write the current measurements into the baseline instead of checking them.
+ */
+public class Ddm2EmdPerformanceCheck {
+    private static final int WARM_UP_ROUNDS = 5;
+    /** a few rounds of a large document do not get the JIT compiler done */
+    private static final long WARM_UP_NANOS = 10000000000L;
+    private static final int MEASURED_ROUNDS = 15;
+    private static final long LARGE_DOCUMENT_SEED = 42;
+    private static final long RELATIONS_DOCUMENT_SEED = 43;
+    private static final long INDEX_CORPUS_SEED = 44;
+    private static final long IGNORED_DOCUMENT_SEED = 45;
+    private static final int INDEX_CORPUS_SIZE = 10000;
+
+    private final Map<String, Double> measurements = new LinkedHashMap<String, Double>();
+
+    /** One way to convert a document, see {@link Ddm2EmdPerformanceCheck#measure(String, List, Conversion)}. */
+    private interface Conversion {
+        void convert(String ddm) throws Exception;
+    }
+
+    @Test
+    public void crosswalkWithinBaseline() throws Exception {
+        final List<String> corpus = new ArrayList<String>();
+        for (final File file : sortedFiles(new File("src/test/resources/ddm2emdCrosswalk"))) {
+            if (file.getName().endsWith(".input.xml"))
+                corpus.add(FileUtils.readFileToString(file));
+        }
+        measure("corpus", corpus, createFromValidated());
+        final DdmGenerator generator = new DdmGenerator(LARGE_DOCUMENT_SEED).setCount(Family.DESCRIPTIONS, 1000).setCount(Family.SUBJECTS, 1000)
+                .setCount(Family.CREATORS, 1000).setCount(Family.ABR_PERIODS, 1000).setCount(Family.POINTS, 1000).setCount(Family.SURFACE_COORDINATES, 10000);
+        measure("large", Arrays.asList(generator.generate(0)), createFromValidated());
+        // the table-driven relation and date handlers
+        final DdmGenerator relations = new DdmGenerator(RELATIONS_DOCUMENT_SEED).setCount(Family.QUALIFIED_RELATIONS, 2600)
+                .setCount(Family.QUALIFIED_DATES, 1800);
+        measure("relations", Arrays.asList(relations.generate(0)), createFromValidated());
+        // a large section without handlers, fast-forwarded after one warning
+        final DdmGenerator ignored = new DdmGenerator(IGNORED_DOCUMENT_SEED).setCount(Family.IGNORED_PARAGRAPHS, 20000);
+        measure("ignored", Arrays.asList(ignored.generate(0)), createFromValidated());
+        // transcode against the two steps it replaces: createFrom followed by a marshaller
+        final Ddm2EmdCrosswalk transcoder = new Ddm2EmdCrosswalk(null);
+        measure("transcode", corpus, new Conversion() {
+            @Override
+            public void convert(final String ddm) throws Exception {
+                transcoder.getXmlErrorHandler().reset();
+                assertTrue(transcoder.getXmlErrorHandler().getMessages(), transcoder.transcodeValidated(ddm, new ByteArrayOutputStream()));
+            }
+        });
+        final Ddm2EmdCrosswalk twoSteps = new Ddm2EmdCrosswalk(null);
+        measure("createAndMarshal", corpus, new Conversion() {
+            @Override
+            public void convert(final String ddm) throws Exception {
+                twoSteps.getXmlErrorHandler().reset();
+                final EasyMetadata emd = twoSteps.createFromValidated(ddm);
+                assertNotNull(twoSteps.getXmlErrorHandler().getMessages(), emd);
+                new ByteArrayOutputStream().write(new EmdMarshaller(emd).getXmlString().getBytes("UTF-8"));
+            }
+        });
+        // a JSON search document directly against the two steps it replaces: DDM to EMD, then a mapper from EMD to JSON
+        final List<String> indexCorpus = new ArrayList<String>(INDEX_CORPUS_SIZE);
+        final DdmGenerator indexGenerator = new DdmGenerator(INDEX_CORPUS_SEED).setCount(Family.CREATORS, 3).setCount(Family.SUBJECTS, 5)
+                .setCount(Family.RELATIONS, 2).setCount(Family.POINTS, 1);
+        for (int i = 0; i < INDEX_CORPUS_SIZE; i++)
+            indexCorpus.add(indexGenerator.generate(i));
+        final Ddm2FlatCrosswalk flat = new Ddm2FlatCrosswalk(null);
+        measure("flatJson", indexCorpus, new Conversion() {
+            @Override
+            public void convert(final String ddm) throws Exception {
+                flat.getXmlErrorHandler().reset();
+                assertTrue(flat.getXmlErrorHandler().getMessages(), flat.writeJsonValidated(ddm, new ByteArrayOutputStream()));
+            }
+        });
+        final Ddm2EmdCrosswalk emdFirst = new Ddm2EmdCrosswalk(null);
+        final SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        final SAXParser emdParser = factory.newSAXParser();
+        measure("emdThenJson", indexCorpus, new Conversion() {
+            @Override
+            public void convert(final String ddm) throws Exception {
+                emdFirst.getXmlErrorHandler().reset();
+                final ByteArrayOutputStream emd = new ByteArrayOutputStream();
+                assertTrue(emdFirst.getXmlErrorHandler().getMessages(), emdFirst.transcodeValidated(ddm, emd));
+                new FlatJsonWriter().write(emdToRecord(emdParser, emd.toByteArray()), new ByteArrayOutputStream());
+            }
+        });
+
+        final File baselineFile = new File(System.getProperty("performance.baseline", "src/test/resources/performance/baseline.properties"));
+        final Properties baseline = load(baselineFile);
+        writeResults(new File(System.getProperty("performance.results", "target/performance/results.json")), baseline);
+        if (Boolean.getBoolean("performance.updateBaseline")) {
+            updateBaseline(baselineFile);
+            return;
+        }
+
+        final StringBuilder regressions = new StringBuilder();
+        for (final Map.Entry<String, Double> entry : measurements.entrySet()) {
+            // the JVM can not measure allocation
+            if (entry.getValue() < 0)
+                continue;
+            final String expected = baseline.getProperty(entry.getKey());
+            if (expected == null) {
+                regressions.append(String.format(Locale.ROOT, "%n%s: %.0f has no baseline, record it with -Dperformance.updateBaseline=true", entry.getKey(),
+                        entry.getValue()));
+                continue;
+            }
+            final double limit = Double.parseDouble(expected) * (1 + tolerance(baseline, entry.getKey()));
+            if (entry.getValue() > limit)
+                regressions.append(String.format(Locale.ROOT, "%n%s: %.0f exceeds %.0f (baseline %s)", entry.getKey(), entry.getValue(), limit, expected));
+        }
+        assertTrue("performance regression" + regressions, regressions.length() == 0);
+    }
+
+    /** Adds time and allocated bytes per document, the median round counts. */
+    private void measure(final String name, final List<String> documents, final Conversion conversion) throws Exception {
+        final long warmUpStart = System.nanoTime();
+        for (int i = 0; i < WARM_UP_ROUNDS || System.nanoTime() - warmUpStart < WARM_UP_NANOS; i++)
+            convertAll(conversion, documents);
+        final long[] nanos = new long[MEASURED_ROUNDS];
+        final long[] bytes = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            final long allocatedBefore = allocatedBytes();
+            final long start = System.nanoTime();
+            convertAll(conversion, documents);
+            nanos[i] = System.nanoTime() - start;
+            bytes[i] = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+        }
+        measurements.put(name + ".microsPerDocument", median(nanos) / 1000.0 / documents.size());
+        measurements.put(name + ".bytesPerDocument", median(bytes) < 0 ? -1 : (double) median(bytes) / documents.size());
+    }
+
+    private static void convertAll(final Conversion conversion, final List<String> documents) throws Exception {
+        for (final String ddm : documents)
+            conversion.convert(ddm);
+    }
+
+    private static Conversion createFromValidated() {
+        final Ddm2EmdCrosswalk crosswalk = new Ddm2EmdCrosswalk(null);
+        return new Conversion() {
+            @Override
+            public void convert(final String ddm) throws Exception {
+                crosswalk.getXmlErrorHandler().reset();
+                assertNotNull(crosswalk.getXmlErrorHandler().getMessages(), crosswalk.createFromValidated(ddm));
+            }
+        };
+    }
+
+    /**
+     * The second step of the two-step path: a generic mapper that takes the text of each EMD leaf element as a value of a field named by the element. Simpler
+     * than a real mapper, so the comparison favours the two-step path.
+     */
+    private static FlatRecord emdToRecord(final SAXParser parser, final byte[] emd) throws Exception {
+        final FlatRecord.Builder builder = new FlatRecord.Builder();
+        parser.parse(new ByteArrayInputStream(emd), new DefaultHandler() {
+            private final StringBuilder text = new StringBuilder();
+            private boolean leaf;
+
+            @Override
+            public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) {
+                text.setLength(0);
+                leaf = true;
+            }
+
+            @Override
+            public void characters(final char[] ch, final int start, final int length) {
+                text.append(ch, start, length);
+            }
+
+            @Override
+            public void endElement(final String uri, final String localName, final String qName) {
+                if (leaf && text.toString().trim().length() > 0)
+                    builder.add(localName, text.toString().trim());
+                leaf = false;
+            }
+        });
+        return builder.build();
+    }
+
+    /** @return -1 if the JVM can not tell */
+    private static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+
+    private static long median(final long[] values) {
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static double tolerance(final Properties baseline, final String key) {
+        final String kind = key.endsWith(".bytesPerDocument") ? "allocation" : "time";
+        return Double.parseDouble(baseline.getProperty("tolerance." + kind, "0.25"));
+    }
+
+    private void writeResults(final File file, final Properties baseline) throws IOException {
+        final StringBuilder json = new StringBuilder("{\n");
+        String separator = "";
+        for (final Map.Entry<String, Double> entry : measurements.entrySet()) {
+            json.append(separator).append("  \"").append(entry.getKey()).append("\": {\"value\": ")
+                    .append(String.format(Locale.ROOT, "%.1f", entry.getValue()));
+            final String expected = baseline.getProperty(entry.getKey());
+            if (expected != null)
+                json.append(", \"baseline\": ").append(expected).append(", \"tolerance\": ").append(tolerance(baseline, entry.getKey()));
+            json.append("}");
+            separator = ",\n";
+        }
+        json.append("\n}\n");
+        FileUtils.writeStringToFile(file, json.toString(), "UTF-8");
+    }
+
+    /** Replaces or appends the measured values, comments and tolerances of the baseline are kept. */
+    private void updateBaseline(final File file) throws IOException {
+        final StringBuilder content = new StringBuilder();
+        if (file.exists()) {
+            for (final String line : Files.readAllLines(file.toPath(), Charset.forName("UTF-8"))) {
+                final int separator = line.indexOf('=');
+                if (separator < 0 || !measurements.containsKey(line.substring(0, separator).trim()))
+                    content.append(line).append('\n');
+            }
+        }
+        for (final Map.Entry<String, Double> entry : measurements.entrySet()) {
+            if (entry.getValue() >= 0)
+                content.append(entry.getKey()).append('=').append(String.format(Locale.ROOT, "%.1f", entry.getValue())).append('\n');
+        }
+        FileUtils.writeStringToFile(file, content.toString(), "UTF-8");
+    }
+
+    private static Properties load(final File file) throws IOException {
+        final Properties properties = new Properties();
+        if (!file.exists())
+            return properties;
+        final InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        }
+        finally {
+            in.close();
+        }
+        return properties;
+    }
+
+    private static File[] sortedFiles(final File directory) {
+        final File[] files = directory.listFiles();
+        Arrays.sort(files);
+        return files;
+    }
+}
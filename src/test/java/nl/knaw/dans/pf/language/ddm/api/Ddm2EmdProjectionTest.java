@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+
+import org.junit.Test;
+
+/** Without validation, so pure crosswalk tests that execute without web access. */
+public class Ddm2EmdProjectionTest {
+
+    // @formatter:off
+    private static final String DDM = "<?xml version='1.0' encoding='utf-8'?>" +
+            "<ddm:DDM" +
+            "  xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'" +
+            "  xmlns:ddm='http://easy.dans.knaw.nl/schemas/md/ddm/'" +
+            "  xmlns:dc='http://purl.org/dc/elements/1.1/'" +
+            "  xmlns:dcterms='http://purl.org/dc/terms/'" +
+            "  xmlns:dcx-gml='http://easy.dans.knaw.nl/schemas/dcx/gml/'>" +
+            " <ddm:profile>" +
+            "  <dc:title>first</dc:title>" +
+            "  <ddm:available>2013-01-01</ddm:available>" +
+            " </ddm:profile>" +
+            " <ddm:dcmiMetadata>" +
+            "  <dcterms:title>second</dcterms:title>" +
+            "  <dcterms:subject>fabeltjeskrant</dcterms:subject>" +
+            "  <dcx-gml:spatial><Point xmlns='http://www.opengis.net/gml'><pos>52.08110 4.34521</pos></Point></dcx-gml:spatial>" +
+            " </ddm:dcmiMetadata>" +
+            "</ddm:DDM>";
+    // @formatter:on
+
+    @Test
+    public void skipsOtherContainers() throws Exception {
+        Ddm2EmdProjection projection = Ddm2EmdProjection.of(Ddm2EmdContainer.TITLE);
+        EasyMetadata emd = new Ddm2EmdCrosswalk(null, projection).createFrom(DDM);
+
+        assertThat(emd.getEmdTitle().getDcTitle().size(), is(2));
+        assertThat(emd.getEmdSubject().getDcSubject().size(), is(0));
+        assertThat(emd.getEmdCoverage().getEasSpatial().size(), is(0));
+        assertThat(emd.getEmdDate().getEasAvailable().size(), is(0));
+    }
+
+    @Test
+    public void skipsOtherElements() throws Exception {
+        Ddm2EmdProjection projection = Ddm2EmdProjection.ofElements("ddm:available", "dcx-gml:spatial");
+        EasyMetadata emd = new Ddm2EmdCrosswalk(null, projection).createFrom(DDM);
+
+        assertThat(emd.getEmdTitle().getDcTitle().size(), is(0));
+        assertThat(emd.getEmdDate().getEasAvailable().size(), is(1));
+        assertThat(emd.getEmdCoverage().getEasSpatial().size(), is(1));
+    }
+
+    @Test
+    public void stopsAfterProfile() throws Exception {
+        Ddm2EmdProjection projection = Ddm2EmdProjection.ofElements("ddm:available", "ddm:accessRights");
+        Ddm2EmdCrosswalk crosswalk = new Ddm2EmdCrosswalk(null, projection);
+        // the walk ends before the parser reaches the broken part
+        String broken = DDM.replace("</ddm:dcmiMetadata>", "<unclosed></ddm:dcmiMetadata>");
+        EasyMetadata emd = crosswalk.createFrom(broken);
+
+        assertThat(projection.isStopAfterProfile(), is(true));
+        assertThat(emd.getEmdDate().getEasAvailable().size(), is(1));
+
+        // the reader can be reused after a stopped walk
+        assertThat(crosswalk.createFrom(broken).getEmdDate().getEasAvailable().size(), is(1));
+    }
+
+    @Test
+    public void continuesAfterProfile() throws Exception {
+        // titles may appear in ddm:dcmiMetadata as well
+        assertThat(Ddm2EmdProjection.ofElements("ddm:available", "dc:title").isStopAfterProfile(), is(false));
+        assertThat(Ddm2EmdProjection.of(Ddm2EmdContainer.DATE).isStopAfterProfile(), is(false));
+        assertThat(Ddm2EmdProjection.ofElements("ddm:available").with("ddm:additional-xml").isStopAfterProfile(), is(false));
+    }
+
+    @Test
+    public void concurrentCrosswalks() throws Exception {
+        final Ddm2EmdProjection projection = Ddm2EmdProjection.of(Ddm2EmdContainer.TITLE);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Integer>> titles = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 4; i++) {
+                titles.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        final Ddm2EmdCrosswalk crosswalk = new Ddm2EmdCrosswalk(null, projection);
+                        int count = 0;
+                        for (int j = 0; j < 50; j++)
+                            count += crosswalk.createFrom(DDM).getEmdTitle().getDcTitle().size();
+                        return count;
+                    }
+                }));
+            }
+            for (final Future<Integer> count : titles)
+                assertThat(count.get(), is(100));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import nl.knaw.dans.pf.language.ddm.flat.FlatJsonWriter;
+import nl.knaw.dans.pf.language.ddm.flat.FlatRecord;
+
+import org.junit.Test;
+
+/** Without validation, so pure crosswalk tests that execute without web access. */
+public class Ddm2FlatCrosswalkTest {
+
+    // @formatter:off
+    private static final String DDM = "<?xml version='1.0' encoding='utf-8'?>" +
+            "<ddm:DDM" +
+            "  xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'" +
+            "  xmlns:ddm='http://easy.dans.knaw.nl/schemas/md/ddm/'" +
+            "  xmlns:dc='http://purl.org/dc/elements/1.1/'" +
+            "  xmlns:dcterms='http://purl.org/dc/terms/'" +
+            "  xmlns:dcx-dai='http://easy.dans.knaw.nl/schemas/dcx/dai/'" +
+            "  xmlns:dcx-gml='http://easy.dans.knaw.nl/schemas/dcx/gml/'" +
+            "  xmlns:abr='http://www.den.nl/standaard/166/Archeologisch-Basisregister/'>" +
+            " <ddm:profile>" +
+            "  <dc:title>fabeltjeskrant</dc:title>" +
+            "  <dcx-dai:creatorDetails><dcx-dai:author>" +
+            "   <dcx-dai:initials>X.I.</dcx-dai:initials>" +
+            "   <dcx-dai:surname>lastname</dcx-dai:surname>" +
+            "   <dcx-dai:DAI>info:eu-repo/dai/nl/9876543216</dcx-dai:DAI>" +
+            "  </dcx-dai:author></dcx-dai:creatorDetails>" +
+            "  <ddm:created>2013</ddm:created>" +
+            " </ddm:profile>" +
+            " <ddm:dcmiMetadata>" +
+            "  <dcterms:subject xsi:type='abr:ABRcomplex'>EGVW</dcterms:subject>" +
+            "  <dcterms:date>01-03-2013</dcterms:date>" +
+            "  <dcx-gml:spatial><Point xmlns='http://www.opengis.net/gml'><pos>52.08110 4.34521</pos></Point></dcx-gml:spatial>" +
+            " </ddm:dcmiMetadata>" +
+            "</ddm:DDM>";
+    // @formatter:on
+
+    @Test
+    public void flatValues() throws Exception {
+        FlatRecord record = new Ddm2FlatCrosswalk(null).createFrom(DDM);
+
+        assertThat(record.getValues("title"), is(Arrays.asList("fabeltjeskrant")));
+        assertThat(record.getFirst("creator"), is("X.I. lastname"));
+        assertThat(record.getFirst("creator.DAI"), is("info:eu-repo/dai/nl/9876543216"));
+        assertThat(record.getFirst("subject.ABRcomplex"), is("EGVW"));
+    }
+
+    @Test
+    public void flatDates() throws Exception {
+        FlatRecord record = new Ddm2FlatCrosswalk(null).createFrom(DDM);
+
+        assertThat(record.getDates("created").length, is(1));
+        assertThat(record.getDates("created")[0], is(15706));
+        // free text dates are kept as value only
+        assertThat(record.getFirst("date"), is("01-03-2013"));
+        assertThat(record.getDates("date").length, is(0));
+    }
+
+    @Test
+    public void flatDatesWithOffset() throws Exception {
+        String midnight = DDM.replace("<ddm:created>2013</ddm:created>", "<ddm:created>2013-05-01T00:00:00+02:00</ddm:created>");
+        String evening = DDM.replace("<ddm:created>2013</ddm:created>", "<ddm:created>2013-04-30T23:00:00-05:00</ddm:created>");
+
+        // the day as written, not the day in UTC (2013-04-30 and 2013-05-01)
+        assertThat(new Ddm2FlatCrosswalk(null).createFrom(midnight).getDates("created")[0], is(15826));
+        assertThat(new Ddm2FlatCrosswalk(null).createFrom(evening).getDates("created")[0], is(15825));
+    }
+
+    @Test
+    public void flatCoordinates() throws Exception {
+        FlatRecord record = new Ddm2FlatCrosswalk(null).createFrom(DDM);
+
+        assertThat(record.getCoordinates("spatial.point").size(), is(1));
+        assertThat(record.getCoordinates("spatial.point").get(0)[0], is(52.08110));
+        assertThat(record.getCoordinates("spatial.point").get(0)[1], is(4.34521));
+    }
+
+    @Test
+    public void json() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(new Ddm2FlatCrosswalk(null).writeJson(DDM, out));
+        String json = out.toString("UTF-8");
+
+        assertThat(json, containsString("\"title\":[\"fabeltjeskrant\"]"));
+        assertThat(json, containsString("\"creator.DAI\":[\"info:eu-repo/dai/nl/9876543216\"]"));
+        assertThat(json, containsString("\"created.date\":[\"2013-01-01\"]"));
+        assertThat(json, containsString("\"spatial.point\":[[52.0811,4.34521]]"));
+    }
+
+    @Test
+    public void jsonOfValuesAndCoordinates() throws Exception {
+        FlatRecord record = new FlatRecord.Builder().add("spatial", "Den Haag").addCoordinates("spatial.point", new double[] {52.0811, 4.34521}).build();
+        StringWriter json = new StringWriter();
+        new FlatJsonWriter().write(record, json);
+
+        assertThat(json.toString(), is("{\"spatial\":[\"Den Haag\"],\"spatial.point\":[[52.0811,4.34521]]}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fieldWithValuesAndCoordinates() throws Exception {
+        new FlatRecord.Builder().add("spatial", "Den Haag").addCoordinates("spatial", new double[] {52.0811, 4.34521});
+    }
+
+    @Test
+    public void concurrentCrosswalks() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Integer>> intact = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 4; i++) {
+                intact.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        final Ddm2FlatCrosswalk crosswalk = new Ddm2FlatCrosswalk(null);
+                        int count = 0;
+                        for (int j = 0; j < 50; j++) {
+                            final FlatRecord record = crosswalk.createFrom(DDM);
+                            // the author and spatial handlers collect their value over several elements
+                            if ("X.I. lastname".equals(record.getFirst("creator")) && record.getCoordinates("spatial.point").size() == 1)
+                                count++;
+                        }
+                        return count;
+                    }
+                }));
+            }
+            for (final Future<Integer> count : intact)
+                assertThat(count.get(), is(50));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
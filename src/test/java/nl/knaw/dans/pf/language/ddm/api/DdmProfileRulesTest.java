@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import nl.knaw.dans.pf.language.ddm.generator.DdmGenerator;
+import nl.knaw.dans.pf.language.ddm.generator.DdmGenerator.Family;
+import nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace;
+import nl.knaw.dans.pf.language.xml.exc.XMLException;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler.Reporter;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+public class DdmProfileRulesTest {
+    private static final DdmProfileRules RULES = new DdmProfileRules(Arrays.asList("D41500"));
+
+    // a valid profile is changed in one place by each mutation
+    // @formatter:off
+    private static final String[][] MUTATIONS = {
+            {"<dc:title>[^<]*</dc:title>", "", "lacks dc:title"},
+            {"(<ddm:created>)[^<]*", "$1yesterday", "ddm:created is not a W3CDTF date"},
+            {"(<ddm:available>)[^<]*", "$1" + "2013-13-01", "ddm:available is not a W3CDTF date"},
+            {"(<ddm:audience>)[^<]*", "$1D99999", "ddm:audience is not a narcis discipline"},
+            {"(<ddm:accessRights>)[^<]*", "$1ANYONE", "ddm:accessRights is not one of"},
+            {"<ddm:accessRights>[^<]*</ddm:accessRights>", "", "lacks ddm:accessRights"},
+    };
+    // @formatter:on
+
+    @Test
+    public void generatedDocumentsPass() throws Exception {
+        final DdmGenerator generator = new DdmGenerator(5).setCount(Family.CREATORS, 3).setCount(Family.DATES, 5);
+        for (int i = 0; i < 20; i++)
+            assertThat(check(generator.generate(i)).getMessages(), check(generator.generate(i)).passed(), is(true));
+    }
+
+    @Test
+    public void mutationsAreRejected() throws Exception {
+        final String xml = new DdmGenerator(6).generate(0);
+        for (final String[] mutation : MUTATIONS) {
+            final XMLErrorHandler handler = check(xml.replaceFirst(mutation[0], mutation[1]));
+            assertThat(handler.getErrors().size(), is(1));
+            assertThat(handler.getErrors().get(0).getMessage(), containsString(mutation[2]));
+        }
+    }
+
+    @Test
+    public void w3cdtfTypeIsResolved() throws Exception {
+        final String xml = new DdmGenerator(8).generate(0);
+        final String dcterms = "<dcterms:date xmlns:dct='" + NameSpace.DC_TERMS.uri + "' xsi:type='dct:W3CDTF'>yesterday</dcterms:date>";
+        final String other = "<dcterms:date xmlns:x='urn:other' xsi:type='x:W3CDTF'>yesterday</dcterms:date>";
+
+        assertThat(check(xml.replace("</ddm:dcmiMetadata>", dcterms + "</ddm:dcmiMetadata>")).getErrors().size(), is(1));
+        assertThat(check(xml.replace("</ddm:dcmiMetadata>", other + "</ddm:dcmiMetadata>")).passed(), is(true));
+    }
+
+    @Test
+    public void w3cdtf() {
+        for (final String date : new String[] {"2013", "2013-02", "2013-02-28", "2013-02-28Z", "2013-02-28T10:15:00", "2013-02-28T10:15:00.25+01:00",
+                "-0044-03-15", "12013"})
+            assertThat(date, DdmProfileRules.isW3cdtf(date), is(true));
+        for (final String date : new String[] {"", "13", "2013-2", "2013-00", "28-02-2013", "2013-02-28T10:15", "2013-02-28+1:00", "2013 AD"})
+            assertThat(date, DdmProfileRules.isW3cdtf(date), is(false));
+    }
+
+    @Test
+    public void agreesWithXsd() throws Exception {
+        assumeTrue("can access " + NameSpace.DDM.xsd, canConnect(NameSpace.DDM.xsd));
+        final DdmProfileRules rules = new DdmProfileRules();
+        final DdmGenerator generator = new DdmGenerator(9).setCount(Family.CREATORS, 3).setCount(Family.DATES, 5).setInvalidRate(0.05);
+        for (int i = 0; i < 20; i++) {
+            final String xml = generator.generate(i);
+            assertAgreement(rules, xml);
+            for (final String[] mutation : MUTATIONS)
+                assertThat(assertAgreement(rules, xml.replaceFirst(mutation[0], mutation[1])), is(false));
+        }
+    }
+
+    @Test
+    public void rejectedBeforeTheXsdIsRead() throws Exception {
+        assumeTrue("can access " + NameSpace.DDM.xsd, canConnect(NameSpace.DDM.xsd));
+        final String xml = new DdmGenerator(7).generate(0);
+        final AtomicInteger validations = new AtomicInteger();
+        final Ddm2FlatCrosswalk crosswalk = new Ddm2FlatCrosswalk(new DDMValidator() {
+            @Override
+            public XMLErrorHandler validate(final XMLErrorHandler handler, final InputStream xml) throws XMLException {
+                validations.incrementAndGet();
+                return super.validate(handler, xml);
+            }
+        });
+        crosswalk.setRules(new DdmProfileRules());
+
+        assertTrue(crosswalk.getXmlErrorHandler().getMessages(), crosswalk.createFrom(xml) != null);
+        assertThat(validations.get(), is(1));
+        // the XSD would report the same violation
+        assertNull(crosswalk.createFrom(xml.replaceFirst(MUTATIONS[1][0], MUTATIONS[1][1])));
+        assertThat(validations.get(), is(1));
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().size(), is(1));
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().get(0).getMessage(), containsString(MUTATIONS[1][2]));
+    }
+
+    /** @return false if the rules reject the document, the XSD must reject it too */
+    private static boolean assertAgreement(final DdmProfileRules rules, final String xml) throws Exception {
+        final XMLErrorHandler ruleErrors = check(rules, xml);
+        final XMLErrorHandler xsdErrors = new DDMValidator().validate(new XMLErrorHandler(Reporter.off), new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        if (!ruleErrors.passed())
+            assertThat(ruleErrors.getMessages() + xml, xsdErrors.passed(), is(false));
+        return ruleErrors.passed();
+    }
+
+    private static XMLErrorHandler check(final String xml) throws Exception {
+        return check(RULES, xml);
+    }
+
+    private static XMLErrorHandler check(final DdmProfileRules rules, final String xml) throws Exception {
+        final SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        final XMLReader reader = factory.newSAXParser().getXMLReader();
+        final XMLErrorHandler handler = new XMLErrorHandler(Reporter.off);
+        reader.setContentHandler(rules.newChecker(handler));
+        reader.parse(new InputSource(new StringReader(xml)));
+        return handler;
+    }
+
+    private static boolean canConnect(String url) {
+        try {
+            HttpURLConnection urlConnection = (HttpURLConnection) new URL(url).openConnection();
+            urlConnection.connect();
+            urlConnection.disconnect();
+            return true;
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collection;
+
+import nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace;
+import nl.knaw.dans.pf.language.emd.EasyMetadata;
+import nl.knaw.dans.pf.language.emd.binding.EmdMarshaller;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler.Reporter;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/** Crosswalks without validation that execute without web access, except {@link #validAgainstXsd()}. */
+@RunWith(Parameterized.class)
+public class Emd2DdmCrosswalkTest {
+
+    private static File testFilesDirectory = null;
+
+    @BeforeClass
+    public static void beforeAll() throws URISyntaxException {
+        testFilesDirectory = new File(Emd2DdmCrosswalkTest.class.getResource("/ddm2emdCrosswalk").toURI());
+    }
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        return Ddm2EmdCrosswalkTest.data();
+    }
+
+    private String testName;
+
+    public Emd2DdmCrosswalkTest(String testName) {
+        this.testName = testName;
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        String ddm = FileUtils.readFileToString(new File(testFilesDirectory, String.format("%s.input.xml", this.testName)));
+        EasyMetadata emd = new Ddm2EmdCrosswalk(null).createFrom(ddm);
+
+        String reversedDdm = new Emd2DdmCrosswalk().toXml(emd);
+        EasyMetadata roundTripped = new Ddm2EmdCrosswalk(null).createFrom(reversedDdm);
+
+        String expectedEmd = normalize(new EmdMarshaller(emd).getXmlString());
+        String actualEmd = normalize(new EmdMarshaller(roundTripped).getXmlString());
+        assertThat(String.format("round trip failed for file %s, DDM: %s", this.testName, reversedDdm), actualEmd, is(expectedEmd));
+    }
+
+    @Test
+    public void transcode() throws Exception {
+        String ddm = FileUtils.readFileToString(new File(testFilesDirectory, String.format("%s.input.xml", this.testName)));
+        EasyMetadata emd = new Ddm2EmdCrosswalk(null).createFrom(ddm);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int records = new Emd2DdmCrosswalk().transcode(new ByteArrayInputStream(new EmdMarshaller(emd).getXmlString().getBytes("UTF-8")), out);
+
+        assertThat(records, is(1));
+        assertThat(String.format("transcode failed for file %s", this.testName), out.toString("UTF-8"), is(new Emd2DdmCrosswalk().toXml(emd)));
+    }
+
+    @Test
+    public void transcodeWrapped() throws Exception {
+        String ddm = FileUtils.readFileToString(new File(testFilesDirectory, String.format("%s.input.xml", this.testName)));
+        EasyMetadata emd = new Ddm2EmdCrosswalk(null).createFrom(ddm);
+        String record = withoutDeclaration(new EmdMarshaller(emd).getXmlString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String emdXml = "<?xml version='1.0' encoding='UTF-8'?><records>" + record + record + "</records>";
+        int records = new Emd2DdmCrosswalk().transcode(new ByteArrayInputStream(emdXml.getBytes("UTF-8")), out);
+
+        String reversedDdm = withoutDeclaration(new Emd2DdmCrosswalk().toXml(emd));
+        assertThat(records, is(2));
+        assertThat(String.format("transcode failed for file %s", this.testName), withoutDeclaration(out.toString("UTF-8")),
+                is("<records>" + reversedDdm + reversedDdm + "</records>"));
+    }
+
+    private static String withoutDeclaration(final String xml) {
+        return xml.replaceFirst("^<\\?xml[^>]*\\?>\\s*", "");
+    }
+
+    @Test
+    public void validAgainstXsd() throws Exception {
+        assumeTrue("can access " + NameSpace.DDM.xsd, canConnect(NameSpace.DDM.xsd));
+        String ddm = FileUtils.readFileToString(new File(testFilesDirectory, String.format("%s.input.xml", this.testName)));
+        EasyMetadata emd = new Ddm2EmdCrosswalk(null).createFrom(ddm);
+
+        String reversedDdm = new Emd2DdmCrosswalk().toXml(emd);
+        XMLErrorHandler handler = new DDMValidator().validate(new XMLErrorHandler(Reporter.off), new ByteArrayInputStream(reversedDdm.getBytes("UTF-8")));
+        assertTrue(String.format("invalid DDM for file %s: %s%n%s", this.testName, handler.getMessages(), reversedDdm), handler.passed());
+    }
+
+    private static boolean canConnect(String url) {
+        try {
+            HttpURLConnection urlConnection = (HttpURLConnection) new URL(url).openConnection();
+            urlConnection.connect();
+            urlConnection.disconnect();
+            return true;
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    private String normalize(String s) {
+        return s.replaceAll("\n", "").replaceAll("\\s+", " ").replaceAll("<emd:easymetadata[^>]+>", "");
+    }
+}
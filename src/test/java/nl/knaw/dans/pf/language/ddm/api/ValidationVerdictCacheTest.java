@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import nl.knaw.dans.pf.language.xml.crosswalk.ErrorPolicy;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler.Reporter;
+
+import org.junit.Test;
+
+/** With a local schema, so executes without web access. */
+public class ValidationVerdictCacheTest {
+    private static final String XSD = "file://" + new File("src/test/resources/input/abstract.xsd").getAbsolutePath();
+    // there is one pool per schema, ValidatorPoolTest uses it with the same size
+    private static final int POOL_SIZE = 2;
+
+    @Test
+    public void repeatedVerdicts() throws Exception {
+        final ValidationVerdictCache cache = new ValidationVerdictCache(ValidatorPool.getInstance(POOL_SIZE, XSD), 1);
+
+        assertThat(validate(cache, "<root/>").passed(), is(true));
+        assertThat(validate(cache, "<root/>").passed(), is(true));
+        final XMLErrorHandler first = validate(cache, "<noroot/>");
+        final XMLErrorHandler second = validate(cache, "<noroot/>");
+
+        assertThat(second.getErrors().size(), is(first.getErrors().size()));
+        assertThat(second.getErrors().get(0).getLineNumber(), is(1));
+        assertThat(cache.getHits(), is(2L));
+        assertThat(cache.getMisses(), is(2L));
+        assertThat(cache.getEvictions(), is(1L));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    public void invalidCrosswalk() throws Exception {
+        final Ddm2EmdCrosswalk crosswalk = new Ddm2EmdCrosswalk(new ValidationVerdictCache(ValidatorPool.getInstance(POOL_SIZE, XSD), 10));
+
+        assertThat(crosswalk.createFrom("<noroot/>") == null, is(true));
+        final int errors = crosswalk.getXmlErrorHandler().getErrors().size();
+        crosswalk.getXmlErrorHandler().reset();
+        assertThat(crosswalk.createFrom("<noroot/>") == null, is(true));
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().size(), is(errors));
+    }
+
+    @Test
+    public void stoppedValidationIsNotKept() throws Exception {
+        final ValidationVerdictCache cache = new ValidationVerdictCache(ValidatorPool.getInstance(POOL_SIZE, XSD), 10);
+        final Ddm2EmdCrosswalk crosswalk = new Ddm2EmdCrosswalk(cache);
+        crosswalk.setErrorPolicy(ErrorPolicy.FAIL_FAST);
+
+        assertThat(crosswalk.createFrom("<noroot/>") == null, is(true));
+        assertThat(crosswalk.isStoppedByErrorPolicy(), is(true));
+        assertThat(cache.size(), is(0));
+
+        assertThat(validate(cache, "<noroot/>").passed(), is(false));
+        assertThat(cache.getMisses(), is(2L));
+        assertThat(cache.size(), is(1));
+    }
+
+    private static XMLErrorHandler validate(final ValidationVerdictCache cache, final String xml) throws Exception {
+        return cache.validate(new XMLErrorHandler(Reporter.off), new ByteArrayInputStream(xml.getBytes()));
+    }
+}
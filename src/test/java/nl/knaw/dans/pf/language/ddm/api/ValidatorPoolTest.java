@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.api;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler.Reporter;
+
+import org.junit.Test;
+
+/** With a local schema, so executes without web access. */
+public class ValidatorPoolTest {
+    private static final String XSD = "file://" + new File("src/test/resources/input/abstract.xsd").getAbsolutePath();
+
+    @Test
+    public void samePoolForSameSchemas() throws Exception {
+        assertTrue(ValidatorPool.getInstance(2, XSD) == ValidatorPool.getInstance(2, XSD));
+        assertThat(ValidatorPool.getInstance(2, XSD).getMaxSize(), is(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherMaxSizeForSameSchemas() throws Exception {
+        ValidatorPool.getInstance(2, XSD);
+        ValidatorPool.getInstance(3, XSD);
+    }
+
+    @Test
+    public void concurrentValidations() throws Exception {
+        final ValidatorPool pool = ValidatorPool.getInstance(2, XSD);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 40; i++) {
+                final String xml = i % 2 == 0 ? "<root/>" : "<noroot/>";
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        final XMLErrorHandler handler = new XMLErrorHandler(Reporter.off);
+                        pool.validate(handler, new ByteArrayInputStream(xml.getBytes()));
+                        return handler.passed();
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++)
+                assertThat(results.get(i).get(), is(i % 2 == 0));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertTrue(pool.getCreatedCount() <= 2);
+        assertThat(pool.getIdleCount(), is((int) pool.getCreatedCount()));
+        assertTrue(pool.getBorrowCount() >= 40);
+    }
+}
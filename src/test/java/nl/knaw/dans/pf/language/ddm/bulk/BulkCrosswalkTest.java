@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.bulk;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Without validation, so pure crosswalk tests that execute without web access. */
+public class BulkCrosswalkTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void fileList() throws Exception {
+        final File inputDirectory = new File("src/test/resources/ddm2emdCrosswalk");
+        final StringBuilder list = new StringBuilder("# the ddm2emdCrosswalk fixtures\n");
+        int expected = 0;
+        for (final File file : inputDirectory.listFiles()) {
+            if (file.getName().endsWith(".input.xml")) {
+                list.append(file.getPath()).append("\n\n");
+                expected++;
+            }
+        }
+        final File fileList = temp.newFile("files.txt");
+        FileUtils.writeStringToFile(fileList, list.toString(), "UTF-8");
+        final File outputDirectory = temp.newFolder("out");
+
+        final BulkCrosswalk bulkCrosswalk = new BulkCrosswalk(3, null, outputDirectory);
+        bulkCrosswalk.addFileList(fileList);
+        final BulkSummary summary = bulkCrosswalk.run();
+
+        assertThat(summary.getDocuments(), is(expected));
+        assertThat(summary.getFailed(), is(0));
+        assertThat(summary.getErrorsPerKey().isEmpty(), is(true));
+        final String mirrored = new File(inputDirectory, "spatialPoint.input.xml").getAbsoluteFile().toURI().getPath().substring(1);
+        assertTrue(new File(outputDirectory, mirrored).length() > 0);
+    }
+
+    @Test
+    public void sameNameInDifferentDirectories() throws Exception {
+        final File inputDirectory = temp.newFolder("in");
+        final File first = new File(inputDirectory, "deposit-1/dataset.xml");
+        final File second = new File(inputDirectory, "deposit-2/dataset.xml");
+        FileUtils.copyFile(new File("src/test/resources/ddm2emdCrosswalk/dcxDaiAuthor.input.xml"), first);
+        FileUtils.copyFile(new File("src/test/resources/ddm2emdCrosswalk/spatialPoint.input.xml"), second);
+        final File outputDirectory = temp.newFolder("out");
+
+        final BulkCrosswalk bulkCrosswalk = new BulkCrosswalk(2, null, outputDirectory);
+        bulkCrosswalk.addFile(first);
+        bulkCrosswalk.addFile(second);
+        final BulkSummary summary = bulkCrosswalk.run();
+
+        assertThat(summary.getDocuments(), is(2));
+        assertThat(summary.getFailed(), is(0));
+        assertTrue(new File(outputDirectory, first.getAbsoluteFile().toURI().getPath().substring(1)).exists());
+        assertTrue(new File(outputDirectory, second.getAbsoluteFile().toURI().getPath().substring(1)).exists());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void duplicateOutputFailsBeforeTheRun() throws Exception {
+        final File input = new File("src/test/resources/ddm2emdCrosswalk/spatialPoint.input.xml");
+        final File outputDirectory = temp.newFolder("out");
+
+        final BulkCrosswalk bulkCrosswalk = new BulkCrosswalk(1, null, outputDirectory);
+        bulkCrosswalk.addFile(input);
+        bulkCrosswalk.addFile(new File("src/test/resources/ddm2emdCrosswalk/../ddm2emdCrosswalk/spatialPoint.input.xml"));
+        try {
+            bulkCrosswalk.run();
+        }
+        finally {
+            assertThat(outputDirectory.list().length, is(0));
+        }
+    }
+
+    @Test
+    public void directoryWithInvalidDocument() throws Exception {
+        final File inputDirectory = temp.newFolder("in");
+        FileUtils.copyFile(new File("src/test/resources/ddm2emdCrosswalk/dcxDaiAuthor.input.xml"), new File(inputDirectory, "a/valid.xml"));
+        FileUtils.writeStringToFile(new File(inputDirectory, "b/malformed.xml"), "<ddm:DDM>", "UTF-8");
+        final File outputDirectory = temp.newFolder("out");
+
+        final BulkCrosswalk bulkCrosswalk = new BulkCrosswalk(2, null, outputDirectory);
+        bulkCrosswalk.addDirectory(inputDirectory);
+        final BulkSummary summary = bulkCrosswalk.run();
+
+        assertThat(summary.getDocuments(), is(2));
+        assertThat(summary.getFailed(), is(1));
+        assertTrue(summary.getErrorsPerKey().containsKey(KeyTrackingHandlerMap.DOCUMENT_KEY));
+        assertTrue(new File(outputDirectory, "a/valid.xml").exists());
+        assertThat(new File(outputDirectory, "b/malformed.xml").exists(), is(false));
+        assertTrue(summary.getLatencyMillis(99) >= summary.getLatencyMillis(50));
+    }
+
+    @Test
+    public void resume() throws Exception {
+        final File inputDirectory = new File("src/test/resources/ddm2emdCrosswalk");
+        final File outputDirectory = temp.newFolder("out");
+        final File journalFile = new File(temp.getRoot(), "journal.txt");
+
+        final BulkCrosswalk first = new BulkCrosswalk(2, null, outputDirectory);
+        first.addDirectory(inputDirectory);
+        first.setShard(0, 2);
+        BulkJournal journal = new BulkJournal(journalFile, 10);
+        first.setJournal(journal);
+        final BulkSummary firstSummary = first.run();
+        journal.close();
+
+        // as if the first run crashed after shard 0
+        final BulkCrosswalk second = new BulkCrosswalk(2, null, outputDirectory);
+        second.addDirectory(inputDirectory);
+        journal = new BulkJournal(journalFile, 10);
+        second.setJournal(journal);
+        final BulkSummary secondSummary = second.run();
+        journal.close();
+
+        final int total = inputDirectory.list().length;
+        assertThat(firstSummary.getSkipped(), is(0));
+        assertThat(secondSummary.getSkipped(), is(firstSummary.getDocuments() - firstSummary.getFailed()));
+        assertThat(secondSummary.getDocuments() + secondSummary.getSkipped(), is(total));
+        assertThat(journal.getCompletedCount(), is(total - secondSummary.getFailed()));
+    }
+
+    @Test
+    public void shards() throws Exception {
+        final File inputDirectory = new File("src/test/resources/ddm2emdCrosswalk");
+        int documents = 0;
+        for (int shard = 0; shard < 3; shard++) {
+            final BulkCrosswalk bulkCrosswalk = new BulkCrosswalk(1, null, temp.newFolder("out" + shard));
+            bulkCrosswalk.addDirectory(inputDirectory);
+            bulkCrosswalk.setShard(shard, 3);
+            documents += bulkCrosswalk.run().getDocuments();
+        }
+        assertThat(documents, is(inputDirectory.list().length));
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.bulk;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BulkJournalTest {
+    private static final String HASH_A = "0123456789012345678901234567890123456789";
+    private static final String HASH_B = "9876543210987654321098765432109876543210";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void reopen() throws Exception {
+        final File file = new File(temp.getRoot(), "journal.txt");
+        final BulkJournal journal = new BulkJournal(file, 2);
+        journal.record("a.xml", HASH_A, true);
+        journal.record("b.xml", HASH_B, false);
+        journal.record("c.xml", HASH_A, true);
+        journal.close();
+
+        final BulkJournal reopened = new BulkJournal(file);
+        assertThat(reopened.isCompleted("a.xml", HASH_A), is(true));
+        // changed content
+        assertThat(reopened.isCompleted("a.xml", HASH_B), is(false));
+        // failed inputs are retried
+        assertThat(reopened.isCompleted("b.xml", HASH_B), is(false));
+        assertThat(reopened.getCompletedCount(), is(2));
+        reopened.close();
+    }
+
+    @Test
+    public void tornLine() throws Exception {
+        final File file = new File(temp.getRoot(), "journal.txt");
+        FileUtils.writeStringToFile(file, "ok\t" + HASH_A + "\ta.xml\nok\t" + HASH_B + "\tb.x", "UTF-8");
+
+        final BulkJournal journal = new BulkJournal(file);
+        assertThat(journal.isCompleted("a.xml", HASH_A), is(true));
+        assertThat(journal.getCompletedCount(), is(1));
+        journal.record("b.xml", HASH_B, true);
+        journal.close();
+
+        final BulkJournal reopened = new BulkJournal(file);
+        assertThat(reopened.isCompleted("b.xml", HASH_B), is(true));
+        assertThat(reopened.getCompletedCount(), is(2));
+        reopened.close();
+    }
+
+    @Test
+    public void pathsWithSeparators() throws Exception {
+        final File file = new File(temp.getRoot(), "journal.txt");
+        final BulkJournal journal = new BulkJournal(file);
+        journal.record("a\tb.xml", HASH_A, true);
+        journal.record("c\nok\t" + HASH_B + "\td.xml", HASH_A, true);
+        journal.record("e\\t.xml", HASH_B, true);
+        journal.close();
+
+        assertThat(FileUtils.readLines(file, "UTF-8").size(), is(3));
+        final BulkJournal reopened = new BulkJournal(file);
+        assertThat(reopened.isCompleted("a\tb.xml", HASH_A), is(true));
+        assertThat(reopened.isCompleted("c\nok\t" + HASH_B + "\td.xml", HASH_A), is(true));
+        assertThat(reopened.isCompleted("d.xml", HASH_B), is(false));
+        assertThat(reopened.isCompleted("e\\t.xml", HASH_B), is(true));
+        assertThat(reopened.getCompletedCount(), is(3));
+        reopened.close();
+    }
+}
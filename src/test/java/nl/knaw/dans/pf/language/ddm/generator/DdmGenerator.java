@@ -0,0 +1,524 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.generator;
+
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.ABR;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DC;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DCX_DAI;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DCX_GML;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DC_TERMS;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.DDM;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.GML;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.IDENTIFIER_TYPE;
+import static nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace.XSI;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace;
+
+/**
+ * Generates DDM documents of any size and shape for scale and stress tests. The same seed, settings and document number always produce the same document, so
+ * a corpus can be reproduced or extended in parallel. With an invalid rate of zero the documents are valid against the DDM schema. Documents are streamed,
+ * a MultiSurface with millions of coordinates does not need the memory to hold it.
+ * <p>
+ * From the command line, with the test classes on the class path:
+ *
+ * <pre>
+ * java nl.knaw.dans.pf.language.ddm.generator.DdmGenerator -seed 1 -documents 100000 -creators 5000 -surface-coordinates 500000 -out corpus
+ * </pre>
+ */
+public class DdmGenerator {
+    /** Element families, the count of each is a knob of the generator. */
+    public enum Family {
+        /** dcx-dai:creatorDetails with an ORCID */
+        CREATORS(1),
+        /** dcterms:description, the first one in the profile */
+        DESCRIPTIONS(1),
+        /** plain dc:subject */
+        SUBJECTS(0),
+        /** dc:subject with xsi:type abr:ABRcomplex */
+        ABR_SUBJECTS(0),
+        /** dcterms:temporal with xsi:type abr:ABRperiode */
+        ABR_PERIODS(0),
+        /** ddm:references and ddm:relation with an href */
+        RELATIONS(0),
+        /** dc:identifier with an id-type */
+        IDENTIFIERS(0),
+        /** dcterms:modified with xsi:type dcterms:W3CDTF */
+        DATES(0),
+        /** gml:Point in dcx-gml:spatial */
+        POINTS(0),
+        /** gml:Envelope in dcx-gml:spatial */
+        ENVELOPES(0),
+        /** coordinates of a single gml:MultiSurface, split over polygons */
+        SURFACE_COORDINATES(0),
+        /** the qualified relations in turn, as dcterms element and as ddm element with an href */
+        QUALIFIED_RELATIONS(0),
+        /** dc:date and the dcterms dates in turn, with and without xsi:type dcterms:W3CDTF */
+        QUALIFIED_DATES(0),
+        /** XHTML paragraphs in ddm:additional-xml, content without handlers */
+        IGNORED_PARAGRAPHS(0);
+
+        private final int defaultCount;
+
+        private Family(final int defaultCount) {
+            this.defaultCount = defaultCount;
+        }
+
+        /** @return the name of the command line option, for example: abr-subjects */
+        public String getOption() {
+            return name().toLowerCase(Locale.ENGLISH).replace('_', '-');
+        }
+    }
+
+    private static final String EPSG_RD = "http://www.opengis.net/def/crs/EPSG/0/28992";
+    private static final String EPSG_WGS84 = "http://www.opengis.net/def/crs/EPSG/0/4326";
+    private static final String XHTML = "http://www.w3.org/1999/xhtml";
+    private static final int COORDINATES_PER_POLYGON = 1000;
+    private static final int DOCUMENTS_PER_DIRECTORY = 1000;
+
+    // values found in the fixtures, the vocabularies have many more
+    private static final String[] ABR_COMPLEX = {"DEPO", "EGVW"};
+    private static final String[] ABR_PERIODS = {"PALEOV", "PALEOLB"};
+    private static final String[] AUDIENCES = {"D41500"};
+    private static final String[] ACCESS_RIGHTS = {"OPEN_ACCESS", "OPEN_ACCESS_FOR_REGISTERED_USERS", "REQUEST_PERMISSION", "NO_ACCESS"};
+    private static final String[] QUALIFIED_RELATIONS = {"conformsTo", "isVersionOf", "hasVersion", "isReplacedBy", "replaces", "isRequiredBy",
+            "requires", "isPartOf", "hasPart", "isReferencedBy", "references", "isFormatOf", "hasFormat"};
+    private static final String[] QUALIFIED_DATES = {"date", "created", "available", "valid", "issued", "modified", "dateAccepted", "dateCopyrighted",
+            "dateSubmitted"};
+    private static final String[] WORDS = {"aardewerk", "akker", "boerderij", "bodem", "dijk", "erf", "greppel", "grondspoor", "heuvel", "kuil", "muur",
+            "nederzetting", "paal", "put", "sloot", "spoor", "terp", "vondst", "weg", "wand"};
+
+    private final Map<Family, Integer> counts = new EnumMap<Family, Integer>(Family.class);
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private long seed;
+    private int textLength = 200;
+    private double rdFraction = 0.5;
+    private double invalidRate;
+
+    /**
+     * Creates a generator with the default count for each {@link Family}: a creator and a description.
+     *
+     * @param seed
+     *        the same seed generates the same documents
+     */
+    public DdmGenerator(final long seed) {
+        this.seed = seed;
+        for (final Family family : Family.values())
+            counts.put(family, family.defaultCount);
+    }
+
+    public DdmGenerator setSeed(final long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public DdmGenerator setCount(final Family family, final int count) {
+        counts.put(family, count);
+        return this;
+    }
+
+    public int getCount(final Family family) {
+        return counts.get(family);
+    }
+
+    /**
+     * @param textLength
+     *        approximate number of characters of each description
+     */
+    public DdmGenerator setTextLength(final int textLength) {
+        this.textLength = textLength;
+        return this;
+    }
+
+    /**
+     * @param rdFraction
+     *        fraction of the geometries in Dutch RD coordinates (EPSG:28992), the others are in WGS84 (EPSG:4326)
+     */
+    public DdmGenerator setRdFraction(final double rdFraction) {
+        this.rdFraction = rdFraction;
+        return this;
+    }
+
+    /**
+     * @param invalidRate
+     *        fraction of the ORCIDs, dates, positions and hrefs that get a value the crosswalk reports as an error
+     */
+    public DdmGenerator setInvalidRate(final double invalidRate) {
+        this.invalidRate = invalidRate;
+        return this;
+    }
+
+    /**
+     * @param document
+     *        number of the document within the corpus
+     * @return the generated DDM
+     * @throws XMLStreamException
+     */
+    public String generate(final int document) throws XMLStreamException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(document, out);
+        try {
+            return out.toString("UTF-8");
+        }
+        catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes a corpus of documents, a thousand per sub directory.
+     *
+     * @param directory
+     *        receives the documents
+     * @param first
+     *        number of the first document
+     * @param documents
+     *        number of documents to write
+     * @return total number of bytes written
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public long writeCorpus(final File directory, final int first, final int documents) throws IOException, XMLStreamException {
+        long bytes = 0;
+        for (int document = first; document < first + documents; document++) {
+            final File file = new File(directory, String.format("%04d/synthetic-%08d.xml", document / DOCUMENTS_PER_DIRECTORY, document));
+            if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs())
+                throw new IOException("could not create " + file.getParentFile());
+            final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                write(document, out);
+            }
+            finally {
+                out.close();
+            }
+            bytes += file.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * @param document
+     *        number of the document within the corpus
+     * @param out
+     *        receives the DDM, it is not closed
+     * @throws XMLStreamException
+     */
+    public void write(final int document, final OutputStream out) throws XMLStreamException {
+        final Random random = new Random(documentSeed(seed, document));
+        final XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeStartElement(DDM.prefix, "DDM", DDM.uri);
+        for (final NameSpace nameSpace : new NameSpace[] {DDM, DC, DC_TERMS, DCX_DAI, DCX_GML, GML, XSI, IDENTIFIER_TYPE, ABR})
+            writer.writeNamespace(nameSpace.prefix, nameSpace.uri);
+        writer.writeAttribute(XSI.prefix, XSI.uri, "schemaLocation", DDM.uri + " " + DDM.xsd);
+        writeProfile(writer, random, document);
+        writeDcmiMetadata(writer, random, document);
+        if (getCount(Family.IGNORED_PARAGRAPHS) > 0)
+            writeAdditionalXml(writer, random, getCount(Family.IGNORED_PARAGRAPHS));
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+        writer.close();
+    }
+
+    /** @return a seed of its own for every pair of corpus seed and document number, neighbouring pairs give unrelated sequences */
+    static long documentSeed(final long seed, final int document) {
+        return mix(mix(seed) + document);
+    }
+
+    /** the finalizer of SplitMix64: a bijection that spreads every bit of the input over all bits of the result */
+    private static long mix(final long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void writeProfile(final XMLStreamWriter writer, final Random random, final int document) throws XMLStreamException {
+        writer.writeStartElement(DDM.uri, "profile");
+        writeElement(writer, DC, "title", "Synthetic dataset " + document);
+        writeElement(writer, DC_TERMS, "description", text(random));
+        for (int i = 0; i < getCount(Family.CREATORS); i++) {
+            writer.writeStartElement(DCX_DAI.uri, "creatorDetails");
+            writer.writeStartElement(DCX_DAI.uri, "author");
+            writeElement(writer, DCX_DAI, "initials", (char) ('A' + random.nextInt(26)) + ".");
+            writeElement(writer, DCX_DAI, "surname", word(random) + " " + i);
+            writeElement(writer, DCX_DAI, "ORCID", invalid(random) ? "https://orcid.org/0000-invalid" : "https://orcid.org/" + orcid(random));
+            writer.writeEndElement();
+            writer.writeEndElement();
+        }
+        writeElement(writer, DDM, "created", date(random, false));
+        writeElement(writer, DDM, "available", date(random, false));
+        writeElement(writer, DDM, "audience", AUDIENCES[random.nextInt(AUDIENCES.length)]);
+        writeElement(writer, DDM, "accessRights", ACCESS_RIGHTS[random.nextInt(ACCESS_RIGHTS.length)]);
+        writer.writeEndElement();
+    }
+
+    private void writeDcmiMetadata(final XMLStreamWriter writer, final Random random, final int document) throws XMLStreamException {
+        writer.writeStartElement(DDM.uri, "dcmiMetadata");
+        for (int i = 1; i < getCount(Family.DESCRIPTIONS); i++)
+            writeElement(writer, DC_TERMS, "description", text(random));
+        for (int i = 0; i < getCount(Family.SUBJECTS); i++)
+            writeElement(writer, DC, "subject", word(random));
+        for (int i = 0; i < getCount(Family.ABR_SUBJECTS); i++)
+            writeTypedElement(writer, DC, "subject", "abr:ABRcomplex", ABR_COMPLEX[random.nextInt(ABR_COMPLEX.length)]);
+        for (int i = 0; i < getCount(Family.ABR_PERIODS); i++)
+            writeTypedElement(writer, DC_TERMS, "temporal", "abr:ABRperiode", ABR_PERIODS[random.nextInt(ABR_PERIODS.length)]);
+        for (int i = 0; i < getCount(Family.RELATIONS); i++)
+            writeRelation(writer, random, document, i);
+        for (int i = 0; i < getCount(Family.IDENTIFIERS); i++)
+            writeTypedElement(writer, DC, "identifier", "id-type:NWO-PROJECTNR", String.valueOf(100000 + random.nextInt(900000)));
+        for (int i = 0; i < getCount(Family.DATES); i++)
+            writeTypedElement(writer, DC_TERMS, "modified", "dcterms:W3CDTF", date(random, true));
+        for (int i = 0; i < getCount(Family.POINTS); i++) {
+            final boolean rd = rd(random);
+            writer.writeStartElement(DCX_GML.uri, "spatial");
+            writer.writeStartElement(GML.uri, "Point");
+            writer.writeAttribute("srsName", rd ? EPSG_RD : EPSG_WGS84);
+            writeElement(writer, GML, "pos", invalid(random) ? "north south" : position(random, rd));
+            writer.writeEndElement();
+            writer.writeEndElement();
+        }
+        for (int i = 0; i < getCount(Family.ENVELOPES); i++) {
+            final boolean rd = rd(random);
+            writer.writeStartElement(DCX_GML.uri, "spatial");
+            writer.writeStartElement(GML.uri, "boundedBy");
+            writer.writeStartElement(GML.uri, "Envelope");
+            writer.writeAttribute("srsName", rd ? EPSG_RD : EPSG_WGS84);
+            final String lower = position(random, rd);
+            writeElement(writer, GML, "lowerCorner", lower);
+            writeElement(writer, GML, "upperCorner", shift(lower, rd ? 1000 : 0.01));
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndElement();
+        }
+        if (getCount(Family.SURFACE_COORDINATES) > 0)
+            writeMultiSurface(writer, random, getCount(Family.SURFACE_COORDINATES));
+        for (int i = 0; i < getCount(Family.QUALIFIED_RELATIONS); i++)
+            writeQualifiedRelation(writer, random, document, i);
+        for (int i = 0; i < getCount(Family.QUALIFIED_DATES); i++)
+            writeQualifiedDate(writer, random, i);
+        writer.writeEndElement();
+    }
+
+    private void writeQualifiedRelation(final XMLStreamWriter writer, final Random random, final int document, final int i) throws XMLStreamException {
+        final String localName = QUALIFIED_RELATIONS[i / 2 % QUALIFIED_RELATIONS.length];
+        final String doi = String.format("10.5072/synthetic-%d-q%d", document, i);
+        if (i % 2 == 0) {
+            writeElement(writer, DC_TERMS, localName, doi);
+            return;
+        }
+        writer.writeStartElement(DDM.uri, localName);
+        writer.writeAttribute("href", invalid(random) ? "not a uri" : "https://doi.org/" + doi);
+        writer.writeCharacters(doi);
+        writer.writeEndElement();
+    }
+
+    private void writeQualifiedDate(final XMLStreamWriter writer, final Random random, final int i) throws XMLStreamException {
+        final String localName = QUALIFIED_DATES[i / 2 % QUALIFIED_DATES.length];
+        final NameSpace nameSpace = "date".equals(localName) ? DC : DC_TERMS;
+        if (i % 2 == 0)
+            writeTypedElement(writer, nameSpace, localName, "dcterms:W3CDTF", date(random, true));
+        else
+            writeElement(writer, nameSpace, localName, date(random, false));
+    }
+
+    private void writeAdditionalXml(final XMLStreamWriter writer, final Random random, final int paragraphs) throws XMLStreamException {
+        writer.writeStartElement(DDM.uri, "additional-xml");
+        writer.writeStartElement("", "body", XHTML);
+        writer.writeDefaultNamespace(XHTML);
+        for (int i = 0; i < paragraphs; i++) {
+            writer.writeStartElement(XHTML, "p");
+            writer.writeCharacters(text(random) + " ");
+            writer.writeStartElement(XHTML, "em");
+            writer.writeCharacters(word(random));
+            writer.writeEndElement();
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+        writer.writeEndElement();
+    }
+
+    private void writeRelation(final XMLStreamWriter writer, final Random random, final int document, final int i) throws XMLStreamException {
+        final String doi = String.format("10.5072/synthetic-%d-%d", document, i);
+        writer.writeStartElement(DDM.uri, i % 2 == 0 ? "references" : "relation");
+        if (i % 2 == 0)
+            writer.writeAttribute("scheme", "id-type:DOI");
+        writer.writeAttribute("href", invalid(random) ? "not a uri" : "https://doi.org/" + doi);
+        writer.writeCharacters(doi);
+        writer.writeEndElement();
+    }
+
+    /** Polygons are circles around random centres, so each ring is simple and closed. */
+    private void writeMultiSurface(final XMLStreamWriter writer, final Random random, final int coordinates) throws XMLStreamException {
+        writer.writeStartElement(DCX_GML.uri, "spatial");
+        writer.writeStartElement(GML.uri, "MultiSurface");
+        writeElement(writer, GML, "name", "synthetic surface of " + coordinates + " coordinates");
+        for (int done = 0; done < coordinates; done += COORDINATES_PER_POLYGON) {
+            final int points = Math.max(4, Math.min(COORDINATES_PER_POLYGON, coordinates - done));
+            final boolean rd = rd(random);
+            final String centre = position(random, rd);
+            final double radius = rd ? 500 : 0.005;
+            writer.writeStartElement(GML.uri, "surfaceMember");
+            writer.writeStartElement(GML.uri, "Polygon");
+            writer.writeAttribute("srsName", rd ? EPSG_RD : EPSG_WGS84);
+            writer.writeStartElement(GML.uri, "exterior");
+            writer.writeStartElement(GML.uri, "LinearRing");
+            writer.writeStartElement(GML.uri, "posList");
+            for (int i = 0; i < points; i++) {
+                // the last position equals the first one
+                final double angle = 2 * Math.PI * (i % (points - 1)) / (points - 1);
+                writer.writeCharacters((i == 0 ? "" : " ") + shift(centre, radius * Math.cos(angle), radius * Math.sin(angle)));
+            }
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndElement();
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+        writer.writeEndElement();
+    }
+
+    private static void writeElement(final XMLStreamWriter writer, final NameSpace nameSpace, final String localName, final String value)
+            throws XMLStreamException {
+        writer.writeStartElement(nameSpace.uri, localName);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+
+    private static void writeTypedElement(final XMLStreamWriter writer, final NameSpace nameSpace, final String localName, final String type,
+            final String value) throws XMLStreamException {
+        writer.writeStartElement(nameSpace.uri, localName);
+        writer.writeAttribute(XSI.prefix, XSI.uri, "type", type);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+
+    private boolean invalid(final Random random) {
+        return invalidRate > 0 && random.nextDouble() < invalidRate;
+    }
+
+    private boolean rd(final Random random) {
+        return random.nextDouble() < rdFraction;
+    }
+
+    private String date(final Random random, final boolean mayBeInvalid) {
+        if (mayBeInvalid && invalid(random))
+            return "not a date";
+        return String.format("%04d-%02d-%02d", 1950 + random.nextInt(70), 1 + random.nextInt(12), 1 + random.nextInt(28));
+    }
+
+    private String text(final Random random) {
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() < textLength)
+            sb.append(sb.length() == 0 ? "" : " ").append(word(random));
+        return sb.toString();
+    }
+
+    private static String word(final Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    /** RD is written as x y, WGS84 as latitude longitude, both within the Netherlands. */
+    private static String position(final Random random, final boolean rd) {
+        if (rd)
+            return format(10000 + random.nextInt(270000)) + " " + format(300000 + random.nextInt(320000));
+        return format(50.75 + 2.75 * random.nextDouble()) + " " + format(3.3 + 3.9 * random.nextDouble());
+    }
+
+    private static String shift(final String position, final double delta) {
+        return shift(position, delta, delta);
+    }
+
+    private static String shift(final String position, final double first, final double second) {
+        final String[] values = position.split(" ");
+        return format(Double.parseDouble(values[0]) + first) + " " + format(Double.parseDouble(values[1]) + second);
+    }
+
+    private static String format(final double value) {
+        return String.format(Locale.ENGLISH, "%.6f", value);
+    }
+
+    /** @return an ORCID with a valid ISO 7064 11,2 check digit */
+    private static String orcid(final Random random) {
+        final StringBuilder digits = new StringBuilder("0000");
+        for (int i = 0; i < 11; i++)
+            digits.append(random.nextInt(10));
+        int total = 0;
+        for (int i = 0; i < digits.length(); i++)
+            total = (total + digits.charAt(i) - '0') * 2;
+        final int check = (12 - total % 11) % 11;
+        digits.append(check == 10 ? "X" : String.valueOf(check));
+        return digits.substring(0, 4) + "-" + digits.substring(4, 8) + "-" + digits.substring(8, 12) + "-" + digits.substring(12);
+    }
+
+    /**
+     * Writes a corpus, see the class comment for an example.
+     *
+     * @param args
+     *        -seed, -first, -documents, -out, -text, -rd, -invalid and a count for each family, for example -abr-subjects 300
+     * @throws Exception
+     */
+    public static void main(final String[] args) throws Exception {
+        int first = 0;
+        int documents = 1;
+        File out = new File(".");
+        final Map<String, Family> families = new HashMap<String, Family>();
+        for (final Family family : Family.values())
+            families.put("-" + family.getOption(), family);
+        final DdmGenerator generator = new DdmGenerator(0);
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            final String value = args[i + 1];
+            if ("-seed".equals(args[i]))
+                generator.setSeed(Long.parseLong(value));
+            else if ("-first".equals(args[i]))
+                first = Integer.parseInt(value);
+            else if ("-documents".equals(args[i]))
+                documents = Integer.parseInt(value);
+            else if ("-out".equals(args[i]))
+                out = new File(value);
+            else if ("-text".equals(args[i]))
+                generator.setTextLength(Integer.parseInt(value));
+            else if ("-rd".equals(args[i]))
+                generator.setRdFraction(Double.parseDouble(value));
+            else if ("-invalid".equals(args[i]))
+                generator.setInvalidRate(Double.parseDouble(value));
+            else if (families.containsKey(args[i]))
+                generator.setCount(families.get(args[i]), Integer.parseInt(value));
+            else
+                throw new IllegalArgumentException("unknown option " + args[i]);
+        }
+        final long bytes = generator.writeCorpus(out, first, documents);
+        System.out.println(documents + " documents, " + bytes + " bytes written to " + out);
+    }
+}
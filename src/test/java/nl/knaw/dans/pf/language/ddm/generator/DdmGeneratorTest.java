@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.generator;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import nl.knaw.dans.pf.language.ddm.api.DDMValidator;
+import nl.knaw.dans.pf.language.ddm.api.Ddm2EmdCrosswalk;
+import nl.knaw.dans.pf.language.ddm.generator.DdmGenerator.Family;
+import nl.knaw.dans.pf.language.ddm.handlermaps.NameSpace;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler.Reporter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/** Without validation, so pure crosswalk tests that execute without web access. */
+public class DdmGeneratorTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void deterministic() throws Exception {
+        assertThat(new DdmGenerator(42).generate(7), is(new DdmGenerator(42).generate(7)));
+        assertThat(new DdmGenerator(42).generate(7), not(new DdmGenerator(42).generate(8)));
+        assertThat(new DdmGenerator(42).generate(7), not(new DdmGenerator(43).generate(7)));
+    }
+
+    @Test
+    public void distinctSeeds() throws Exception {
+        // seed * 31 + document used to give these pairs the same document
+        assertThat(new DdmGenerator(0).generate(31), not(new DdmGenerator(1).generate(0)));
+        final Set<Long> seeds = new HashSet<Long>();
+        for (long seed = 0; seed < 100; seed++)
+            for (int document = 0; document < 1000; document++)
+                seeds.add(DdmGenerator.documentSeed(seed, document) & 0xFFFFFFFFFFFFL);
+        // java.util.Random uses 48 bits of its seed
+        assertThat(seeds.size(), is(100 * 1000));
+    }
+
+    @Test
+    public void validAgainstXsd() throws Exception {
+        assumeTrue("can access " + NameSpace.DDM.xsd, canConnect(NameSpace.DDM.xsd));
+        final DdmGenerator generator = new DdmGenerator(5).setCount(Family.CREATORS, 5).setCount(Family.RELATIONS, 5).setCount(Family.DATES, 5)
+                .setCount(Family.POINTS, 5).setCount(Family.ENVELOPES, 5).setCount(Family.SURFACE_COORDINATES, 100);
+        final DDMValidator validator = new DDMValidator();
+        for (int i = 0; i < 5; i++) {
+            final XMLErrorHandler handler = validator.validate(new XMLErrorHandler(Reporter.off), new ByteArrayInputStream(generator.generate(i).getBytes("UTF-8")));
+            assertTrue(handler.getMessages(), handler.passed());
+        }
+    }
+
+    @Test
+    public void counts() throws Exception {
+        final DdmGenerator generator = new DdmGenerator(1).setCount(Family.CREATORS, 50).setCount(Family.RELATIONS, 20)
+                .setCount(Family.ABR_SUBJECTS, 30).setCount(Family.SURFACE_COORDINATES, 2500);
+        final Document document = parse(generator.generate(0));
+
+        assertThat(document.getElementsByTagNameNS(NameSpace.DCX_DAI.uri, "creatorDetails").getLength(), is(50));
+        assertThat(document.getElementsByTagNameNS(NameSpace.DDM.uri, "references").getLength(), is(10));
+        assertThat(document.getElementsByTagNameNS(NameSpace.DDM.uri, "relation").getLength(), is(10));
+        assertThat(document.getElementsByTagNameNS(NameSpace.DC.uri, "subject").getLength(), is(30));
+        assertThat(document.getElementsByTagNameNS(NameSpace.GML.uri, "Polygon").getLength(), is(3));
+        final String posList = document.getElementsByTagNameNS(NameSpace.GML.uri, "posList").item(2).getTextContent();
+        assertThat(posList.split(" ").length, is(2 * 500));
+    }
+
+    @Test
+    public void crosswalk() throws Exception {
+        final DdmGenerator generator = new DdmGenerator(2).setCount(Family.CREATORS, 20).setCount(Family.RELATIONS, 20)
+                .setCount(Family.DATES, 5).setCount(Family.POINTS, 5).setCount(Family.ENVELOPES, 5).setCount(Family.SURFACE_COORDINATES, 100);
+        final Ddm2EmdCrosswalk crosswalk = new Ddm2EmdCrosswalk(null);
+
+        assertNotNull(crosswalk.getXmlErrorHandler().getMessages(), crosswalk.createFromValidated(generator.generate(0)));
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().size(), is(0));
+    }
+
+    @Test
+    public void crosswalkManyRelations() throws Exception {
+        // the href of a relation is read after its end tag, the parser has reused its buffer by then
+        final DdmGenerator generator = new DdmGenerator(43).setCount(Family.RELATIONS, 2000);
+        final Ddm2EmdCrosswalk crosswalk = new Ddm2EmdCrosswalk(null);
+
+        assertNotNull(crosswalk.getXmlErrorHandler().getMessages(), crosswalk.createFromValidated(generator.generate(0)));
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().size(), is(0));
+    }
+
+    @Test
+    public void invalidValues() throws Exception {
+        final DdmGenerator generator = new DdmGenerator(3).setCount(Family.CREATORS, 20).setInvalidRate(1);
+        final Ddm2EmdCrosswalk crosswalk = new Ddm2EmdCrosswalk(null);
+        crosswalk.createFromValidated(generator.generate(0));
+
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().isEmpty(), is(false));
+    }
+
+    @Test
+    public void corpus() throws Exception {
+        final File directory = temporaryFolder.newFolder();
+        new DdmGenerator(4).writeCorpus(directory, 998, 3);
+
+        assertThat(new File(directory, "0000/synthetic-00000999.xml").isFile(), is(true));
+        assertThat(new File(directory, "0001/synthetic-00001000.xml").isFile(), is(true));
+        assertThat(new File(directory, "0000").list().length, is(2));
+    }
+
+    private static boolean canConnect(String url) {
+        try {
+            HttpURLConnection urlConnection = (HttpURLConnection) new URL(url).openConnection();
+            urlConnection.connect();
+            urlConnection.disconnect();
+            return true;
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Document parse(final String xml) throws Exception {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+    }
+}
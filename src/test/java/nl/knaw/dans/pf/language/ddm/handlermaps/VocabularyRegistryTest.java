@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.handlermaps;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import nl.knaw.dans.pf.language.emd.types.ApplicationSpecific.MetadataFormat;
+import nl.knaw.dans.pf.language.xml.vocabulary.CodeTable;
+
+import org.junit.Test;
+
+public class VocabularyRegistryTest {
+
+    @Test
+    public void emdLanguages() {
+        assertThat(VocabularyRegistry.getEmdLanguageCode("nld"), is("dut/nld"));
+        assertThat(VocabularyRegistry.getEmdLanguageCode("dut"), is("dut/nld"));
+        assertThat(VocabularyRegistry.getEmdLanguageCode("ger"), is("ger/deu"));
+        assertThat(VocabularyRegistry.getEmdLanguageCode("fre"), is("fre/fra"));
+        assertThat(VocabularyRegistry.getEmdLanguageCode("eng"), is("eng"));
+        // a valid code outside the vocabulary of Easy Meta Data
+        assertThat(VocabularyRegistry.getEmdLanguageCode("gre"), is(nullValue()));
+        assertThat(VocabularyRegistry.getDdmLanguageCode("ger/deu"), is("deu"));
+    }
+
+    @Test
+    public void iso639() {
+        assertThat(VocabularyRegistry.getIso639TerminologyCode("gre"), is("ell"));
+        assertThat(VocabularyRegistry.getIso639TerminologyCode("ell"), is("ell"));
+        assertThat(VocabularyRegistry.getIso639TerminologyCode("spa"), is("spa"));
+        assertThat(VocabularyRegistry.getIso639TerminologyCode("xx"), is(nullValue()));
+    }
+
+    @Test
+    public void countries() {
+        assertThat(VocabularyRegistry.getCountryName("NLD"), is("Netherlands"));
+        assertThat(VocabularyRegistry.getCountryName("nld"), is("Netherlands"));
+        assertThat(VocabularyRegistry.getCountryName("BE"), is("Belgium"));
+        assertThat(VocabularyRegistry.getCountryName("XYZ"), is(nullValue()));
+    }
+
+    @Test
+    public void metadataFormats() {
+        assertThat(VocabularyRegistry.getMetadataFormat("2"), is(MetadataFormat.ARCHAEOLOGY));
+        assertThat(VocabularyRegistry.getMetadataFormat("unknown"), is(MetadataFormat.DEFAULT));
+    }
+
+    @Test
+    public void codeTable() {
+        final Map<String, Integer> map = new HashMap<String, Integer>();
+        for (int i = 0; i < 1000; i++)
+            map.put("D" + (10000 + 7 * i), i);
+        final CodeTable<Integer> table = CodeTable.of(map, false);
+
+        assertThat(table.size(), is(1000));
+        assertThat(table, is(map));
+        for (final Map.Entry<String, Integer> entry : map.entrySet())
+            assertThat(table.get(entry.getKey()), is(entry.getValue()));
+        assertThat(table.get("D10001"), is(nullValue()));
+        assertThat(table.get("d10000"), is(nullValue()));
+        assertThat(CodeTable.of(map, true).get("d10000"), is(0));
+    }
+
+    @Test
+    public void keysWithTheSameStringHash() {
+        final Map<String, Integer> map = new HashMap<String, Integer>();
+        for (final String key : new String[] {"Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB"})
+            map.put(key, key.length());
+        assertThat("Aa".hashCode(), is("BB".hashCode()));
+        final CodeTable<Integer> table = CodeTable.of(map, false);
+
+        assertThat(table, is(map));
+        for (final String key : map.keySet())
+            assertThat(table.get(key), is(key.length()));
+        assertThat(table.get("AB"), is(nullValue()));
+    }
+
+    @Test
+    public void emptyCodeTable() {
+        assertThat(CodeTable.of(new HashMap<String, String>(), false).get("D10000"), is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void keysThatOnlyDifferInCase() {
+        final Map<String, String> map = new HashMap<String, String>();
+        map.put("NLD", "a");
+        map.put("nld", "b");
+        CodeTable.of(map, true);
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.reactive;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/** Without validation, so pure crosswalk tests that execute without web access. */
+public class CrosswalkProcessorTest {
+    private static final int MAX_IN_FLIGHT = 3;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void ordered() throws Exception {
+        final List<DdmSource> sources = sources(20);
+        final SlowSubscriber subscriber = run(new CrosswalkProcessor(executor, MAX_IN_FLIGHT, true, null), sources);
+
+        assertThat(subscriber.ids, is(ids(sources)));
+        assertThat(subscriber.results.get(0).isSuccess(), is(true));
+        assertThat(subscriber.results.get(1).isSuccess(), is(false));
+        assertThat(subscriber.results.get(1).getErrors().isEmpty(), is(false));
+    }
+
+    @Test
+    public void unordered() throws Exception {
+        final List<DdmSource> sources = sources(20);
+        final SlowSubscriber subscriber = run(new CrosswalkProcessor(executor, MAX_IN_FLIGHT, false, null), sources);
+
+        final List<String> sorted = new ArrayList<String>(subscriber.ids);
+        Collections.sort(sorted);
+        final List<String> expected = ids(sources);
+        Collections.sort(expected);
+        assertThat(sorted, is(expected));
+    }
+
+    @Test
+    public void backpressure() throws Exception {
+        final ListPublisher publisher = new ListPublisher(sources(50));
+        final CrosswalkProcessor processor = new CrosswalkProcessor(executor, MAX_IN_FLIGHT, true, null);
+        final SlowSubscriber subscriber = new SlowSubscriber(publisher);
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+
+        assertTrue(subscriber.done.await(1, TimeUnit.MINUTES));
+        assertThat(subscriber.results.size(), is(50));
+        // requested from upstream but not yet received downstream
+        assertTrue("max outstanding " + subscriber.maxOutstanding, subscriber.maxOutstanding <= MAX_IN_FLIGHT);
+    }
+
+    private static SlowSubscriber run(final CrosswalkProcessor processor, final List<DdmSource> sources) throws InterruptedException {
+        final ListPublisher publisher = new ListPublisher(sources);
+        final SlowSubscriber subscriber = new SlowSubscriber(publisher);
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+        assertTrue(subscriber.done.await(1, TimeUnit.MINUTES));
+        assertThat(subscriber.failure, is((Throwable) null));
+        return subscriber;
+    }
+
+    /** Valid and malformed documents alternate. */
+    private static List<DdmSource> sources(final int count) throws Exception {
+        final List<DdmSource> sources = new ArrayList<DdmSource>();
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0)
+                sources.add(DdmSource.of(new File("src/test/resources/ddm2emdCrosswalk/dcxDaiAuthor.input.xml")));
+            else
+                sources.add(DdmSource.of("malformed-" + i, "<ddm:DDM>".getBytes("UTF-8")));
+        }
+        return sources;
+    }
+
+    private static List<String> ids(final List<DdmSource> sources) {
+        final List<String> ids = new ArrayList<String>();
+        for (final DdmSource source : sources)
+            ids.add(source.getId());
+        return ids;
+    }
+
+    /** Publishes a list, only as far as requested. */
+    private static class ListPublisher implements Publisher<DdmSource> {
+        private final List<DdmSource> sources;
+        private final AtomicLong requested = new AtomicLong();
+        private int next;
+        private boolean completed;
+
+        ListPublisher(final List<DdmSource> sources) {
+            this.sources = sources;
+        }
+
+        @Override
+        public void subscribe(final Subscriber<? super DdmSource> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public synchronized void request(final long n) {
+                    requested.addAndGet(n);
+                    for (long i = 0; i < n && next < sources.size(); i++)
+                        subscriber.onNext(sources.get(next++));
+                    if (next == sources.size() && !completed) {
+                        completed = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {}
+            });
+        }
+    }
+
+    /** Requests ten results ahead, one more after each result and a pause. */
+    private static class SlowSubscriber implements Subscriber<CrosswalkResult> {
+        private final ListPublisher publisher;
+        private final List<CrosswalkResult> results = Collections.synchronizedList(new ArrayList<CrosswalkResult>());
+        private final List<String> ids = Collections.synchronizedList(new ArrayList<String>());
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile long maxOutstanding;
+        private volatile Throwable failure;
+        private Subscription subscription;
+
+        SlowSubscriber(final ListPublisher publisher) {
+            this.publisher = publisher;
+        }
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(10);
+        }
+
+        @Override
+        public void onNext(final CrosswalkResult result) {
+            results.add(result);
+            ids.add(result.getSource().getId());
+            maxOutstanding = Math.max(maxOutstanding, publisher.requested.get() - results.size());
+            try {
+                Thread.sleep(2);
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            failure = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2014 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.pf.language.ddm.server;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import nl.knaw.dans.pf.language.xml.exc.XMLException;
+import nl.knaw.dans.pf.language.xml.validation.AbstractValidator2;
+import nl.knaw.dans.pf.language.xml.validation.XMLErrorHandler;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Without validation against the DDM schema, so pure crosswalk tests that execute without web access. */
+public class CrosswalkServerTest {
+    private static final Logger logger = LoggerFactory.getLogger(CrosswalkServerTest.class);
+    private static final File DDM = new File("src/test/resources/ddm2emdCrosswalk/dcxDaiAuthor.input.xml");
+    // declares just a root element, DDM is invalid
+    private static final String XSD = "file://" + new File("src/test/resources/input/abstract.xsd").getAbsolutePath();
+
+    private CrosswalkServer server;
+
+    @Before
+    public void start() throws Exception {
+        start(4, null, 30000);
+    }
+
+    private void start(final int crosswalks, final AbstractValidator2 validator, final long waitMillis) throws Exception {
+        server = new CrosswalkServer(new InetSocketAddress("localhost", 0), crosswalks, validator);
+        server.setWaitMillis(waitMillis);
+        server.start();
+    }
+
+    @After
+    public void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    public void emd() throws Exception {
+        final HttpURLConnection connection = post(FileUtils.readFileToString(DDM).getBytes("UTF-8"));
+
+        assertThat(connection.getResponseCode(), is(200));
+        assertThat(connection.getContentType(), containsString("application/xml"));
+        assertThat(read(connection.getInputStream()), containsString("9876543216"));
+    }
+
+    @Test
+    public void diagnostics() throws Exception {
+        final HttpURLConnection connection = post("<ddm:DDM>".getBytes("UTF-8"));
+
+        assertThat(connection.getResponseCode(), is(422));
+        assertThat(connection.getContentType(), containsString("application/json"));
+        assertThat(read(connection.getErrorStream()), containsString("\"errors\":[{\"line\":1,"));
+        assertThat(server.getMetrics().getFailed(), is(1L));
+    }
+
+    @Test
+    public void onlyPost() throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + "/ddm2emd").openConnection();
+
+        assertThat(connection.getResponseCode(), is(405));
+    }
+
+    @Test
+    public void validatedAfterSpooling() throws Exception {
+        server.stop(0);
+        start(1, new AbstractValidator2(XSD) {}, 30000);
+        final byte[] ddm = FileUtils.readFileToString(DDM).getBytes("UTF-8");
+
+        final HttpURLConnection validated = post(ddm, "?trace=1&validate=true");
+        assertThat(validated.getResponseCode(), is(422));
+        assertThat(read(validated.getErrorStream()), containsString("ddm:DDM"));
+
+        final HttpURLConnection notValidated = post(ddm, "?trace=1&validate=false");
+        assertThat(notValidated.getResponseCode(), is(200));
+        assertThat(read(notValidated.getInputStream()), containsString("9876543216"));
+    }
+
+    @Test
+    public void malformedQuery() throws Exception {
+        assertThat(post(FileUtils.readFileToString(DDM).getBytes("UTF-8"), "?validate=%zz").getResponseCode(), is(400));
+    }
+
+    @Test
+    public void busy() throws Exception {
+        final CountDownLatch validating = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        server.stop(0);
+        start(1, new AbstractValidator2(XSD) {
+            @Override
+            public XMLErrorHandler validate(final XMLErrorHandler handler, final InputStream xml) throws XMLException {
+                validating.countDown();
+                try {
+                    release.await();
+                }
+                catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.validate(handler, xml);
+            }
+        }, 100);
+        final byte[] ddm = FileUtils.readFileToString(DDM).getBytes("UTF-8");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Integer> first = executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return post(ddm).getResponseCode();
+                }
+            });
+            // the only crosswalk is taken until the validator is released
+            validating.await();
+            final HttpURLConnection refused = post(ddm);
+            assertThat(refused.getResponseCode(), is(503));
+            assertThat(refused.getHeaderField("Retry-After"), is("1"));
+            assertThat(server.getMetrics().getRejected(), is(1L));
+
+            release.countDown();
+            assertThat(first.get(), is(422));
+        }
+        finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void stalledUploadHoldsNoCrosswalk() throws Exception {
+        server.stop(0);
+        start(1, null, 100);
+        final byte[] ddm = FileUtils.readFileToString(DDM).getBytes("UTF-8");
+        final HttpURLConnection stalled = openPost("");
+        final OutputStream out = stalled.getOutputStream();
+        out.write(ddm, 0, ddm.length / 2);
+        out.flush();
+
+        final HttpURLConnection other = post(ddm);
+        assertThat(other.getResponseCode(), is(200));
+        read(other.getInputStream());
+
+        out.write(ddm, ddm.length / 2, ddm.length - ddm.length / 2);
+        out.close();
+        assertThat(stalled.getResponseCode(), is(200));
+        assertThat(server.getMetrics().getRejected(), is(0L));
+    }
+
+    @Test
+    public void load() throws Exception {
+        final byte[] ddm = FileUtils.readFileToString(DDM).getBytes("UTF-8");
+        final int clients = 16;
+        final int requestsPerClient = 50;
+        final ExecutorService executor = Executors.newFixedThreadPool(clients);
+        final List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        final long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int ok = 0;
+                    for (int j = 0; j < requestsPerClient; j++) {
+                        final HttpURLConnection connection = post(ddm);
+                        if (connection.getResponseCode() == 200) {
+                            read(connection.getInputStream());
+                            ok++;
+                        }
+                    }
+                    return ok;
+                }
+            }));
+        }
+        int ok = 0;
+        for (final Future<Integer> future : futures)
+            ok += future.get();
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        logger.info("{} requests in {} seconds, {} per second, {}", clients * requestsPerClient, seconds, clients * requestsPerClient / seconds,
+                server.getMetrics());
+
+        // 16 clients for 4 crosswalks: requests wait for a crosswalk rather than being refused
+        assertThat(ok, is(clients * requestsPerClient));
+        assertThat(server.getMetrics().getConverted(), is((long) clients * requestsPerClient));
+        assertThat(server.getMetrics().getRejected(), is(0L));
+    }
+
+    private HttpURLConnection post(final byte[] body) throws Exception {
+        return post(body, "");
+    }
+
+    private HttpURLConnection post(final byte[] body, final String query) throws Exception {
+        final HttpURLConnection connection = openPost(query);
+        final OutputStream out = connection.getOutputStream();
+        out.write(body);
+        out.close();
+        return connection;
+    }
+
+    private HttpURLConnection openPost(final String query) throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + "/ddm2emd" + query).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(0);
+        return connection;
+    }
+
+    private static String read(final InputStream in) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0)
+            out.write(buffer, 0, n);
+        in.close();
+        return out.toString("UTF-8");
+    }
+}
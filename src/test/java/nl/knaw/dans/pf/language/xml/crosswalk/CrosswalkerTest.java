@@ -19,22 +19,59 @@ import static org.hamcrest.core.Is.*;
 import static org.hamcrest.core.IsNull.*;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.xml.XMLConstants;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 import nl.knaw.dans.pf.language.xml.validation.AbstractValidator2;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
 
 public class CrosswalkerTest {
     private static final String XSD = "file://" + new File("src/test/resources/input/abstract.xsd").getAbsolutePath();
     private static final AbstractValidator2 VALIDATOR = new AbstractValidator2(XSD) {};
     private final CW crosswalk = new CW(VALIDATOR);
 
+    private static final CrosswalkRules NOTHING_FORBIDDEN = new CrosswalkRules() {
+        @Override
+        public ContentHandler newChecker(final ErrorHandler errorHandler) {
+            return new DefaultHandler() {
+                private Locator locator;
+
+                @Override
+                public void setDocumentLocator(final Locator locator) {
+                    this.locator = locator;
+                }
+
+                @Override
+                public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) throws SAXException {
+                    if ("forbidden".equals(localName))
+                        errorHandler.error(new SAXParseException("forbidden", locator));
+                }
+            };
+        }
+    };
+
     private static CrosswalkHandler<StringBuffer> createSimpleHandler() {
         return new CrosswalkHandler<StringBuffer>() {
             @Override
@@ -49,6 +86,22 @@ public class CrosswalkerTest {
         };
     }
 
+    private static CrosswalkHandler<StringBuffer> createCountingHandler() {
+        return new CrosswalkHandler<StringBuffer>() {
+            private long delivered;
+
+            @Override
+            public void chars(final char[] ch, final int start, final int length) throws SAXException {
+                delivered += length;
+            }
+
+            @Override
+            protected void finishElement(final String uri, final String localName) throws SAXException {
+                getTarget().append("-" + delivered + "-" + getCharsSinceStart());
+            }
+        };
+    }
+
     private static CrosswalkHandler<StringBuffer> createComplexHandler() {
         return new CrosswalkHandler<StringBuffer>() {
             @Override
@@ -62,20 +115,50 @@ public class CrosswalkerTest {
         };
     }
 
+    private static CrosswalkHandler<StringBuffer> createSkippingHandler(final boolean skipsMappedDescendants) {
+        return new CrosswalkHandler<StringBuffer>() {
+            @Override
+            protected boolean skipsContent() {
+                return true;
+            }
+
+            @Override
+            protected boolean skipsMappedDescendants() {
+                return skipsMappedDescendants;
+            }
+
+            @Override
+            protected void finishElement(final String uri, final String localName) throws SAXException {
+                aggregatedWarning(localName, "skipping " + localName + " [" + getCharsSinceStart() + "]");
+            }
+        };
+    }
+
     private static CrosswalkHandlerMap<StringBuffer> createHandlerMap() {
         return new CrosswalkHandlerMap<StringBuffer>() {
             @Override
             public CrosswalkHandler<StringBuffer> getHandler(String uri, String localName, Attributes attributes) throws SAXException {
                 if ("simple".equals(localName))
                     return createSimpleHandler();
+                else if ("counted".equals(localName))
+                    return createCountingHandler();
                 else if ("complex".equals(localName))
                     return createComplexHandler();
+                else if ("skipped".equals(localName))
+                    return createSkippingHandler(false);
+                else if ("excluded".equals(localName))
+                    return createSkippingHandler(true);
                 return null;
             }
 
             @Override
             public boolean reportMissingHandler(String uri, String localName, Attributes attributes) {
-                return false;
+                return "unknown".equals(localName);
+            }
+
+            @Override
+            public String toHandlerKey(String uri, String localName, Attributes attributes) {
+                return attributes.getValue(XMLConstants.XML_NS_URI, "lang") + "/" + localName;
             }
         };
     }
@@ -92,6 +175,10 @@ public class CrosswalkerTest {
         public StringBuffer createFrom(final String xml) throws CrosswalkException {
             return walk(VALIDATOR, xml, new StringBuffer());
         }
+
+        public StringBuffer createFrom(final InputStream xml) throws CrosswalkException {
+            return walk(xml, new StringBuffer());
+        }
     }
 
     @Test(expected = NullPointerException.class)
@@ -140,6 +227,91 @@ public class CrosswalkerTest {
         assertThat(crosswalk.getXmlErrorHandler().getWarnings().size(), is(2));
     }
 
+    @Test
+    public void skippedSubtrees() throws Exception {
+        // @formatter:off
+        String s = "<?xml version='1.0' encoding='UTF-8'?>\n" +
+                "<root>\n" +
+                "  <unknown><simple>abc</simple></unknown>\n" +
+                "  <skipped>def<simple>ghi</simple></skipped>\n" +
+                "  <unknown/>\n" +
+                "  <skipped/>\n" +
+                "  <simple>jkl</simple>\n" +
+                "</root>";
+        // @formatter:on
+        StringBuffer result = crosswalk.createFrom(s);
+        // descendants with a handler of their own are not skipped
+        assertThat(result.toString(), is("-null-abc-null-ghi-null-jkl"));
+        assertThat(crosswalk.getXmlErrorHandler().getWarnings().size(), is(2));
+        assertThat(crosswalk.getXmlErrorHandler().getWarnings().get(0).getMessage(), is("skipped unknown at level:2 (2 times)"));
+        assertThat(crosswalk.getXmlErrorHandler().getWarnings().get(0).getLineNumber(), is(3));
+        assertThat(crosswalk.getXmlErrorHandler().getWarnings().get(1).getMessage(), is("skipping skipped [] (2 times)"));
+    }
+
+    @Test
+    public void excludedSubtrees() throws Exception {
+        // @formatter:off
+        String s = "<?xml version='1.0' encoding='UTF-8'?>\n" +
+                "<root>\n" +
+                "  <excluded>def<simple>ghi</simple><unknown/></excluded>\n" +
+                "  <simple>jkl</simple>\n" +
+                "</root>";
+        // @formatter:on
+        StringBuffer result = crosswalk.createFrom(s);
+        assertThat(result.toString(), is("-null-jkl"));
+        assertThat(crosswalk.getXmlErrorHandler().getWarnings().size(), is(1));
+        assertThat(crosswalk.getXmlErrorHandler().getWarnings().get(0).getMessage(), is("skipping excluded []"));
+    }
+
+    @Test
+    public void truncatedElement() throws Exception {
+        crosswalk.setTextLimits(new TextLimits(5, Long.MAX_VALUE, TextLimits.Policy.TRUNCATE));
+        StringBuffer result = crosswalk.createFrom("<?xml version='1.0' encoding='UTF-8'?><root><simple>abcdefgh</simple><simple>ijk</simple></root>");
+        assertThat(result.toString(), is("-null-abcde-null-ijk"));
+        assertThat(crosswalk.getXmlErrorHandler().getWarnings().size(), is(1));
+    }
+
+    @Test
+    public void truncatedDocument() throws Exception {
+        crosswalk.setTextLimits(new TextLimits(5, 7, TextLimits.Policy.ERROR));
+        StringBuffer result = crosswalk.createFrom("<?xml version='1.0' encoding='UTF-8'?><root><simple>abcd</simple><simple>efgh</simple><simple>ijk</simple></root>");
+        assertThat(result, nullValue());
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().size(), is(1));
+    }
+
+    @Test
+    public void hugeElementInBoundedMemory() throws Exception {
+        // many times the buffer of the parser: the handler sees no more than the limit while the parser streams to the end
+        final long[] remaining = {16L * 1024 * 1024};
+        final InputStream huge = new InputStream() {
+            @Override
+            public int read() {
+                return remaining[0]-- > 0 ? 'x' : -1;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) {
+                if (remaining[0] <= 0)
+                    return -1;
+                final int n = (int) Math.min(len, remaining[0]);
+                Arrays.fill(b, off, off + n, (byte) 'x');
+                remaining[0] -= n;
+                return n;
+            }
+        };
+        final InputStream xml = new SequenceInputStream(new SequenceInputStream(stream("<root><counted>"), huge), stream("</counted></root>"));
+
+        crosswalk.setTextLimits(new TextLimits(10, Long.MAX_VALUE, TextLimits.Policy.TRUNCATE));
+        StringBuffer result = crosswalk.createFrom(xml);
+        assertThat(result.toString(), is("-10-xxxxxxxxxx"));
+        assertThat(remaining[0] <= 0, is(true));
+        assertThat(crosswalk.getXmlErrorHandler().getWarnings().size(), is(1));
+    }
+
+    private static InputStream stream(final String s) {
+        return new ByteArrayInputStream(s.getBytes());
+    }
+
     @Test
     public void errors() throws Exception {
         StringBuffer result = crosswalk.createFrom("<?xml version='1.0' encoding='UTF-8'?><root><simple>xyz</simple></root>");
@@ -148,8 +320,217 @@ public class CrosswalkerTest {
         assertThat(result, nullValue());
     }
 
+    @Test
+    public void validateWhileWalking() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            crosswalk.setValidationExecutor(executor);
+            StringBuffer result = crosswalk.createFrom("<?xml version='1.0' encoding='UTF-8'?><root><simple>abc</simple></root>");
+            assertThat(result.toString(), is("-null-abc"));
+
+            assertThat(crosswalk.createFrom("<noroot></noroot>"), nullValue());
+            assertThat(crosswalk.getXmlErrorHandler().getErrors().size() > 0, is(true));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failFast() throws Exception {
+        crosswalk.setErrorPolicy(ErrorPolicy.FAIL_FAST);
+        StringBuffer result = crosswalk.createFrom("<?xml version='1.0' encoding='UTF-8'?><root><simple>xyz</simple><simple>xyz</simple></root>");
+        assertThat(result, nullValue());
+        assertThat(crosswalk.isStoppedByErrorPolicy(), is(true));
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().size(), is(1));
+        assertThat(crosswalk.getXmlErrorHandler().getFatalErrors().size(), is(0));
+        assertThat(crosswalk.getXmlErrorHandler().getWarnings().size(), is(1));
+    }
+
+    @Test
+    public void failFastValidation() throws Exception {
+        crosswalk.setErrorPolicy(ErrorPolicy.FAIL_FAST);
+        StringBuffer result = crosswalk.createFrom("<?xml version='1.0' encoding='UTF-8'?><noroot><simple>xyz</simple></noroot>");
+        assertThat(result, nullValue());
+        assertThat(crosswalk.isStoppedByErrorPolicy(), is(true));
+        // the handlers did not get the chance to report xyz
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().size(), is(1));
+        assertThat(crosswalk.getXmlErrorHandler().getFatalErrors().size(), is(0));
+    }
+
+    @Test
+    public void failFastWhileWalking() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            crosswalk.setValidationExecutor(executor);
+            crosswalk.setErrorPolicy(ErrorPolicy.FAIL_FAST);
+            for (int i = 0; i < 20; i++) {
+                crosswalk.getXmlErrorHandler().reset();
+                // the validation and the handlers race for the first error
+                StringBuffer result = crosswalk.createFrom("<?xml version='1.0' encoding='UTF-8'?><noroot><simple>xyz</simple></noroot>");
+                assertThat(result, nullValue());
+                assertThat(crosswalk.isStoppedByErrorPolicy(), is(true));
+                assertThat(crosswalk.getXmlErrorHandler().getErrors().size() + crosswalk.getXmlErrorHandler().getFatalErrors().size(), is(1));
+                assertThat(crosswalk.getXmlErrorHandler().getWarnings().size(), is(1));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void collectAllWhileWalking() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            crosswalk.setValidationExecutor(executor);
+            StringBuffer result = crosswalk.createFrom("<?xml version='1.0' encoding='UTF-8'?><noroot></noroot>");
+            assertThat(result, nullValue());
+            assertThat(crosswalk.isStoppedByErrorPolicy(), is(false));
+            assertThat(crosswalk.getXmlErrorHandler().getErrors().size() > 0, is(true));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void maxErrors() throws Exception {
+        crosswalk.setErrorPolicy(ErrorPolicy.maxErrors(2));
+        StringBuffer result = crosswalk.createFrom("<?xml version='1.0' encoding='UTF-8'?><root><simple>xyz</simple><simple>xyz</simple></root>");
+        assertThat(result, nullValue());
+        assertThat(crosswalk.isStoppedByErrorPolicy(), is(true));
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().size(), is(1));
+        assertThat(crosswalk.getXmlErrorHandler().getFatalErrors().size(), is(1));
+    }
+
+    @Test
+    public void collectAll() throws Exception {
+        StringBuffer result = crosswalk.createFrom("<?xml version='1.0' encoding='UTF-8'?><root><simple>xyz</simple><simple>xyz</simple></root>");
+        assertThat(result, nullValue());
+        assertThat(crosswalk.isStoppedByErrorPolicy(), is(false));
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().size(), is(2));
+        assertThat(crosswalk.getXmlErrorHandler().getFatalErrors().size(), is(2));
+    }
+
+    @Test
+    public void withinWalkLimits() throws Exception {
+        crosswalk.setWalkLimits(new WalkLimits(60000, 2, 2, 10));
+        StringBuffer result = crosswalk.createFrom(stream("<root><simple xml:lang='en'>abc</simple></root>"));
+        assertThat(result.toString(), is("-en-abc"));
+    }
+
+    @Test
+    public void nestedTooDeep() throws Exception {
+        crosswalk.setWalkLimits(new WalkLimits(Long.MAX_VALUE, 3, Long.MAX_VALUE, Long.MAX_VALUE));
+        assertThat(exceededLimit("<root><unknown><a><b><simple>abc</simple></b></a></unknown></root>"), is(WalkLimits.Limit.DEPTH));
+    }
+
+    @Test
+    public void tooManyElements() throws Exception {
+        crosswalk.setWalkLimits(new WalkLimits(Long.MAX_VALUE, Integer.MAX_VALUE, 3, Long.MAX_VALUE));
+        assertThat(exceededLimit("<root><simple>a</simple><skipped><a/><b/></skipped></root>"), is(WalkLimits.Limit.ELEMENTS));
+    }
+
+    @Test
+    public void tooMuchAttributeText() throws Exception {
+        crosswalk.setWalkLimits(new WalkLimits(Long.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, 20));
+        assertThat(exceededLimit("<root><simple a='12345678901234567890'>abc</simple></root>"), is(WalkLimits.Limit.ATTRIBUTES));
+    }
+
+    @Test
+    public void tooSlow() throws Exception {
+        crosswalk.setWalkLimits(new WalkLimits(50, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE));
+        final byte[] xml = "<?xml version='1.0' encoding='UTF-8'?><root><simple>abc</simple><simple>def</simple></root>".getBytes("UTF-8");
+        final InputStream slow = new InputStream() {
+            private int next;
+
+            @Override
+            public int read() throws IOException {
+                try {
+                    Thread.sleep(5);
+                }
+                catch (final InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return next < xml.length ? xml[next++] : -1;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                final int c = read();
+                if (c < 0)
+                    return -1;
+                b[off] = (byte) c;
+                return 1;
+            }
+        };
+        try {
+            crosswalk.createFrom(slow);
+            fail("expected a WalkLimitException");
+        }
+        catch (final WalkLimitException e) {
+            assertThat(e.getLimit(), is(WalkLimits.Limit.TIME));
+        }
+    }
+
+    private WalkLimits.Limit exceededLimit(final String xml) throws Exception {
+        try {
+            crosswalk.createFrom(stream(xml));
+        }
+        catch (final WalkLimitException e) {
+            return e.getLimit();
+        }
+        return null;
+    }
+
+    @Test
+    public void flightRecorderEvents() throws Exception {
+        final Recording recording = new Recording();
+        recording.enable("nl.knaw.dans.CrosswalkPhase");
+        recording.start();
+        crosswalk.createFrom("<?xml version='1.0' encoding='UTF-8'?><root><simple>abc</simple><complex><use>def</use></complex><simple>xyz</simple></root>");
+        recording.stop();
+        final File dump = File.createTempFile("crosswalk", ".jfr");
+        recording.dump(dump.toPath());
+        recording.close();
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(dump.toPath());
+        dump.delete();
+
+        assertThat(events.size(), is(2));
+        assertThat(events.get(0).getString("phase"), is("validate"));
+        final RecordedEvent parse = events.get(1);
+        assertThat(parse.getString("phase"), is("parse"));
+        assertThat(parse.getInt("elements"), is(5));
+        assertThat(parse.getInt("errors"), is(2));
+        assertThat(parse.getString("slowestHandler").endsWith("/simple") || parse.getString("slowestHandler").endsWith("/complex"), is(true));
+    }
+
+    @Test
+    public void rulesBeforeValidation() throws Exception {
+        crosswalk.setRules(NOTHING_FORBIDDEN);
+        assertThat(crosswalk.createFrom("<?xml version='1.0' encoding='UTF-8'?><root><simple>abc</simple></root>").toString(), is("-null-abc"));
+
+        // the XSD would report noroot, it is not read after the rules reject the document
+        assertThat(crosswalk.createFrom("<noroot><forbidden/></noroot>"), nullValue());
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().size(), is(1));
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().get(0).getMessage(), is("forbidden"));
+    }
+
+    @Test
+    public void rulesSeeSkippedContent() throws Exception {
+        crosswalk.setRules(NOTHING_FORBIDDEN);
+        assertThat(crosswalk.createFrom(stream("<root><skipped><forbidden/></skipped></root>")), nullValue());
+        assertThat(crosswalk.getXmlErrorHandler().getErrors().size(), is(1));
+    }
+
     @Before
     public void resetErrorHandler() {
         crosswalk.getXmlErrorHandler().reset();
+        crosswalk.setTextLimits(null);
+        crosswalk.setValidationExecutor(null);
+        crosswalk.setErrorPolicy(null);
+        crosswalk.setWalkLimits(null);
+        crosswalk.setRules(null);
     }
 }